@@ -0,0 +1,23 @@
+package com.dam.framework.annotations;
+
+/**
+ * Defines where a second-level cache region keeps its entries.
+ *
+ * @see Cacheable
+ */
+public enum CacheStorage {
+
+    /**
+     * Keep entries as Java objects on the heap. Fastest hits, but every cached
+     * row adds to the heap the garbage collector has to trace.
+     */
+    HEAP,
+
+    /**
+     * Keep entries encoded in a compact binary format in direct memory outside
+     * the Java heap. Hits pay for decoding, but millions of rows can be cached
+     * without longer GC pauses. Space is reclaimed by dropping the oldest
+     * segment, so {@link Cacheable#eviction()} does not apply.
+     */
+    OFF_HEAP
+}
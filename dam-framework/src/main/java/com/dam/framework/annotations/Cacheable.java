@@ -0,0 +1,124 @@
+package com.dam.framework.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an entity as stored in the SessionFactory-wide second-level cache.
+ * <p>
+ * Cached entities are kept as copies of their column values, never as live
+ * instances, so every Session still gets its own objects ({@link Immutable}
+ * entities excepted). Changes made through
+ * the framework evict the affected entries; changes made by other processes
+ * become visible once the entry expires, so set {@link #ttlSeconds()} for data
+ * that is also written elsewhere. Large regions can be moved off the Java heap
+ * with {@link #storage()}.
+ *
+ * <pre>
+ * &#64;Entity
+ * &#64;Table(name = "products")
+ * &#64;Cacheable(maxEntries = 50_000, ttlSeconds = 300, eviction = EvictionPolicy.TINY_LFU)
+ * public class Product {
+ *     // ...
+ * }
+ * </pre>
+ *
+ * @see Entity
+ * @see com.dam.framework.cache.SecondLevelCache
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Cacheable {
+
+    /**
+     * The region name, shown in cache statistics.
+     * By default, it's the fully qualified entity class name
+     * 
+     * @return the region name
+     */
+    String region() default "";
+
+    /**
+     * The maximum number of entities the region keeps. For
+     * {@link Immutable} entities it also bounds the instances shared between
+     * sessions, including in off-heap regions.
+     * 
+     * @return the maximum entry count
+     */
+    int maxEntries() default 10_000;
+
+    /**
+     * Seconds after which an entry expires, or 0 to keep entries until evicted.
+     * 
+     * @return the time to live
+     */
+    long ttlSeconds() default 0;
+
+    /**
+     * The policy for choosing entries to drop when the region is full.
+     * 
+     * @return the eviction policy
+     */
+    EvictionPolicy eviction() default EvictionPolicy.LRU;
+
+    /**
+     * Where the region keeps its entries.
+     *
+     * @return the storage
+     */
+    CacheStorage storage() default CacheStorage.HEAP;
+
+    /**
+     * The memory an {@link CacheStorage#OFF_HEAP off-heap} region may use, in
+     * bytes. Ignored for heap regions, which are bounded by
+     * {@link #maxEntries()} instead.
+     *
+     * @return the off-heap capacity
+     */
+    long maxBytes() default 64L * 1024 * 1024;
+
+    /**
+     * Column holding the row's last modification time or version number,
+     * which must grow on every update. It lets a region restored from a cache
+     * snapshot drop just the rows changed while the application was down;
+     * regions without one are not restored.
+     * <p>
+     * The column only reveals changed rows, so two cases are missed and stay
+     * cached until evicted or expired:
+     * <ul>
+     * <li>rows deleted by other processes while the application was down;</li>
+     * <li>rows whose transaction was still open when the snapshot read the
+     * watermark and committed afterwards with a lower stamp, for example a
+     * timestamp taken when the statement ran. Stamp the column with a
+     * sequence or at commit, or set a {@link #ttlSeconds()}, if writes can
+     * overlap a snapshot like this.</li>
+     * </ul>
+     *
+     * @return the column name, or empty if the table has none
+     */
+    String modifiedColumn() default "";
+
+    /**
+     * Load the whole table into the region when the SessionFactory is built.
+     * Meant for small reference tables such as currencies or categories.
+     * While the region holds every row, simple equality queries are answered
+     * from it without SQL, on numbers, booleans, enums, and strings of
+     * {@link Column#caseSensitive() case-sensitive} columns. The region must
+     * be able to hold the whole table.
+     *
+     * @return true to preload the region
+     */
+    boolean preload() default false;
+
+    /**
+     * Reload a {@link #preload() preloaded} table in the background at this
+     * interval. Choose it shorter than {@link #ttlSeconds()} so entries are
+     * replaced before they expire. A reload also makes the region complete
+     * again after writes through the framework evicted rows.
+     *
+     * @return seconds between reloads, or 0 to load only once
+     */
+    long refreshAfterSeconds() default 0;
+}
@@ -51,4 +51,21 @@ public @interface Column {
      * @return true if unique, false otherwise
      */
     boolean unique() default false;
+    
+    /**
+     * Whether the database compares this string column exactly, character for
+     * character, as PostgreSQL {@code text} and MySQL binary or NO PAD
+     * collations do.
+     * <p>
+     * Equality filters on a {@link Cacheable#preload() preloaded} region are
+     * only answered from memory where Java gives the database's answer. The
+     * default collations of MySQL and SQL Server ignore case, and PAD SPACE
+     * collations ignore trailing spaces, so string columns are filtered by
+     * the database unless declared case-sensitive. A column declared
+     * case-sensitive is compared with {@link String#equals(Object)},
+     * trailing spaces included.
+     * 
+     * @return true if the column's collation compares exactly
+     */
+    boolean caseSensitive() default false;
 }
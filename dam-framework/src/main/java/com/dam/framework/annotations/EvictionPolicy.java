@@ -0,0 +1,24 @@
+package com.dam.framework.annotations;
+
+/**
+ * Defines how a second-level cache region chooses entries to drop when it is
+ * full.
+ * 
+ * @see Cacheable
+ */
+public enum EvictionPolicy {
+
+    /**
+     * Drop the least recently used entry. Cheap and predictable, but a single
+     * scan over many cold rows can flush out the hot ones.
+     */
+    LRU,
+
+    /**
+     * Window TinyLFU: new entries enter a small LRU window and only move into
+     * the main area if they have been requested more often than the entry they
+     * would replace. Keeps hot rows resident under scans, at the cost of a
+     * small frequency sketch per region.
+     */
+    TINY_LFU
+}
@@ -0,0 +1,36 @@
+package com.dam.framework.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an entity whose rows are never updated once inserted, such as audit
+ * records or historic orders.
+ * <p>
+ * Sessions take no snapshot of immutable entities and skip them in
+ * {@code flush()}, so managing them costs nothing beyond the L1 entry.
+ * {@code merge()} and {@code StatelessSession.update()} reject them; inserting
+ * and deleting rows is still allowed.
+ * <p>
+ * If the entity is also {@link Cacheable}, second-level cache hits return one
+ * shared instance per cached row to every Session instead of a new copy.
+ * Application code must therefore never modify immutable entities it loaded.
+ *
+ * <pre>
+ * &#64;Entity
+ * &#64;Immutable
+ * &#64;Cacheable
+ * &#64;Table(name = "audit_log")
+ * public class AuditRecord {
+ *     // ...
+ * }
+ * </pre>
+ *
+ * @see Entity
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Immutable {
+}
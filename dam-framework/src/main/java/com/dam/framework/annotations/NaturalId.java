@@ -0,0 +1,39 @@
+package com.dam.framework.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the business key of an entity: a unique column other than the
+ * primary key that rows are usually looked up by, such as an order number or
+ * an email address.
+ * <p>
+ * At most one field per entity may carry it. Lookups through
+ * {@code Session.findByNaturalId()} are resolved to a primary key through a
+ * SessionFactory-wide index, so repeated lookups of the same key cost no SQL
+ * when the entity itself is cached.
+ * 
+ * <pre>
+ * {@code
+ * @Entity
+ * @Cacheable
+ * public class User {
+ *     @Id
+ *     private Long id;
+ *
+ *     @NaturalId
+ *     @Column(name = "email", unique = true)
+ *     private String email;
+ *     // ...
+ * }
+ * }
+ * </pre>
+ * 
+ * @see Id
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface NaturalId {
+}
@@ -0,0 +1,118 @@
+package com.dam.framework.cache;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Base class for regions: handles time to live, statistics and
+ * locking, and leaves the storage and eviction order to subclasses.
+ * <p>
+ * All storage methods are called while holding the region's monitor.
+ */
+public abstract class AbstractCacheRegion implements CacheRegion {
+
+    /**
+     * A stored state with its expiry time from {@link System#nanoTime()}.
+     */
+    protected record Entry(Object[] state, long expiresAt) {
+    }
+
+    private final String name;
+    private final long ttlNanos;
+    private final CacheStatistics statistics = new CacheStatistics();
+
+    /**
+     * @param name     the region name
+     * @param ttlNanos time to live in nanoseconds, or 0 for no expiry
+     */
+    protected AbstractCacheRegion(String name, long ttlNanos) {
+        if (ttlNanos < 0) {
+            throw new IllegalArgumentException("Time to live must be non-negative");
+        }
+        this.name = name;
+        this.ttlNanos = ttlNanos;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public final synchronized Object[] get(Object key) {
+        Entry entry = lookup(key);
+        if (entry == null) {
+            statistics.recordMiss();
+            return null;
+        }
+        if (ttlNanos > 0 && System.nanoTime() - entry.expiresAt() > 0) {
+            remove(key);
+            statistics.recordExpiration();
+            statistics.recordMiss();
+            return null;
+        }
+        statistics.recordHit();
+        return entry.state();
+    }
+
+    @Override
+    public final synchronized void put(Object key, Object[] state) {
+        store(key, new Entry(state, ttlNanos > 0 ? System.nanoTime() + ttlNanos : 0));
+        statistics.recordPut();
+    }
+
+    @Override
+    public final synchronized void evict(Object key) {
+        remove(key);
+    }
+
+    @Override
+    public final synchronized void evictAll() {
+        removeAll();
+    }
+
+    @Override
+    public final synchronized void forEach(BiConsumer<Object, Object[]> action) {
+        long now = System.nanoTime();
+        forEachEntry((key, entry) -> {
+            if (ttlNanos == 0 || now - entry.expiresAt() <= 0) {
+                action.accept(key, entry.state());
+            }
+        });
+    }
+
+    @Override
+    public final synchronized long size() {
+        return count();
+    }
+
+    /**
+     * Find an entry and record the access for the eviction policy.
+     */
+    protected abstract Entry lookup(Object key);
+
+    /**
+     * Insert or replace an entry, evicting others if the region is over
+     * capacity. Call {@link #recordEviction()} for every dropped entry.
+     */
+    protected abstract void store(Object key, Entry entry);
+
+    protected abstract void remove(Object key);
+
+    protected abstract void removeAll();
+
+    protected abstract long count();
+
+    /**
+     * Visit all entries, expired or not, without recording accesses.
+     */
+    protected abstract void forEachEntry(BiConsumer<Object, Entry> action);
+
+    protected final void recordEviction() {
+        statistics.recordEviction();
+    }
+}
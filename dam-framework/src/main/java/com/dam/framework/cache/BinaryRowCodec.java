@@ -0,0 +1,450 @@
+package com.dam.framework.cache;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import com.dam.framework.mapping.ColumnMetadata;
+import com.dam.framework.mapping.EntityMetadata;
+
+/**
+ * Compact binary encoding of a dehydrated row ({@code Object[]} in metadata
+ * column order), used by off-heap cache regions.
+ * <p>
+ * Layout: a null bitmap of one bit per column, followed by the non-null values
+ * in column order. Integral numbers and temporal values are zig-zag varints,
+ * so small values take one or two bytes; strings and binary values are
+ * length-prefixed. The column types are resolved once when the codec is
+ * built, so no type tags are stored.
+ * <p>
+ * Instances are immutable and thread-safe.
+ */
+public final class BinaryRowCodec {
+
+    private final Kind[] kinds;
+    private final Class<?>[] types;
+    private final int bitmapBytes;
+
+    /**
+     * Build a codec for the columns of an entity.
+     *
+     * @param metadata the entity metadata
+     * @return the codec
+     * @throws IllegalArgumentException if a column type cannot be encoded
+     */
+    public static BinaryRowCodec forEntity(EntityMetadata metadata) {
+        List<ColumnMetadata> columns = metadata.getColumns();
+        Class<?>[] columnTypes = new Class<?>[columns.size()];
+        for (int i = 0; i < columnTypes.length; i++) {
+            columnTypes[i] = columns.get(i).field().getType();
+        }
+        return new BinaryRowCodec(columnTypes);
+    }
+
+    /**
+     * @param columnTypes the Java type of each column, in row order
+     * @throws IllegalArgumentException if a column type cannot be encoded
+     */
+    public BinaryRowCodec(Class<?>... columnTypes) {
+        this.types = columnTypes.clone();
+        this.kinds = new Kind[types.length];
+        for (int i = 0; i < types.length; i++) {
+            kinds[i] = Kind.forType(types[i]);
+        }
+        this.bitmapBytes = (types.length + 7) / 8;
+    }
+
+    /**
+     * Encode a row.
+     *
+     * @param state the column values
+     * @return the encoded bytes
+     */
+    public byte[] encode(Object[] state) {
+        if (state.length != kinds.length) {
+            throw new IllegalArgumentException(
+                    "Expected " + kinds.length + " columns but got " + state.length);
+        }
+        Output out = new Output(bitmapBytes + 8 * kinds.length);
+        out.position = bitmapBytes;
+        for (int i = 0; i < kinds.length; i++) {
+            if (state[i] == null) {
+                out.bytes[i >>> 3] |= (byte) (1 << (i & 7));
+            } else {
+                kinds[i].write(out, state[i]);
+            }
+        }
+        return Arrays.copyOf(out.bytes, out.position);
+    }
+
+    /**
+     * Decode a row starting at the buffer's position. The position is advanced
+     * past the row.
+     *
+     * @param in the encoded row
+     * @return new column values
+     */
+    public Object[] decode(ByteBuffer in) {
+        byte[] bitmap = new byte[bitmapBytes];
+        in.get(bitmap);
+        Object[] state = new Object[kinds.length];
+        for (int i = 0; i < kinds.length; i++) {
+            if ((bitmap[i >>> 3] & (1 << (i & 7))) == 0) {
+                state[i] = kinds[i].read(in, types[i]);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Growable write buffer; unlike ByteArrayOutputStream it is not
+     * synchronized.
+     */
+    private static final class Output {
+
+        private byte[] bytes;
+        private int position;
+
+        Output(int capacity) {
+            this.bytes = new byte[Math.max(16, capacity)];
+        }
+
+        void ensure(int count) {
+            if (position + count > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, position + count));
+            }
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            bytes[position++] = (byte) b;
+        }
+
+        void writeBytes(byte[] b) {
+            writeVarLong(b.length);
+            ensure(b.length);
+            System.arraycopy(b, 0, bytes, position, b.length);
+            position += b.length;
+        }
+
+        void writeFixedLong(long v) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[position++] = (byte) (v >>> shift);
+            }
+        }
+
+        void writeVarLong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                bytes[position++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            bytes[position++] = (byte) v;
+        }
+
+        void writeZigZag(long v) {
+            writeVarLong((v << 1) ^ (v >> 63));
+        }
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    private static long readZigZag(ByteBuffer in) {
+        long v = readVarLong(in);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        byte[] b = new byte[(int) readVarLong(in)];
+        in.get(b);
+        return b;
+    }
+
+    /**
+     * Encoding of one Java type.
+     */
+    private enum Kind {
+        BOOLEAN {
+            void write(Output out, Object v) {
+                out.writeByte((Boolean) v ? 1 : 0);
+            }
+
+            Object read(ByteBuffer in, Class<?> type) {
+                return in.get() != 0;
+            }
+        },
+        BYTE {
+            void write(Output out, Object v) {
+                out.writeByte((Byte) v);
+            }
+
+            Object read(ByteBuffer in, Class<?> type) {
+                return in.get();
+            }
+        },
+        SHORT {
+            void write(Output out, Object v) {
+                out.writeZigZag((Short) v);
+            }
+
+            Object read(ByteBuffer in, Class<?> type) {
+                return (short) readZigZag(in);
+            }
+        },
+        INT {
+            void write(Output out, Object v) {
+                out.writeZigZag((Integer) v);
+            }
+
+            Object read(ByteBuffer in, Class<?> type) {
+                return (int) readZigZag(in);
+            }
+        },
+        LONG {
+            void write(Output out, Object v) {
+                out.writeZigZag((Long) v);
+            }
+
+            Object read(ByteBuffer in, Class<?> type) {
+                return readZigZag(in);
+            }
+        },
+        FLOAT {
+            void write(Output out, Object v) {
+                out.writeVarLong(Integer.toUnsignedLong(Float.floatToIntBits((Float) v)));
+            }
+
+            Object read(ByteBuffer in, Class<?> type) {
+                return Float.intBitsToFloat((int) readVarLong(in));
+            }
+        },
+        DOUBLE {
+            void write(Output out, Object v) {
+                out.writeFixedLong(Double.doubleToLongBits((Double) v));
+            }
+
+            Object read(ByteBuffer in, Class<?> type) {
+                return Double.longBitsToDouble(in.getLong());
+            }
+        },
+        CHAR {
+            void write(Output out, Object v) {
+                out.writeVarLong((Character) v);
+            }
+
+            Object read(ByteBuffer in, Class<?> type) {
+                return (char) readVarLong(in);
+            }
+        },
+        STRING {
+            void write(Output out, Object v) {
+                out.writeBytes(((String) v).getBytes(StandardCharsets.UTF_8));
+            }
+
+            Object read(ByteBuffer in, Class<?> type) {
+                return new String(readBytes(in), StandardCharsets.UTF_8);
+            }
+        },
+        CHAR_ARRAY {
+            void write(Output out, Object v) {
+                out.writeBytes(new String((char[]) v).getBytes(StandardCharsets.UTF_8));
+            }
+
+            Object read(ByteBuffer in, Class<?> type) {
+                return new String(readBytes(in), StandardCharsets.UTF_8).toCharArray();
+            }
+        },
+        BYTES {
+            void write(Output out, Object v) {
+                out.writeBytes((byte[]) v);
+            }
+
+            Object read(ByteBuffer in, Class<?> type) {
+                return readBytes(in);
+            }
+        },
+        BIG_DECIMAL {
+            void write(Output out, Object v) {
+                BigDecimal d = (BigDecimal) v;
+                out.writeZigZag(d.scale());
+                out.writeBytes(d.unscaledValue().toByteArray());
+            }
+
+            Object read(ByteBuffer in, Class<?> type) {
+                int scale = (int) readZigZag(in);
+                return new BigDecimal(new BigInteger(readBytes(in)), scale);
+            }
+        },
+        BIG_INTEGER {
+            void write(Output out, Object v) {
+                out.writeBytes(((BigInteger) v).toByteArray());
+            }
+
+            Object read(ByteBuffer in, Class<?> type) {
+                return new BigInteger(readBytes(in));
+            }
+        },
+        UUID_VALUE {
+            void write(Output out, Object v) {
+                out.writeFixedLong(((UUID) v).getMostSignificantBits());
+                out.writeFixedLong(((UUID) v).getLeastSignificantBits());
+            }
+
+            Object read(ByteBuffer in, Class<?> type) {
+                return new UUID(in.getLong(), in.getLong());
+            }
+        },
+        LOCAL_DATE {
+            void write(Output out, Object v) {
+                out.writeZigZag(((LocalDate) v).toEpochDay());
+            }
+
+            Object read(ByteBuffer in, Class<?> type) {
+                return LocalDate.ofEpochDay(readZigZag(in));
+            }
+        },
+        LOCAL_TIME {
+            void write(Output out, Object v) {
+                out.writeVarLong(((LocalTime) v).toNanoOfDay());
+            }
+
+            Object read(ByteBuffer in, Class<?> type) {
+                return LocalTime.ofNanoOfDay(readVarLong(in));
+            }
+        },
+        LOCAL_DATE_TIME {
+            void write(Output out, Object v) {
+                LocalDateTime t = (LocalDateTime) v;
+                out.writeZigZag(t.toEpochSecond(ZoneOffset.UTC));
+                out.writeVarLong(t.getNano());
+            }
+
+            Object read(ByteBuffer in, Class<?> type) {
+                long seconds = readZigZag(in);
+                return LocalDateTime.ofEpochSecond(seconds, (int) readVarLong(in), ZoneOffset.UTC);
+            }
+        },
+        INSTANT {
+            void write(Output out, Object v) {
+                out.writeZigZag(((Instant) v).getEpochSecond());
+                out.writeVarLong(((Instant) v).getNano());
+            }
+
+            Object read(ByteBuffer in, Class<?> type) {
+                long seconds = readZigZag(in);
+                return Instant.ofEpochSecond(seconds, readVarLong(in));
+            }
+        },
+        TIMESTAMP {
+            void write(Output out, Object v) {
+                java.sql.Timestamp t = (java.sql.Timestamp) v;
+                out.writeZigZag(t.getTime());
+                out.writeVarLong(t.getNanos());
+            }
+
+            Object read(ByteBuffer in, Class<?> type) {
+                java.sql.Timestamp t = new java.sql.Timestamp(readZigZag(in));
+                t.setNanos((int) readVarLong(in));
+                return t;
+            }
+        },
+        // java.util.Date, java.sql.Date and java.sql.Time all wrap epoch millis
+        EPOCH_MILLIS {
+            void write(Output out, Object v) {
+                out.writeZigZag(((Date) v).getTime());
+            }
+
+            Object read(ByteBuffer in, Class<?> type) {
+                long millis = readZigZag(in);
+                if (type == java.sql.Date.class) {
+                    return new java.sql.Date(millis);
+                }
+                if (type == java.sql.Time.class) {
+                    return new java.sql.Time(millis);
+                }
+                return new Date(millis);
+            }
+        },
+        ENUM {
+            void write(Output out, Object v) {
+                out.writeVarLong(((Enum<?>) v).ordinal());
+            }
+
+            Object read(ByteBuffer in, Class<?> type) {
+                return type.getEnumConstants()[(int) readVarLong(in)];
+            }
+        };
+
+        abstract void write(Output out, Object value);
+
+        abstract Object read(ByteBuffer in, Class<?> type);
+
+        static Kind forType(Class<?> type) {
+            if (type == boolean.class || type == Boolean.class) {
+                return BOOLEAN;
+            } else if (type == byte.class || type == Byte.class) {
+                return BYTE;
+            } else if (type == short.class || type == Short.class) {
+                return SHORT;
+            } else if (type == int.class || type == Integer.class) {
+                return INT;
+            } else if (type == long.class || type == Long.class) {
+                return LONG;
+            } else if (type == float.class || type == Float.class) {
+                return FLOAT;
+            } else if (type == double.class || type == Double.class) {
+                return DOUBLE;
+            } else if (type == char.class || type == Character.class) {
+                return CHAR;
+            } else if (type == String.class) {
+                return STRING;
+            } else if (type == char[].class) {
+                return CHAR_ARRAY;
+            } else if (type == byte[].class) {
+                return BYTES;
+            } else if (type == BigDecimal.class) {
+                return BIG_DECIMAL;
+            } else if (type == BigInteger.class) {
+                return BIG_INTEGER;
+            } else if (type == UUID.class) {
+                return UUID_VALUE;
+            } else if (type == LocalDate.class) {
+                return LOCAL_DATE;
+            } else if (type == LocalTime.class) {
+                return LOCAL_TIME;
+            } else if (type == LocalDateTime.class) {
+                return LOCAL_DATE_TIME;
+            } else if (type == Instant.class) {
+                return INSTANT;
+            } else if (type == java.sql.Timestamp.class) {
+                return TIMESTAMP;
+            } else if (type == Date.class || type == java.sql.Date.class || type == java.sql.Time.class) {
+                return EPOCH_MILLIS;
+            } else if (type.isEnum()) {
+                return ENUM;
+            }
+            throw new IllegalArgumentException("Type not supported by BinaryRowCodec: " + type.getName());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.dam.framework.cache;
+
+import java.util.function.BiConsumer;
+
+/**
+ * A named, bounded store of dehydrated rows shared by all sessions of a
+ * SessionFactory.
+ * <p>
+ * Values are column states ({@code Object[]} in metadata column order), never
+ * live entity instances. Implementations must be thread-safe; callers must not
+ * modify arrays passed to {@link #put(Object, Object[])} or returned by
+ * {@link #get(Object)}.
+ *
+ * @see SecondLevelCache
+ * @see AbstractCacheRegion
+ */
+public interface CacheRegion {
+
+    /**
+     * Get the region name.
+     *
+     * @return the name, as used in statistics
+     */
+    String getName();
+
+    /**
+     * Look up a cached state.
+     *
+     * @param key the cache key
+     * @return the state, or null on a miss or an expired entry
+     */
+    Object[] get(Object key);
+
+    /**
+     * Store a state, possibly evicting other entries.
+     *
+     * @param key   the cache key
+     * @param state the dehydrated column values
+     */
+    void put(Object key, Object[] state);
+
+    /**
+     * Remove one entry if present.
+     *
+     * @param key the cache key
+     */
+    void evict(Object key);
+
+    /**
+     * Remove all entries.
+     */
+    void evictAll();
+
+    /**
+     * Visit every entry that has not expired, for example to write a
+     * snapshot. The region is locked while it is traversed, so the action
+     * must not call back into it and should only collect what it needs;
+     * slow work such as I/O belongs after the traversal.
+     *
+     * @param action receives each key and state
+     */
+    void forEach(BiConsumer<Object, Object[]> action);
+
+    /**
+     * Get the number of entries currently held, including expired entries not
+     * yet removed.
+     *
+     * @return the entry count
+     */
+    long size();
+
+    /**
+     * Get the statistics of this region.
+     *
+     * @return live statistics, updated as the region is used
+     */
+    CacheStatistics getStatistics();
+}
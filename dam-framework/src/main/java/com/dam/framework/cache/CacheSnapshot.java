@@ -0,0 +1,346 @@
+package com.dam.framework.cache;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.dam.framework.mapping.ColumnMetadata;
+import com.dam.framework.mapping.EntityMetadata;
+
+/**
+ * Reads and writes the entity regions of a {@link SecondLevelCache} to a local
+ * file, so a restarted application starts with a warm cache.
+ * <p>
+ * The file is written and read through memory-mapped windows, with every row
+ * encoded by a {@link BinaryRowCodec}. Each region is stored with a
+ * fingerprint of its entity mapping and a <em>watermark</em>: the highest
+ * value of the region's {@link com.dam.framework.annotations.Cacheable#modifiedColumn()
+ * modification column} when the snapshot was taken. After reading, the caller
+ * evicts the rows modified since the watermark. Regions whose mapping changed
+ * are skipped.
+ * <p>
+ * Files are written to a temporary file first and then moved into place, so a
+ * crash never leaves a truncated snapshot behind.
+ */
+public final class CacheSnapshot {
+
+    // "DAMC"
+    private static final int MAGIC = 0x44414D43;
+    private static final int FORMAT_VERSION = 1;
+    private static final int WINDOW_SIZE = 16 * 1024 * 1024;
+    private static final int END_OF_REGION = 0;
+
+    private CacheSnapshot() {
+    }
+
+    /**
+     * Compute a fingerprint of an entity mapping. It changes whenever the
+     * table, a column name or a column type changes, including the constants
+     * of enum columns, since any of those would make stored rows unreadable
+     * or wrong.
+     *
+     * @param metadata the entity metadata
+     * @return a 64-bit FNV-1a hash
+     */
+    public static long fingerprint(EntityMetadata metadata) {
+        StringBuilder layout = new StringBuilder()
+                .append(metadata.getSchema()).append('.').append(metadata.getTableName())
+                .append('#').append(metadata.getIdColumn().columnName());
+        for (ColumnMetadata column : metadata.getColumns()) {
+            Class<?> type = column.field().getType();
+            layout.append('|').append(column.columnName()).append(':').append(type.getName());
+            if (type.isEnum()) {
+                for (Object constant : type.getEnumConstants()) {
+                    layout.append(',').append(((Enum<?>) constant).name());
+                }
+            }
+        }
+
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : layout.toString().getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Write the regions of the given entity classes.
+     *
+     * @param file             the snapshot file, replaced if it exists
+     * @param cache            the cache to read from
+     * @param metadataRegistry the entity metadata of the SessionFactory
+     * @param watermarks       entity class to the current highest value of its
+     *                         modification column; only these regions are
+     *                         written
+     * @return the number of rows written
+     * @throws IOException if the file cannot be written
+     */
+    public static long write(Path file, SecondLevelCache cache, Map<Class<?>, EntityMetadata> metadataRegistry,
+            Map<Class<?>, Object> watermarks) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        long rows = 0;
+        boolean written = false;
+        try {
+            try (MappedOutput out = new MappedOutput(temp)) {
+                out.putInt(MAGIC);
+                out.putInt(FORMAT_VERSION);
+                out.putInt(watermarks.size());
+                for (Map.Entry<Class<?>, Object> entry : watermarks.entrySet()) {
+                    rows += writeRegion(out, cache, metadataRegistry.get(entry.getKey()), entry.getValue());
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            written = true;
+        } finally {
+            if (!written) {
+                Files.deleteIfExists(temp);
+            }
+        }
+        return rows;
+    }
+
+    private static long writeRegion(MappedOutput out, SecondLevelCache cache, EntityMetadata metadata,
+            Object watermark) throws IOException {
+        Class<?> entityClass = metadata.getEntityClass();
+        BinaryRowCodec keyCodec = new BinaryRowCodec(metadata.getIdColumn().javaType());
+        BinaryRowCodec rowCodec = BinaryRowCodec.forEntity(metadata);
+        BinaryRowCodec watermarkCodec = new BinaryRowCodec(cache.getModifiedColumn(entityClass).field().getType());
+
+        out.putBytes(entityClass.getName().getBytes(StandardCharsets.UTF_8));
+        out.putLong(fingerprint(metadata));
+        out.putBytes(watermarkCodec.encode(new Object[] { watermark }));
+
+        // Copy the entries out first: the region is locked while it is
+        // traversed, and reads and writes must not wait for the file
+        List<Object> keys = new ArrayList<>();
+        List<Object[]> states = new ArrayList<>();
+        cache.getRegion(entityClass).forEach((key, state) -> {
+            keys.add(key);
+            states.add(state);
+        });
+
+        for (int i = 0; i < keys.size(); i++) {
+            // an encoded key is never empty, so a zero length ends the region
+            out.putBytes(keyCodec.encode(new Object[] { keys.get(i) }));
+            out.putBytes(rowCodec.encode(states.get(i)));
+        }
+        out.putInt(END_OF_REGION);
+        return keys.size();
+    }
+
+    /**
+     * Load the regions of a snapshot into the cache. Regions of entity classes
+     * that are no longer cached, or whose fingerprint differs, are skipped.
+     *
+     * @param file             the snapshot file
+     * @param cache            the cache to fill
+     * @param metadataRegistry the entity metadata of the SessionFactory
+     * @return entity class to watermark, for every region that was loaded
+     * @throws IOException if the file cannot be read or is not a valid
+     *                     snapshot; the cache is cleared in that case, since
+     *                     rows already loaded could not be refreshed
+     */
+    public static Map<Class<?>, Object> read(Path file, SecondLevelCache cache,
+            Map<Class<?>, EntityMetadata> metadataRegistry) throws IOException {
+        Map<String, EntityMetadata> byName = new HashMap<>();
+        for (EntityMetadata metadata : metadataRegistry.values()) {
+            byName.put(metadata.getEntityClass().getName(), metadata);
+        }
+
+        Map<Class<?>, Object> watermarks = new LinkedHashMap<>();
+        try (MappedInput in = new MappedInput(file)) {
+            readRegions(in, file, cache, byName, watermarks);
+        } catch (IOException e) {
+            cache.evictAll();
+            throw e;
+        } catch (RuntimeException e) {
+            // malformed values from the codec
+            cache.evictAll();
+            throw new IOException("Corrupt cache snapshot: " + file, e);
+        }
+        return watermarks;
+    }
+
+    private static void readRegions(MappedInput in, Path file, SecondLevelCache cache,
+            Map<String, EntityMetadata> byName, Map<Class<?>, Object> watermarks) throws IOException {
+        if (in.getInt() != MAGIC) {
+            throw new IOException("Not a cache snapshot: " + file);
+        }
+        int version = in.getInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported cache snapshot version " + version + ": " + file);
+        }
+        int regionCount = in.getInt();
+        for (int i = 0; i < regionCount; i++) {
+            String className = new String(in.getBytes(), StandardCharsets.UTF_8);
+            long fingerprint = in.getLong();
+            byte[] watermark = in.getBytes();
+
+            EntityMetadata metadata = byName.get(className);
+            if (metadata == null || cache.getModifiedColumn(metadata.getEntityClass()) == null
+                    || fingerprint != fingerprint(metadata)) {
+                skipRegion(in);
+                continue;
+            }
+            Class<?> entityClass = metadata.getEntityClass();
+            BinaryRowCodec watermarkCodec = new BinaryRowCodec(
+                    cache.getModifiedColumn(entityClass).field().getType());
+            readRegion(in, cache.getRegion(entityClass), metadata);
+            watermarks.put(entityClass, watermarkCodec.decode(ByteBuffer.wrap(watermark))[0]);
+        }
+    }
+
+    private static void readRegion(MappedInput in, CacheRegion region, EntityMetadata metadata)
+            throws IOException {
+        BinaryRowCodec keyCodec = new BinaryRowCodec(metadata.getIdColumn().javaType());
+        BinaryRowCodec rowCodec = BinaryRowCodec.forEntity(metadata);
+        int keyLength;
+        while ((keyLength = in.getInt()) != END_OF_REGION) {
+            Object key = keyCodec.decode(in.slice(keyLength))[0];
+            region.put(key, rowCodec.decode(in.slice(in.getInt())));
+        }
+    }
+
+    private static void skipRegion(MappedInput in) throws IOException {
+        int keyLength;
+        while ((keyLength = in.getInt()) != END_OF_REGION) {
+            in.slice(keyLength);
+            in.slice(in.getInt());
+        }
+    }
+
+    /**
+     * Sequential writer over consecutive mapped windows of a file.
+     */
+    private static final class MappedOutput implements AutoCloseable {
+
+        private final FileChannel channel;
+        private MappedByteBuffer buffer;
+        // file offset of the current window
+        private long base;
+
+        MappedOutput(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, WINDOW_SIZE);
+        }
+
+        private void ensure(int count) throws IOException {
+            if (buffer.remaining() < count) {
+                buffer.force();
+                base += buffer.position();
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, base, Math.max(WINDOW_SIZE, count));
+            }
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            ensure(Integer.BYTES + bytes.length);
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                buffer.force();
+                // drop the unused tail of the last window
+                channel.truncate(base + buffer.position());
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Sequential reader over consecutive mapped windows of a file.
+     */
+    private static final class MappedInput implements AutoCloseable {
+
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer buffer;
+        private long base;
+
+        MappedInput(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.size = channel.size();
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(WINDOW_SIZE, size));
+        }
+
+        private void ensure(int count) throws IOException {
+            if (count < 0) {
+                throw new IOException("Corrupt cache snapshot: negative length");
+            }
+            if (buffer.remaining() < count) {
+                base += buffer.position();
+                long length = Math.min(Math.max(WINDOW_SIZE, count), size - base);
+                if (length < count) {
+                    throw new EOFException("Cache snapshot is truncated");
+                }
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, base, length);
+            }
+        }
+
+        int getInt() throws IOException {
+            ensure(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        long getLong() throws IOException {
+            ensure(Long.BYTES);
+            return buffer.getLong();
+        }
+
+        byte[] getBytes() throws IOException {
+            int length = getInt();
+            ensure(length);
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return bytes;
+        }
+
+        /**
+         * View the next bytes without copying them and skip past them.
+         */
+        ByteBuffer slice(int length) throws IOException {
+            ensure(length);
+            ByteBuffer view = buffer.slice(buffer.position(), length);
+            buffer.position(buffer.position() + length);
+            return view;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
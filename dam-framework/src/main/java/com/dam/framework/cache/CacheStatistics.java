@@ -0,0 +1,85 @@
+package com.dam.framework.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit, miss and eviction counters of one {@link CacheRegion}.
+ * <p>
+ * Counters are updated concurrently by all sessions and read without locking,
+ * so a snapshot of several counters is not atomic.
+ */
+public final class CacheStatistics {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public void recordHit() {
+        hits.increment();
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    public void recordPut() {
+        puts.increment();
+    }
+
+    public void recordEviction() {
+        evictions.increment();
+    }
+
+    public void recordExpiration() {
+        expirations.increment();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getPutCount() {
+        return puts.sum();
+    }
+
+    /**
+     * Get the number of entries dropped to make room for others.
+     *
+     * @return the capacity eviction count
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Get the number of entries dropped because their time to live passed.
+     *
+     * @return the expiration count
+     */
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    /**
+     * Get the share of lookups that were hits.
+     *
+     * @return hits / (hits + misses), or 0 if there were no lookups
+     */
+    public double getHitRatio() {
+        long hitCount = getHitCount();
+        long total = hitCount + getMissCount();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheStatistics[hits=%d, misses=%d, puts=%d, evictions=%d, expirations=%d]",
+                getHitCount(), getMissCount(), getPutCount(), getEvictionCount(), getExpirationCount());
+    }
+}
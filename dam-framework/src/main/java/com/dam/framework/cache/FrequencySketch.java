@@ -0,0 +1,70 @@
+package com.dam.framework.cache;
+
+/**
+ * Count-min sketch of 4-bit counters estimating how often keys were accessed.
+ * <p>
+ * All counters are halved once the number of recorded accesses reaches ten
+ * times the width, so the estimate follows recent popularity instead of
+ * growing forever. Not thread-safe; callers hold the region's monitor.
+ */
+final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = { 0x97CB3127, 0x5B1D4F2B, 0x6A09E667, 0xBB67AE85 };
+
+    private final byte[] counters;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int expectedEntries) {
+        int width = Integer.highestOneBit(Math.max(16, expectedEntries - 1) << 1);
+        this.counters = new byte[DEPTH * width];
+        this.mask = width - 1;
+        this.sampleSize = 10 * width;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = indexOf(hash, row);
+            if (counters[index] < MAX_COUNT) {
+                counters[index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int min = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, counters[indexOf(hash, row)]);
+        }
+        return min;
+    }
+
+    private void reset() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] >>= 1;
+        }
+        additions /= 2;
+    }
+
+    private int indexOf(int hash, int row) {
+        int h = hash * SEEDS[row];
+        h ^= h >>> 17;
+        return row * (mask + 1) + (h & mask);
+    }
+
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x45D9F3B;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,405 @@
+package com.dam.framework.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.dam.framework.mapping.EntityMetadata;
+
+/**
+ * Keeps the second-level caches of several SessionFactories, usually on
+ * different nodes, consistent with each other.
+ * <p>
+ * After a transaction commits, the rows and tables it wrote are published
+ * through an {@link InvalidationTransport}; every other node evicts those rows
+ * from its {@link SecondLevelCache} and invalidates the cached query results
+ * of those tables. Invalidations are coalesced while they wait to be sent:
+ * a row written twice is sent once, and a region with more than
+ * {@value #MAX_IDS_PER_REGION} written rows is sent as a single region-wide
+ * eviction.
+ * <p>
+ * With a linger time of 0, each transaction's invalidations are sent as one
+ * batch from the committing thread. With a positive linger time they are
+ * handed to a background sender that waits that long to batch the
+ * invalidations of concurrent transactions together.
+ * <p>
+ * Messages are compact binary: entity classes are named once per message and
+ * primary keys are encoded with a {@link BinaryRowCodec}. Nodes must map the
+ * same entity classes; invalidations of unknown classes are ignored.
+ */
+public final class InvalidationBus implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvalidationBus.class);
+
+    static final int MAX_IDS_PER_REGION = 512;
+
+    // "DAMI"
+    private static final int MAGIC = 0x44414D49;
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte END = 0;
+    private static final byte CLASS_NAME = 1;
+    private static final byte ROW = 2;
+    private static final byte REGION = 3;
+    private static final byte TABLE = 4;
+    // room left for the largest entry when deciding to start a new message
+    private static final int ENTRY_RESERVE = 1024;
+
+    private final SecondLevelCache cache;
+    private final Map<String, EntityMetadata> metadataByName = new HashMap<>();
+    private final Map<Class<?>, BinaryRowCodec> idCodecs = new HashMap<>();
+    private final InvalidationTransport transport;
+    private final long lingerMillis;
+    private final long nodeId = ThreadLocalRandom.current().nextLong();
+    private final InvalidationStatistics statistics = new InvalidationStatistics();
+
+    // guarded by this
+    private Map<Class<?>, Set<Object>> pendingRows = new LinkedHashMap<>();
+    private Set<Class<?>> pendingRegions = new LinkedHashSet<>();
+    private Set<String> pendingTables = new LinkedHashSet<>();
+    private boolean closed;
+
+    // null when batches are sent from the committing thread
+    private final Thread sender;
+
+    /**
+     * Start listening on the transport.
+     *
+     * @param cache            the cache to evict from and publish for
+     * @param metadataRegistry the entity metadata of the SessionFactory
+     * @param transport        the transport shared with the other nodes
+     * @param lingerMillis     how long the background sender waits to batch
+     *                         invalidations, or 0 to send each transaction's
+     *                         batch right after it commits
+     * @throws IOException if the transport cannot start
+     */
+    public InvalidationBus(SecondLevelCache cache, Map<Class<?>, EntityMetadata> metadataRegistry,
+            InvalidationTransport transport, long lingerMillis) throws IOException {
+        if (lingerMillis < 0) {
+            throw new IllegalArgumentException("Linger time must be non-negative");
+        }
+        this.cache = cache;
+        this.transport = transport;
+        this.lingerMillis = lingerMillis;
+        for (EntityMetadata metadata : metadataRegistry.values()) {
+            metadataByName.put(metadata.getEntityClass().getName(), metadata);
+            idCodecs.put(metadata.getEntityClass(), new BinaryRowCodec(metadata.getIdColumn().javaType()));
+        }
+
+        if (lingerMillis > 0) {
+            this.sender = new Thread(this::sendLoop, "dam-cache-invalidation");
+            sender.setDaemon(true);
+            sender.start();
+        } else {
+            this.sender = null;
+        }
+        transport.start(this::receive);
+    }
+
+    /**
+     * Queue the invalidation of a written row and of its table's cached
+     * queries.
+     *
+     * @param entityClass the entity class
+     * @param id          the primary key
+     * @param table       the entity's table
+     */
+    public synchronized void publish(Class<?> entityClass, Object id, String table) {
+        pendingTables.add(table.toLowerCase(Locale.ROOT));
+        if (!cache.isCacheable(entityClass) || pendingRegions.contains(entityClass)) {
+            return;
+        }
+        Set<Object> ids = pendingRows.computeIfAbsent(entityClass, cls -> new LinkedHashSet<>());
+        ids.add(id);
+        if (ids.size() > MAX_IDS_PER_REGION) {
+            pendingRows.remove(entityClass);
+            pendingRegions.add(entityClass);
+        }
+    }
+
+    /**
+     * Queue the invalidation of every cached row of an entity class and of
+     * its table's cached queries, after a write whose rows are not known.
+     *
+     * @param entityClass the entity class
+     * @param table       the entity's table
+     */
+    public synchronized void publishRegion(Class<?> entityClass, String table) {
+        pendingTables.add(table.toLowerCase(Locale.ROOT));
+        if (cache.isCacheable(entityClass)) {
+            pendingRows.remove(entityClass);
+            pendingRegions.add(entityClass);
+        }
+    }
+
+    /**
+     * Mark the end of a transaction's invalidations: without linger time they
+     * are sent now, otherwise the background sender is woken up.
+     */
+    public void endBatch() {
+        if (sender == null) {
+            flush();
+        } else {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Send everything queued now. Send failures are logged; the other nodes
+     * then keep stale entries until they expire.
+     */
+    public void flush() {
+        Map<Class<?>, Set<Object>> rows;
+        Set<Class<?>> regions;
+        Set<String> tables;
+        synchronized (this) {
+            if (pendingRows.isEmpty() && pendingRegions.isEmpty() && pendingTables.isEmpty()) {
+                return;
+            }
+            rows = pendingRows;
+            regions = pendingRegions;
+            tables = pendingTables;
+            pendingRows = new LinkedHashMap<>();
+            pendingRegions = new LinkedHashSet<>();
+            pendingTables = new LinkedHashSet<>();
+        }
+
+        // one send at a time, transports need not be thread-safe
+        synchronized (transport) {
+            try {
+                for (Message message : encode(rows, regions, tables)) {
+                    transport.publish(message.bytes());
+                    statistics.recordSent(message.invalidations());
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Could not publish cache invalidations, other nodes may serve stale rows", e);
+            }
+        }
+    }
+
+    private void sendLoop() {
+        while (true) {
+            synchronized (this) {
+                while (!closed && pendingRows.isEmpty() && pendingRegions.isEmpty() && pendingTables.isEmpty()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+            }
+            try {
+                Thread.sleep(lingerMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            flush();
+        }
+    }
+
+    private record Message(byte[] bytes, int invalidations) {
+    }
+
+    /**
+     * Encode a batch, split into messages the transport can carry.
+     */
+    private List<Message> encode(Map<Class<?>, Set<Object>> rows, Set<Class<?>> regions, Set<String> tables)
+            throws IOException {
+        MessageWriter writer = new MessageWriter();
+        for (String table : tables) {
+            writer.table(table);
+        }
+        for (Class<?> entityClass : regions) {
+            writer.region(entityClass);
+        }
+        for (Map.Entry<Class<?>, Set<Object>> entry : rows.entrySet()) {
+            BinaryRowCodec codec = idCodecs.get(entry.getKey());
+            for (Object id : entry.getValue()) {
+                writer.row(entry.getKey(), codec.encode(new Object[] { id }));
+            }
+        }
+        return writer.finish();
+    }
+
+    /**
+     * Writes entries into consecutive messages, starting a new one when the
+     * current one is close to the transport's limit.
+     */
+    private final class MessageWriter {
+
+        private final List<Message> messages = new ArrayList<>();
+        private ByteArrayOutputStream buffer;
+        private DataOutputStream out;
+        private int invalidations;
+        // classes named in the current message
+        private Map<Class<?>, Integer> classIndexes;
+
+        void table(String table) throws IOException {
+            ensureRoom();
+            out.writeByte(TABLE);
+            out.writeUTF(table);
+            invalidations++;
+        }
+
+        void region(Class<?> entityClass) throws IOException {
+            ensureRoom();
+            int index = classIndex(entityClass);
+            out.writeByte(REGION);
+            out.writeShort(index);
+            invalidations++;
+        }
+
+        void row(Class<?> entityClass, byte[] id) throws IOException {
+            ensureRoom();
+            int index = classIndex(entityClass);
+            out.writeByte(ROW);
+            out.writeShort(index);
+            out.writeShort(id.length);
+            out.write(id);
+            invalidations++;
+        }
+
+        private void ensureRoom() throws IOException {
+            if (out != null && buffer.size() <= transport.getMaxMessageSize() - ENTRY_RESERVE) {
+                return;
+            }
+            finishMessage();
+            buffer = new ByteArrayOutputStream();
+            out = new DataOutputStream(buffer);
+            classIndexes = new HashMap<>();
+            out.writeInt(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            out.writeLong(nodeId);
+            out.writeLong(nowMicros());
+        }
+
+        private int classIndex(Class<?> entityClass) throws IOException {
+            Integer index = classIndexes.get(entityClass);
+            if (index == null) {
+                out.writeByte(CLASS_NAME);
+                out.writeUTF(entityClass.getName());
+                index = classIndexes.size();
+                classIndexes.put(entityClass, index);
+            }
+            return index;
+        }
+
+        private void finishMessage() throws IOException {
+            if (out != null) {
+                out.writeByte(END);
+                messages.add(new Message(buffer.toByteArray(), invalidations));
+                invalidations = 0;
+            }
+        }
+
+        List<Message> finish() throws IOException {
+            finishMessage();
+            return messages;
+        }
+    }
+
+    /**
+     * Apply a message from another node.
+     */
+    private void receive(byte[] message) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(message))) {
+            if (in.readInt() != MAGIC || in.readByte() != FORMAT_VERSION) {
+                statistics.recordMalformed();
+                return;
+            }
+            if (in.readLong() == nodeId) {
+                return;
+            }
+            long sentAt = in.readLong();
+
+            List<EntityMetadata> classes = new ArrayList<>();
+            int invalidations = 0;
+            byte tag;
+            while ((tag = in.readByte()) != END) {
+                switch (tag) {
+                    case CLASS_NAME -> classes.add(metadataByName.get(in.readUTF()));
+                    case TABLE -> {
+                        cache.getQueryCache().invalidateTable(in.readUTF());
+                        invalidations++;
+                    }
+                    case REGION -> {
+                        EntityMetadata metadata = classes.get(in.readUnsignedShort());
+                        if (metadata != null) {
+                            cache.evictAll(metadata.getEntityClass());
+                        }
+                        invalidations++;
+                    }
+                    case ROW -> {
+                        EntityMetadata metadata = classes.get(in.readUnsignedShort());
+                        byte[] id = new byte[in.readUnsignedShort()];
+                        in.readFully(id);
+                        if (metadata != null) {
+                            cache.evict(metadata.getEntityClass(),
+                                    idCodecs.get(metadata.getEntityClass()).decode(ByteBuffer.wrap(id))[0]);
+                        }
+                        invalidations++;
+                    }
+                    default -> throw new IOException("Unknown entry " + tag);
+                }
+            }
+            statistics.recordReceived(invalidations, nowMicros() - sentAt);
+        } catch (IOException | RuntimeException e) {
+            statistics.recordMalformed();
+            logger.warn("Ignoring malformed cache invalidation message", e);
+        }
+    }
+
+    private static long nowMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000 + now.getNano() / 1_000;
+    }
+
+    /**
+     * Get message and latency counters.
+     *
+     * @return live statistics
+     */
+    public InvalidationStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Send what is still queued and close the transport.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        if (sender != null) {
+            try {
+                sender.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        transport.close();
+    }
+}
@@ -0,0 +1,98 @@
+package com.dam.framework.cache;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Message and latency counters of an {@link InvalidationBus}.
+ * <p>
+ * Latency is measured from the sender's wall clock when the message was sent
+ * to the receiver's wall clock when it was applied, so across hosts it is
+ * only as accurate as their clock synchronization.
+ */
+public final class InvalidationStatistics {
+
+    private final LongAdder messagesSent = new LongAdder();
+    private final LongAdder invalidationsSent = new LongAdder();
+    private final LongAdder messagesReceived = new LongAdder();
+    private final LongAdder invalidationsReceived = new LongAdder();
+    private final LongAdder malformedMessages = new LongAdder();
+    private final LongAdder totalLatencyMicros = new LongAdder();
+    private final LongAccumulator maxLatencyMicros = new LongAccumulator(Math::max, 0);
+
+    void recordSent(int invalidations) {
+        messagesSent.increment();
+        invalidationsSent.add(invalidations);
+    }
+
+    void recordReceived(int invalidations, long latencyMicros) {
+        messagesReceived.increment();
+        invalidationsReceived.add(invalidations);
+        // clocks of different hosts may disagree either way
+        long latency = Math.max(0, latencyMicros);
+        totalLatencyMicros.add(latency);
+        maxLatencyMicros.accumulate(latency);
+    }
+
+    void recordMalformed() {
+        malformedMessages.increment();
+    }
+
+    public long getMessagesSent() {
+        return messagesSent.sum();
+    }
+
+    /**
+     * Get the number of invalidations sent, after coalescing.
+     *
+     * @return the invalidation count, one per row, table or region
+     */
+    public long getInvalidationsSent() {
+        return invalidationsSent.sum();
+    }
+
+    public long getMessagesReceived() {
+        return messagesReceived.sum();
+    }
+
+    public long getInvalidationsReceived() {
+        return invalidationsReceived.sum();
+    }
+
+    /**
+     * Get the number of received messages that could not be decoded, for
+     * example from a node of another application version.
+     *
+     * @return the malformed message count
+     */
+    public long getMalformedMessages() {
+        return malformedMessages.sum();
+    }
+
+    /**
+     * Get the mean time between sending and applying a message.
+     *
+     * @return the latency in microseconds, or 0 if nothing was received
+     */
+    public double getAverageLatencyMicros() {
+        long received = getMessagesReceived();
+        return received == 0 ? 0.0 : (double) totalLatencyMicros.sum() / received;
+    }
+
+    /**
+     * Get the longest time between sending and applying a message.
+     *
+     * @return the latency in microseconds
+     */
+    public long getMaxLatencyMicros() {
+        return maxLatencyMicros.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("InvalidationStatistics[sent=%d/%d, received=%d/%d, malformed=%d, "
+                + "avgLatency=%.1fus, maxLatency=%dus]",
+                getMessagesSent(), getInvalidationsSent(), getMessagesReceived(), getInvalidationsReceived(),
+                getMalformedMessages(), getAverageLatencyMicros(), getMaxLatencyMicros());
+    }
+}
@@ -0,0 +1,49 @@
+package com.dam.framework.cache;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Carries {@link InvalidationBus} messages between the nodes of a cluster.
+ * <p>
+ * A transport only moves opaque byte arrays; it needs no ordering or
+ * delivery guarantees beyond best effort. Messages published by a node may
+ * be delivered back to that node, the bus ignores its own messages.
+ *
+ * @see LoopbackTransport
+ * @see MulticastTransport
+ */
+public interface InvalidationTransport extends AutoCloseable {
+
+    /**
+     * Start delivering messages published by other nodes.
+     *
+     * @param receiver called with each received message, possibly from a
+     *                 transport thread
+     * @throws IOException if the transport cannot start listening
+     */
+    void start(Consumer<byte[]> receiver) throws IOException;
+
+    /**
+     * Send a message to every other node.
+     *
+     * @param message the encoded message, at most
+     *                {@link #getMaxMessageSize()} bytes
+     * @throws IOException if the message cannot be sent
+     */
+    void publish(byte[] message) throws IOException;
+
+    /**
+     * Get the largest message this transport can carry. Larger batches are
+     * split into several messages.
+     *
+     * @return the size in bytes
+     */
+    int getMaxMessageSize();
+
+    /**
+     * Stop receiving and release the transport's resources.
+     */
+    @Override
+    void close();
+}
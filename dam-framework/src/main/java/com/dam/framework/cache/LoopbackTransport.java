@@ -0,0 +1,60 @@
+package com.dam.framework.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Transport between SessionFactories of the same JVM, for tests and for
+ * measuring the bus without a network.
+ * <p>
+ * Transports created with the same channel name form one cluster. Messages
+ * are delivered synchronously on the publishing thread, so once
+ * {@link InvalidationBus#flush()} returns every other node has applied them.
+ */
+public final class LoopbackTransport implements InvalidationTransport {
+
+    private static final int MAX_MESSAGE_SIZE = 64 * 1024;
+    private static final Map<String, List<LoopbackTransport>> CHANNELS = new ConcurrentHashMap<>();
+
+    private final String channel;
+    private volatile Consumer<byte[]> receiver;
+
+    /**
+     * @param channel the name shared by all nodes of the cluster
+     */
+    public LoopbackTransport(String channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        CHANNELS.computeIfAbsent(channel, name -> new CopyOnWriteArrayList<>()).add(this);
+    }
+
+    @Override
+    public void publish(byte[] message) {
+        for (LoopbackTransport node : CHANNELS.getOrDefault(channel, List.of())) {
+            if (node != this) {
+                // each node gets its own copy, as it would from a network
+                node.receiver.accept(message.clone());
+            }
+        }
+    }
+
+    @Override
+    public int getMaxMessageSize() {
+        return MAX_MESSAGE_SIZE;
+    }
+
+    @Override
+    public void close() {
+        CHANNELS.computeIfPresent(channel, (name, nodes) -> {
+            nodes.remove(this);
+            return nodes.isEmpty() ? null : nodes;
+        });
+    }
+}
@@ -0,0 +1,61 @@
+package com.dam.framework.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * On-heap region that drops the least recently used entry when full.
+ *
+ * @see com.dam.framework.annotations.EvictionPolicy#LRU
+ */
+public class LruCacheRegion extends AbstractCacheRegion {
+
+    private final int maxEntries;
+    // access order: the first entry is the least recently used
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    public LruCacheRegion(String name, int maxEntries, long ttlNanos) {
+        super(name, ttlNanos);
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Region must hold at least one entry");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    protected Entry lookup(Object key) {
+        return entries.get(key);
+    }
+
+    @Override
+    protected void store(Object key, Entry entry) {
+        entries.put(key, entry);
+        if (entries.size() > maxEntries) {
+            Iterator<Object> eldest = entries.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+            recordEviction();
+        }
+    }
+
+    @Override
+    protected void remove(Object key) {
+        entries.remove(key);
+    }
+
+    @Override
+    protected void removeAll() {
+        entries.clear();
+    }
+
+    @Override
+    protected long count() {
+        return entries.size();
+    }
+
+    @Override
+    protected void forEachEntry(BiConsumer<Object, Entry> action) {
+        entries.forEach(action);
+    }
+}
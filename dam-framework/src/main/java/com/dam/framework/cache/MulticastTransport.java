@@ -0,0 +1,87 @@
+package com.dam.framework.cache;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Transport over UDP multicast, for clusters of JVMs on one host or network
+ * segment without a message broker.
+ * <p>
+ * Datagrams are sent with a time to live of 1, so they do not leave the local
+ * network. Delivery is best effort: a lost datagram leaves entries stale on
+ * some nodes until they expire, so regions shared this way should have a
+ * {@link com.dam.framework.annotations.Cacheable#ttlSeconds() time to live}.
+ */
+public final class MulticastTransport implements InvalidationTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(MulticastTransport.class);
+    // well under the 64KB datagram limit, to keep IP fragmentation low
+    private static final int MAX_MESSAGE_SIZE = 8 * 1024;
+
+    private final InetSocketAddress group;
+    private MulticastSocket socket;
+
+    /**
+     * @param group the multicast group address, e.g. {@code 239.255.13.7}
+     * @param port  the UDP port shared by all nodes
+     * @throws IOException if the group address cannot be resolved
+     */
+    public MulticastTransport(String group, int port) throws IOException {
+        InetAddress address = InetAddress.getByName(group);
+        if (!address.isMulticastAddress()) {
+            throw new IllegalArgumentException("Not a multicast address: " + group);
+        }
+        this.group = new InetSocketAddress(address, port);
+    }
+
+    @Override
+    public synchronized void start(Consumer<byte[]> receiver) throws IOException {
+        socket = new MulticastSocket(group.getPort());
+        socket.setTimeToLive(1);
+        socket.joinGroup(group, null);
+
+        MulticastSocket listening = socket;
+        Thread listener = new Thread(() -> {
+            byte[] buffer = new byte[MAX_MESSAGE_SIZE];
+            while (!listening.isClosed()) {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                try {
+                    listening.receive(packet);
+                    receiver.accept(Arrays.copyOf(packet.getData(), packet.getLength()));
+                } catch (SocketException e) {
+                    // closed
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Dropped cache invalidation datagram", e);
+                }
+            }
+        }, "dam-cache-multicast");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @Override
+    public void publish(byte[] message) throws IOException {
+        socket.send(new DatagramPacket(message, message.length, group));
+    }
+
+    @Override
+    public int getMaxMessageSize() {
+        return MAX_MESSAGE_SIZE;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (socket != null) {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.dam.framework.cache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Region that keeps rows encoded with a {@link BinaryRowCodec} in direct
+ * memory, outside the Java heap.
+ * <p>
+ * The capacity is split into a fixed number of segments that are filled one
+ * after the other. When the current segment is full, the region moves on to
+ * the next one and drops every entry still stored there, so eviction is FIFO
+ * by segment and needs no per-entry bookkeeping. Only a small slot per entry
+ * (key, segment and offset) stays on the heap. Segments are allocated when
+ * first written.
+ * <p>
+ * Rows larger than a segment are not cached.
+ *
+ * @see com.dam.framework.annotations.CacheStorage#OFF_HEAP
+ */
+public class OffHeapCacheRegion extends AbstractCacheRegion {
+
+    private static final int DEFAULT_SEGMENTS = 16;
+
+    private record Slot(int segment, int offset, int length, long expiresAt) {
+    }
+
+    private final BinaryRowCodec codec;
+    private final int segmentSize;
+    private final ByteBuffer[] segments;
+    // keys written to each segment, to drop them when the segment is reused
+    private final List<List<Object>> segmentKeys;
+    private final Map<Object, Slot> index = new HashMap<>();
+    private int current;
+    private int position;
+
+    public OffHeapCacheRegion(String name, BinaryRowCodec codec, long maxBytes, long ttlNanos) {
+        this(name, codec, maxBytes, DEFAULT_SEGMENTS, ttlNanos);
+    }
+
+    /**
+     * @param name         the region name
+     * @param codec        the codec of the cached rows
+     * @param maxBytes     the total direct memory of all segments
+     * @param segmentCount the number of segments, at least 2
+     * @param ttlNanos     time to live in nanoseconds, or 0 for no expiry
+     */
+    public OffHeapCacheRegion(String name, BinaryRowCodec codec, long maxBytes, int segmentCount, long ttlNanos) {
+        super(name, ttlNanos);
+        if (segmentCount < 2) {
+            throw new IllegalArgumentException("Region needs at least two segments");
+        }
+        long size = maxBytes / segmentCount;
+        if (size < 1 || size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size out of range: " + size + " bytes");
+        }
+        this.codec = codec;
+        this.segmentSize = (int) size;
+        this.segments = new ByteBuffer[segmentCount];
+        this.segmentKeys = new ArrayList<>(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            segmentKeys.add(new ArrayList<>());
+        }
+    }
+
+    @Override
+    protected Entry lookup(Object key) {
+        Slot slot = index.get(key);
+        if (slot == null) {
+            return null;
+        }
+        ByteBuffer row = segments[slot.segment()].slice(slot.offset(), slot.length());
+        return new Entry(codec.decode(row), slot.expiresAt());
+    }
+
+    @Override
+    protected void store(Object key, Entry entry) {
+        byte[] bytes = codec.encode(entry.state());
+        if (bytes.length > segmentSize) {
+            index.remove(key);
+            return;
+        }
+        if (position + bytes.length > segmentSize || segments[current] == null) {
+            advance();
+        }
+        segments[current].put(position, bytes);
+        index.put(key, new Slot(current, position, bytes.length, entry.expiresAt()));
+        segmentKeys.get(current).add(key);
+        position += bytes.length;
+    }
+
+    /**
+     * Move to the next segment, dropping the entries it still holds.
+     */
+    private void advance() {
+        if (segments[current] != null) {
+            current = (current + 1) % segments.length;
+        }
+        if (segments[current] == null) {
+            segments[current] = ByteBuffer.allocateDirect(segmentSize);
+        }
+        List<Object> keys = segmentKeys.get(current);
+        for (Object key : keys) {
+            Slot slot = index.get(key);
+            // the key may have been rewritten to another segment since
+            if (slot != null && slot.segment() == current) {
+                index.remove(key);
+                recordEviction();
+            }
+        }
+        keys.clear();
+        position = 0;
+    }
+
+    @Override
+    protected void remove(Object key) {
+        // the bytes stay until the segment is reused
+        index.remove(key);
+    }
+
+    @Override
+    protected void removeAll() {
+        index.clear();
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = null;
+            segmentKeys.get(i).clear();
+        }
+        current = 0;
+        position = 0;
+    }
+
+    @Override
+    protected long count() {
+        return index.size();
+    }
+
+    @Override
+    protected void forEachEntry(BiConsumer<Object, Entry> action) {
+        for (Object key : index.keySet()) {
+            action.accept(key, lookup(key));
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.dam.framework.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of query results keyed by the final SQL and its bound parameters.
+ * <p>
+ * Entries are invalidated per table: every write a session makes to a table
+ * moves that table's update timestamp forward, and an entry is only served if
+ * it was computed after the last update of its table. Timestamps come from a
+ * counter rather than the wall clock, so two events in the same millisecond
+ * are still ordered.
+ * <p>
+ * A query takes its timestamp with {@link #beginQuery()} <em>before</em> it
+ * runs. A write that lands while the query is running therefore makes the
+ * result stale straight away, instead of letting an outdated result be cached.
+ * <p>
+ * {@link #load(Key, String, boolean, Supplier)} runs a missed query and caches
+ * its result; concurrent misses of the same query can share one execution.
+ *
+ * @see com.dam.framework.query.Query#cacheable(boolean)
+ */
+public final class QueryCache {
+
+    /**
+     * Identifies a cached result.
+     *
+     * @param sql        the SQL as sent to the database
+     * @param parameters the bound parameter values, in order
+     * @param entityIds  true if the entry holds entity IDs, false for rows
+     */
+    public record Key(String sql, List<Object> parameters, boolean entityIds) {
+        public Key {
+            // Copy defensively; List.copyOf would reject null parameters
+            parameters = new ArrayList<>(parameters);
+        }
+    }
+
+    private final CacheRegion region;
+    private final CacheStatistics statistics = new CacheStatistics();
+    private final ConcurrentHashMap<String, Long> tableTimestamps = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    // null when concurrent executions are not coalesced
+    private final SingleFlight<Key, Executed> executions;
+
+    /**
+     * A result computed by {@link #load(Key, String, boolean, Supplier)}, with
+     * the timestamp taken before the query ran.
+     */
+    private record Executed(Object[] payload, long timestamp) {
+    }
+
+    /**
+     * @param maxEntries the maximum number of cached results
+     * @param ttlNanos   time to live in nanoseconds, or 0 for no expiry
+     */
+    public QueryCache(int maxEntries, long ttlNanos) {
+        this(maxEntries, ttlNanos, false);
+    }
+
+    /**
+     * @param maxEntries   the maximum number of cached results
+     * @param ttlNanos     time to live in nanoseconds, or 0 for no expiry
+     * @param singleFlight whether concurrent misses of the same query share
+     *                     one execution
+     */
+    public QueryCache(int maxEntries, long ttlNanos, boolean singleFlight) {
+        this.region = new LruCacheRegion("dam.query-cache", maxEntries, ttlNanos);
+        this.executions = singleFlight ? new SingleFlight<>() : null;
+    }
+
+    /**
+     * Take the timestamp for a query about to run.
+     *
+     * @return the timestamp to pass to {@link #put(Key, String, long, Object[])}
+     */
+    public long beginQuery() {
+        return clock.incrementAndGet();
+    }
+
+    /**
+     * Look up a result that is still valid for its table.
+     *
+     * @param key   the query key
+     * @param table the queried table
+     * @return the cached payload, or null
+     */
+    public Object[] get(Key key, String table) {
+        Object[] entry = region.get(key);
+        if (entry != null && (Long) entry[0] > lastUpdate(table)) {
+            statistics.recordHit();
+            return (Object[]) entry[1];
+        }
+        if (entry != null) {
+            region.evict(key);
+        }
+        statistics.recordMiss();
+        return null;
+    }
+
+    /**
+     * Cache a result unless its table was written since {@code timestamp}.
+     *
+     * @param key       the query key
+     * @param table     the queried table
+     * @param timestamp the value of {@link #beginQuery()} taken before the query
+     *                  ran
+     * @param payload   entity IDs or row states
+     */
+    public void put(Key key, String table, long timestamp, Object[] payload) {
+        if (timestamp > lastUpdate(table)) {
+            region.put(key, new Object[] { timestamp, payload });
+            statistics.recordPut();
+        }
+    }
+
+    /**
+     * Run a query that missed the cache and cache its result.
+     * <p>
+     * With single-flight loading, callers missing the same query while it runs
+     * wait for that execution and use its result if the table has not been
+     * written since it started; otherwise they run the query themselves. A
+     * caller whose transaction has written to the table must pass
+     * {@code shared = false}.
+     *
+     * @param key    the query key
+     * @param table  the queried table
+     * @param shared whether the execution may be shared with other callers
+     * @param query  runs the query and returns its payload
+     * @return the payload
+     */
+    public Object[] load(Key key, String table, boolean shared, Supplier<Object[]> query) {
+        Supplier<Executed> execute = () -> {
+            long timestamp = beginQuery();
+            Object[] payload = query.get();
+            put(key, table, timestamp, payload);
+            return new Executed(payload, timestamp);
+        };
+        Executed executed = executions != null && shared
+                ? executions.execute(key, execute, result -> result.timestamp() > lastUpdate(table))
+                : execute.get();
+        return executed.payload();
+    }
+
+    /**
+     * Get the number of executions that were served by another caller's run
+     * of the same query.
+     *
+     * @return the coalesced execution count, 0 if single-flight loading is off
+     */
+    public long getCoalescedLoadCount() {
+        return executions == null ? 0 : executions.getCoalescedCount();
+    }
+
+    /**
+     * Invalidate every cached result of a table.
+     *
+     * @param table the written table
+     */
+    public void invalidateTable(String table) {
+        tableTimestamps.put(normalize(table), clock.incrementAndGet());
+    }
+
+    /**
+     * Remove all cached results.
+     */
+    public void evictAll() {
+        region.evictAll();
+    }
+
+    /**
+     * Get the number of cached results.
+     *
+     * @return the entry count
+     */
+    public long size() {
+        return region.size();
+    }
+
+    /**
+     * Get lookup statistics. Results dropped because their table changed count
+     * as misses.
+     *
+     * @return live statistics
+     */
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    private long lastUpdate(String table) {
+        return tableTimestamps.getOrDefault(normalize(table), 0L);
+    }
+
+    private static String normalize(String table) {
+        return table.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,701 @@
+package com.dam.framework.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import com.dam.framework.annotations.CacheStorage;
+import com.dam.framework.annotations.Cacheable;
+import com.dam.framework.exception.DAMException;
+import com.dam.framework.mapping.ColumnMetadata;
+import com.dam.framework.mapping.EntityKey;
+import com.dam.framework.mapping.EntityMetadata;
+import com.dam.framework.util.IdTypeConverter;
+
+/**
+ * SessionFactory-wide cache of entity rows, one {@link CacheRegion} per
+ * {@link Cacheable} entity class.
+ * <p>
+ * Sessions consult it in {@code find()} before running SQL and evict entries
+ * when they write the row, again after the transaction completes. A load that
+ * overlaps such an eviction does not store its (possibly stale) row: loads
+ * take a stamp with {@link #beginLoad(Class)} before reading and
+ * {@link #putFromLoad(Class, Object, Object[], long)} ignores the row if the
+ * region was invalidated since. The stamp check and the put happen under the
+ * same per-region lock as the eviction, so an eviction can never land between
+ * them.
+ * <p>
+ * Misses go through {@link #load(Class, Object, boolean, Supplier, Function)},
+ * which lets concurrent sessions missing the same row share one database read
+ * and can remember rows that do not exist for a short time.
+ *
+ * <pre>
+ * {@code
+ * SecondLevelCache cache = sessionFactory.getCache();
+ * CacheStatistics stats = cache.getStatistics().get("com.example.Product");
+ * cache.evictAll(Product.class);
+ * }
+ * </pre>
+ */
+public final class SecondLevelCache {
+
+    private static final int DEFAULT_NATURAL_ID_ENTRIES = 10_000;
+
+    private final Map<Class<?>, EntityRegion> regions = new HashMap<>();
+    // natural ID -> primary key, for every entity class with a @NaturalId
+    private final Map<Class<?>, NaturalIdRegion> naturalIds = new HashMap<>();
+    private final QueryCache queryCache;
+    // null when concurrent loads are not coalesced
+    private final SingleFlight<EntityKey, Loaded> loads;
+
+    /**
+     * A row read by {@link #load(Class, Object, boolean, Supplier, Function)},
+     * with the invalidation stamp taken before the read.
+     */
+    private record Loaded(Object[] state, long stamp) {
+    }
+
+    /**
+     * Build regions for every registered entity class annotated with
+     * {@link Cacheable}, with a default query cache of 1000 results.
+     *
+     * @param metadataRegistry the entity metadata of the SessionFactory
+     */
+    public SecondLevelCache(Map<Class<?>, EntityMetadata> metadataRegistry) {
+        this(metadataRegistry, 1000, 0);
+    }
+
+    /**
+     * Build regions for every registered entity class annotated with
+     * {@link Cacheable}, with concurrent loads coalesced and no negative
+     * caching.
+     *
+     * @param metadataRegistry     the entity metadata of the SessionFactory
+     * @param queryCacheMaxEntries the maximum number of cached query results
+     * @param queryCacheTtlSeconds query result time to live, or 0 for none
+     */
+    public SecondLevelCache(Map<Class<?>, EntityMetadata> metadataRegistry, int queryCacheMaxEntries,
+            long queryCacheTtlSeconds) {
+        this(metadataRegistry, queryCacheMaxEntries, queryCacheTtlSeconds, true, 0);
+    }
+
+    /**
+     * Build regions for every registered entity class annotated with
+     * {@link Cacheable}.
+     *
+     * @param metadataRegistry     the entity metadata of the SessionFactory
+     * @param queryCacheMaxEntries the maximum number of cached query results
+     * @param queryCacheTtlSeconds query result time to live, or 0 for none
+     * @param singleFlight         whether concurrent misses of the same row or
+     *                             cacheable query share one database read
+     * @param negativeTtlMillis    how long a row found missing is remembered
+     *                             as missing, or 0 to always query
+     */
+    public SecondLevelCache(Map<Class<?>, EntityMetadata> metadataRegistry, int queryCacheMaxEntries,
+            long queryCacheTtlSeconds, boolean singleFlight, long negativeTtlMillis) {
+        this.queryCache = new QueryCache(queryCacheMaxEntries, TimeUnit.SECONDS.toNanos(queryCacheTtlSeconds),
+                singleFlight);
+        this.loads = singleFlight ? new SingleFlight<>() : null;
+        for (Map.Entry<Class<?>, EntityMetadata> entry : metadataRegistry.entrySet()) {
+            Cacheable cacheable = entry.getKey().getAnnotation(Cacheable.class);
+            if (cacheable != null) {
+                CacheRegion missing = negativeTtlMillis > 0
+                        ? new LruCacheRegion((cacheable.region().isEmpty() ? entry.getKey().getName()
+                                : cacheable.region()) + "#missing", cacheable.maxEntries(),
+                                TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis))
+                        : null;
+                regions.put(entry.getKey(), new EntityRegion(buildRegion(entry.getKey(), entry.getValue(), cacheable),
+                        missing, entry.getValue(), resolveModifiedColumn(entry.getValue(), cacheable)));
+            }
+            ColumnMetadata naturalIdColumn = entry.getValue().getNaturalIdColumn();
+            if (naturalIdColumn != null) {
+                // Same bounds as the entity region, so the index does not outgrow what it points to
+                String name = (cacheable == null || cacheable.region().isEmpty()
+                        ? entry.getKey().getName()
+                        : cacheable.region()) + "#naturalId";
+                int maxEntries = cacheable == null ? DEFAULT_NATURAL_ID_ENTRIES : cacheable.maxEntries();
+                long ttlNanos = cacheable == null ? 0 : TimeUnit.SECONDS.toNanos(cacheable.ttlSeconds());
+                naturalIds.put(entry.getKey(), new NaturalIdRegion(new LruCacheRegion(name, maxEntries, ttlNanos),
+                        naturalIdColumn.javaType()));
+            }
+        }
+    }
+
+    private static CacheRegion buildRegion(Class<?> entityClass, EntityMetadata metadata, Cacheable cacheable) {
+        String name = cacheable.region().isEmpty() ? entityClass.getName() : cacheable.region();
+        long ttlNanos = TimeUnit.SECONDS.toNanos(cacheable.ttlSeconds());
+        if (cacheable.storage() == CacheStorage.OFF_HEAP) {
+            return new OffHeapCacheRegion(name, BinaryRowCodec.forEntity(metadata), cacheable.maxBytes(), ttlNanos);
+        }
+        return switch (cacheable.eviction()) {
+            case LRU -> new LruCacheRegion(name, cacheable.maxEntries(), ttlNanos);
+            case TINY_LFU -> new TinyLfuCacheRegion(name, cacheable.maxEntries(), ttlNanos);
+        };
+    }
+
+    private static ColumnMetadata resolveModifiedColumn(EntityMetadata metadata, Cacheable cacheable) {
+        if (cacheable.modifiedColumn().isEmpty()) {
+            return null;
+        }
+        for (ColumnMetadata column : metadata.getColumns()) {
+            if (column.columnName().equalsIgnoreCase(cacheable.modifiedColumn())) {
+                return column;
+            }
+        }
+        throw new DAMException("Modification column " + cacheable.modifiedColumn() + " of "
+                + metadata.getEntityClass().getSimpleName() + " is not a mapped column");
+    }
+
+    /**
+     * Check whether an entity class has a region.
+     *
+     * @param entityClass the entity class
+     * @return true if the class is {@link Cacheable}
+     */
+    public boolean isCacheable(Class<?> entityClass) {
+        return regions.containsKey(entityClass);
+    }
+
+    /**
+     * Get the cached entity classes mapped to a table, whose regions may hold
+     * rows written without knowing their class or ID.
+     *
+     * @param table the table name
+     * @return the classes with a region of that table's rows
+     */
+    public List<Class<?>> getCachedClasses(String table) {
+        List<Class<?>> classes = new ArrayList<>();
+        for (Map.Entry<Class<?>, EntityRegion> entry : regions.entrySet()) {
+            if (entry.getValue().table.equalsIgnoreCase(table)) {
+                classes.add(entry.getKey());
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Get the region of an entity class.
+     *
+     * @param entityClass the entity class
+     * @return the region, or null if the class is not cached
+     */
+    public CacheRegion getRegion(Class<?> entityClass) {
+        EntityRegion region = regions.get(entityClass);
+        return region == null ? null : region.region;
+    }
+
+    /**
+     * Get the column that tracks modifications of an entity class's rows.
+     *
+     * @param entityClass the entity class
+     * @return the {@link Cacheable#modifiedColumn()}, or null if the class is
+     *         not cached or has none
+     */
+    public ColumnMetadata getModifiedColumn(Class<?> entityClass) {
+        EntityRegion region = regions.get(entityClass);
+        return region == null ? null : region.modifiedColumn;
+    }
+
+    /**
+     * Look up the cached state of a row.
+     *
+     * @param entityClass the entity class
+     * @param id          the primary key
+     * @return the column values in metadata order, or null on a miss
+     */
+    public Object[] get(Class<?> entityClass, Object id) {
+        EntityRegion region = regions.get(entityClass);
+        return region == null ? null : region.region.get(region.key(id));
+    }
+
+    /**
+     * Look up a cached row of an {@link com.dam.framework.annotations.Immutable}
+     * entity as an instance shared by all sessions. The instance is built on
+     * the first hit and kept until the row is evicted, or until more than
+     * {@link Cacheable#maxEntries()} instances are kept for the region. For
+     * other entity classes every call builds a new instance.
+     *
+     * @param entityClass the entity class
+     * @param id          the primary key
+     * @param hydrator    builds an entity from cached column values
+     * @param <T>         the entity type
+     * @return the entity, or null on a miss
+     */
+    public <T> T getInstance(Class<T> entityClass, Object id, Function<Object[], T> hydrator) {
+        EntityRegion region = regions.get(entityClass);
+        if (region == null) {
+            return null;
+        }
+        Object key = region.key(id);
+        Object[] state = region.region.get(key);
+        if (state == null) {
+            return null;
+        }
+        if (region.sharedInstances == null) {
+            return hydrator.apply(state);
+        }
+        return entityClass.cast(region.sharedInstances.computeIfAbsent(key, k -> hydrator.apply(state)));
+    }
+
+    /**
+     * Take an invalidation stamp before reading rows from the database.
+     *
+     * @param entityClass the entity class
+     * @return the stamp to pass to
+     *         {@link #putFromLoad(Class, Object, Object[], long)}
+     */
+    public long beginLoad(Class<?> entityClass) {
+        EntityRegion region = regions.get(entityClass);
+        return region == null ? 0 : region.invalidations.get();
+    }
+
+    /**
+     * Cache a row read from the database, unless the region was invalidated
+     * after {@code loadStamp} was taken.
+     *
+     * @param entityClass the entity class
+     * @param id          the primary key
+     * @param state       the column values in metadata order
+     * @param loadStamp   the stamp from {@link #beginLoad(Class)}
+     */
+    public void putFromLoad(Class<?> entityClass, Object id, Object[] state, long loadStamp) {
+        putFromLoad(entityClass, id, state, loadStamp, null);
+    }
+
+    /**
+     * Cache a row read from the database like
+     * {@link #putFromLoad(Class, Object, Object[], long)}, and for
+     * {@link com.dam.framework.annotations.Immutable} entities make the loaded
+     * instance the one {@link #getInstance(Class, Object, Function)} shares.
+     *
+     * @param entityClass the entity class
+     * @param id          the primary key
+     * @param state       the column values in metadata order
+     * @param loadStamp   the stamp from {@link #beginLoad(Class)}
+     * @param instance    the entity the row was mapped to, may be null
+     */
+    public void putFromLoad(Class<?> entityClass, Object id, Object[] state, long loadStamp, Object instance) {
+        EntityRegion region = regions.get(entityClass);
+        if (region == null) {
+            return;
+        }
+        // An eviction between the stamp check and the put would be lost
+        synchronized (region) {
+            if (region.invalidations.get() == loadStamp) {
+                region.region.put(region.key(id), state);
+                if (instance != null && region.sharedInstances != null) {
+                    region.sharedInstances.put(region.key(id), instance);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read a row that missed the cache and cache the result.
+     * <p>
+     * With single-flight loading enabled, callers that miss the same row while
+     * a read is in progress wait for that read instead of issuing their own.
+     * They only use its result if the region has not been invalidated since
+     * the read began; otherwise, and if the shared read fails, they read the
+     * row themselves. A caller whose transaction has written to the table must
+     * pass {@code shared = false}, since its reads may see uncommitted rows.
+     * <p>
+     * A row found missing is remembered for the negative time to live, until
+     * the row is next evicted; see {@link #isKnownMissing(Class, Object)}.
+     *
+     * @param entityClass the entity class
+     * @param id          the primary key
+     * @param shared      whether the read may be shared with other callers
+     * @param reader      reads the column values in metadata order, or null if
+     *                    no row exists
+     * @param hydrator    builds an entity from column values
+     * @param <T>         the entity type
+     * @return the entity, or null if no row exists
+     */
+    public <T> T load(Class<T> entityClass, Object id, boolean shared, Supplier<Object[]> reader,
+            Function<Object[], T> hydrator) {
+        EntityRegion region = regions.get(entityClass);
+        if (region == null) {
+            Object[] state = reader.get();
+            return state == null ? null : hydrator.apply(state);
+        }
+
+        Object key = region.key(id);
+        Supplier<Loaded> read = () -> {
+            long stamp = region.invalidations.get();
+            Object[] state = reader.get();
+            synchronized (region) {
+                if (region.invalidations.get() == stamp) {
+                    if (state != null) {
+                        region.region.put(key, state);
+                    } else if (region.missing != null) {
+                        region.missing.put(key, new Object[0]);
+                    }
+                }
+            }
+            return new Loaded(state, stamp);
+        };
+        Loaded loaded = loads != null && shared
+                ? loads.execute(new EntityKey(entityClass, key), read,
+                        result -> result.stamp() == region.invalidations.get())
+                : read.get();
+
+        if (loaded.state() == null) {
+            return null;
+        }
+        if (region.sharedInstances != null) {
+            return entityClass.cast(region.sharedInstances.computeIfAbsent(key, k -> hydrator.apply(loaded.state())));
+        }
+        return hydrator.apply(loaded.state());
+    }
+
+    /**
+     * Check whether a row was recently found not to exist.
+     *
+     * @param entityClass the entity class
+     * @param id          the primary key
+     * @return true if a load found no row within the negative time to live
+     *         and the row has not been evicted since
+     */
+    public boolean isKnownMissing(Class<?> entityClass, Object id) {
+        EntityRegion region = regions.get(entityClass);
+        return region != null && region.missing != null && region.missing.get(region.key(id)) != null;
+    }
+
+    /**
+     * Remember that rows read together were not found, as
+     * {@link #load(Class, Object, boolean, Supplier, Function)} does for
+     * single rows.
+     *
+     * @param entityClass the entity class
+     * @param id          the primary key
+     * @param loadStamp   the stamp from {@link #beginLoad(Class)}
+     */
+    public void putMissing(Class<?> entityClass, Object id, long loadStamp) {
+        EntityRegion region = regions.get(entityClass);
+        if (region == null || region.missing == null) {
+            return;
+        }
+        synchronized (region) {
+            if (region.invalidations.get() == loadStamp) {
+                region.missing.put(region.key(id), new Object[0]);
+            }
+        }
+    }
+
+    /**
+     * Get the number of loads that were served by another session's read of
+     * the same row, since the SessionFactory started.
+     *
+     * @return the coalesced load count, 0 if single-flight loading is off
+     */
+    public long getCoalescedLoadCount() {
+        return loads == null ? 0 : loads.getCoalescedCount();
+    }
+
+    /**
+     * Replace the contents of a region with a complete load of its table, for
+     * {@link Cacheable#preload() preloaded} regions. Rows missing from the
+     * load are removed; the others are replaced in place, so readers never see
+     * the region empty.
+     *
+     * @param entityClass the entity class
+     * @param rows        primary key to column values, for every row of the
+     *                    table
+     * @param loadStamp   the stamp from {@link #beginLoad(Class)}, taken before
+     *                    the table was read
+     * @return true if the region now holds every row and can answer
+     *         {@link #scan(Class, Predicate)}; false if it was invalidated
+     *         during the load or could not hold all rows
+     */
+    public boolean replaceAll(Class<?> entityClass, Map<?, Object[]> rows, long loadStamp) {
+        EntityRegion region = regions.get(entityClass);
+        if (region == null) {
+            return false;
+        }
+        Map<Object, Object[]> keyed = new HashMap<>();
+        for (Map.Entry<?, Object[]> row : rows.entrySet()) {
+            keyed.put(region.key(row.getKey()), row.getValue());
+        }
+        synchronized (region) {
+            if (region.invalidations.get() != loadStamp) {
+                return false;
+            }
+            List<Object> stale = new ArrayList<>();
+            region.region.forEach((key, state) -> {
+                if (!keyed.containsKey(key)) {
+                    stale.add(key);
+                }
+            });
+            stale.forEach(region.region::evict);
+            keyed.forEach(region.region::put);
+            if (region.sharedInstances != null) {
+                // refreshed rows get new instances
+                region.sharedInstances.clear();
+            }
+
+            // rows dropped for capacity leave the region incomplete
+            if (region.region.size() != keyed.size()) {
+                return false;
+            }
+            region.completeStamp = loadStamp;
+            return true;
+        }
+    }
+
+    /**
+     * Filter the rows of a region that holds its whole table.
+     * <p>
+     * A region is complete after {@link #replaceAll(Class, Map, long)} until
+     * the next eviction, since a write may have added or changed a row the
+     * region no longer has.
+     *
+     * @param entityClass the entity class
+     * @param filter      tested against the column values in metadata order
+     * @return the matching states, or null if the region is not known to be
+     *         complete and the database must be asked instead
+     */
+    public List<Object[]> scan(Class<?> entityClass, Predicate<Object[]> filter) {
+        EntityRegion region = regions.get(entityClass);
+        if (region == null || region.completeStamp != region.invalidations.get()) {
+            return null;
+        }
+        List<Object[]> matches = new ArrayList<>();
+        long[] visited = { 0 };
+        region.region.forEach((key, state) -> {
+            visited[0]++;
+            if (filter.test(state)) {
+                matches.add(state);
+            }
+        });
+        // expired entries are skipped, so the region is no longer complete
+        return visited[0] == region.region.size() ? matches : null;
+    }
+
+    /**
+     * Remove the cached state of one row.
+     *
+     * @param entityClass the entity class
+     * @param id          the primary key
+     */
+    public void evict(Class<?> entityClass, Object id) {
+        EntityRegion region = regions.get(entityClass);
+        if (region != null) {
+            synchronized (region) {
+                region.invalidations.incrementAndGet();
+                region.region.evict(region.key(id));
+                if (region.missing != null) {
+                    region.missing.evict(region.key(id));
+                }
+                if (region.sharedInstances != null) {
+                    region.sharedInstances.remove(region.key(id));
+                }
+            }
+        }
+    }
+
+    /**
+     * Resolve a business key to a primary key through the natural-ID index.
+     * The mapping may be stale if the row changed or the write that added it
+     * rolled back; callers must check the row they load.
+     *
+     * @param entityClass the entity class
+     * @param naturalId   the {@link com.dam.framework.annotations.NaturalId}
+     *                    value
+     * @return the primary key, or null if the key is not indexed
+     */
+    public Object resolveNaturalId(Class<?> entityClass, Object naturalId) {
+        NaturalIdRegion index = naturalIds.get(entityClass);
+        if (index == null) {
+            return null;
+        }
+        Object[] id = index.region.get(index.key(naturalId));
+        return id == null ? null : id[0];
+    }
+
+    /**
+     * Record which row a business key belongs to.
+     *
+     * @param entityClass the entity class
+     * @param naturalId   the natural ID value
+     * @param id          the primary key
+     */
+    public void putNaturalId(Class<?> entityClass, Object naturalId, Object id) {
+        NaturalIdRegion index = naturalIds.get(entityClass);
+        if (index != null && naturalId != null) {
+            index.region.put(index.key(naturalId), new Object[] { id });
+        }
+    }
+
+    /**
+     * Forget the row of a business key.
+     *
+     * @param entityClass the entity class
+     * @param naturalId   the natural ID value
+     */
+    public void evictNaturalId(Class<?> entityClass, Object naturalId) {
+        NaturalIdRegion index = naturalIds.get(entityClass);
+        if (index != null && naturalId != null) {
+            index.region.evict(index.key(naturalId));
+        }
+    }
+
+    /**
+     * Remove all cached rows of an entity class.
+     *
+     * @param entityClass the entity class
+     */
+    public void evictAll(Class<?> entityClass) {
+        EntityRegion region = regions.get(entityClass);
+        if (region != null) {
+            synchronized (region) {
+                region.invalidations.incrementAndGet();
+                region.region.evictAll();
+                if (region.missing != null) {
+                    region.missing.evictAll();
+                }
+                if (region.sharedInstances != null) {
+                    region.sharedInstances.clear();
+                }
+            }
+        }
+        NaturalIdRegion index = naturalIds.get(entityClass);
+        if (index != null) {
+            index.region.evictAll();
+        }
+    }
+
+    /**
+     * Remove all cached rows of all regions and all cached query results.
+     */
+    public void evictAll() {
+        for (Class<?> entityClass : regions.keySet()) {
+            evictAll(entityClass);
+        }
+        for (NaturalIdRegion index : naturalIds.values()) {
+            index.region.evictAll();
+        }
+        queryCache.evictAll();
+    }
+
+    /**
+     * Get the cache of {@link com.dam.framework.query.Query#cacheable(boolean)
+     * cacheable} query results.
+     *
+     * @return the query cache
+     */
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    /**
+     * Get the statistics of every region.
+     *
+     * @return region name to statistics
+     */
+    public Map<String, CacheStatistics> getStatistics() {
+        Map<String, CacheStatistics> statistics = new LinkedHashMap<>();
+        for (EntityRegion region : regions.values()) {
+            statistics.put(region.region.getName(), region.region.getStatistics());
+            if (region.missing != null) {
+                statistics.put(region.missing.getName(), region.missing.getStatistics());
+            }
+        }
+        for (NaturalIdRegion index : naturalIds.values()) {
+            statistics.put(index.region.getName(), index.region.getStatistics());
+        }
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    private static final class EntityRegion {
+
+        private final CacheRegion region;
+        // IDs found missing, null without negative caching
+        private final CacheRegion missing;
+        private final Class<?> idType;
+        private final ColumnMetadata modifiedColumn;
+        private final String table;
+        // incremented under the EntityRegion lock, together with the eviction
+        private final AtomicLong invalidations = new AtomicLong();
+        // ID to the instance shared by all sessions, null unless the entity is immutable
+        private final SharedInstances sharedInstances;
+        // equals invalidations while the region holds every row, -1 if it never did
+        private volatile long completeStamp = -1;
+
+        EntityRegion(CacheRegion region, CacheRegion missing, EntityMetadata metadata,
+                ColumnMetadata modifiedColumn) {
+            this.region = region;
+            this.missing = missing;
+            this.idType = metadata.getIdColumn().javaType();
+            this.modifiedColumn = modifiedColumn;
+            this.table = metadata.getTableName();
+            // Keyed by ID, not by state: off-heap regions decode a new state on every hit
+            this.sharedInstances = metadata.isImmutable()
+                    ? new SharedInstances(metadata.getEntityClass().getAnnotation(Cacheable.class).maxEntries())
+                    : null;
+        }
+
+        // find(Item.class, 1) and find(Item.class, 1L) must hit the same entry
+        Object key(Object id) {
+            return IdTypeConverter.convert(id, idType);
+        }
+    }
+
+    /**
+     * Instances shared by all sessions, keyed by ID; the least recently used
+     * one is dropped when full.
+     */
+    private static final class SharedInstances {
+
+        private final int maxEntries;
+        // access order, so the eldest entry is the least recently used
+        private final LinkedHashMap<Object, Object> instances = new LinkedHashMap<>(16, 0.75f, true);
+
+        SharedInstances(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        synchronized Object computeIfAbsent(Object key, Function<Object, Object> hydrator) {
+            Object instance = instances.computeIfAbsent(key, hydrator);
+            trim();
+            return instance;
+        }
+
+        synchronized void put(Object key, Object instance) {
+            instances.put(key, instance);
+            trim();
+        }
+
+        synchronized void remove(Object key) {
+            instances.remove(key);
+        }
+
+        synchronized void clear() {
+            instances.clear();
+        }
+
+        private void trim() {
+            if (instances.size() > maxEntries) {
+                Iterator<Object> eldest = instances.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    private record NaturalIdRegion(CacheRegion region, Class<?> type) {
+
+        Object key(Object naturalId) {
+            return IdTypeConverter.convert(naturalId, type);
+        }
+    }
+}
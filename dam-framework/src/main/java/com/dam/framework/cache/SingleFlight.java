@@ -0,0 +1,75 @@
+package com.dam.framework.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key into one.
+ * <p>
+ * The first thread to ask for a key runs the loader; threads asking while it
+ * runs wait for its result instead of running their own. This keeps a cache
+ * miss on a hot key from turning into one identical query per waiting thread.
+ * Waiters fall back to loading on their own if the shared load fails, if they
+ * are interrupted, or if the result is rejected by the caller's check, so a
+ * coalesced load is never less correct than an independent one.
+ *
+ * @param <K> the key type
+ * @param <V> the loaded value type
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Load a value, sharing the load with concurrent callers of the same key.
+     *
+     * @param key       the key
+     * @param loader    loads the value; runs once per flight
+     * @param shareable tested by waiters against the shared result; if it
+     *                  fails, the waiter runs the loader itself
+     * @return the loaded value
+     */
+    public V execute(K key, Supplier<V> loader, Predicate<? super V> shareable) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            try {
+                V value = leader.get();
+                if (shareable.test(value)) {
+                    coalesced.increment();
+                    return value;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // the leader's failure may be specific to its connection or transaction
+            }
+            return loader.get();
+        }
+
+        try {
+            V value = loader.get();
+            inFlight.remove(key, flight);
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Get the number of loads that were served by another thread's load.
+     *
+     * @return the coalesced load count
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+}
@@ -0,0 +1,97 @@
+package com.dam.framework.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * On-heap region using Window TinyLFU admission.
+ * <p>
+ * New entries go into an LRU window of about 1% of the capacity. An entry
+ * pushed out of the window only enters the main area, itself LRU ordered, if
+ * its estimated access frequency beats the main area's eldest entry; otherwise
+ * it is dropped. One-off reads therefore cannot displace frequently used rows.
+ *
+ * @see com.dam.framework.annotations.EvictionPolicy#TINY_LFU
+ */
+public class TinyLfuCacheRegion extends AbstractCacheRegion {
+
+    private final int windowCapacity;
+    private final int mainCapacity;
+    private final LinkedHashMap<Object, Entry> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Object, Entry> main = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+
+    public TinyLfuCacheRegion(String name, int maxEntries, long ttlNanos) {
+        super(name, ttlNanos);
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Region must hold at least one entry");
+        }
+        this.windowCapacity = Math.max(1, maxEntries / 100);
+        this.mainCapacity = maxEntries - windowCapacity;
+        this.sketch = new FrequencySketch(maxEntries);
+    }
+
+    @Override
+    protected Entry lookup(Object key) {
+        sketch.increment(key);
+        Entry entry = window.get(key);
+        return entry != null ? entry : main.get(key);
+    }
+
+    @Override
+    protected void store(Object key, Entry entry) {
+        if (main.containsKey(key)) {
+            main.put(key, entry);
+            return;
+        }
+        window.put(key, entry);
+        if (window.size() > windowCapacity) {
+            Iterator<Map.Entry<Object, Entry>> eldest = window.entrySet().iterator();
+            Map.Entry<Object, Entry> candidate = eldest.next();
+            eldest.remove();
+            admit(candidate.getKey(), candidate.getValue());
+        }
+    }
+
+    private void admit(Object key, Entry entry) {
+        if (main.size() < mainCapacity) {
+            main.put(key, entry);
+            return;
+        }
+        if (mainCapacity > 0) {
+            Object victim = main.keySet().iterator().next();
+            if (sketch.frequency(key) > sketch.frequency(victim)) {
+                main.remove(victim);
+                main.put(key, entry);
+            }
+        }
+        // Either the victim or the candidate was dropped
+        recordEviction();
+    }
+
+    @Override
+    protected void remove(Object key) {
+        if (window.remove(key) == null) {
+            main.remove(key);
+        }
+    }
+
+    @Override
+    protected void removeAll() {
+        window.clear();
+        main.clear();
+    }
+
+    @Override
+    protected long count() {
+        return window.size() + main.size();
+    }
+
+    @Override
+    protected void forEachEntry(BiConsumer<Object, Entry> action) {
+        window.forEach(action);
+        main.forEach(action);
+    }
+}
@@ -264,6 +264,9 @@ public class BasicConnectionManager implements ConnectionManager {
         connection.rollback();
         connection.setAutoCommit(true);
       }
+      if (connection.isReadOnly()) {
+        connection.setReadOnly(false);
+      }
 
       // Validate and return to pool
       if (isConnectionValid(connection)) {
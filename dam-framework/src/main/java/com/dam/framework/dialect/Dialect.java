@@ -1,5 +1,7 @@
 package com.dam.framework.dialect;
 
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.List;
@@ -83,12 +85,96 @@ public interface Dialect {
      */
     char getIdentifierQuoteCharacter();
 
+    /**
+     * Get the largest number of values to bind in a single {@code IN (...)}
+     * list.
+     * <p>
+     * Multi-row lookups are split into chunks of at most this size. The limit
+     * stays below the database's bind-parameter cap and keeps each statement
+     * small enough to plan quickly.
+     *
+     * @return the maximum IN-list size
+     */
+    int getMaxInListSize();
+
+    /**
+     * Check if this database compares row values, as in
+     * {@code (a, b) > (?, ?)}, and can use an index range scan for it.
+     * <p>
+     * Keyset pagination uses the row-value form when all sort columns share a
+     * direction, and the expanded {@code a > ? OR (a = ? AND b > ?)} form
+     * otherwise.
+     *
+     * @return true if row-value comparisons are supported
+     */
+    boolean supportsRowValueComparison();
+
     PaginationFragment getPaginationFragment(Integer limit, Integer offset);
 
+    /**
+     * Check if the pagination fragment is only valid after an ORDER BY.
+     * <p>
+     * Queries paged without an order then get a placeholder
+     * {@code ORDER BY (SELECT NULL)}.
+     *
+     * @return true if pagination needs an ORDER BY
+     */
+    boolean requiresOrderByForPagination();
+
+    /**
+     * Check if the connected database computes {@code COUNT(*) OVER()}, so a
+     * page query can also return the total number of matching rows.
+     *
+     * @param metaData the connected database's metadata
+     * @return true if window functions are supported
+     * @throws SQLException if the metadata cannot be read
+     */
+    boolean supportsCountOver(DatabaseMetaData metaData) throws SQLException;
+
+    /**
+     * Wrap a query into one returning a single row and column that is true,
+     * or 1, if the query has any row.
+     *
+     * @param subquery the query to test
+     * @return the existence query
+     */
+    String getExistsQuery(String subquery);
+
     record PaginationFragment(String sql, List<Object> parameters) {
 
     }
 
+    /**
+     * Configure a query statement so the driver streams its rows instead of
+     * reading the whole result into memory first.
+     * <p>
+     * Called before the statement is executed. The returned reset runs after
+     * the result set and statement are closed, to undo any change made to the
+     * connection. A dialect that has to switch autocommit off to stream must
+     * end that transaction with a rollback, never a commit: it only read.
+     *
+     * @param connection the connection the statement belongs to
+     * @param stmt       a forward-only, read-only query statement
+     * @param fetchSize  the number of rows to fetch per round trip
+     * @return the reset to run when streaming ends, never null
+     * @throws SQLException if the statement cannot be configured
+     */
+    StreamingReset prepareStreaming(Connection connection, PreparedStatement stmt, int fetchSize)
+            throws SQLException;
+
+    /**
+     * Undoes the connection changes of
+     * {@link Dialect#prepareStreaming(Connection, PreparedStatement, int)}.
+     */
+    @FunctionalInterface
+    interface StreamingReset {
+
+        StreamingReset NONE = () -> {
+        };
+
+        void reset() throws SQLException;
+    }
+
     /**
      * Set a parameter value in PreparedStatement with proper type handling.
      * 
@@ -1,11 +1,14 @@
 package com.dam.framework.dialect;
 
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Types;
 
 import com.dam.framework.util.TypeMapper;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * MySQL-specific SQL dialect implementation.
@@ -232,6 +235,27 @@ public class MySQLDialect implements Dialect {
     return QUOTE_CHAR;
   }
 
+  /**
+   * MySQL has no hard limit on IN-list size (only max_allowed_packet), but very
+   * long lists stop using range optimization efficiently.
+   *
+   * @return 1000
+   */
+  @Override
+  public int getMaxInListSize() {
+    return 1000;
+  }
+
+  /**
+   * MySQL 5.7 and later turn row-value comparisons into index ranges.
+   *
+   * @return true
+   */
+  @Override
+  public boolean supportsRowValueComparison() {
+    return true;
+  }
+
   @Override
   public PaginationFragment getPaginationFragment(Integer limit, Integer offset) {
     if (limit == null)
@@ -244,6 +268,55 @@ public class MySQLDialect implements Dialect {
     }
   }
 
+  /**
+   * MySQL accepts LIMIT without ORDER BY.
+   *
+   * @return false
+   */
+  @Override
+  public boolean requiresOrderByForPagination() {
+    return false;
+  }
+
+  /**
+   * MySQL stops evaluating the subquery at its first row.
+   */
+  @Override
+  public String getExistsQuery(String subquery) {
+    return "SELECT EXISTS(" + subquery + ")";
+  }
+
+  /**
+   * Window functions arrived in MySQL 8.0.
+   */
+  @Override
+  public boolean supportsCountOver(DatabaseMetaData metaData) throws SQLException {
+    // Other engines speaking MySQL, such as H2 in MySQL mode, are taken at their word
+    return !"MySQL".equalsIgnoreCase(metaData.getDatabaseProductName())
+        || metaData.getDatabaseMajorVersion() >= 8;
+  }
+
+  /**
+   * Connector/J buffers whole results unless the fetch size is
+   * {@code Integer.MIN_VALUE}, which streams rows one at a time. With
+   * {@code useCursorFetch=true} in the URL it fetches blocks of
+   * {@code fetchSize} rows through a server-side cursor instead. Other
+   * drivers speaking the MySQL dialect just get the fetch size.
+   * <p>
+   * While a row-by-row stream is open, Connector/J cannot run other
+   * statements on the same connection.
+   */
+  @Override
+  public StreamingReset prepareStreaming(Connection connection, PreparedStatement stmt, int fetchSize)
+      throws SQLException {
+    DatabaseMetaData metaData = connection.getMetaData();
+    boolean connectorJ = metaData.getDriverName().startsWith("MySQL Connector");
+    boolean cursorFetch = metaData.getURL() != null
+        && metaData.getURL().toLowerCase(Locale.ROOT).contains("usecursorfetch=true");
+    stmt.setFetchSize(connectorJ && !cursorFetch ? Integer.MIN_VALUE : fetchSize);
+    return StreamingReset.NONE;
+  }
+
   /**
    * Quote a SQL identifier (table or column name) using MySQL backticks.
    * <p>
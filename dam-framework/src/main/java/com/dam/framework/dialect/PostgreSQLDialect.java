@@ -1,5 +1,7 @@
 package com.dam.framework.dialect;
 
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Types;
@@ -152,6 +154,27 @@ public class PostgreSQLDialect implements Dialect {
     return QUOTE_CHAR;
   }
 
+  /**
+   * PostgreSQL accepts up to 32767 bind parameters per statement; 1000 keeps
+   * planning time low.
+   *
+   * @return 1000
+   */
+  @Override
+  public int getMaxInListSize() {
+    return 1000;
+  }
+
+  /**
+   * PostgreSQL compares row values natively and uses matching indexes.
+   *
+   * @return true
+   */
+  @Override
+  public boolean supportsRowValueComparison() {
+    return true;
+  }
+
   @Override
   public PaginationFragment getPaginationFragment(Integer limit, Integer offset) {
     List<Object> params = new ArrayList<>();
@@ -170,6 +193,57 @@ public class PostgreSQLDialect implements Dialect {
     return new PaginationFragment(sql.toString(), params);
   }
 
+  /**
+   * PostgreSQL accepts LIMIT without ORDER BY.
+   *
+   * @return false
+   */
+  @Override
+  public boolean requiresOrderByForPagination() {
+    return false;
+  }
+
+  /**
+   * PostgreSQL stops evaluating the subquery at its first row.
+   */
+  @Override
+  public String getExistsQuery(String subquery) {
+    return "SELECT EXISTS(" + subquery + ")";
+  }
+
+  /**
+   * PostgreSQL has window functions since 8.4.
+   */
+  @Override
+  public boolean supportsCountOver(DatabaseMetaData metaData) throws SQLException {
+    return true;
+  }
+
+  /**
+   * The PostgreSQL driver only fetches through a cursor when autocommit is
+   * off, otherwise it reads the whole result whatever the fetch size. Outside
+   * a transaction, autocommit is switched off for the duration of the stream
+   * and the implicit read transaction is rolled back afterwards, so nothing
+   * run on the connection meanwhile is committed by accident. Sessions refuse
+   * writes and new transactions while such a stream is open.
+   */
+  @Override
+  public StreamingReset prepareStreaming(Connection connection, PreparedStatement stmt, int fetchSize)
+      throws SQLException {
+    stmt.setFetchSize(fetchSize);
+    if (!connection.getAutoCommit()) {
+      return StreamingReset.NONE;
+    }
+    connection.setAutoCommit(false);
+    return () -> {
+      try {
+        connection.rollback();
+      } finally {
+        connection.setAutoCommit(true);
+      }
+    };
+  }
+
   @Override
   public void setParameter(PreparedStatement stmt, int parameterIndex, Object value, Class<?> javaType)
       throws SQLException {
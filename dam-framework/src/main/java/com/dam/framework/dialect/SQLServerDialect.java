@@ -1,5 +1,7 @@
 package com.dam.framework.dialect;
 
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Types;
@@ -168,6 +170,27 @@ public class SQLServerDialect implements Dialect {
     return QUOTE_CHAR;
   }
 
+  /**
+   * SQL Server rejects statements with more than 2100 parameters, so stay below
+   * that with room for other predicates.
+   *
+   * @return 2000
+   */
+  @Override
+  public int getMaxInListSize() {
+    return 2000;
+  }
+
+  /**
+   * SQL Server has no row-value comparison operators.
+   *
+   * @return false
+   */
+  @Override
+  public boolean supportsRowValueComparison() {
+    return false;
+  }
+
   @Override
   public PaginationFragment getPaginationFragment(Integer limit, Integer offset) {
     List<Object> params = new ArrayList<>();
@@ -175,6 +198,9 @@ public class SQLServerDialect implements Dialect {
 
     // SQL Server requires OFFSET even if it's 0
     int actualOffset = (offset != null && offset > 0) ? offset : 0;
+    if (limit == null && actualOffset == 0) {
+      return new PaginationFragment("", List.of());
+    }
 
     sql.append(" OFFSET ? ROWS");
     params.add(actualOffset);
@@ -187,6 +213,51 @@ public class SQLServerDialect implements Dialect {
     return new PaginationFragment(sql.toString(), params);
   }
 
+  /**
+   * OFFSET ... FETCH is part of the ORDER BY clause in SQL Server.
+   *
+   * @return true
+   */
+  @Override
+  public boolean requiresOrderByForPagination() {
+    return true;
+  }
+
+  /**
+   * SQL Server only allows EXISTS in a predicate, not as a select expression.
+   */
+  @Override
+  public String getExistsQuery(String subquery) {
+    return "SELECT CASE WHEN EXISTS(" + subquery + ") THEN 1 ELSE 0 END";
+  }
+
+  /**
+   * SQL Server has window aggregates since 2005.
+   */
+  @Override
+  public boolean supportsCountOver(DatabaseMetaData metaData) throws SQLException {
+    return true;
+  }
+
+  /**
+   * Microsoft's driver reads rows as they are consumed when response
+   * buffering is {@code adaptive}. That is the default since driver 2.0, but
+   * a {@code responseBuffering=full} URL would override it, so it is set on
+   * the statement. The driver is not a compile-time dependency; other drivers
+   * just get the fetch size.
+   */
+  @Override
+  public StreamingReset prepareStreaming(Connection connection, PreparedStatement stmt, int fetchSize)
+      throws SQLException {
+    stmt.setFetchSize(fetchSize);
+    try {
+      stmt.getClass().getMethod("setResponseBuffering", String.class).invoke(stmt, "adaptive");
+    } catch (ReflectiveOperationException e) {
+      // not Microsoft's driver
+    }
+    return StreamingReset.NONE;
+  }
+
   @Override
   public void setParameter(PreparedStatement stmt, int parameterIndex, Object value, Class<?> javaType)
       throws SQLException {
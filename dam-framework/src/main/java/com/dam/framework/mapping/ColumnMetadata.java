@@ -2,6 +2,7 @@ package com.dam.framework.mapping;
 
 import java.lang.reflect.Field;
 
+import com.dam.framework.annotations.Column;
 import com.dam.framework.annotations.GeneratedValue;
 import com.dam.framework.annotations.GenerationType;
 
@@ -22,6 +23,16 @@ public record ColumnMetadata(
                 return field.isAnnotationPresent(GeneratedValue.class);
         }
 
+        /**
+         * Check if the database compares this column case-sensitively.
+         * 
+         * @return true if declared with {@code @Column(caseSensitive = true)}
+         */
+        public boolean isCaseSensitive() {
+                Column column = field.getAnnotation(Column.class);
+                return column != null && column.caseSensitive();
+        }
+
         /**
          * Get the generation strategy for this column.
          * 
@@ -9,6 +9,8 @@ import java.util.Collections;
 import java.util.List;
 
 import com.dam.framework.annotations.Column;
+import com.dam.framework.annotations.Immutable;
+import com.dam.framework.annotations.NaturalId;
 import com.dam.framework.exception.DAMException;
 
 /**
@@ -27,6 +29,8 @@ public class EntityMetadata {
     protected List<ColumnMetadata> columns;
     private String discriminatorColumn;
     private String discriminatorValue;
+    private final boolean immutable;
+    private ColumnMetadata naturalIdColumn;
 
     public EntityMetadata(Class<?> entityClass) {
         if (!entityClass.isAnnotationPresent(com.dam.framework.annotations.Entity.class)) {
@@ -35,12 +39,23 @@ public class EntityMetadata {
         }
 
         this.entityClass = entityClass;
+        this.immutable = entityClass.isAnnotationPresent(Immutable.class);
 
         // Attributes
         // Get strategy
         MappingStrategy mappingStrategy = MappingStrategyFactory.getStrategy(entityClass);
         this.tableName = mappingStrategy.getTableName(entityClass);
         mappingStrategy.mapAttributes(this, entityClass);
+
+        for (ColumnMetadata column : columns == null ? List.<ColumnMetadata>of() : columns) {
+            if (column.field().isAnnotationPresent(NaturalId.class)) {
+                if (naturalIdColumn != null) {
+                    throw new DAMException(
+                            "Class " + entityClass.getSimpleName() + " has more than one @NaturalId field");
+                }
+                naturalIdColumn = column;
+            }
+        }
     }
 
     public ColumnMetadata createColumnMetadata(Field field) {
@@ -90,6 +105,24 @@ public class EntityMetadata {
         return Collections.unmodifiableList(columns);
     }
 
+    /**
+     * Check whether rows of this entity are never updated.
+     *
+     * @return true if the class is annotated with {@link Immutable}
+     */
+    public boolean isImmutable() {
+        return immutable;
+    }
+
+    /**
+     * Get the business key column.
+     *
+     * @return the column annotated with {@link NaturalId}, or null if none
+     */
+    public ColumnMetadata getNaturalIdColumn() {
+        return naturalIdColumn;
+    }
+
     public String getSchema() {
         return tableSchema;
     }
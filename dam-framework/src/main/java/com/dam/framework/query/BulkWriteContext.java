@@ -0,0 +1,31 @@
+package com.dam.framework.query;
+
+import com.dam.framework.mapping.EntityMetadata;
+
+/**
+ * Session-side hooks around the bulk UPDATE and DELETE statements of a
+ * {@link Query}.
+ * <p>
+ * <b>Note:</b> This is an internal framework interface implemented by the
+ * sessions. Application developers do not call it directly.
+ */
+public interface BulkWriteContext {
+
+    /**
+     * Prepare for a bulk statement on an entity's table, for example by
+     * executing pending writes the statement must see.
+     *
+     * @param metadata the entity metadata
+     * @throws com.dam.framework.exception.DAMException if the session cannot
+     *                                                  write
+     */
+    void beforeBulkWrite(EntityMetadata metadata);
+
+    /**
+     * Invalidate what a bulk statement may have changed. The matched rows are
+     * not known, so every cached row of the entity is affected.
+     *
+     * @param metadata the entity metadata
+     */
+    void afterBulkWrite(EntityMetadata metadata);
+}
@@ -0,0 +1,144 @@
+package com.dam.framework.query;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.dam.framework.exception.DAMException;
+import com.dam.framework.session.Session;
+
+/**
+ * A query rendered to SQL once, to be executed many times with different
+ * parameter values.
+ * <p>
+ * Created by {@link com.dam.framework.session.SessionFactory#compileQuery} or
+ * registered by name in the
+ * {@link com.dam.framework.session.Configuration#addNamedQuery Configuration}.
+ * Parameters to be supplied at execution are marked with {@link #PARAM} in
+ * the builder; any other parameter value is a constant of the query. An
+ * execution only copies the parameter values and runs the SQL, whose text is
+ * always the same, so drivers and databases can reuse its prepared statement
+ * and plan.
+ *
+ * <pre>
+ * {@code
+ * CompiledQuery<User> byStatus = factory.compileQuery(User.class,
+ *         q -> q.where("status = ?", CompiledQuery.PARAM).orderBy("name", Order.ASC).limit(50));
+ * List<User> active = byStatus.bind("active").execute(session);
+ * }
+ * </pre>
+ *
+ * Instances are immutable and can be shared between threads.
+ *
+ * @param <T> the entity type
+ */
+public final class CompiledQuery<T> {
+
+    /**
+     * Marks a parameter bound at execution by {@link #bind(Object...)}, in
+     * order of appearance.
+     */
+    public static final Object PARAM = new Object() {
+        @Override
+        public String toString() {
+            return "CompiledQuery.PARAM";
+        }
+    };
+
+    private final Class<T> resultClass;
+    private final String sql;
+    private final Object[] parameters;
+    private final int[] bindPositions;
+    private final boolean readOnly;
+    private final boolean cacheable;
+
+    CompiledQuery(Class<T> resultClass, String sql, List<Object> parameters, boolean readOnly,
+            boolean cacheable) {
+        this.resultClass = resultClass;
+        this.sql = sql;
+        this.parameters = parameters.toArray();
+        this.bindPositions = new int[(int) parameters.stream().filter(value -> value == PARAM).count()];
+        for (int i = 0, next = 0; i < this.parameters.length; i++) {
+            if (this.parameters[i] == PARAM) {
+                bindPositions[next++] = i;
+            }
+        }
+        this.readOnly = readOnly;
+        this.cacheable = cacheable;
+    }
+
+    /**
+     * Supply the values of the {@link #PARAM} markers.
+     *
+     * @param values one value per marker, in order
+     * @return the query ready to execute
+     * @throws DAMException if the number of values does not match the markers
+     */
+    public Bound<T> bind(Object... values) {
+        if (values.length != bindPositions.length) {
+            throw new DAMException("Compiled query expects " + bindPositions.length + " parameters, got "
+                    + values.length + ": " + sql);
+        }
+        Object[] bound = parameters.clone();
+        for (int i = 0; i < values.length; i++) {
+            bound[bindPositions[i]] = values[i];
+        }
+        return new Bound<>(this, Arrays.asList(bound));
+    }
+
+    public Class<T> getResultClass() {
+        return resultClass;
+    }
+
+    /**
+     * Get the rendered SQL, with a placeholder for every parameter.
+     *
+     * @return the SQL text executed by every binding
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Check if results are returned detached, because the query was marked
+     * read-only or does not select whole entities.
+     *
+     * @return true if results are never managed
+     */
+    boolean isReadOnly() {
+        return readOnly;
+    }
+
+    boolean isCacheable() {
+        return cacheable;
+    }
+
+    /**
+     * A compiled query with its parameter values.
+     *
+     * @param <T> the entity type
+     */
+    public static final class Bound<T> {
+
+        private final CompiledQuery<T> query;
+        private final List<Object> parameters;
+
+        private Bound(CompiledQuery<T> query, List<Object> parameters) {
+            this.query = query;
+            this.parameters = parameters;
+        }
+
+        /**
+         * Execute in a session, whose persistence context and caches apply as
+         * for {@link Query#getResultList()}.
+         *
+         * @param session the session to run in
+         * @return list of results (empty list if no results)
+         */
+        public List<T> execute(Session session) {
+            if (!(session.createQuery(query.resultClass) instanceof QueryImpl<T> executor)) {
+                throw new DAMException("Compiled queries need a session created by a SessionFactory");
+            }
+            return executor.execute(query, parameters);
+        }
+    }
+}
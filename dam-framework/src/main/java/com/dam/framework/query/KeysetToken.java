@@ -0,0 +1,157 @@
+package com.dam.framework.query;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import com.dam.framework.exception.DAMException;
+
+/**
+ * Encodes the sort key values of the last row of a page into a continuation
+ * token, and back.
+ * <p>
+ * Values are written as text and parsed back with the type of their column,
+ * so a token never instantiates anything but those values. A token carries a
+ * signature of the ORDER BY it was made for and is rejected by any other
+ * query. Tokens are not encrypted: a client can read and forge them, which
+ * only lets it seek to another position of the same query.
+ */
+final class KeysetToken {
+
+    private static final byte VERSION = 1;
+
+    private KeysetToken() {
+    }
+
+    static String encode(int signature, List<Object> values) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeInt(signature);
+            out.writeShort(values.size());
+            for (Object value : values) {
+                out.writeUTF(format(value));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    static List<Object> decode(String token, int signature, List<Class<?>> types) {
+        List<Object> values = new ArrayList<>(types.size());
+        boolean matches;
+        try (DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            matches = in.readByte() == VERSION && in.readInt() == signature && in.readShort() == types.size();
+            if (matches) {
+                for (Class<?> type : types) {
+                    values.add(parse(in.readUTF(), type));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new DAMException("Malformed continuation token", e);
+        }
+        if (!matches) {
+            throw new DAMException("Continuation token was made for a query with another ORDER BY");
+        }
+        return values;
+    }
+
+    private static String format(Object value) {
+        if (value instanceof Enum<?> e) {
+            return e.name();
+        }
+        if (value instanceof Date date && !(value instanceof java.sql.Date || value instanceof java.sql.Time
+                || value instanceof java.sql.Timestamp)) {
+            return Long.toString(date.getTime());
+        }
+        return value.toString();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object parse(String text, Class<?> type) {
+        if (type == String.class) {
+            return text;
+        }
+        if (type == Long.class || type == long.class) {
+            return Long.valueOf(text);
+        }
+        if (type == Integer.class || type == int.class) {
+            return Integer.valueOf(text);
+        }
+        if (type == Short.class || type == short.class) {
+            return Short.valueOf(text);
+        }
+        if (type == Byte.class || type == byte.class) {
+            return Byte.valueOf(text);
+        }
+        if (type == Double.class || type == double.class) {
+            return Double.valueOf(text);
+        }
+        if (type == Float.class || type == float.class) {
+            return Float.valueOf(text);
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return Boolean.valueOf(text);
+        }
+        if (type == Character.class || type == char.class) {
+            return text.charAt(0);
+        }
+        if (type == BigDecimal.class) {
+            return new BigDecimal(text);
+        }
+        if (type == BigInteger.class) {
+            return new BigInteger(text);
+        }
+        if (type == UUID.class) {
+            return UUID.fromString(text);
+        }
+        if (type == LocalDate.class) {
+            return LocalDate.parse(text);
+        }
+        if (type == LocalTime.class) {
+            return LocalTime.parse(text);
+        }
+        if (type == LocalDateTime.class) {
+            return LocalDateTime.parse(text);
+        }
+        if (type == Instant.class) {
+            return Instant.parse(text);
+        }
+        if (type == OffsetDateTime.class) {
+            return OffsetDateTime.parse(text);
+        }
+        if (type == java.sql.Timestamp.class) {
+            return java.sql.Timestamp.valueOf(text);
+        }
+        if (type == java.sql.Date.class) {
+            return java.sql.Date.valueOf(text);
+        }
+        if (type == java.sql.Time.class) {
+            return java.sql.Time.valueOf(text);
+        }
+        if (type == Date.class) {
+            return new Date(Long.parseLong(text));
+        }
+        if (type.isEnum()) {
+            return Enum.valueOf((Class<? extends Enum>) type, text);
+        }
+        throw new IllegalArgumentException("Unsupported sort key type: " + type.getName());
+    }
+}
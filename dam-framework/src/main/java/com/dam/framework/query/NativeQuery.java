@@ -0,0 +1,106 @@
+package com.dam.framework.query;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * A query written in SQL, for what the {@link Query} builder cannot express:
+ * CTEs, window functions, joins.
+ * <p>
+ * Rows are mapped like those of a {@link Query}. An entity result class maps
+ * the columns named like its mapped columns, a record or DTO class is
+ * constructed as by {@link Query#project(Class)}, and a basic type such as
+ * {@code Long} or {@code String} takes the first column.
+ *
+ * <pre>
+ * {@code
+ * List<User> recent = session.createNativeQuery(
+ *         "WITH last_login AS (SELECT user_id, MAX(at) AS at FROM logins GROUP BY user_id) "
+ *                 + "SELECT u.* FROM users u JOIN last_login l ON l.user_id = u.id WHERE l.at > ?",
+ *         User.class)
+ *         .setParameter(1, since)
+ *         .getResultList();
+ * }
+ * </pre>
+ *
+ * Native queries never use the query cache: the framework cannot tell which
+ * tables they read.
+ *
+ * @param <T> the result type
+ * @see com.dam.framework.session.Session#createNativeQuery(String, Class)
+ */
+public interface NativeQuery<T> {
+
+    /**
+     * Bind a parameter placeholder (?), through the dialect like the
+     * framework's own statements.
+     *
+     * @param position the 1-based placeholder position
+     * @param value    the value, may be null
+     * @return this NativeQuery for method chaining
+     * @throws IllegalArgumentException if the position is less than 1
+     */
+    NativeQuery<T> setParameter(int position, Object value);
+
+    /**
+     * Load entity results as read-only.
+     * <p>
+     * Entities are otherwise managed by the session like the results of a
+     * {@link Query}, when every mapped column is selected; entities missing a
+     * column are always returned detached. Other result types are never
+     * managed.
+     *
+     * @param readOnly true to skip change tracking for the results
+     * @return this NativeQuery for method chaining
+     */
+    NativeQuery<T> readOnly(boolean readOnly);
+
+    /**
+     * Set how many rows the driver fetches per round trip.
+     *
+     * @param fetchSize the rows per round trip, 0 for the driver default
+     * @return this NativeQuery for method chaining
+     * @see Query#fetchSize(int)
+     */
+    NativeQuery<T> fetchSize(int fetchSize);
+
+    /**
+     * Execute the query and return all results.
+     *
+     * @return list of results (empty list if no results)
+     * @throws com.dam.framework.exception.DAMException if a parameter is not
+     *                                                  bound
+     */
+    List<T> getResultList();
+
+    /**
+     * Execute the query and return the only result.
+     *
+     * @return the single result
+     * @throws com.dam.framework.exception.DAMException if there are no results
+     *                                                  or more than one
+     */
+    T getSingleResult();
+
+    /**
+     * Execute the query and return its results as they are read, as
+     * {@link Query#stream()} does. Entities are always detached. Always close
+     * the stream.
+     *
+     * @return the results in SQL order
+     */
+    Stream<T> stream();
+
+    /**
+     * Process the results in batches read from one streamed cursor.
+     * <p>
+     * Results are always detached, so memory stays bounded by the batch size
+     * whatever the number of rows. The cursor holds the session's connection
+     * until the last batch, so write changes through another session.
+     *
+     * @param batchSize the number of results per batch
+     * @param action    processes one batch of detached results
+     */
+    void forEachBatch(int batchSize, Consumer<List<T>> action);
+}
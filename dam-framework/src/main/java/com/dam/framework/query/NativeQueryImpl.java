@@ -0,0 +1,207 @@
+package com.dam.framework.query;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import com.dam.framework.dialect.Dialect;
+import com.dam.framework.exception.DAMException;
+import com.dam.framework.mapping.EntityMetadata;
+import com.dam.framework.util.TypeMapper;
+
+public class NativeQueryImpl<T> implements NativeQuery<T> {
+
+    private final Class<T> resultClass;
+    private final String sql;
+    private final Connection connection;
+    private final Dialect dialect;
+    // null unless the result class is a mapped entity
+    private final EntityMetadata metadata;
+    // null when results are always returned detached
+    private final PersistenceContext persistenceContext;
+    private final List<Object> parameters = new ArrayList<>();
+    private boolean readOnly;
+    private int fetchSize;
+    // null when nothing must run before the query executes
+    private Runnable beforeExecute;
+
+    // Marks placeholders before the last bound one that were never bound
+    private static final Object UNSET = new Object();
+
+    public NativeQueryImpl(Class<T> resultClass, String sql, Connection connection, Dialect dialect,
+            EntityMetadata metadata, PersistenceContext persistenceContext) {
+        this.resultClass = resultClass;
+        this.sql = sql;
+        this.connection = connection;
+        this.dialect = dialect;
+        this.metadata = metadata;
+        this.persistenceContext = persistenceContext;
+    }
+
+    /**
+     * Run a hook each time this query is executed, before it reads anything,
+     * for example to flush writes the query must see.
+     *
+     * @return this query
+     */
+    public NativeQueryImpl<T> beforeExecute(Runnable beforeExecute) {
+        this.beforeExecute = beforeExecute;
+        return this;
+    }
+
+    @Override
+    public NativeQuery<T> setParameter(int position, Object value) {
+        if (position < 1) {
+            throw new IllegalArgumentException("Parameter positions start at 1");
+        }
+        while (parameters.size() < position) {
+            parameters.add(UNSET);
+        }
+        parameters.set(position - 1, value);
+        return this;
+    }
+
+    @Override
+    public NativeQuery<T> readOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+        return this;
+    }
+
+    @Override
+    public NativeQuery<T> fetchSize(int fetchSize) {
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("Fetch size cannot be negative");
+        }
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    @Override
+    public List<T> getResultList() {
+        return getResultList(0);
+    }
+
+    @Override
+    public T getSingleResult() {
+        // A second row is enough to know the result is not single
+        List<T> list = getResultList(2);
+        if (list.isEmpty()) {
+            throw new DAMException("Query returned no results");
+        }
+        if (list.size() > 1) {
+            throw new DAMException("Multiple results found");
+        }
+        return list.getFirst();
+    }
+
+    /**
+     * Results of this query, capped at {@code maxRows} rows unless 0.
+     */
+    private List<T> getResultList(int maxRows) {
+        beforeExecute();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            bind(stmt);
+            stmt.setMaxRows(maxRows);
+            if (fetchSize > 0) {
+                stmt.setFetchSize(fetchSize);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                RowReader<T> reader = reader(rs, readOnly);
+                List<T> results = new ArrayList<>();
+                while (rs.next()) {
+                    results.add(reader.read(rs));
+                }
+                return results;
+            }
+        } catch (SQLException e) {
+            throw new DAMException("Error executing native query: " + sql, e);
+        }
+    }
+
+    @Override
+    public Stream<T> stream() {
+        beforeExecute();
+        PreparedStatement stmt = null;
+        Dialect.StreamingReset reset = Dialect.StreamingReset.NONE;
+        try {
+            stmt = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            bind(stmt);
+            reset = dialect.prepareStreaming(connection, stmt,
+                    fetchSize > 0 ? fetchSize : QueryImpl.DEFAULT_STREAM_FETCH_SIZE);
+            ResultSet rs = stmt.executeQuery();
+            return ResultStream.of(stmt, rs, reset, reader(rs, true), resultClass.getSimpleName());
+        } catch (SQLException e) {
+            ResultStream.release(stmt, reset);
+            throw new DAMException("Error executing native query: " + sql, e);
+        }
+    }
+
+    @Override
+    public void forEachBatch(int batchSize, Consumer<List<T>> action) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        try (Stream<T> rows = stream()) {
+            Iterator<T> iterator = rows.iterator();
+            List<T> batch = new ArrayList<>(batchSize);
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == batchSize) {
+                    action.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                action.accept(batch);
+            }
+        }
+    }
+
+    private void beforeExecute() {
+        if (beforeExecute != null) {
+            beforeExecute.run();
+        }
+        checkBound();
+    }
+
+    private void checkBound() {
+        int unset = parameters.indexOf(UNSET);
+        if (unset >= 0) {
+            throw new DAMException("Parameter " + (unset + 1) + " of native query not set: " + sql);
+        }
+    }
+
+    private void bind(PreparedStatement stmt) throws SQLException {
+        for (int i = 0; i < parameters.size(); i++) {
+            Object value = parameters.get(i);
+            dialect.setParameter(stmt, i + 1, value, value == null ? Object.class : value.getClass());
+        }
+    }
+
+    /**
+     * Resolve how rows of this result set map to the result class.
+     *
+     * @param detached true to never manage entity results
+     */
+    private RowReader<T> reader(ResultSet rs, boolean detached) throws SQLException {
+        if (metadata != null) {
+            QueryImpl<T> entities = new QueryImpl<>(resultClass, connection, dialect, metadata,
+                    persistenceContext);
+            return entities.entityReader(rs, detached);
+        }
+        if (isBasicType(resultClass)) {
+            return row -> TypeMapper.getResultSetValue(row, 1, resultClass);
+        }
+        return ProjectionPlan.of(resultClass).bind(rs.getMetaData(), null);
+    }
+
+    private static boolean isBasicType(Class<?> type) {
+        return type.isPrimitive() || type.isEnum() || type.getName().startsWith("java.");
+    }
+}
@@ -0,0 +1,86 @@
+package com.dam.framework.query;
+
+import java.util.List;
+
+/**
+ * One page of query results, with the token to fetch the next one.
+ *
+ * <pre>
+ * {@code
+ * Page<User> page = session.createQuery(User.class)
+ *         .orderBy("created_at", Order.DESC)
+ *         .continueAfter(request.getParameter("next"))
+ *         .getPage(50);
+ * render(page.getContent(), page.getContinuationToken());
+ * }
+ * </pre>
+ *
+ * @param <T> the entity type
+ * @see Query#getPage(int)
+ */
+public final class Page<T> {
+
+    private final List<T> content;
+    private final String continuationToken;
+    private final long total;
+    private final boolean totalExact;
+
+    Page(List<T> content, String continuationToken, long total, boolean totalExact) {
+        this.content = List.copyOf(content);
+        this.continuationToken = continuationToken;
+        this.total = total;
+        this.totalExact = totalExact;
+    }
+
+    /**
+     * Get the results of this page, in query order.
+     *
+     * @return the results, at most the page size
+     */
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * Check if rows follow this page.
+     *
+     * @return true if a next page exists
+     */
+    public boolean hasNext() {
+        return continuationToken != null;
+    }
+
+    /**
+     * Get the opaque token that continues after the last row of this page, for
+     * {@link Query#continueAfter(String)}.
+     * <p>
+     * The token holds the sort key values of that row and is only valid for a
+     * query with the same ORDER BY.
+     *
+     * @return the token, or null on the last page
+     */
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    /**
+     * Get the number of rows matching the query across all pages, if
+     * requested with {@link Query#withTotal()} or {@link Query#withTotal(long)}.
+     *
+     * @return the total, the threshold if more rows match, or -1 if not
+     *         requested
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Check if {@link #getTotal()} is the exact count, rather than a threshold
+     * that more rows exceed.
+     *
+     * @return false if counting stopped at the threshold
+     */
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+}
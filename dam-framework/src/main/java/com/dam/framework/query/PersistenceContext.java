@@ -0,0 +1,57 @@
+package com.dam.framework.query;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.dam.framework.mapping.EntityMetadata;
+
+/**
+ * Session-side hooks a {@link Query} uses to hand loaded entities to the
+ * Session that created it.
+ * <p>
+ * <b>Note:</b> This is an internal framework interface implemented by the
+ * Session. Application developers do not call it directly.
+ */
+public interface PersistenceContext {
+
+    /**
+     * Make a freshly loaded entity managed by the session.
+     * <p>
+     * If the session already manages an instance with the same identity, that
+     * instance is returned and the loaded copy is discarded, so a session never
+     * holds two objects for one row.
+     *
+     * @param entity   the entity just mapped from a result row
+     * @param metadata the entity metadata
+     * @param <T>      the entity type
+     * @return the managed instance
+     */
+    <T> T manageLoaded(T entity, EntityMetadata metadata);
+
+    /**
+     * Resolve entity IDs, for example from a cached query result, to managed
+     * instances.
+     *
+     * @param entityClass the entity class
+     * @param ids         the primary keys
+     * @param <T>         the entity type
+     * @return one element per ID in order, null where no row exists
+     */
+    <T> List<T> findAll(Class<T> entityClass, Collection<?> ids);
+
+    /**
+     * Check whether the current transaction has written to a table without
+     * committing yet.
+     *
+     * @param table the table name
+     * @return true if reads may see rows other sessions cannot
+     */
+    boolean hasPendingWrites(String table);
+
+    /**
+     * Check whether entities loaded through this context must stay unmanaged.
+     *
+     * @return true for read-only sessions
+     */
+    boolean isReadOnly();
+}
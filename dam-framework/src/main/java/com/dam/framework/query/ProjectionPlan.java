@@ -0,0 +1,206 @@
+package com.dam.framework.query;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.RecordComponent;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.dam.framework.exception.DAMException;
+import com.dam.framework.mapping.ColumnMetadata;
+import com.dam.framework.mapping.EntityMetadata;
+import com.dam.framework.util.TypeMapper;
+
+/**
+ * How to construct a projection type from result columns, resolved once per
+ * type.
+ * <p>
+ * Records are built through their canonical constructor, each component
+ * taking the column of the same name: the column of the entity field with
+ * that name, the name itself, or its snake_case form. Other classes need a
+ * constructor with one parameter per selected column. Its parameters are
+ * matched by name when the class was compiled with {@code -parameters}, and
+ * by position otherwise.
+ *
+ * @param <R> the projection type
+ */
+final class ProjectionPlan<R> {
+
+    private static final ClassValue<ProjectionPlan<?>> PLANS = new ClassValue<>() {
+        @Override
+        protected ProjectionPlan<?> computeValue(Class<?> type) {
+            return new ProjectionPlan<>(type);
+        }
+    };
+
+    private final Class<R> type;
+    // null for a class whose constructor is chosen by column count
+    private final Constructor<R> constructor;
+    // null when arguments are bound by position
+    private final String[] names;
+    private final Class<?>[] parameterTypes;
+
+    @SuppressWarnings("unchecked")
+    static <R> ProjectionPlan<R> of(Class<R> type) {
+        return (ProjectionPlan<R>) PLANS.get(type);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ProjectionPlan(Class<R> type) {
+        this.type = type;
+        if (type.isRecord()) {
+            RecordComponent[] components = type.getRecordComponents();
+            names = new String[components.length];
+            parameterTypes = new Class<?>[components.length];
+            for (int i = 0; i < components.length; i++) {
+                names[i] = components[i].getName();
+                parameterTypes[i] = components[i].getType();
+            }
+            try {
+                constructor = accessible(type.getDeclaredConstructor(parameterTypes));
+            } catch (NoSuchMethodException e) {
+                throw new DAMException("Record without canonical constructor: " + type.getName(), e);
+            }
+            return;
+        }
+
+        Constructor<?>[] constructors = type.getDeclaredConstructors();
+        if (constructors.length == 1 && constructors[0].getParameterCount() > 0
+                && constructors[0].getParameters()[0].isNamePresent()) {
+            constructor = accessible((Constructor<R>) constructors[0]);
+            Parameter[] parameters = constructor.getParameters();
+            names = new String[parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                names[i] = parameters[i].getName();
+            }
+            parameterTypes = constructor.getParameterTypes();
+        } else {
+            constructor = null;
+            names = null;
+            parameterTypes = null;
+        }
+    }
+
+    private static <R> Constructor<R> accessible(Constructor<R> constructor) {
+        if (!constructor.canAccess(null)) {
+            constructor.setAccessible(true);
+        }
+        return constructor;
+    }
+
+    /**
+     * Resolve the result columns of one execution.
+     *
+     * @param rsMetaData the result set's columns
+     * @param metadata   the queried entity, used to map field names to
+     *                   columns, or null
+     * @return the reader of this result set's rows
+     */
+    Reader<R> bind(ResultSetMetaData rsMetaData, EntityMetadata metadata) throws SQLException {
+        List<String> labels = new ArrayList<>(rsMetaData.getColumnCount());
+        for (int i = 1; i <= rsMetaData.getColumnCount(); i++) {
+            labels.add(rsMetaData.getColumnLabel(i));
+        }
+
+        if (names == null) {
+            Constructor<R> positional = null;
+            for (Constructor<?> candidate : type.getDeclaredConstructors()) {
+                if (candidate.getParameterCount() == labels.size()) {
+                    if (positional != null) {
+                        throw new DAMException("Ambiguous constructors of " + type.getSimpleName() + " for "
+                                + labels.size() + " columns");
+                    }
+                    @SuppressWarnings("unchecked")
+                    Constructor<R> typed = (Constructor<R>) candidate;
+                    positional = typed;
+                }
+            }
+            if (positional == null) {
+                throw new DAMException(type.getSimpleName() + " has no constructor taking the " + labels.size()
+                        + " selected columns " + labels);
+            }
+            int[] indexes = new int[labels.size()];
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i] = i + 1;
+            }
+            return new Reader<>(accessible(positional), positional.getParameterTypes(), indexes);
+        }
+
+        int[] indexes = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            indexes[i] = findColumn(labels, names[i], metadata);
+            if (indexes[i] == 0) {
+                throw new DAMException("No selected column for " + type.getSimpleName() + "." + names[i]
+                        + " among " + labels);
+            }
+        }
+        return new Reader<>(constructor, parameterTypes, indexes);
+    }
+
+    private static int findColumn(List<String> labels, String name, EntityMetadata metadata) {
+        List<String> candidates = new ArrayList<>(3);
+        if (metadata != null) {
+            for (ColumnMetadata column : metadata.getColumns()) {
+                if (column.field().getName().equals(name)) {
+                    candidates.add(column.columnName());
+                }
+            }
+        }
+        candidates.add(name);
+        candidates.add(name.replaceAll("([a-z0-9])([A-Z])", "$1_$2"));
+        for (String candidate : candidates) {
+            for (int i = 0; i < labels.size(); i++) {
+                if (labels.get(i).equalsIgnoreCase(candidate)) {
+                    return i + 1;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Builds one projection per row from the column indexes resolved for a
+     * result set.
+     */
+    static final class Reader<R> implements RowReader<R> {
+
+        private final Constructor<R> constructor;
+        private final Class<?>[] parameterTypes;
+        private final int[] indexes;
+
+        private Reader(Constructor<R> constructor, Class<?>[] parameterTypes, int[] indexes) {
+            this.constructor = constructor;
+            this.parameterTypes = parameterTypes;
+            this.indexes = indexes;
+        }
+
+        @Override
+        public R read(ResultSet rs) throws SQLException {
+            Object[] arguments = new Object[indexes.length];
+            for (int i = 0; i < indexes.length; i++) {
+                Object value = TypeMapper.getResultSetValue(rs, indexes[i], parameterTypes[i]);
+                // A NULL cannot be passed to a primitive parameter
+                arguments[i] = value == null && parameterTypes[i].isPrimitive() ? defaultValue(parameterTypes[i])
+                        : value;
+            }
+            try {
+                return constructor.newInstance(arguments);
+            } catch (InvocationTargetException e) {
+                throw new DAMException("Constructor of " + constructor.getDeclaringClass().getSimpleName()
+                        + " failed", e.getCause());
+            } catch (ReflectiveOperationException e) {
+                throw new DAMException("Cannot instantiate " + constructor.getDeclaringClass().getName(), e);
+            }
+        }
+
+        private static Object defaultValue(Class<?> primitive) {
+            // The element of a new array is the primitive's zero value
+            return Array.get(Array.newInstance(primitive, 1), 0);
+        }
+    }
+}
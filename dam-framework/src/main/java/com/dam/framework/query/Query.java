@@ -1,6 +1,8 @@
 package com.dam.framework.query;
 
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Interface for building and executing database queries.
@@ -100,8 +102,85 @@ public interface Query<T> {
      */
     Query<T> offset(int offset);
 
+    /**
+     * Start after the row with the given sort key values (keyset pagination).
+     * <p>
+     * The values are those of the {@link #orderBy(String, Order) ORDER BY}
+     * columns of the last row already seen, in order, followed by its ID
+     * unless the ID is one of them: the ID breaks ties between equal sort
+     * keys. The position is found with an index seek instead of reading and
+     * discarding the rows before it, so every page costs the same as the
+     * first. Use {@link #limit(int)} for the page size; this replaces
+     * {@link #offset(int)}.
+     * <p>
+     * Only mapped columns can be sort keys, and they must not be NULL.
+     *
+     * @param lastSortKeys the sort key values of the last row seen
+     * @return this Query for method chaining
+     * @see #getPage(int)
+     */
+    Query<T> after(Object... lastSortKeys);
+
+    /**
+     * Start after the last row of a previous page.
+     *
+     * @param continuationToken a token from {@link Page#getContinuationToken()},
+     *                          or null to start at the first row
+     * @return this Query for method chaining
+     * @throws com.dam.framework.exception.DAMException at execution if the token
+     *                                                  was made for another
+     *                                                  ORDER BY
+     */
+    Query<T> continueAfter(String continuationToken);
+
+    /**
+     * Load results as read-only.
+     * <p>
+     * Read-only results are not registered in the session's L1 cache and no
+     * snapshot is taken, so they are ignored by {@code flush()}. Use this for
+     * results that are only rendered, never modified. Queries created by a
+     * read-only session are always read-only.
+     *
+     * @param readOnly true to skip change tracking for the results
+     * @return this Query for method chaining
+     */
+    Query<T> readOnly(boolean readOnly);
+
+    /**
+     * Serve this query from the query cache when possible.
+     * <p>
+     * Results are cached per final SQL and parameter values. Queries loading
+     * whole entities cache only the IDs and resolve them through the session
+     * (L1, second-level cache, then one IN query); projections and read-only
+     * queries cache the row values. Any write made through the framework to
+     * the queried table invalidates the cached results.
+     * <p>
+     * Only the table named in FROM is tracked, so do not cache queries whose
+     * conditions read other tables through subqueries.
+     *
+     * @param cacheable true to use the query cache
+     * @return this Query for method chaining
+     * @see com.dam.framework.session.Configuration#setQueryCacheMaxEntries(int)
+     */
+    Query<T> cacheable(boolean cacheable);
+
+    /**
+     * Set how many rows the driver fetches per round trip.
+     * <p>
+     * Defaults to the factory's
+     * {@link com.dam.framework.session.Configuration#setFetchSize(int) fetch
+     * size}; 0 leaves the choice to the driver.
+     *
+     * @param fetchSize the rows per round trip, 0 for the driver default
+     * @return this Query for method chaining
+     */
+    Query<T> fetchSize(int fetchSize);
+
     /**
      * Execute the query and return a single result.
+     * <p>
+     * At most two rows are fetched: the second one is enough to know the
+     * result is not single.
      *
      * @return the exact single result
      * @throws com.dam.framework.exception.DAMException if multiple results or no
@@ -110,10 +189,203 @@ public interface Query<T> {
      */
     T getSingleResult();
 
+    /**
+     * Execute the query for its first result only.
+     *
+     * @return the first result in query order, or null if there is none
+     */
+    T getFirstResult();
+
+    /**
+     * Count the rows this query would return, without loading them.
+     * <p>
+     * Rendered as {@code SELECT COUNT(*)} with the same conditions. A grouped
+     * or paged query counts its groups or its page.
+     *
+     * @return the number of results
+     */
+    long count();
+
+    /**
+     * Check if this query has any result, without loading it.
+     * <p>
+     * Rendered as an EXISTS test, which the database stops at the first
+     * matching row.
+     *
+     * @return true if at least one row matches
+     */
+    boolean exists();
+
+    /**
+     * Execute an aggregate query and return its single value.
+     * <p>
+     * The value is the first selected column, for example
+     * {@code select("MAX(price)")}, or an aggregate of a single group selected
+     * with {@link #groupBy(String...)} and {@link #having(String, Object...)}.
+     * For several groups, use {@link #project(Class)}.
+     *
+     * <pre>
+     * {@code
+     * BigDecimal top = session.createQuery(Item.class).select("MAX(price)").getScalar(BigDecimal.class);
+     * }
+     * </pre>
+     *
+     * @param type the Java type of the value
+     * @return the value, or null if there is no row or the value is NULL
+     * @throws com.dam.framework.exception.DAMException if the query returns more
+     *                                                  than one row
+     */
+    <S> S getScalar(Class<S> type);
+
     /**
      * Execute the query and return all results.
      *
      * @return list of results (empty list if no results)
      */
     List<T> getResultList();
-}
\ No newline at end of file
+
+    /**
+     * Report the total number of matching rows with each {@link #getPage(int)}.
+     * <p>
+     * Where the database supports window functions, the first page (or any
+     * OFFSET page) gets its total from {@code COUNT(*) OVER()} in the page
+     * query itself, so page and total cost one round trip. Pages continued
+     * with a token fall back to a count query, as does a dialect without
+     * window functions. A first page holding fewer rows than the page size
+     * needs no count at all.
+     *
+     * @return this Query for method chaining
+     * @see Page#getTotal()
+     */
+    Query<T> withTotal();
+
+    /**
+     * Report the total number of matching rows with each {@link #getPage(int)},
+     * counting no further than {@code threshold}.
+     * <p>
+     * The count query reads at most {@code threshold + 1} rows, so its cost is
+     * bounded however many rows match. Beyond the threshold the page reports
+     * the threshold as a non-exact total ("more than 10,000").
+     *
+     * @param threshold the largest total to count exactly
+     * @return this Query for method chaining
+     * @see Page#isTotalExact()
+     */
+    Query<T> withTotal(long threshold);
+
+    /**
+     * Execute the query for one page of keyset-paginated results.
+     * <p>
+     * Rows are ordered by the ORDER BY columns and the ID, and start after the
+     * position set with {@link #continueAfter(String)} or
+     * {@link #after(Object...)}, if any, or skip {@link #offset(int)} rows.
+     * The returned page carries the token for the next one, and the total if
+     * requested with {@link #withTotal()}.
+     *
+     * @param pageSize the maximum number of results
+     * @return the page of results
+     * @throws com.dam.framework.exception.DAMException if the query sets a
+     *                                                  limit, both an offset
+     *                                                  and a seek position, or
+     *                                                  orders by something
+     *                                                  other than mapped
+     *                                                  columns
+     */
+    Page<T> getPage(int pageSize);
+
+    /**
+     * Execute the query and map each row into a record or DTO instead of an
+     * entity.
+     * <p>
+     * Only the selected columns are read and no entity is created, managed or
+     * snapshotted. Record components take the column of the entity field with
+     * the same name, the column of that name, or its snake_case form. Other
+     * classes need a constructor with one parameter per selected column:
+     * matched by name when compiled with {@code -parameters}, by position
+     * otherwise. The constructor is resolved once per type.
+     *
+     * <pre>
+     * {@code
+     * record UserRow(Long id, String name) {}
+     * List<UserRow> rows = session.createQuery(User.class).select("id", "name").project(UserRow.class);
+     * }
+     * </pre>
+     *
+     * @param resultType the record or DTO class
+     * @return the projections (empty list if no results)
+     * @throws com.dam.framework.exception.DAMException if a record component has
+     *                                                  no column, or no
+     *                                                  constructor fits the
+     *                                                  columns
+     */
+    <R> List<R> project(Class<R> resultType);
+
+    /**
+     * Execute the query and return its results as they are read.
+     * <p>
+     * Rows are fetched in blocks of the {@link #fetchSize(int) fetch size}
+     * (1000 if none is set) and hydrated one at a time, so memory use does not
+     * grow with the number of rows. The statement stays open until the stream
+     * is closed, so always use it in a try-with-resources block:
+     *
+     * <pre>
+     * {@code
+     * try (Stream<User> users = session.createQuery(User.class).stream()) {
+     *     users.forEach(exporter::write);
+     * }
+     * }
+     * </pre>
+     *
+     * Streamed entities are always detached, even in a session that manages
+     * the results of {@link #getResultList()}: the session does not grow with
+     * the number of rows, and changes to the entities are not flushed. Streams
+     * never use the query cache, and the connection
+     * should not run other statements while one is open: some drivers cannot
+     * interleave them with a streamed result. On PostgreSQL a stream opened
+     * outside a transaction runs in its own read transaction; until it is
+     * closed, the session rejects writes and {@code beginTransaction()}.
+     *
+     * @return the results, to be closed after use
+     */
+    Stream<T> stream();
+
+    /**
+     * Update every row matching the WHERE conditions in one statement, without
+     * loading the entities.
+     * <p>
+     * Rendered as {@code UPDATE table SET ... WHERE ...} with the conditions of
+     * {@link #where}, {@link #and} and {@link #or}, restricted to the entity's
+     * discriminator value if it has one. Pending changes of the session are
+     * flushed first. The matched rows are not known, so managed entities of
+     * the table are detached and the entity's second-level cache region and
+     * cached queries are invalidated.
+     *
+     * <pre>
+     * {@code
+     * int expired = session.createQuery(UserSession.class)
+     *         .where("last_seen < ?", cutoff)
+     *         .executeUpdate(Map.of("status", "EXPIRED"));
+     * }
+     * </pre>
+     *
+     * @param assignments the new values by column name, or by field name
+     * @return the number of rows updated
+     * @throws com.dam.framework.exception.DAMException if the query selects,
+     *                                                  groups, orders or pages,
+     *                                                  or a column is not
+     *                                                  mapped
+     */
+    int executeUpdate(Map<String, Object> assignments);
+
+    /**
+     * Delete every row matching the WHERE conditions in one statement, without
+     * loading the entities.
+     * <p>
+     * Same conditions and invalidation as {@link #executeUpdate(Map)}.
+     *
+     * @return the number of rows deleted
+     * @throws com.dam.framework.exception.DAMException if the query selects,
+     *                                                  groups, orders or pages
+     */
+    int executeDelete();
+}
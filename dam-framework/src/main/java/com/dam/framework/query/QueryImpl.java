@@ -1,5 +1,7 @@
 package com.dam.framework.query;
 
+import com.dam.framework.cache.QueryCache;
+import com.dam.framework.cache.SecondLevelCache;
 import com.dam.framework.dialect.Dialect;
 import com.dam.framework.exception.DAMException;
 import com.dam.framework.mapping.ColumnMetadata;
@@ -7,13 +9,23 @@ import com.dam.framework.mapping.EntityMetadata;
 import com.dam.framework.util.ReflectionUtils;
 import com.dam.framework.util.TypeMapper;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 public class QueryImpl<T> implements Query<T> {
 
@@ -22,14 +34,71 @@ public class QueryImpl<T> implements Query<T> {
     private final Dialect dialect;
     private final Connection connection;
     private final EntityMetadata metadata;
+    // null when results are always returned detached
+    private final PersistenceContext persistenceContext;
+    // null when query results are never cached
+    private final SecondLevelCache cache;
+    // null when bulk statements are not allowed
+    private BulkWriteContext bulkWriteContext;
+    // null when nothing must run before the query executes
+    private Runnable beforeExecute;
+
+    // Marks columns missing from the SELECT list in a row read by readRow()
+    private static final Object ABSENT = new Object();
+    // A WHERE condition a complete cache region can answer: "column = ?"
+    private static final Pattern EQUALITY = Pattern.compile("(?i)^(?:AND\\s+)?(\\w+)\\s*=\\s*\\?$");
+    // Window count column added to pages with a total
+    private static final String TOTAL_COLUMN = "dam_total";
+    // Rows per round trip of a stream() without a fetch size
+    static final int DEFAULT_STREAM_FETCH_SIZE = 1000;
     // private static final Logger logger =
     // LoggerFactory.getLogger(QueryImpl.class);
 
     public QueryImpl(Class<T> entityClass, Connection connection, Dialect dialect, EntityMetadata metadata) {
+        this(entityClass, connection, dialect, metadata, null);
+    }
+
+    public QueryImpl(Class<T> entityClass, Connection connection, Dialect dialect, EntityMetadata metadata,
+            PersistenceContext persistenceContext) {
+        this(entityClass, connection, dialect, metadata, persistenceContext, null);
+    }
+
+    public QueryImpl(Class<T> entityClass, Connection connection, Dialect dialect, EntityMetadata metadata,
+            PersistenceContext persistenceContext, SecondLevelCache cache) {
         this.entityClass = entityClass;
         this.connection = connection;
         this.dialect = dialect;
         this.metadata = metadata;
+        this.persistenceContext = persistenceContext;
+        this.cache = cache;
+    }
+
+    /**
+     * Allow {@link #executeUpdate(Map)} and {@link #executeDelete()}, with
+     * the session's hooks around them.
+     *
+     * @return this query
+     */
+    public QueryImpl<T> bulkWriteContext(BulkWriteContext bulkWriteContext) {
+        this.bulkWriteContext = bulkWriteContext;
+        return this;
+    }
+
+    /**
+     * Run a hook each time this query is executed, before it reads anything,
+     * for example to flush writes the query must see.
+     *
+     * @return this query
+     */
+    public QueryImpl<T> beforeExecute(Runnable beforeExecute) {
+        this.beforeExecute = beforeExecute;
+        return this;
+    }
+
+    private void runBeforeExecute() {
+        if (beforeExecute != null) {
+            beforeExecute.run();
+        }
     }
 
     @Override
@@ -95,36 +164,678 @@ public class QueryImpl<T> implements Query<T> {
         return this;
     }
 
+    @Override
+    public Query<T> readOnly(boolean readOnly) {
+        context.readOnly = readOnly;
+        return this;
+    }
+
+    @Override
+    public Query<T> cacheable(boolean cacheable) {
+        context.cacheable = cacheable;
+        return this;
+    }
+
+    @Override
+    public Query<T> fetchSize(int fetchSize) {
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("Fetch size must be non-negative");
+        }
+        context.fetchSize = fetchSize;
+        return this;
+    }
+
+    @Override
+    public Query<T> after(Object... lastSortKeys) {
+        context.after = Arrays.asList(lastSortKeys);
+        context.afterToken = null;
+        return this;
+    }
+
+    @Override
+    public Query<T> continueAfter(String continuationToken) {
+        context.afterToken = continuationToken;
+        context.after = null;
+        return this;
+    }
+
     @Override
     public List<T> getResultList() {
+        runBeforeExecute();
+        List<T> inMemory = scanCompleteRegion(false);
+        if (inMemory != null) {
+            return inMemory;
+        }
+
+        List<Object> effectiveParameters = new ArrayList<>(context.parameters);
+        String sql = buildSql(effectiveParameters, null);
+        return load(sql, effectiveParameters);
+    }
+
+    @Override
+    public Query<T> withTotal() {
+        context.totalThreshold = Long.MAX_VALUE;
+        return this;
+    }
+
+    @Override
+    public Query<T> withTotal(long threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Total count threshold must be at least 1");
+        }
+        context.totalThreshold = threshold;
+        return this;
+    }
+
+    @Override
+    public Page<T> getPage(int pageSize) {
+        runBeforeExecute();
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        if (context.limit != null) {
+            throw new DAMException("Pages are sized by getPage(): remove LIMIT");
+        }
+        List<SortKey> keys = sortKeys();
+        List<Object> after = afterValues(keys);
+        if (after != null && context.offset != null) {
+            throw new DAMException("after() replaces OFFSET: remove one of them");
+        }
+        // One extra row tells whether a next page exists
+        Keyset keyset = new Keyset(keys, after, pageSize + 1, context.offset);
         List<Object> effectiveParameters = new ArrayList<>(context.parameters);
-        String sql = buildSql(effectiveParameters);
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        List<T> rows;
+        long total = -1;
+        if (context.totalThreshold != null && context.totalThreshold == Long.MAX_VALUE && after == null
+                && supportsCountOver()) {
+            // The window sees every matching row, before the limit: page and total in one statement
+            String selectList = (context.selectColumns.isEmpty() ? "*" : String.join(", ", context.selectColumns))
+                    + ", COUNT(*) OVER() AS " + TOTAL_COLUMN;
+            String sql = buildSql(effectiveParameters, keyset, selectList, false);
+            long[] windowTotal = { 0 };
+            rows = execute(sql, effectiveParameters, null, windowTotal);
+            // Past the last page there is no row to carry the total
+            total = rows.isEmpty() && context.offset != null && context.offset > 0 ? -1 : windowTotal[0];
+        } else {
+            rows = load(buildSql(effectiveParameters, keyset), effectiveParameters);
+        }
+
+        boolean exact = true;
+        if (context.totalThreshold != null && total < 0) {
+            if (after == null && rows.size() <= pageSize) {
+                int offset = context.offset == null ? 0 : context.offset;
+                // A partial page holds every remaining row, unless it is past the last one
+                total = rows.isEmpty() && offset > 0 ? countAll(context.totalThreshold) : offset + rows.size();
+            } else {
+                total = countAll(context.totalThreshold);
+            }
+            if (total > context.totalThreshold) {
+                total = context.totalThreshold;
+                exact = false;
+            }
+        }
+
+        if (rows.size() <= pageSize) {
+            return new Page<>(rows, null, total, exact);
+        }
+        List<T> content = rows.subList(0, pageSize);
+        T last = content.getLast();
+        List<Object> lastValues = new ArrayList<>(keys.size());
+        for (SortKey key : keys) {
+            Object value = ReflectionUtils.getFieldValue(last, key.column().field());
+            if (value == null) {
+                throw new DAMException("Cannot continue after a NULL in sort column " + key.column().columnName()
+                        + "; keyset pagination needs non-null sort columns in the SELECT list");
+            }
+            lastValues.add(value);
+        }
+        return new Page<>(content, KeysetToken.encode(signature(keys), lastValues), total, exact);
+    }
+
+    private boolean supportsCountOver() {
+        try {
+            return dialect.supportsCountOver(connection.getMetaData());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Count every row matching the conditions, ignoring the page and seek
+     * position, and stopping one row past {@code threshold}.
+     */
+    private long countAll(long threshold) {
+        List<Object> after = context.after;
+        String afterToken = context.afterToken;
+        Integer limit = context.limit;
+        Integer offset = context.offset;
+        context.after = null;
+        context.afterToken = null;
+        context.offset = null;
+        context.limit = threshold >= Integer.MAX_VALUE ? null : (int) threshold + 1;
+        try {
+            return count();
+        } finally {
+            context.after = after;
+            context.afterToken = afterToken;
+            context.limit = limit;
+            context.offset = offset;
+        }
+    }
+
+    /**
+     * Render this query once, for {@link CompiledQuery}.
+     * <p>
+     * Parameters given as {@link CompiledQuery#PARAM} are bound at each
+     * execution. Seek positions depend on the previous page and cannot be
+     * compiled.
+     *
+     * @return the compiled query
+     */
+    public CompiledQuery<T> compile() {
+        if (isSeek()) {
+            throw new DAMException("Cannot compile a query with a seek position");
+        }
+        List<Object> effectiveParameters = new ArrayList<>(context.parameters);
+        String sql = buildSql(effectiveParameters, null);
+        // Partial or grouped rows are never managed, whichever session runs them
+        boolean readOnly = context.readOnly || !context.selectColumns.isEmpty() || !context.groupByColumns.isEmpty();
+        return new CompiledQuery<>(entityClass, sql, effectiveParameters, readOnly, context.cacheable);
+    }
+
+    /**
+     * Execute a compiled query in this query's session.
+     */
+    List<T> execute(CompiledQuery<T> compiled, List<Object> parameters) {
+        runBeforeExecute();
+        context.readOnly |= compiled.isReadOnly();
+        context.cacheable = compiled.isCacheable();
+        return load(compiled.getSql(), parameters);
+    }
+
+    /**
+     * Run the final SQL, through the query cache if this query is cacheable.
+     */
+    private List<T> load(String sql, List<Object> effectiveParameters) {
+        if (!context.cacheable || cache == null) {
+            return execute(sql, effectiveParameters, null);
+        }
+        QueryCache queryCache = cache.getQueryCache();
+
+        // Managed entities are cached as IDs and resolved through the session,
+        // everything else as row values
+        boolean entityIds = isManagedResult();
+        QueryCache.Key key = new QueryCache.Key(sql, effectiveParameters, entityIds);
+        String table = metadata.getTableName();
+        Object[] cached = queryCache.get(key, table);
+        if (cached != null) {
+            return entityIds ? resolveIds(cached) : toEntities(cached);
+        }
+
+        // Set when this call ran the query; a call that shared another's run only has the payload
+        List<List<T>> executed = new ArrayList<>(1);
+        Object[] payload = queryCache.load(key, table, canShareLoad(table), () -> {
+            List<Object[]> rows = new ArrayList<>();
+            List<T> results = execute(sql, effectiveParameters, rows);
+            executed.add(results);
+            if (!entityIds) {
+                return rows.toArray();
+            }
+            Object[] ids = new Object[results.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = ReflectionUtils.getFieldValue(results.get(i), metadata.getIdColumn().field());
+            }
+            return ids;
+        });
+        if (!executed.isEmpty()) {
+            return executed.get(0);
+        }
+        return entityIds ? resolveIds(payload) : toEntities(payload);
+    }
+
+    /**
+     * A query may only share its execution with other sessions if it cannot
+     * see uncommitted writes of its own to the table.
+     */
+    private boolean canShareLoad(String table) {
+        if (persistenceContext != null) {
+            return !persistenceContext.hasPendingWrites(table);
+        }
+        try {
+            return connection.getAutoCommit();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Answer the query from a {@link com.dam.framework.annotations.Cacheable#preload()
+     * preloaded} region holding the whole table, if the query only filters
+     * with {@code column = ?} conditions joined by AND, on values Java compares
+     * like the database does.
+     *
+     * @param detached true to never manage the entities
+     * @return the results, or null if the database must be queried
+     */
+    private List<T> scanCompleteRegion(boolean detached) {
+        if (cache == null || !context.selectColumns.isEmpty() || !context.groupByColumns.isEmpty()
+                || !context.havingConditions.isEmpty() || !context.orderByClauses.isEmpty()
+                || context.offset != null || isSeek()) {
+            return null;
+        }
+        List<ColumnMetadata> columns = metadata.getColumns();
+        int[] filterColumns = new int[context.whereConditions.size()];
+        for (int i = 0; i < filterColumns.length; i++) {
+            Matcher matcher = EQUALITY.matcher(context.whereConditions.get(i).trim());
+            if (!matcher.matches()) {
+                return null;
+            }
+            filterColumns[i] = -1;
+            for (int c = 0; c < columns.size(); c++) {
+                if (columns.get(c).columnName().equalsIgnoreCase(matcher.group(1))) {
+                    filterColumns[i] = c;
+                }
+            }
+            if (filterColumns[i] < 0 || !comparableInMemory(columns.get(filterColumns[i]),
+                    context.parameters.get(i))) {
+                return null;
+            }
+        }
+
+        List<Object> parameters = context.parameters;
+        List<Object[]> states = cache.scan(entityClass, state -> {
+            for (int i = 0; i < filterColumns.length; i++) {
+                if (!sqlEquals(state[filterColumns[i]], parameters.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        });
+        if (states == null) {
+            return null;
+        }
+        if (context.limit != null && states.size() > context.limit) {
+            states = states.subList(0, context.limit);
+        }
+        List<T> results = new ArrayList<>(states.size());
+        for (Object[] state : states) {
+            T entity = toEntity(state);
+            results.add(!detached && isManagedResult() ? persistenceContext.manageLoaded(entity, metadata)
+                    : entity);
+        }
+        return results;
+    }
+
+    /**
+     * Check whether comparing a column to a parameter in Java gives the
+     * database's answer. String equality depends on the column's collation,
+     * and mixed or floating-point types on the database's conversions, so
+     * those filters are left to SQL.
+     */
+    private static boolean comparableInMemory(ColumnMetadata column, Object parameter) {
+        if (parameter == null) {
+            // "= NULL" matches no row in either case
+            return true;
+        }
+        Class<?> type = column.javaType();
+        if (isExactNumber(type)) {
+            return isExactNumber(parameter.getClass());
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return parameter instanceof Boolean;
+        }
+        if (type == String.class) {
+            return column.isCaseSensitive() && parameter instanceof String;
+        }
+        if (type.isEnum()) {
+            return type.isInstance(parameter);
+        }
+        return (type == UUID.class || type.getName().startsWith("java.time.")) && type == parameter.getClass();
+    }
+
+    private static boolean isExactNumber(Class<?> type) {
+        return type == Long.class || type == long.class || type == Integer.class || type == int.class
+                || type == Short.class || type == short.class || type == Byte.class || type == byte.class
+                || type == BigInteger.class || type == BigDecimal.class;
+    }
+
+    /**
+     * Equality as the database would apply it to a stored value and a
+     * parameter that {@link #comparableInMemory} accepted: NULL matches
+     * nothing, numbers compare by value and strings exactly.
+     */
+    private static boolean sqlEquals(Object stored, Object parameter) {
+        if (stored == null || parameter == null) {
+            return false;
+        }
+        if (stored instanceof Number a && parameter instanceof Number b) {
+            return new BigDecimal(a.toString()).compareTo(new BigDecimal(b.toString())) == 0;
+        }
+        return stored.equals(parameter);
+    }
+
+    /**
+     * Run the query and map its rows.
+     *
+     * @param rowSink receives the raw row values for caching, may be null
+     */
+    private List<T> execute(String sql, List<Object> parameters, List<Object[]> rowSink) {
+        return execute(sql, parameters, rowSink, null);
+    }
+
+    /**
+     * @param windowTotal receives the {@link #TOTAL_COLUMN} of the rows, may be
+     *                    null
+     */
+    private List<T> execute(String sql, List<Object> parameters, List<Object[]> rowSink, long[] windowTotal) {
+        try (PreparedStatement stmt = prepare(sql, parameters);
+                ResultSet rs = stmt.executeQuery()) {
+            return mapResultSetToEntities(rs, rowSink, windowTotal);
+        } catch (SQLException e) {
+            throw new DAMException("Error executing query: " + sql, e);
+        }
+    }
+
+    private PreparedStatement prepare(String sql, List<Object> parameters) throws SQLException {
+        PreparedStatement stmt = connection.prepareStatement(sql);
+        try {
+            for (int i = 0; i < parameters.size(); i++) {
+                stmt.setObject(i + 1, parameters.get(i));
+            }
+            if (context.fetchSize > 0) {
+                stmt.setFetchSize(context.fetchSize);
+            }
+            return stmt;
+        } catch (SQLException e) {
+            stmt.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public <R> List<R> project(Class<R> resultType) {
+        runBeforeExecute();
+        ProjectionPlan<R> plan = ProjectionPlan.of(resultType);
+        List<Object> effectiveParameters = new ArrayList<>(context.parameters);
+        String sql = buildSql(effectiveParameters, null);
+        try (PreparedStatement stmt = prepare(sql, effectiveParameters);
+                ResultSet rs = stmt.executeQuery()) {
+            ProjectionPlan.Reader<R> reader = plan.bind(rs.getMetaData(), metadata);
+            List<R> results = new ArrayList<>();
+            while (rs.next()) {
+                results.add(reader.read(rs));
+            }
+            return results;
+        } catch (SQLException e) {
+            throw new DAMException("Error executing query: " + sql, e);
+        }
+    }
+
+    @Override
+    public Stream<T> stream() {
+        runBeforeExecute();
+        List<T> inMemory = scanCompleteRegion(true);
+        if (inMemory != null) {
+            return inMemory.stream();
+        }
+
+        List<Object> effectiveParameters = new ArrayList<>(context.parameters);
+        String sql = buildSql(effectiveParameters, null);
+        int fetchSize = context.fetchSize > 0 ? context.fetchSize : DEFAULT_STREAM_FETCH_SIZE;
+
+        PreparedStatement stmt = null;
+        Dialect.StreamingReset reset = Dialect.StreamingReset.NONE;
+        try {
+            stmt = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
             for (int i = 0; i < effectiveParameters.size(); i++) {
                 stmt.setObject(i + 1, effectiveParameters.get(i));
             }
-            try (ResultSet rs = stmt.executeQuery()) {
-                return mapResultSetToEntities(rs);
-            }
+            reset = dialect.prepareStreaming(connection, stmt, fetchSize);
+            ResultSet rs = stmt.executeQuery();
+            // Detached: managing each row would grow the session with the result, and a
+            // flush it triggers cannot run while a streaming result set is open
+            return ResultStream.of(stmt, rs, reset, entityReader(rs, true), entityClass.getSimpleName());
         } catch (SQLException e) {
+            ResultStream.release(stmt, reset);
             throw new DAMException("Error executing query: " + sql, e);
         }
     }
 
-    private String buildSql(List<Object> effectiveParameters) {
+    private List<T> resolveIds(Object[] ids) {
+        List<T> results = new ArrayList<>(ids.length);
+        for (T entity : persistenceContext.findAll(entityClass, Arrays.asList(ids))) {
+            // A row deleted meanwhile also invalidated the entry; skip it defensively
+            if (entity != null) {
+                results.add(entity);
+            }
+        }
+        return results;
+    }
+
+    private List<T> toEntities(Object[] rows) {
+        List<T> results = new ArrayList<>(rows.length);
+        for (Object row : rows) {
+            results.add(toEntity((Object[]) row));
+        }
+        return results;
+    }
+
+    /**
+     * Load the next chunk of results in primary key order, for
+     * {@code Session.forEachChunk}.
+     * <p>
+     * Each chunk is its own query starting after the last ID of the previous
+     * one, so no cursor stays open between chunks and chunks may be committed
+     * in between. The query must not set its own order, grouping or paging.
+     *
+     * @param afterId   the last ID of the previous chunk, or null to start
+     * @param chunkSize the maximum number of results
+     * @return the results, fewer than {@code chunkSize} at the end
+     */
+    public List<T> getChunkAfter(Object afterId, int chunkSize) {
+        runBeforeExecute();
+        if (!context.orderByClauses.isEmpty() || !context.groupByColumns.isEmpty()
+                || !context.havingConditions.isEmpty() || context.limit != null || context.offset != null
+                || isSeek()) {
+            throw new DAMException("Chunked queries are ordered and paged by ID: "
+                    + "remove ORDER BY, GROUP BY, HAVING, LIMIT, OFFSET and after()");
+        }
+        List<Object> effectiveParameters = new ArrayList<>(context.parameters);
+        List<SortKey> byId = List.of(new SortKey(metadata.getIdColumn(), Order.ASC));
+        String sql = buildSql(effectiveParameters,
+                new Keyset(byId, afterId == null ? null : List.of(afterId), chunkSize, null));
+        return execute(sql, effectiveParameters, null);
+    }
+
+    /**
+     * A mapped column of the keyset order.
+     */
+    private record SortKey(ColumnMetadata column, Order order) {
+    }
+
+    /**
+     * Restricts a query to the rows after the sort key values {@code after},
+     * in the order of {@code keys}, at most {@code size} of them. A null
+     * {@code after} starts at the first row, or {@code offset} rows past it;
+     * a null {@code size} reads to the end.
+     */
+    private record Keyset(List<SortKey> keys, List<Object> after, Integer size, Integer offset) {
+    }
+
+    private boolean isSeek() {
+        return context.after != null || context.afterToken != null;
+    }
+
+    /**
+     * The ORDER BY columns, followed by the ID as tie-breaker so that every
+     * row has a distinct position.
+     */
+    private List<SortKey> sortKeys() {
+        if (!context.groupByColumns.isEmpty() || !context.havingConditions.isEmpty()) {
+            throw new DAMException("Keyset pagination cannot be combined with GROUP BY or HAVING");
+        }
+        List<SortKey> keys = new ArrayList<>();
+        ColumnMetadata idColumn = metadata.getIdColumn();
+        boolean hasId = false;
+        for (String clause : context.orderByClauses) {
+            int space = clause.lastIndexOf(' ');
+            String column = clause.substring(0, space).trim();
+            ColumnMetadata mapped = null;
+            for (ColumnMetadata candidate : metadata.getColumns()) {
+                if (candidate.columnName().equalsIgnoreCase(column)) {
+                    mapped = candidate;
+                }
+            }
+            if (mapped == null) {
+                throw new DAMException("Keyset pagination needs mapped columns in ORDER BY, not: " + column);
+            }
+            keys.add(new SortKey(mapped, Order.valueOf(clause.substring(space + 1))));
+            hasId |= mapped.equals(idColumn);
+        }
+        if (!hasId) {
+            // Same direction as the last key, so the row-value form stays usable
+            keys.add(new SortKey(idColumn, keys.isEmpty() ? Order.ASC : keys.getLast().order()));
+        }
+        return keys;
+    }
+
+    /**
+     * The position set with {@link #after(Object...)} or
+     * {@link #continueAfter(String)}, or null to start at the first row.
+     */
+    private List<Object> afterValues(List<SortKey> keys) {
+        if (context.afterToken != null) {
+            List<Class<?>> types = new ArrayList<>(keys.size());
+            for (SortKey key : keys) {
+                types.add(key.column().field().getType());
+            }
+            return KeysetToken.decode(context.afterToken, signature(keys), types);
+        }
+        if (context.after == null) {
+            return null;
+        }
+        if (context.after.size() != keys.size()) {
+            List<String> columns = new ArrayList<>(keys.size());
+            for (SortKey key : keys) {
+                columns.add(key.column().columnName());
+            }
+            throw new DAMException("after() needs one value per sort column: " + String.join(", ", columns));
+        }
+        for (Object value : context.after) {
+            if (value == null) {
+                throw new DAMException("Keyset pagination cannot continue after a NULL sort key");
+            }
+        }
+        return context.after;
+    }
+
+    private static int signature(List<SortKey> keys) {
+        StringBuilder order = new StringBuilder();
+        for (SortKey key : keys) {
+            order.append(key.column().columnName().toLowerCase(Locale.ROOT)).append(' ')
+                    .append(key.order()).append(',');
+        }
+        return order.toString().hashCode();
+    }
+
+    /**
+     * Render "rows after the given sort key values": {@code (a, b) > (?, ?)}
+     * where the dialect supports it and the directions agree, otherwise
+     * {@code (a > ? OR (a = ? AND b > ?))}.
+     */
+    private String keysetPredicate(Keyset keyset, List<Object> effectiveParameters) {
+        List<SortKey> keys = keyset.keys();
+        boolean uniform = true;
+        for (SortKey key : keys) {
+            uniform &= key.order() == keys.getFirst().order();
+        }
+
+        if (keys.size() > 1 && uniform && dialect.supportsRowValueComparison()) {
+            List<String> columns = new ArrayList<>(keys.size());
+            List<String> placeholders = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                columns.add(keys.get(i).column().columnName());
+                placeholders.add("?");
+                effectiveParameters.add(toSqlValue(keyset.after().get(i)));
+            }
+            return "(" + String.join(", ", columns) + ") " + comparison(keys.getFirst()) + " ("
+                    + String.join(", ", placeholders) + ")";
+        }
+
+        List<String> alternatives = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            StringBuilder alternative = new StringBuilder();
+            for (int j = 0; j < i; j++) {
+                alternative.append(keys.get(j).column().columnName()).append(" = ? AND ");
+                effectiveParameters.add(toSqlValue(keyset.after().get(j)));
+            }
+            alternative.append(keys.get(i).column().columnName()).append(' ').append(comparison(keys.get(i)))
+                    .append(" ?");
+            effectiveParameters.add(toSqlValue(keyset.after().get(i)));
+            alternatives.add(i == 0 ? alternative.toString() : "(" + alternative + ")");
+        }
+        return "(" + String.join(" OR ", alternatives) + ")";
+    }
+
+    private static String comparison(SortKey key) {
+        return key.order() == Order.ASC ? ">" : "<";
+    }
+
+    /**
+     * Sort key values bound as the database stores them.
+     */
+    private static Object toSqlValue(Object value) {
+        if (value instanceof Enum<?> e) {
+            return e.name();
+        }
+        if (value instanceof Date date && !(value instanceof java.sql.Date || value instanceof java.sql.Time
+                || value instanceof java.sql.Timestamp)) {
+            return new java.sql.Timestamp(date.getTime());
+        }
+        return value;
+    }
+
+    private String buildSql(List<Object> effectiveParameters, Keyset keyset) {
+        return buildSql(effectiveParameters, keyset, null, false);
+    }
+
+    /**
+     * @param selectList replaces the SELECT list if not null
+     * @param subquery   true to drop an ORDER BY that paging does not need
+     */
+    private String buildSql(List<Object> effectiveParameters, Keyset keyset, String selectList, boolean subquery) {
+        if (keyset == null && isSeek()) {
+            if (context.offset != null) {
+                throw new DAMException("after() replaces OFFSET: remove one of them");
+            }
+            List<SortKey> keys = sortKeys();
+            keyset = new Keyset(keys, afterValues(keys), context.limit, null);
+        }
         StringBuilder sql = new StringBuilder("SELECT ");
 
         // 1. Columns
-        sql.append(context.selectColumns.isEmpty() ? "*" : String.join(", ", context.selectColumns));
+        if (selectList != null) {
+            sql.append(selectList);
+        } else {
+            sql.append(context.selectColumns.isEmpty() ? "*" : String.join(", ", context.selectColumns));
+        }
 
         // 2. FROM
         sql.append(" FROM ").append(metadata.getTableName());
 
         // 3. WHERE
-        if (!context.whereConditions.isEmpty()) {
+        boolean afterKey = keyset != null && keyset.after() != null;
+        if (!context.whereConditions.isEmpty() || afterKey) {
             sql.append(" WHERE ");
-            sql.append(String.join(" ", context.whereConditions));
+        }
+        if (!context.whereConditions.isEmpty()) {
+            // Parenthesized so an OR in the conditions cannot escape the keyset bound
+            String conditions = String.join(" ", context.whereConditions);
+            sql.append(afterKey ? "(" + conditions + ") AND " : conditions);
+        }
+        if (afterKey) {
+            sql.append(keysetPredicate(keyset, effectiveParameters));
         }
 
         // 4. GROUP BY
@@ -140,20 +851,34 @@ public class QueryImpl<T> implements Query<T> {
         }
 
         // 4. ORDER BY
-        if (!context.orderByClauses.isEmpty()) {
+        var pagination = keyset != null
+                ? dialect.getPaginationFragment(keyset.size(), keyset.offset())
+                : dialect.getPaginationFragment(context.limit, context.offset);
+        boolean paged = !pagination.sql().isEmpty();
+        if (subquery && !paged) {
+            // Order is meaningless inside a count or existence test
+        } else if (keyset != null) {
+            List<String> clauses = new ArrayList<>(keyset.keys().size());
+            for (SortKey key : keyset.keys()) {
+                clauses.add(key.column().columnName() + " " + key.order().name());
+            }
+            sql.append(" ORDER BY ").append(String.join(", ", clauses));
+        } else if (!context.orderByClauses.isEmpty()) {
             sql.append(" ORDER BY ").append(String.join(", ", context.orderByClauses));
+        } else if (paged && dialect.requiresOrderByForPagination()) {
+            sql.append(" ORDER BY (SELECT NULL)");
         }
 
         // 5. Pagination
-        var pagination = dialect.getPaginationFragment(context.limit, context.offset);
-        if (!pagination.sql().isEmpty()) {
+        if (paged) {
             sql.append(pagination.sql());
             effectiveParameters.addAll(pagination.parameters());
         }
         return sql.toString();
     }
 
-    private List<T> mapResultSetToEntities(ResultSet rs) throws SQLException {
+    private List<T> mapResultSetToEntities(ResultSet rs, List<Object[]> rowSink, long[] windowTotal)
+            throws SQLException {
         List<T> results = new ArrayList<>();
 
         // Get list of field returned from db
@@ -161,20 +886,19 @@ public class QueryImpl<T> implements Query<T> {
         // int columnCount = metaData.getColumnCount();
 
         try {
+            int[] columnIndexes = columnIndexes(rs);
             while (rs.next()) {
-                // 1. New entity instance
-                T entity = entityClass.getDeclaredConstructor().newInstance();
-
-                // 2. Loop through fields in metadata, map value into field if exist in the
-                // resultSet
-                for (ColumnMetadata col : metadata.getColumns()) {
-                    try {
-                        Object value = TypeMapper.getResultSetValue(rs, col.columnName(), col.field().getType());
-                        ReflectionUtils.setFieldValue(entity, col.field(), value);
-                    } catch (SQLException e) {
-                        // Column might not be in SELECT list - skip
-                    }
+                if (windowTotal != null && results.isEmpty()) {
+                    windowTotal[0] = rs.getLong(TOTAL_COLUMN);
                 }
+                // 1. Read the values of the mapped columns present in the resultSet
+                Object[] row = readRow(rs, columnIndexes);
+                if (rowSink != null) {
+                    rowSink.add(row);
+                }
+
+                // 2. New entity instance holding those values
+                T entity = toEntity(row);
 
                 // for (int i = 1; i <= columnCount; i++) {
                 // String columnName = metaData.getColumnLabel(i);
@@ -189,7 +913,7 @@ public class QueryImpl<T> implements Query<T> {
                 //
                 // setProperty(entity, rs, i, columnName);
                 // }
-                results.add(entity);
+                results.add(isManagedResult() ? persistenceContext.manageLoaded(entity, metadata) : entity);
             }
         } catch (Exception e) {
             throw new DAMException("Failed to map ResultSet to " + entityClass.getSimpleName(), e);
@@ -266,9 +990,99 @@ public class QueryImpl<T> implements Query<T> {
     // return result.toString();
     // }
 
+    /**
+     * The result set index of each mapped column in metadata order, 0 for
+     * columns not in the SELECT list. Resolved once per result set, so rows
+     * are read by index.
+     */
+    private int[] columnIndexes(ResultSet rs) throws SQLException {
+        ResultSetMetaData rsMetaData = rs.getMetaData();
+        List<ColumnMetadata> columns = metadata.getColumns();
+        int[] indexes = new int[columns.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            // First match wins, as with lookups by name
+            for (int c = rsMetaData.getColumnCount(); c >= 1; c--) {
+                if (rsMetaData.getColumnLabel(c).equalsIgnoreCase(columns.get(i).columnName())) {
+                    indexes[i] = c;
+                }
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * Column values of the current row in metadata order, {@link #ABSENT} for
+     * columns not in the SELECT list.
+     */
+    private Object[] readRow(ResultSet rs, int[] columnIndexes) throws SQLException {
+        List<ColumnMetadata> columns = metadata.getColumns();
+        Object[] row = new Object[columns.size()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = columnIndexes[i] == 0 ? ABSENT
+                    : TypeMapper.getResultSetValue(rs, columnIndexes[i], columns.get(i).field().getType());
+        }
+        return row;
+    }
+
+    /**
+     * Reader of whole entities from a result set, managed like the results of
+     * this query unless detached. Entities missing a mapped column are always
+     * detached, since flush() would write the missing values back as nulls.
+     *
+     * @param detached true to never manage the entities, for results read
+     *                 while a cursor stays open
+     */
+    RowReader<T> entityReader(ResultSet rs, boolean detached) throws SQLException {
+        int[] columnIndexes = columnIndexes(rs);
+        boolean managed = !detached && isManagedResult()
+                && Arrays.stream(columnIndexes).allMatch(index -> index > 0);
+        return row -> {
+            T entity = toEntity(readRow(row, columnIndexes));
+            return managed ? persistenceContext.manageLoaded(entity, metadata) : entity;
+        };
+    }
+
+    private T toEntity(Object[] row) {
+        T entity = ReflectionUtils.newInstance(entityClass);
+        List<ColumnMetadata> columns = metadata.getColumns();
+        for (int i = 0; i < row.length; i++) {
+            if (row[i] != ABSENT) {
+                // Rows may be cached, so entities must not share mutable values with them
+                ReflectionUtils.setFieldValue(entity, columns.get(i).field(), copyMutable(row[i]));
+            }
+        }
+        return entity;
+    }
+
+    private static Object copyMutable(Object value) {
+        if (value instanceof byte[] bytes) {
+            return bytes.clone();
+        }
+        if (value instanceof char[] chars) {
+            return chars.clone();
+        }
+        if (value instanceof Date date) {
+            return date.clone();
+        }
+        return value;
+    }
+
+    /**
+     * Only complete entities can be tracked: a partial SELECT or a GROUP BY
+     * would leave unmapped fields that flush() would then write back as nulls.
+     */
+    private boolean isManagedResult() {
+        return persistenceContext != null
+                && !context.readOnly
+                && !persistenceContext.isReadOnly()
+                && context.selectColumns.isEmpty()
+                && context.groupByColumns.isEmpty();
+    }
+
     @Override
     public T getSingleResult() {
-        List<T> list = getResultList();
+        // A second row is enough to know the result is not single
+        List<T> list = getResultList(2);
         if (list.isEmpty()) {
             throw new DAMException("Query returned no results");
         }
@@ -278,6 +1092,173 @@ public class QueryImpl<T> implements Query<T> {
         return list.getFirst();
     }
 
+    @Override
+    public T getFirstResult() {
+        List<T> list = getResultList(1);
+        return list.isEmpty() ? null : list.getFirst();
+    }
+
+    /**
+     * Results of this query, capped at {@code maxRows} rows.
+     */
+    private List<T> getResultList(int maxRows) {
+        Integer limit = context.limit;
+        context.limit = limit == null ? maxRows : Math.min(limit, maxRows);
+        try {
+            return getResultList();
+        } finally {
+            context.limit = limit;
+        }
+    }
+
+    @Override
+    public long count() {
+        runBeforeExecute();
+        List<Object> effectiveParameters = new ArrayList<>(context.parameters);
+        String sql;
+        if (context.groupByColumns.isEmpty() && context.limit == null && context.offset == null && !isSeek()) {
+            sql = buildSql(effectiveParameters, null, "COUNT(*)", true);
+        } else {
+            // Count the groups or the page, not the rows they come from
+            sql = "SELECT COUNT(*) FROM (" + buildSql(effectiveParameters, null, "1 AS n", true) + ") counted";
+        }
+        Long count = querySingleValue(sql, effectiveParameters, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    @Override
+    public boolean exists() {
+        runBeforeExecute();
+        List<Object> effectiveParameters = new ArrayList<>(context.parameters);
+        String sql = dialect.getExistsQuery(buildSql(effectiveParameters, null, "1", true));
+        return Boolean.TRUE.equals(querySingleValue(sql, effectiveParameters, Boolean.class));
+    }
+
+    @Override
+    public <S> S getScalar(Class<S> type) {
+        runBeforeExecute();
+        Integer limit = context.limit;
+        context.limit = limit == null ? 2 : Math.min(limit, 2);
+        List<Object> effectiveParameters = new ArrayList<>(context.parameters);
+        String sql;
+        try {
+            sql = buildSql(effectiveParameters, null);
+        } finally {
+            context.limit = limit;
+        }
+
+        try (PreparedStatement stmt = prepare(sql, effectiveParameters);
+                ResultSet rs = stmt.executeQuery()) {
+            if (!rs.next()) {
+                return null;
+            }
+            S value = TypeMapper.getResultSetValue(rs, 1, type);
+            if (rs.next()) {
+                throw new DAMException("Multiple results found");
+            }
+            return value;
+        } catch (SQLException e) {
+            throw new DAMException("Error executing query: " + sql, e);
+        }
+    }
+
+    @Override
+    public int executeUpdate(Map<String, Object> assignments) {
+        if (assignments.isEmpty()) {
+            throw new IllegalArgumentException("No columns to update");
+        }
+        if (metadata.isImmutable()) {
+            throw new DAMException("Cannot update immutable entity: " + entityClass.getSimpleName());
+        }
+        List<Object> effectiveParameters = new ArrayList<>();
+        List<String> setClauses = new ArrayList<>(assignments.size());
+        for (Map.Entry<String, Object> assignment : assignments.entrySet()) {
+            ColumnMetadata column = assignedColumn(assignment.getKey());
+            setClauses.add(column.columnName() + " = ?");
+            effectiveParameters.add(toSqlValue(assignment.getValue()));
+        }
+        String sql = "UPDATE " + metadata.getTableName() + " SET " + String.join(", ", setClauses)
+                + bulkWhere(effectiveParameters);
+        return executeBulk(sql, effectiveParameters);
+    }
+
+    @Override
+    public int executeDelete() {
+        List<Object> effectiveParameters = new ArrayList<>();
+        String sql = "DELETE FROM " + metadata.getTableName() + bulkWhere(effectiveParameters);
+        return executeBulk(sql, effectiveParameters);
+    }
+
+    /**
+     * The mapped column of an assignment, by column or field name. Names are
+     * checked against the mapping since they are written into the SQL.
+     */
+    private ColumnMetadata assignedColumn(String name) {
+        for (ColumnMetadata column : metadata.getColumns()) {
+            if (column.columnName().equalsIgnoreCase(name) || column.field().getName().equals(name)) {
+                if (column == metadata.getIdColumn()) {
+                    throw new DAMException("Bulk updates cannot change the ID of " + entityClass.getSimpleName());
+                }
+                return column;
+            }
+        }
+        throw new DAMException("No mapped column " + name + " in " + entityClass.getSimpleName());
+    }
+
+    /**
+     * The WHERE clause of a bulk statement: the query's conditions and the
+     * discriminator of the entity.
+     */
+    private String bulkWhere(List<Object> effectiveParameters) {
+        if (!context.selectColumns.isEmpty() || !context.groupByColumns.isEmpty()
+                || !context.havingConditions.isEmpty() || !context.orderByClauses.isEmpty()
+                || context.limit != null || context.offset != null || isSeek()) {
+            throw new DAMException("Bulk statements only use WHERE conditions: "
+                    + "remove SELECT columns, GROUP BY, HAVING, ORDER BY, LIMIT, OFFSET and after()");
+        }
+        List<String> conditions = new ArrayList<>(2);
+        if (!context.whereConditions.isEmpty()) {
+            // Parenthesized so an OR in the conditions cannot escape the discriminator
+            conditions.add("(" + String.join(" ", context.whereConditions) + ")");
+            effectiveParameters.addAll(context.parameters);
+        }
+        if (metadata.getDiscriminatorColumn() != null) {
+            conditions.add(metadata.getDiscriminatorColumn() + " = ?");
+            effectiveParameters.add(metadata.getDiscriminatorValue());
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private int executeBulk(String sql, List<Object> parameters) {
+        if (bulkWriteContext == null) {
+            throw new DAMException("Bulk statements need a query created by a session");
+        }
+        bulkWriteContext.beforeBulkWrite(metadata);
+        int affected;
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.size(); i++) {
+                stmt.setObject(i + 1, parameters.get(i));
+            }
+            affected = stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new DAMException("Error executing bulk statement: " + sql, e);
+        }
+        bulkWriteContext.afterBulkWrite(metadata);
+        return affected;
+    }
+
+    /**
+     * The first column of the only row of an aggregate query.
+     */
+    private <S> S querySingleValue(String sql, List<Object> parameters, Class<S> type) {
+        try (PreparedStatement stmt = prepare(sql, parameters);
+                ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? TypeMapper.getResultSetValue(rs, 1, type) : null;
+        } catch (SQLException e) {
+            throw new DAMException("Error executing query: " + sql, e);
+        }
+    }
+
     static class QueryContext {
 
         public List<String> selectColumns = new ArrayList<>();
@@ -288,5 +1269,13 @@ public class QueryImpl<T> implements Query<T> {
         public List<String> havingConditions = new ArrayList<>();
         public Integer limit;
         public Integer offset;
+        public boolean readOnly;
+        public boolean cacheable;
+        public int fetchSize;
+        // Seek position: sort key values, or a continuation token to decode
+        public List<Object> after;
+        public String afterToken;
+        // null for pages without a total, Long.MAX_VALUE for an exact one
+        public Long totalThreshold;
     }
 }
\ No newline at end of file
@@ -0,0 +1,100 @@
+package com.dam.framework.query;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.dam.framework.dialect.Dialect;
+import com.dam.framework.exception.DAMException;
+
+/**
+ * Maps one row per advance and releases the statement when the stream is
+ * closed or the rows run out, whichever comes first.
+ *
+ * @param <R> the row type
+ */
+final class ResultStream<R> extends Spliterators.AbstractSpliterator<R> {
+
+    private final PreparedStatement stmt;
+    private final ResultSet rs;
+    private final RowReader<R> reader;
+    private final String resultName;
+    // null once closed
+    private Dialect.StreamingReset reset;
+
+    private ResultStream(PreparedStatement stmt, ResultSet rs, Dialect.StreamingReset reset, RowReader<R> reader,
+            String resultName) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        this.stmt = stmt;
+        this.rs = rs;
+        this.reset = reset;
+        this.reader = reader;
+        this.resultName = resultName;
+    }
+
+    /**
+     * Stream the rows of an executed statement.
+     *
+     * @param reset      ends the streaming set up by the dialect, run on close
+     * @param resultName the mapped type, for error messages
+     */
+    static <R> Stream<R> of(PreparedStatement stmt, ResultSet rs, Dialect.StreamingReset reset,
+            RowReader<R> reader, String resultName) {
+        ResultStream<R> rows = new ResultStream<>(stmt, rs, reset, reader, resultName);
+        return StreamSupport.stream(rows, false).onClose(rows::close);
+    }
+
+    /**
+     * Release a statement that failed before its stream was made.
+     *
+     * @param stmt  the statement, or null if it was never prepared
+     * @param reset ends the streaming set up by the dialect
+     */
+    static void release(PreparedStatement stmt, Dialect.StreamingReset reset) {
+        new ResultStream<>(stmt, null, reset, null, null).close();
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super R> action) {
+        if (reset == null) {
+            return false;
+        }
+        R row;
+        try {
+            if (!rs.next()) {
+                close();
+                return false;
+            }
+            row = reader.read(rs);
+        } catch (Exception e) {
+            close();
+            throw new DAMException("Failed to map ResultSet to " + resultName, e);
+        }
+        action.accept(row);
+        return true;
+    }
+
+    void close() {
+        if (reset == null) {
+            return;
+        }
+        Dialect.StreamingReset pending = reset;
+        reset = null;
+        try (stmt; rs) {
+            // closed in reverse order: result set, then statement
+        } catch (SQLException e) {
+            throw new DAMException("Error closing streamed query", e);
+        } finally {
+            try {
+                pending.reset();
+            } catch (SQLException e) {
+                throw new DAMException("Error ending streamed query", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.dam.framework.query;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a result set whose columns were resolved up front.
+ *
+ * @param <R> the row type
+ */
+@FunctionalInterface
+interface RowReader<R> {
+
+    R read(ResultSet rs) throws SQLException;
+}
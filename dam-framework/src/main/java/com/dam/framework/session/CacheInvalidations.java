@@ -0,0 +1,138 @@
+package com.dam.framework.session;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import com.dam.framework.cache.InvalidationBus;
+import com.dam.framework.cache.SecondLevelCache;
+import com.dam.framework.mapping.EntityKey;
+import com.dam.framework.transaction.Synchronization;
+import com.dam.framework.transaction.Transaction;
+
+/**
+ * Invalidates cached data for rows a session wrote: the entity's
+ * second-level cache entry and every cached query result of its table.
+ * <p>
+ * Invalidation runs as soon as the write runs and, inside a transaction,
+ * once more after it completes: another session may reload the old committed
+ * data between the write and the commit, and that copy must not outlive the
+ * transaction. Committed writes are also published on the SessionFactory's
+ * {@link InvalidationBus}, if it has one, for the caches of other nodes.
+ */
+final class CacheInvalidations implements Synchronization {
+
+    private final InternalSessionFactory factory;
+    private final SecondLevelCache cache;
+    private final Set<EntityKey> pending = new LinkedHashSet<>();
+    // entity classes whose rows written in bulk are not known
+    private final Set<Class<?>> pendingRegions = new LinkedHashSet<>();
+    // lower-case names of the tables in pending
+    private final Set<String> pendingTables = new HashSet<>();
+    private Transaction registeredWith;
+
+    CacheInvalidations(InternalSessionFactory factory) {
+        this.factory = factory;
+        this.cache = factory.getCache();
+    }
+
+    /**
+     * Invalidate after an INSERT, UPDATE or DELETE of one row.
+     *
+     * @param transaction the session's current transaction, may be null
+     */
+    void invalidate(Class<?> entityClass, Object id, Transaction transaction) {
+        evict(entityClass, id);
+
+        if (transaction != null && transaction.isActive()) {
+            pending.add(new EntityKey(entityClass, id));
+            track(entityClass, transaction);
+        } else if (factory.getInvalidationBus() != null) {
+            // Already committed, other nodes can drop the row now
+            factory.getInvalidationBus().publish(entityClass, id, factory.getMetadata(entityClass).getTableName());
+            factory.getInvalidationBus().endBatch();
+        }
+    }
+
+    /**
+     * Invalidate after a bulk UPDATE or DELETE, whose rows are not known:
+     * every cached row of the entity class and of the other classes mapped to
+     * its table.
+     *
+     * @param transaction the session's current transaction, may be null
+     */
+    void invalidateAll(Class<?> entityClass, Transaction transaction) {
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        classes.add(entityClass);
+        classes.addAll(cache.getCachedClasses(factory.getMetadata(entityClass).getTableName()));
+        InvalidationBus bus = factory.getInvalidationBus();
+        boolean deferred = transaction != null && transaction.isActive();
+        for (Class<?> written : classes) {
+            evictAll(written);
+            if (deferred) {
+                pendingRegions.add(written);
+                track(written, transaction);
+            } else if (bus != null) {
+                bus.publishRegion(written, factory.getMetadata(written).getTableName());
+            }
+        }
+        if (!deferred && bus != null) {
+            // Already committed, other nodes can drop the rows now
+            bus.endBatch();
+        }
+    }
+
+    private void track(Class<?> entityClass, Transaction transaction) {
+        pendingTables.add(factory.getMetadata(entityClass).getTableName().toLowerCase(Locale.ROOT));
+        if (registeredWith != transaction) {
+            transaction.registerSynchronization(this);
+            registeredWith = transaction;
+        }
+    }
+
+    private void evict(Class<?> entityClass, Object id) {
+        cache.evict(entityClass, id);
+        cache.getQueryCache().invalidateTable(factory.getMetadata(entityClass).getTableName());
+    }
+
+    private void evictAll(Class<?> entityClass) {
+        cache.evictAll(entityClass);
+        cache.getQueryCache().invalidateTable(factory.getMetadata(entityClass).getTableName());
+    }
+
+    /**
+     * Check whether the current transaction wrote to a table.
+     *
+     * @param table the table name
+     * @return true until the transaction completes
+     */
+    boolean hasPending(String table) {
+        return pendingTables.contains(table.toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public void afterCompletion(boolean committed) {
+        // Evict after rollback too: a reload during the transaction is harmless to drop
+        InvalidationBus bus = factory.getInvalidationBus();
+        for (EntityKey key : pending) {
+            evict(key.entityClass(), key.id());
+            if (committed && bus != null) {
+                bus.publish(key.entityClass(), key.id(), factory.getMetadata(key.entityClass()).getTableName());
+            }
+        }
+        for (Class<?> entityClass : pendingRegions) {
+            evictAll(entityClass);
+            if (committed && bus != null) {
+                bus.publishRegion(entityClass, factory.getMetadata(entityClass).getTableName());
+            }
+        }
+        if (committed && bus != null) {
+            bus.endBatch();
+        }
+        pending.clear();
+        pendingRegions.clear();
+        pendingTables.clear();
+        registeredWith = null;
+    }
+}
@@ -0,0 +1,148 @@
+package com.dam.framework.session;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.dam.framework.annotations.Cacheable;
+import com.dam.framework.cache.SecondLevelCache;
+import com.dam.framework.connection.ConnectionManager;
+import com.dam.framework.exception.DAMException;
+import com.dam.framework.mapping.EntityMetadata;
+import com.dam.framework.sql.SQLGenerator;
+import com.dam.framework.util.ReflectionUtils;
+
+/**
+ * Loads {@link Cacheable#preload() preloaded} tables into the second-level
+ * cache when the SessionFactory starts, and reloads them in the background
+ * every {@link Cacheable#refreshAfterSeconds()}.
+ * <p>
+ * The initial loads run in parallel, each on its own pooled connection, and
+ * the SessionFactory is only returned once they are done. A failed load is
+ * logged; the region then simply fills on demand.
+ */
+final class CachePreloader implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachePreloader.class);
+    private static final int MAX_PARALLEL_LOADS = 4;
+
+    private final SecondLevelCache cache;
+    private final ConnectionManager connectionManager;
+    private final SQLGenerator sqlGenerator;
+    private final List<EntityMetadata> preloaded = new ArrayList<>();
+    // null when no region refreshes
+    private ScheduledExecutorService scheduler;
+
+    CachePreloader(Map<Class<?>, EntityMetadata> metadataRegistry, SecondLevelCache cache,
+            ConnectionManager connectionManager, SQLGenerator sqlGenerator) {
+        this.cache = cache;
+        this.connectionManager = connectionManager;
+        this.sqlGenerator = sqlGenerator;
+        for (EntityMetadata metadata : metadataRegistry.values()) {
+            Cacheable cacheable = metadata.getEntityClass().getAnnotation(Cacheable.class);
+            if (cacheable != null && cacheable.preload()) {
+                preloaded.add(metadata);
+            }
+        }
+    }
+
+    /**
+     * Load every preloaded table and start the background refreshes.
+     */
+    void start() {
+        if (preloaded.isEmpty()) {
+            return;
+        }
+        ExecutorService loaders = Executors.newFixedThreadPool(Math.min(preloaded.size(), MAX_PARALLEL_LOADS));
+        try {
+            List<Callable<Void>> loads = new ArrayList<>();
+            for (EntityMetadata metadata : preloaded) {
+                loads.add(() -> {
+                    load(metadata);
+                    return null;
+                });
+            }
+            loaders.invokeAll(loads);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            loaders.shutdownNow();
+        }
+
+        for (EntityMetadata metadata : preloaded) {
+            long interval = metadata.getEntityClass().getAnnotation(Cacheable.class).refreshAfterSeconds();
+            if (interval > 0) {
+                if (scheduler == null) {
+                    scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+                        Thread thread = new Thread(task, "dam-cache-refresh");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+                scheduler.scheduleWithFixedDelay(() -> load(metadata), interval, interval, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    /**
+     * Read the whole table and replace the region's contents with it.
+     */
+    private void load(EntityMetadata metadata) {
+        Class<?> entityClass = metadata.getEntityClass();
+        String sql = sqlGenerator.generateSelect(metadata);
+        long loadStamp = cache.beginLoad(entityClass);
+        Map<Object, Object[]> rows = new HashMap<>();
+
+        Connection conn;
+        try {
+            conn = connectionManager.getConnection();
+        } catch (RuntimeException e) {
+            logger.warn("Could not preload {}, no connection available", entityClass.getSimpleName(), e);
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(sql);
+                ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                Object entity = EntityBinder.mapRow(rs, metadata);
+                rows.put(ReflectionUtils.getFieldValue(entity, metadata.getIdColumn().field()),
+                        EntityBinder.dehydrate(entity, metadata));
+            }
+        } catch (SQLException | DAMException e) {
+            logger.warn("Could not preload {}", entityClass.getSimpleName(), e);
+            return;
+        } finally {
+            connectionManager.releaseConnection(conn);
+        }
+
+        if (cache.replaceAll(entityClass, rows, loadStamp)) {
+            logger.debug("Preloaded {} {} rows", rows.size(), entityClass.getSimpleName());
+        } else {
+            // a write raced with the load, or the region is too small; the next refresh retries
+            logger.debug("Preloaded {} rows are incomplete, queries will use the database",
+                    entityClass.getSimpleName());
+        }
+    }
+
+    /**
+     * Stop the background refreshes.
+     */
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.dam.framework.session;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.dam.framework.cache.CacheSnapshot;
+import com.dam.framework.cache.SecondLevelCache;
+import com.dam.framework.connection.ConnectionManager;
+import com.dam.framework.mapping.ColumnMetadata;
+import com.dam.framework.mapping.EntityMetadata;
+import com.dam.framework.sql.SQLGenerator;
+import com.dam.framework.util.TypeMapper;
+
+/**
+ * Saves the second-level cache to a {@link CacheSnapshot} file and restores it
+ * when the SessionFactory starts.
+ * <p>
+ * Before saving, the highest value of each region's modification column is
+ * read from the database. On restore, only the rows with a value at or above
+ * that watermark are queried and evicted, so a restarted node reloads what
+ * changed while it was down instead of its whole working set. Rows deleted by
+ * other processes in the meantime are not detected; they stay cached until
+ * evicted or expired, as with any change made outside the framework.
+ * <p>
+ * Snapshot failures are logged and never stop the SessionFactory from
+ * starting or closing: the worst case is a cold cache.
+ */
+final class CacheSnapshotManager implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheSnapshotManager.class);
+
+    private final Path file;
+    private final Map<Class<?>, EntityMetadata> metadataRegistry;
+    private final SecondLevelCache cache;
+    private final ConnectionManager connectionManager;
+    private final SQLGenerator sqlGenerator;
+    // null when snapshots are written on close only
+    private final ScheduledExecutorService scheduler;
+
+    CacheSnapshotManager(Path file, long intervalSeconds, Map<Class<?>, EntityMetadata> metadataRegistry,
+            SecondLevelCache cache, ConnectionManager connectionManager, SQLGenerator sqlGenerator) {
+        this.file = file;
+        this.metadataRegistry = metadataRegistry;
+        this.cache = cache;
+        this.connectionManager = connectionManager;
+        this.sqlGenerator = sqlGenerator;
+
+        if (intervalSeconds > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "dam-cache-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::save, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Load the snapshot file, if there is one, and evict the rows modified
+     * since it was written.
+     */
+    void restore() {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        Map<Class<?>, Object> watermarks;
+        try {
+            watermarks = CacheSnapshot.read(file, cache, metadataRegistry);
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable cache snapshot {}", file, e);
+            return;
+        }
+
+        Connection conn = connectionManager.getConnection();
+        try {
+            for (Map.Entry<Class<?>, Object> entry : watermarks.entrySet()) {
+                refresh(conn, entry.getKey(), entry.getValue());
+            }
+        } finally {
+            connectionManager.releaseConnection(conn);
+        }
+        logger.info("Restored second-level cache from {}", file);
+    }
+
+    private void refresh(Connection conn, Class<?> entityClass, Object watermark) {
+        EntityMetadata metadata = metadataRegistry.get(entityClass);
+        ColumnMetadata idColumn = metadata.getIdColumn();
+        String sql = sqlGenerator.generateSelectIdsSince(metadata,
+                cache.getModifiedColumn(entityClass).columnName());
+        int evicted = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setObject(1, watermark);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    cache.evict(entityClass, TypeMapper.getResultSetValue(rs, 1, idColumn.javaType()));
+                    evicted++;
+                }
+            }
+            logger.debug("Dropped {} restored {} rows modified since the snapshot", evicted,
+                    entityClass.getSimpleName());
+        } catch (SQLException e) {
+            // without the refresh the restored rows may be stale
+            cache.evictAll(entityClass);
+            logger.warn("Could not refresh restored {} rows, dropping them", entityClass.getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Write the regions that have a modification column to the snapshot file.
+     */
+    synchronized void save() {
+        Map<Class<?>, Object> watermarks = new LinkedHashMap<>();
+        Connection conn;
+        try {
+            conn = connectionManager.getConnection();
+        } catch (RuntimeException e) {
+            logger.warn("Skipping cache snapshot, no connection available", e);
+            return;
+        }
+        try {
+            // read watermarks before the rows, so anything written in between is refreshed on restore
+            for (EntityMetadata metadata : metadataRegistry.values()) {
+                Class<?> entityClass = metadata.getEntityClass();
+                ColumnMetadata column = cache.getModifiedColumn(entityClass);
+                if (column != null) {
+                    Object watermark = readWatermark(conn, metadata, column);
+                    // an empty table has no watermark, and nothing worth saving
+                    if (watermark != null) {
+                        watermarks.put(entityClass, watermark);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            logger.warn("Skipping cache snapshot, could not read modification watermarks", e);
+            return;
+        } finally {
+            connectionManager.releaseConnection(conn);
+        }
+
+        try {
+            long rows = CacheSnapshot.write(file, cache, metadataRegistry, watermarks);
+            logger.debug("Saved {} cached rows to {}", rows, file);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not write cache snapshot {}", file, e);
+        }
+    }
+
+    private Object readWatermark(Connection conn, EntityMetadata metadata, ColumnMetadata column)
+            throws SQLException {
+        String sql = sqlGenerator.generateSelectMax(metadata, column.columnName());
+        try (PreparedStatement stmt = conn.prepareStatement(sql);
+                ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? TypeMapper.getResultSetValue(rs, 1, column.javaType()) : null;
+        }
+    }
+
+    /**
+     * Stop periodic snapshots without writing one, for a SessionFactory that
+     * failed to start.
+     */
+    void cancel() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Stop periodic snapshots and write a final one. Must run before the
+     * connection pool shuts down.
+     */
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        save();
+    }
+}
@@ -0,0 +1,112 @@
+package com.dam.framework.session;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Per-column equality and copy rules used by dirty checking.
+ * <p>
+ * Resolved once per column when a {@link SnapshotPlan} is built, so
+ * {@code flush()} never has to inspect value types again.
+ */
+enum ColumnComparator {
+
+    DEFAULT {
+        @Override
+        boolean same(Object snapshot, Object current) {
+            return Objects.equals(snapshot, current);
+        }
+    },
+
+    BYTE_ARRAY {
+        @Override
+        boolean same(Object snapshot, Object current) {
+            return Arrays.equals((byte[]) snapshot, (byte[]) current);
+        }
+
+        @Override
+        Object copy(Object value) {
+            return value == null ? null : ((byte[]) value).clone();
+        }
+    },
+
+    CHAR_ARRAY {
+        @Override
+        boolean same(Object snapshot, Object current) {
+            return Arrays.equals((char[]) snapshot, (char[]) current);
+        }
+
+        @Override
+        Object copy(Object value) {
+            return value == null ? null : ((char[]) value).clone();
+        }
+    },
+
+    /**
+     * Scale-insensitive: {@code 1.0} and {@code 1.00} are the same value in a
+     * DECIMAL column, so re-reading a row must not mark it dirty.
+     */
+    BIG_DECIMAL {
+        @Override
+        boolean same(Object snapshot, Object current) {
+            if (snapshot == null || current == null) {
+                return snapshot == current;
+            }
+            return ((BigDecimal) snapshot).compareTo((BigDecimal) current) == 0;
+        }
+    },
+
+    /**
+     * {@link Date} and its JDBC subclasses are mutable, so the snapshot keeps
+     * its own copy.
+     */
+    MUTABLE_DATE {
+        @Override
+        boolean same(Object snapshot, Object current) {
+            return Objects.equals(snapshot, current);
+        }
+
+        @Override
+        Object copy(Object value) {
+            return value == null ? null : ((Date) value).clone();
+        }
+    };
+
+    /**
+     * Compare a snapshot value with the current field value.
+     *
+     * @param snapshot the value captured in the snapshot
+     * @param current  the current field value
+     * @return true if the column is unchanged
+     */
+    abstract boolean same(Object snapshot, Object current);
+
+    /**
+     * Copy a value before storing it in a snapshot. Immutable values are
+     * returned as-is.
+     *
+     * @param value the current field value
+     * @return the value to keep in the snapshot
+     */
+    Object copy(Object value) {
+        return value;
+    }
+
+    static ColumnComparator forType(Class<?> javaType) {
+        if (javaType == byte[].class) {
+            return BYTE_ARRAY;
+        }
+        if (javaType == char[].class) {
+            return CHAR_ARRAY;
+        }
+        if (javaType == BigDecimal.class) {
+            return BIG_DECIMAL;
+        }
+        if (Date.class.isAssignableFrom(javaType)) {
+            return MUTABLE_DATE;
+        }
+        return DEFAULT;
+    }
+}
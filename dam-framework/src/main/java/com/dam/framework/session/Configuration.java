@@ -2,18 +2,24 @@ package com.dam.framework.session;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.function.Consumer;
 
+import com.dam.framework.cache.InvalidationTransport;
+import com.dam.framework.cache.LoopbackTransport;
+import com.dam.framework.cache.MulticastTransport;
 import com.dam.framework.config.DialectDriver;
 import com.dam.framework.connection.BasicConnectionManager;
 import com.dam.framework.dialect.Dialect;
 import com.dam.framework.dialect.DialectFactory;
 import com.dam.framework.exception.DAMException;
 import com.dam.framework.mapping.EntityMetadata;
+import com.dam.framework.query.Query;
 import com.dam.framework.util.ClasspathResources;
 
 /**
@@ -52,7 +58,7 @@ public class Configuration {
     // Entity class registry
     private final Set<Class<?>> registeredClasses = new HashSet<>();
 
-    private boolean showSQL = false;
+    private final SessionSettings settings = new SessionSettings();
     private String dialectName;
 
     /**
@@ -74,6 +80,35 @@ public class Configuration {
      * <li>dam.connection.password - Database password</li>
      * <li>dam.connection.driver - Driver type ("MYSQL", "POSTGRESQL", etc.)</li>
      * <li>dam.show_sql - Show SQL statements (true/false)</li>
+     * <li>dam.snapshot.hash_threshold - Length from which dirty-checking
+     * snapshots keep only a hash of text/binary values (0 = disabled)</li>
+     * <li>dam.jdbc.batch_size - Statements per JDBC batch in a StatelessSession</li>
+     * <li>dam.jdbc.fetch_size - Rows fetched per round trip by queries
+     * (0 = driver default)</li>
+     * <li>dam.session.max_entities - Managed entities per Session before the
+     * oldest are evicted (0 = no limit)</li>
+     * <li>dam.session.max_bytes - Estimated heap per Session for managed
+     * entities before the oldest are evicted (0 = no limit)</li>
+     * <li>dam.tracking.verify - Check hand-written dirty trackers against a
+     * snapshot on flush (true/false)</li>
+     * <li>dam.query_cache.max_entries - Maximum number of cached query
+     * results</li>
+     * <li>dam.query_cache.ttl_seconds - Time to live of cached query results
+     * (0 = until the table changes)</li>
+     * <li>dam.cache.snapshot_file - File the second-level cache is saved to
+     * and restored from</li>
+     * <li>dam.cache.snapshot_interval_seconds - Seconds between periodic cache
+     * snapshots (0 = on close only)</li>
+     * <li>dam.cache.single_flight - Share one database read between
+     * concurrent misses of the same cached row or query (true/false)</li>
+     * <li>dam.cache.negative_ttl_millis - Milliseconds a cached entity found
+     * missing is remembered as missing (0 = disabled)</li>
+     * <li>dam.cache.invalidation.transport - Share cache invalidations with
+     * other nodes: {@code loopback:<channel>} within the JVM or
+     * {@code multicast:<group>:<port>} over UDP</li>
+     * <li>dam.cache.invalidation.linger_millis - Milliseconds invalidations
+     * wait to be batched with those of other transactions (0 = sent on
+     * commit)</li>
      * </ul>
      * 
      * @param resourcePath path to the properties file
@@ -111,6 +146,71 @@ public class Configuration {
                 setShowSql(Boolean.parseBoolean(properties.getProperty("dam.show_sql")));
             }
 
+            if (properties.containsKey("dam.snapshot.hash_threshold")) {
+                setSnapshotHashThreshold(
+                        Integer.parseInt(properties.getProperty("dam.snapshot.hash_threshold").trim()));
+            }
+
+            if (properties.containsKey("dam.jdbc.batch_size")) {
+                setJdbcBatchSize(Integer.parseInt(properties.getProperty("dam.jdbc.batch_size").trim()));
+            }
+
+            if (properties.containsKey("dam.jdbc.fetch_size")) {
+                setFetchSize(Integer.parseInt(properties.getProperty("dam.jdbc.fetch_size").trim()));
+            }
+
+            if (properties.containsKey("dam.session.max_entities")) {
+                setMaxManagedEntities(
+                        Integer.parseInt(properties.getProperty("dam.session.max_entities").trim()));
+            }
+
+            if (properties.containsKey("dam.session.max_bytes")) {
+                setMaxManagedBytes(Long.parseLong(properties.getProperty("dam.session.max_bytes").trim()));
+            }
+
+            if (properties.containsKey("dam.tracking.verify")) {
+                setVerifyDirtyTracking(Boolean.parseBoolean(properties.getProperty("dam.tracking.verify").trim()));
+            }
+
+            if (properties.containsKey("dam.query_cache.max_entries")) {
+                setQueryCacheMaxEntries(
+                        Integer.parseInt(properties.getProperty("dam.query_cache.max_entries").trim()));
+            }
+
+            if (properties.containsKey("dam.query_cache.ttl_seconds")) {
+                setQueryCacheTtlSeconds(
+                        Long.parseLong(properties.getProperty("dam.query_cache.ttl_seconds").trim()));
+            }
+
+            if (properties.containsKey("dam.cache.snapshot_file")) {
+                setCacheSnapshotFile(properties.getProperty("dam.cache.snapshot_file").trim());
+            }
+
+            if (properties.containsKey("dam.cache.snapshot_interval_seconds")) {
+                setCacheSnapshotIntervalSeconds(
+                        Long.parseLong(properties.getProperty("dam.cache.snapshot_interval_seconds").trim()));
+            }
+
+            if (properties.containsKey("dam.cache.single_flight")) {
+                setCacheSingleFlight(
+                        Boolean.parseBoolean(properties.getProperty("dam.cache.single_flight").trim()));
+            }
+
+            if (properties.containsKey("dam.cache.negative_ttl_millis")) {
+                setCacheNegativeTtlMillis(
+                        Long.parseLong(properties.getProperty("dam.cache.negative_ttl_millis").trim()));
+            }
+
+            if (properties.containsKey("dam.cache.invalidation.transport")) {
+                setInvalidationTransport(
+                        parseTransport(properties.getProperty("dam.cache.invalidation.transport").trim()));
+            }
+
+            if (properties.containsKey("dam.cache.invalidation.linger_millis")) {
+                setInvalidationLingerMillis(
+                        Long.parseLong(properties.getProperty("dam.cache.invalidation.linger_millis").trim()));
+            }
+
             return this;
         }
     }
@@ -209,10 +309,250 @@ public class Configuration {
      * @return this Configuration for method chaining
      */
     public Configuration setShowSql(boolean show) {
-        showSQL = show;
+        settings.setShowSQL(show);
+        return this;
+    }
+
+    /**
+     * Keep only a hash of large text and binary values in dirty-checking
+     * snapshots.
+     * <p>
+     * {@code String}, {@code char[]} and {@code byte[]} values at least this long
+     * are snapshotted as a 64-bit hash instead of a copy, which saves heap for
+     * sessions holding many entities with large columns. A hash collision would
+     * let a change go unnoticed by {@code flush()}, so leave this disabled unless
+     * snapshot memory is a concern.
+     * 
+     * @param threshold minimum length in bytes/characters, or 0 to disable
+     * @return this Configuration for method chaining
+     */
+    public Configuration setSnapshotHashThreshold(int threshold) {
+        settings.setSnapshotHashThreshold(threshold);
+        return this;
+    }
+
+    /**
+     * Set how many writes a {@link StatelessSession} groups into one JDBC batch.
+     * <p>
+     * Defaults to 50. Use 1 to send every statement on its own.
+     * 
+     * @param batchSize statements per batch, at least 1
+     * @return this Configuration for method chaining
+     */
+    public Configuration setJdbcBatchSize(int batchSize) {
+        settings.setJdbcBatchSize(batchSize);
+        return this;
+    }
+
+    /**
+     * Set how many rows queries fetch per round trip, unless they set their own
+     * with {@link com.dam.framework.query.Query#fetchSize(int)}.
+     * <p>
+     * Defaults to 0, which leaves the choice to the driver. Streamed queries
+     * fetch 1000 rows at a time when neither is set.
+     * 
+     * @param fetchSize rows per round trip, 0 for the driver default
+     * @return this Configuration for method chaining
+     */
+    public Configuration setFetchSize(int fetchSize) {
+        settings.setFetchSize(fetchSize);
+        return this;
+    }
+
+    /**
+     * Cap the number of entities a {@link Session} keeps managed.
+     * <p>
+     * When a session goes over the cap it flushes pending changes and evicts
+     * its oldest entities until a quarter of the cap is free again, so long
+     * batch jobs can run in one session with bounded memory. Evicted entities
+     * become detached: later changes to them are not flushed.
+     * 
+     * @param maxEntities the cap, or 0 for no limit (the default)
+     * @return this Configuration for method chaining
+     */
+    public Configuration setMaxManagedEntities(int maxEntities) {
+        settings.setMaxManagedEntities(maxEntities);
+        return this;
+    }
+
+    /**
+     * Cap the estimated heap a {@link Session} spends on managed entities and
+     * their snapshots.
+     * <p>
+     * Works like {@link #setMaxManagedEntities(int)}, but against a rough
+     * per-entity size estimate based on the column values. Both caps can be
+     * set; whichever is reached first triggers eviction.
+     * 
+     * @param maxBytes the budget in bytes, or 0 for no limit (the default)
+     * @return this Configuration for method chaining
+     */
+    public Configuration setMaxManagedBytes(long maxBytes) {
+        settings.setMaxManagedBytes(maxBytes);
+        return this;
+    }
+
+    /**
+     * Check hand-written {@link com.dam.framework.tracking.SelfDirtyTracking}
+     * entities against a snapshot on every flush.
+     * <p>
+     * Self-tracking entities normally skip the snapshot and trust their
+     * tracker. In strict mode the session snapshots them as well, and a flush
+     * that finds a changed column the tracker did not mark fails with a
+     * {@link DAMException} naming the field, instead of silently losing the
+     * write. This costs the snapshot the tracker was meant to save, so enable
+     * it in tests and development rather than in production.
+     * 
+     * @param verify true to verify trackers, false to trust them (the default)
+     * @return this Configuration for method chaining
+     */
+    public Configuration setVerifyDirtyTracking(boolean verify) {
+        settings.setVerifyDirtyTracking(verify);
+        return this;
+    }
+
+    /**
+     * Set how many results {@link com.dam.framework.query.Query#cacheable(boolean)
+     * cacheable} queries may keep in the query cache. The least recently used
+     * results are dropped first.
+     * 
+     * @param maxEntries the maximum number of cached results, default 1000
+     * @return this Configuration for method chaining
+     */
+    public Configuration setQueryCacheMaxEntries(int maxEntries) {
+        settings.setQueryCacheMaxEntries(maxEntries);
+        return this;
+    }
+
+    /**
+     * Expire cached query results after a fixed time, on top of the
+     * invalidation on writes to their table. Use this when other applications
+     * write to the same tables.
+     * 
+     * @param ttlSeconds the time to live, or 0 (the default) for none
+     * @return this Configuration for method chaining
+     */
+    public Configuration setQueryCacheTtlSeconds(long ttlSeconds) {
+        settings.setQueryCacheTtlSeconds(ttlSeconds);
+        return this;
+    }
+
+    /**
+     * Persist the second-level cache to a local file so restarts come up warm.
+     * <p>
+     * The file is written when the SessionFactory is closed, and periodically
+     * if {@link #setCacheSnapshotIntervalSeconds(long)} is set. When the
+     * SessionFactory is built, regions are restored from it and the rows
+     * modified since the snapshot are dropped, using each region's
+     * {@link com.dam.framework.annotations.Cacheable#modifiedColumn()
+     * modification column}. Regions without one are not persisted.
+     * 
+     * @param path the snapshot file, or null to disable (the default)
+     * @return this Configuration for method chaining
+     */
+    public Configuration setCacheSnapshotFile(String path) {
+        settings.setCacheSnapshotFile(path == null ? null : Path.of(path));
+        return this;
+    }
+
+    /**
+     * Also write the cache snapshot at a fixed interval, so a crash loses at
+     * most one interval of warm-up.
+     * 
+     * @param intervalSeconds seconds between snapshots, or 0 (the default) to
+     *                        write only on close
+     * @return this Configuration for method chaining
+     */
+    public Configuration setCacheSnapshotIntervalSeconds(long intervalSeconds) {
+        settings.setCacheSnapshotIntervalSeconds(intervalSeconds);
+        return this;
+    }
+
+    /**
+     * Coalesce concurrent second-level cache misses. When several sessions
+     * miss the same {@link com.dam.framework.annotations.Cacheable} row, or
+     * the same {@link com.dam.framework.query.Query#cacheable(boolean)
+     * cacheable} query, one of them reads the database and the others wait for
+     * its result. Sessions whose transaction has written to the table always
+     * read on their own.
+     * 
+     * @param singleFlight true (the default) to coalesce misses
+     * @return this Configuration for method chaining
+     */
+    public Configuration setCacheSingleFlight(boolean singleFlight) {
+        settings.setCacheSingleFlight(singleFlight);
+        return this;
+    }
+
+    /**
+     * Remember for a short time that a cached entity's row does not exist, so
+     * repeated lookups of a missing ID stop reaching the database. The entry
+     * is dropped as soon as the framework writes the row; inserts by other
+     * applications become visible once it expires.
+     * 
+     * @param ttlMillis the time to live, or 0 (the default) to disable
+     * @return this Configuration for method chaining
+     */
+    public Configuration setCacheNegativeTtlMillis(long ttlMillis) {
+        settings.setCacheNegativeTtlMillis(ttlMillis);
+        return this;
+    }
+
+    /**
+     * Share second-level cache invalidations with the other nodes of a
+     * cluster. Every committed write is published on the transport, and
+     * invalidations received from other nodes are applied locally.
+     * 
+     * @param transport the transport, or null (the default) to keep
+     *                  invalidations local
+     * @return this Configuration for method chaining
+     * @see com.dam.framework.cache.InvalidationBus
+     */
+    public Configuration setInvalidationTransport(InvalidationTransport transport) {
+        settings.setInvalidationTransport(transport);
         return this;
     }
 
+    /**
+     * Batch the invalidations of concurrent transactions into fewer messages.
+     * Other nodes see writes up to this much later.
+     * 
+     * @param lingerMillis the batching delay, or 0 (the default) to send each
+     *                     transaction's invalidations when it commits
+     * @return this Configuration for method chaining
+     */
+    public Configuration setInvalidationLingerMillis(long lingerMillis) {
+        settings.setInvalidationLingerMillis(lingerMillis);
+        return this;
+    }
+
+    /**
+     * Register a query by name, to be compiled once when the SessionFactory is
+     * built and fetched with {@link SessionFactory#getNamedQuery}.
+     * 
+     * @param name        the query name, unique in this configuration
+     * @param resultClass the entity class
+     * @param builder     sets the clauses of the query, marking the values
+     *                    supplied at execution with
+     *                    {@link com.dam.framework.query.CompiledQuery#PARAM}
+     * @return this Configuration for method chaining
+     * @see SessionFactory#compileQuery(Class, Consumer)
+     */
+    public <T> Configuration addNamedQuery(String name, Class<T> resultClass, Consumer<Query<T>> builder) {
+        settings.addNamedQuery(name, resultClass, builder);
+        return this;
+    }
+
+    private static InvalidationTransport parseTransport(String spec) throws IOException {
+        String[] parts = spec.split(":");
+        if (parts.length == 2 && parts[0].equalsIgnoreCase("loopback")) {
+            return new LoopbackTransport(parts[1]);
+        }
+        if (parts.length == 3 && parts[0].equalsIgnoreCase("multicast")) {
+            return new MulticastTransport(parts[1], Integer.parseInt(parts[2]));
+        }
+        throw new DAMException("Invalid cache invalidation transport: " + spec);
+    }
+
     /**
      * Return a SessionFactory based on the current configuration object. The first
      * time call might cost more time to build
@@ -235,7 +575,7 @@ public class Configuration {
                 }
                 // 2. Create SessionFactory with metadata registry
                 Dialect dialect = DialectFactory.createDialect(dialectName);
-                builtFactory = new SessionFactoryImpl(metadataRegistry, conBuilder.build(), dialect, showSQL);
+                builtFactory = new SessionFactoryImpl(metadataRegistry, conBuilder.build(), dialect, settings);
 
             } catch (IllegalArgumentException e) {
                 throw new DAMException(e.getCause());
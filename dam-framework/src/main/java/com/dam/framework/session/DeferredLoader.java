@@ -0,0 +1,134 @@
+package com.dam.framework.session;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.dam.framework.exception.DAMException;
+
+/**
+ * Collects {@link Session#findDeferred(Class, Object)} lookups and resolves
+ * them with one {@link Session#findAll(Class, java.util.Collection)} call per
+ * entity class.
+ * <p>
+ * Lookups are dispatched when any handle is resolved, when one class collects
+ * a full batch, or on {@link Session#dispatchDeferred()}. There is no timer:
+ * sessions are single-threaded, and a background tick would have to use the
+ * session's connection from another thread.
+ */
+final class DeferredLoader {
+
+    private final Session session;
+    private final int maxBatchSize;
+    // entity class -> requested ID -> handle, in request order
+    private final Map<Class<?>, Map<Object, Ref<?>>> pending = new LinkedHashMap<>();
+    private boolean closed;
+
+    DeferredLoader(Session session, int maxBatchSize) {
+        this.session = session;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Queue a lookup. Repeated requests for the same pending ID share one
+     * handle.
+     */
+    <T> EntityRef<T> defer(Class<T> entityClass, Object id) {
+        Map<Object, Ref<?>> queue = pending.computeIfAbsent(entityClass, c -> new LinkedHashMap<>());
+
+        @SuppressWarnings("unchecked")
+        Ref<T> ref = (Ref<T>) queue.get(id);
+        if (ref == null) {
+            ref = new Ref<>(id);
+            queue.put(id, ref);
+            if (queue.size() >= maxBatchSize) {
+                dispatch(entityClass);
+            }
+        }
+        return ref;
+    }
+
+    /**
+     * Create a handle that is already resolved, for L1 cache hits.
+     */
+    <T> EntityRef<T> resolved(Object id, T entity) {
+        Ref<T> ref = new Ref<>(id);
+        ref.resolve(entity);
+        return ref;
+    }
+
+    void dispatch() {
+        // Loading may queue nothing new, but copy anyway so dispatch(Class) can remove
+        for (Class<?> entityClass : new ArrayList<>(pending.keySet())) {
+            dispatch(entityClass);
+        }
+    }
+
+    private <T> void dispatch(Class<T> entityClass) {
+        Map<Object, Ref<?>> queue = pending.remove(entityClass);
+        if (queue == null || queue.isEmpty()) {
+            return;
+        }
+
+        List<Object> ids = new ArrayList<>(queue.keySet());
+        List<T> entities;
+        try {
+            entities = session.findAll(entityClass, ids);
+        } catch (RuntimeException e) {
+            // Keep the handles pending so a later get() can retry
+            pending.putIfAbsent(entityClass, queue);
+            throw e;
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            @SuppressWarnings("unchecked")
+            Ref<T> ref = (Ref<T>) queue.get(ids.get(i));
+            ref.resolve(entities.get(i));
+        }
+    }
+
+    /**
+     * Drop pending lookups; their handles fail on {@link EntityRef#get()}.
+     */
+    void close() {
+        pending.clear();
+        closed = true;
+    }
+
+    private final class Ref<T> implements EntityRef<T> {
+
+        private final Object id;
+        private boolean loaded;
+        private T entity;
+
+        Ref(Object id) {
+            this.id = id;
+        }
+
+        void resolve(T entity) {
+            this.entity = entity;
+            this.loaded = true;
+        }
+
+        @Override
+        public Object getId() {
+            return id;
+        }
+
+        @Override
+        public boolean isLoaded() {
+            return loaded;
+        }
+
+        @Override
+        public T get() {
+            if (!loaded) {
+                if (closed) {
+                    throw new DAMException("Session closed before the deferred lookup of ID " + id + " ran");
+                }
+                dispatch();
+            }
+            return entity;
+        }
+    }
+}
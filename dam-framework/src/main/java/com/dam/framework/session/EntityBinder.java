@@ -0,0 +1,214 @@
+package com.dam.framework.session;
+
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import com.dam.framework.annotations.GenerationType;
+import com.dam.framework.dialect.Dialect;
+import com.dam.framework.exception.DAMException;
+import com.dam.framework.mapping.ColumnMetadata;
+import com.dam.framework.mapping.EntityMetadata;
+import com.dam.framework.mapping.IdGenerator;
+import com.dam.framework.mapping.IdGeneratorFactory;
+import com.dam.framework.util.IdTypeConverter;
+import com.dam.framework.util.ReflectionUtils;
+import com.dam.framework.util.TypeMapper;
+
+/**
+ * Statement binding, row mapping and cache (de)hydration shared by {@link SessionImpl} and
+ * {@link StatelessSessionImpl}.
+ * <p>
+ * Parameter order always follows the SQL produced by
+ * {@link com.dam.framework.sql.SQLGenerator} for the same metadata.
+ */
+final class EntityBinder {
+
+    private EntityBinder() {
+        // Utility class - prevent instantiation
+    }
+
+    /**
+     * Check whether the database generates the ID during INSERT.
+     *
+     * @param idColumn the ID column
+     * @return true for IDENTITY columns
+     */
+    static boolean usesIdentity(ColumnMetadata idColumn) {
+        return idColumn.isAutoGenerated() && idColumn.getGenerationStrategy() == GenerationType.IDENTITY;
+    }
+
+    /**
+     * Validate the ID of a new entity and generate it now if the strategy allows
+     * (UUID, SEQUENCE).
+     *
+     * @return the ID, or null if the database will generate it on INSERT
+     * @throws DAMException if the ID is missing and cannot be generated
+     */
+    static Object prepareId(Object entity, EntityMetadata metadata, Connection connection, Dialect dialect) {
+        ColumnMetadata idColumn = metadata.getIdColumn();
+        Object id = ReflectionUtils.getFieldValue(entity, idColumn.field());
+
+        if (id == null && idColumn.isAutoGenerated()) {
+            GenerationType strategy = idColumn.getGenerationStrategy();
+
+            // Validate: NONE strategy requires manually set ID
+            if (strategy == GenerationType.NONE) {
+                throw new DAMException(
+                        "Entity ID is null but GenerationType.NONE requires manual ID assignment. " +
+                                "Set the ID value before calling persist() for entity: " +
+                                entity.getClass().getSimpleName());
+            }
+
+            IdGenerator generator = IdGeneratorFactory.createGenerator(strategy);
+
+            // For pre-insert generators (UUID, SEQUENCE), generate ID now
+            if (!generator.isPostInsertGenerator()) {
+                id = generator.generate(connection, dialect, metadata);
+                ReflectionUtils.setFieldValue(entity, idColumn.field(), id);
+            }
+        }
+
+        // Also validate: no @GeneratedValue but ID is null
+        if (id == null && !idColumn.isAutoGenerated()) {
+            throw new DAMException(
+                    "Entity ID is null and no @GeneratedValue annotation found. " +
+                            "Either set the ID manually or add @GeneratedValue for entity: " +
+                            entity.getClass().getSimpleName());
+        }
+        return id;
+    }
+
+    /**
+     * Bind the parameters of {@code generateInsert}.
+     */
+    static void bindInsert(PreparedStatement stmt, Object entity, EntityMetadata metadata, Dialect dialect)
+            throws SQLException {
+        ColumnMetadata idColumn = metadata.getIdColumn();
+        int paramIndex = 1;
+        for (ColumnMetadata col : metadata.getColumns()) {
+            // Skip auto-generated ID columns that use post-insert generation (IDENTITY)
+            if (col.equals(idColumn) && usesIdentity(col)) {
+                continue; // Database will generate this value
+            }
+
+            Object value = ReflectionUtils.getFieldValue(entity, col.field());
+            dialect.setParameter(stmt, paramIndex++, value, col.javaType());
+        }
+    }
+
+    /**
+     * Bind the parameters of {@code generateUpdate}: every non-ID column, then
+     * the ID for the WHERE clause.
+     */
+    static void bindUpdate(PreparedStatement stmt, Object entity, EntityMetadata metadata, Dialect dialect)
+            throws SQLException {
+        ColumnMetadata idColumn = metadata.getIdColumn();
+        int paramIndex = 1;
+        for (ColumnMetadata col : metadata.getColumns()) {
+            if (!col.equals(idColumn)) {
+                Object value = ReflectionUtils.getFieldValue(entity, col.field());
+                dialect.setParameter(stmt, paramIndex++, value, col.javaType());
+            }
+        }
+        dialect.setParameter(stmt, paramIndex, ReflectionUtils.getFieldValue(entity, idColumn.field()),
+                idColumn.javaType());
+    }
+
+    /**
+     * Read the key generated by an executed INSERT and set it on the entity.
+     *
+     * @return the converted ID
+     */
+    static Object readGeneratedId(PreparedStatement stmt, Object entity, ColumnMetadata idColumn)
+            throws SQLException {
+        try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+            if (!generatedKeys.next()) {
+                throw new DAMException(
+                        "INSERT succeeded but no generated key returned. " +
+                                "Check @GeneratedValue configuration.");
+            }
+            // Convert to correct type using centralized converter
+            Object id = IdTypeConverter.convert(generatedKeys.getObject(1), idColumn.javaType());
+            ReflectionUtils.setFieldValue(entity, idColumn.field(), id);
+            return id;
+        }
+    }
+
+    /**
+     * Map the current row of a full-column SELECT to a new entity instance.
+     */
+    static <T> T mapRow(ResultSet rs, EntityMetadata metadata) {
+        @SuppressWarnings("unchecked")
+        T entity = ReflectionUtils.newInstance((Class<T>) metadata.getEntityClass());
+
+        for (ColumnMetadata column : metadata.getColumns()) {
+            Object value;
+            try {
+                // Use TypeMapper for type-safe conversion
+                value = TypeMapper.getResultSetValue(rs, column.columnName(), column.javaType());
+            } catch (SQLException e) {
+                throw new DAMException("Failed to map column: " + column.columnName(), e);
+            }
+            ReflectionUtils.setFieldValue(entity, column.field(), value);
+        }
+
+        return entity;
+    }
+
+    /**
+     * Read the current row of a full-column SELECT straight into a state for
+     * the second-level cache, without building an entity first.
+     *
+     * @return the values in metadata column order
+     */
+    static Object[] readState(ResultSet rs, EntityMetadata metadata) {
+        List<ColumnMetadata> columns = metadata.getColumns();
+        Object[] state = new Object[columns.size()];
+        for (int i = 0; i < state.length; i++) {
+            ColumnMetadata column = columns.get(i);
+            try {
+                state[i] = TypeMapper.getResultSetValue(rs, column.columnName(), column.javaType());
+            } catch (SQLException e) {
+                throw new DAMException("Failed to map column: " + column.columnName(), e);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Copy the column values of an entity for the second-level cache.
+     * Mutable values are cloned so the cached state cannot change with the
+     * entity.
+     *
+     * @return the values in metadata column order
+     */
+    static Object[] dehydrate(Object entity, EntityMetadata metadata) {
+        List<ColumnMetadata> columns = metadata.getColumns();
+        Object[] state = new Object[columns.size()];
+        for (int i = 0; i < state.length; i++) {
+            Field field = columns.get(i).field();
+            state[i] = ColumnComparator.forType(field.getType()).copy(ReflectionUtils.getFieldValue(entity, field));
+        }
+        return state;
+    }
+
+    /**
+     * Build a new entity instance from a cached state, cloning mutable values
+     * so sessions never share them.
+     */
+    static <T> T hydrate(Object[] state, EntityMetadata metadata) {
+        @SuppressWarnings("unchecked")
+        T entity = ReflectionUtils.newInstance((Class<T>) metadata.getEntityClass());
+
+        List<ColumnMetadata> columns = metadata.getColumns();
+        for (int i = 0; i < state.length; i++) {
+            Field field = columns.get(i).field();
+            ReflectionUtils.setFieldValue(entity, field, ColumnComparator.forType(field.getType()).copy(state[i]));
+        }
+        return entity;
+    }
+}
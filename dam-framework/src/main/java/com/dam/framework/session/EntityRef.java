@@ -0,0 +1,48 @@
+package com.dam.framework.session;
+
+/**
+ * Handle to an entity requested with {@link Session#findDeferred(Class, Object)}.
+ * <p>
+ * The row is not read when the handle is created. Deferred lookups collect in
+ * the session and are sent as one {@code IN} query per entity class when the
+ * first handle is resolved, so code that assembles a response from many
+ * independent lookups pays for one round trip instead of one per ID.
+ *
+ * <pre>
+ * {@code
+ * EntityRef<Product> a = session.findDeferred(Product.class, 1L);
+ * EntityRef<Product> b = session.findDeferred(Product.class, 2L);
+ * a.get(); // loads 1 and 2 together
+ * b.get(); // no SQL
+ * }
+ * </pre>
+ *
+ * @param <T> the entity type
+ */
+public interface EntityRef<T> {
+
+    /**
+     * Get the requested ID.
+     *
+     * @return the primary key
+     */
+    Object getId();
+
+    /**
+     * Check whether the lookup has run.
+     *
+     * @return true once {@link #get()} can return without SQL
+     */
+    boolean isLoaded();
+
+    /**
+     * Get the entity, dispatching all pending lookups of the session first if
+     * this one has not run yet.
+     *
+     * @return the entity, or null if no row exists
+     * @throws com.dam.framework.exception.DAMException if the session was
+     *                                                  closed before the lookup
+     *                                                  ran
+     */
+    T get();
+}
@@ -0,0 +1,50 @@
+package com.dam.framework.session;
+
+/**
+ * Column values of a managed entity as last synchronized with the database.
+ * <p>
+ * Values are stored by position as laid out by the owning {@link SnapshotPlan}:
+ * primitive fields are packed into a {@code long[]} (no boxing), all other
+ * columns go into an {@code Object[]}.
+ */
+final class EntitySnapshot {
+
+    final long[] primitives;
+    final Object[] values;
+
+    EntitySnapshot(long[] primitives, Object[] values) {
+        this.primitives = primitives;
+        this.values = values;
+    }
+
+    /**
+     * Stand-in for large text or binary values when hash-only snapshots are
+     * enabled. A hash collision would hide a change, which is the accepted cost
+     * of not keeping a copy of the value.
+     */
+    record HashedValue(int length, long hash) {
+
+        static HashedValue of(Object value) {
+            long hash = 0xcbf29ce484222325L; // FNV-1a 64-bit
+            int length;
+            if (value instanceof byte[] bytes) {
+                length = bytes.length;
+                for (byte b : bytes) {
+                    hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+                }
+            } else {
+                CharSequence chars = value instanceof char[] array ? java.nio.CharBuffer.wrap(array)
+                        : (CharSequence) value;
+                length = chars.length();
+                for (int i = 0; i < length; i++) {
+                    hash = (hash ^ chars.charAt(i)) * 0x100000001b3L;
+                }
+            }
+            return new HashedValue(length, hash);
+        }
+
+        boolean matches(Object current) {
+            return current != null && equals(of(current));
+        }
+    }
+}
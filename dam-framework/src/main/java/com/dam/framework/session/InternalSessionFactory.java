@@ -1,13 +1,15 @@
 package com.dam.framework.session;
 
+import com.dam.framework.cache.InvalidationBus;
+import com.dam.framework.cache.SecondLevelCache;
 import com.dam.framework.mapping.EntityMetadata;
 
 interface InternalSessionFactory {
     /**
      * Called by Session implementation class, session.close() to release connection
-     * and cleanup tracking.
+     * and cleanup tracking. Also used by StatelessSession.
      */
-    void sessionClosed(Session session);
+    void sessionClosed(AutoCloseable session);
 
     /**
      * Get metadata for the specified entity class.
@@ -16,4 +18,33 @@ interface InternalSessionFactory {
      * @return the metadata for the class, or null if not registered
      */
     EntityMetadata getMetadata(Class<?> entityClass);
+
+    /**
+     * Get the precomputed snapshot layout for the specified entity class.
+     * 
+     * @param entityClass the entity class
+     * @return the snapshot plan, or null if the class is not registered
+     */
+    SnapshotPlan getSnapshotPlan(Class<?> entityClass);
+
+    /**
+     * Get the second-level cache shared by all sessions of this factory.
+     * 
+     * @return the cache, never null
+     */
+    SecondLevelCache getCache();
+
+    /**
+     * Get the bus that shares cache invalidations with other nodes.
+     * 
+     * @return the bus, or null if no invalidation transport is configured
+     */
+    InvalidationBus getInvalidationBus();
+
+    /**
+     * Get the default number of rows fetched per round trip by queries.
+     * 
+     * @return the fetch size, or 0 for the driver default
+     */
+    int getFetchSize();
 }
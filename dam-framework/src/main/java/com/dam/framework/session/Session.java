@@ -1,5 +1,10 @@
 package com.dam.framework.session;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.dam.framework.query.NativeQuery;
 import com.dam.framework.query.Query;
 import com.dam.framework.transaction.Transaction;
 
@@ -33,14 +38,154 @@ public interface Session extends AutoCloseable {
 
     <T> T find(Class<T> entityClass, Object id);
 
+    /**
+     * Load an entity by its {@link com.dam.framework.annotations.NaturalId}.
+     * <p>
+     * The business key is resolved to a primary key through the second-level
+     * cache's natural-ID index, and the entity is then loaded like
+     * {@link #find(Class, Object)}. On an index miss, or when the indexed row
+     * no longer carries the key, the row is queried by its natural ID column
+     * and the index is updated.
+     *
+     * @param entityClass the entity class
+     * @param naturalId   the natural ID value
+     * @return the managed entity, or null if no row has that natural ID
+     * @throws com.dam.framework.exception.DAMException if the entity has no
+     *                                                  natural ID
+     */
+    <T> T findByNaturalId(Class<T> entityClass, Object naturalId);
+
+    /**
+     * Load several entities by ID in as few round trips as possible.
+     * <p>
+     * Entities already in the L1 cache are returned as is; the rest are fetched
+     * with {@code WHERE id IN (...)} statements, split into chunks no larger
+     * than the dialect allows, and become managed like results of
+     * {@link #find(Class, Object)}.
+     * 
+     * @param entityClass the entity class
+     * @param ids         the primary keys; duplicates are fetched once
+     * @return one element per requested ID in request order, null where no row
+     *         exists
+     */
+    <T> List<T> findAll(Class<T> entityClass, Collection<?> ids);
+
+    /**
+     * Request an entity by ID without reading it yet.
+     * <p>
+     * Deferred lookups are coalesced: the first {@link EntityRef#get()} loads
+     * every pending ID of every entity class with one
+     * {@link #findAll(Class, Collection)} per class. A class that collects a
+     * full IN-list batch is dispatched right away. L1 cache hits are resolved
+     * immediately.
+     * 
+     * @param entityClass the entity class
+     * @param id          the primary key
+     * @return a handle resolving to the managed entity, or to null if no row
+     *         exists
+     */
+    <T> EntityRef<T> findDeferred(Class<T> entityClass, Object id);
+
+    /**
+     * Run all pending deferred lookups now.
+     * 
+     * @see #findDeferred(Class, Object)
+     */
+    void dispatchDeferred();
+
     <T> T merge(T entity); // Update or insert
 
     void remove(Object entity);
 
     <T> Query<T> createQuery(Class<T> resultClass);
 
+    /**
+     * Create a query from SQL, mapping its rows like a {@link Query}.
+     * <p>
+     * Entity results are managed by this session unless the query is
+     * read-only; records, DTOs and basic types are always detached.
+     *
+     * @param sql         the SQL, with ? placeholders
+     * @param resultClass an entity, record, DTO or basic type such as Long
+     * @return a new NativeQuery
+     */
+    <T> NativeQuery<T> createNativeQuery(String sql, Class<T> resultClass);
+
+    /**
+     * Process the results of a query in chunks, keeping the session small.
+     * <p>
+     * Same as {@link #forEachChunk(Query, int, Object, boolean, Consumer)}
+     * from the first row, without committing between chunks.
+     *
+     * @param query     a query created by this session
+     * @param chunkSize the number of entities per chunk
+     * @param action    processes one chunk of managed entities
+     */
+    <T> void forEachChunk(Query<T> query, int chunkSize, Consumer<List<T>> action);
+
+    /**
+     * Process the results of a query in chunks, keeping the session small.
+     * <p>
+     * Results are read in primary key order, one query per chunk starting after
+     * the last ID of the previous chunk. After each chunk the session is
+     * flushed and the entities loaded since the call began are detached, so
+     * memory stays bounded by the chunk size whatever the number of rows.
+     * Entities the session managed before the call stay managed, and a chunk
+     * row that is one of them is returned as that same instance; their
+     * pending changes are flushed with the first chunk. The query must not set
+     * its own order, grouping or paging.
+     * <p>
+     * With {@code commitEachChunk}, every chunk runs in its own transaction, so
+     * locks are held for one chunk only. To make a job resumable, record the
+     * last ID of each chunk from the action, in the same transaction, and pass
+     * it back as {@code resumeAfter} when restarting.
+     *
+     * @param query           a query created by this session
+     * @param chunkSize       the number of entities per chunk
+     * @param resumeAfter     the last ID already processed, or null to start
+     *                        at the first row
+     * @param commitEachChunk true to commit after each chunk
+     * @param action          processes one chunk of managed entities
+     * @return the last ID processed, or {@code resumeAfter} if there were no
+     *         rows
+     * @throws com.dam.framework.exception.DAMException if a chunk fails, after
+     *                                                  rolling back its
+     *                                                  transaction
+     */
+    <T> Object forEachChunk(Query<T> query, int chunkSize, Object resumeAfter, boolean commitEachChunk,
+            Consumer<List<T>> action);
+
     Transaction beginTransaction();
 
     void flush(); // Force synchronization
 
+    /**
+     * Detach an entity from this session.
+     * <p>
+     * The entity leaves the L1 cache and is no longer dirty-checked; pending
+     * changes to it are not flushed. Does nothing if the entity is not managed.
+     * 
+     * @param entity the managed entity
+     */
+    void evict(Object entity);
+
+    /**
+     * Detach all entities from this session.
+     * <p>
+     * Pending changes that have not been flushed are discarded. Call
+     * {@link #flush()} first to keep them.
+     */
+    void clear();
+
+    /**
+     * Check whether this session was opened read-only.
+     * <p>
+     * Read-only sessions do not register loaded entities in the L1 cache, take
+     * no snapshots and reject persist, merge and remove.
+     * 
+     * @return true if the session is read-only
+     * @see SessionFactory#openSession(boolean)
+     */
+    boolean isReadOnly();
+
 }
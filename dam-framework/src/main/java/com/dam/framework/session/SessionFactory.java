@@ -1,5 +1,13 @@
 package com.dam.framework.session;
 
+import java.util.function.Consumer;
+
+import com.dam.framework.cache.InvalidationBus;
+import com.dam.framework.cache.InvalidationTransport;
+import com.dam.framework.cache.SecondLevelCache;
+import com.dam.framework.query.CompiledQuery;
+import com.dam.framework.query.Query;
+
 /**
  * Factory for creating Session instances.
  * <p>
@@ -38,6 +46,29 @@ public interface SessionFactory extends AutoCloseable {
      */
     public Session openSession();
 
+    /**
+     * Open a new Session, optionally read-only.
+     * <p>
+     * A read-only session keeps no L1 cache entries or snapshots for what it
+     * loads, so reads cost less heap and {@code flush()} has nothing to do. Its
+     * connection is marked with {@link java.sql.Connection#setReadOnly(boolean)}
+     * so drivers and replicas can optimize. Write operations are rejected.
+     * 
+     * @param readOnly true to open a read-only session
+     * @return a new Session instance
+     */
+    public Session openSession(boolean readOnly);
+
+    /**
+     * Open a new StatelessSession for bulk and streaming work.
+     * <p>
+     * The caller is responsible for closing the session when done.
+     * 
+     * @return a new StatelessSession instance
+     * @see StatelessSession
+     */
+    public StatelessSession openStatelessSession();
+
     /**
      * Get the current session bound to the context.
      * <p>
@@ -64,4 +95,49 @@ public interface SessionFactory extends AutoCloseable {
 
     public int getOpenSessionCount();
 
+    /**
+     * Get the second-level cache, for statistics and manual eviction.
+     * 
+     * @return the cache shared by all sessions of this factory
+     * @see com.dam.framework.annotations.Cacheable
+     */
+    public SecondLevelCache getCache();
+
+    /**
+     * Get the bus that shares cache invalidations with other nodes, for its
+     * statistics.
+     * 
+     * @return the bus, or null if no invalidation transport is configured
+     * @see Configuration#setInvalidationTransport(InvalidationTransport)
+     */
+    public InvalidationBus getInvalidationBus();
+
+    /**
+     * Render a query to SQL once, for repeated execution with different
+     * parameters.
+     * <p>
+     * The builder configures a query as {@link Session#createQuery(Class)}
+     * would; mark the values supplied at each execution with
+     * {@link CompiledQuery#PARAM}. The SQL is prepared once against the
+     * database to validate it.
+     * 
+     * @param resultClass the entity class
+     * @param builder     sets the clauses of the query
+     * @return the thread-safe compiled query
+     * @throws com.dam.framework.exception.DAMException if the SQL is invalid
+     */
+    public <T> CompiledQuery<T> compileQuery(Class<T> resultClass, Consumer<Query<T>> builder);
+
+    /**
+     * Get a query registered with {@link Configuration#addNamedQuery}, compiled
+     * when this factory was built.
+     * 
+     * @param name        the query name
+     * @param resultClass the entity class the query was registered for
+     * @return the compiled query
+     * @throws com.dam.framework.exception.DAMException if no query of that name
+     *                                                  and class exists
+     */
+    public <T> CompiledQuery<T> getNamedQuery(String name, Class<T> resultClass);
+
 }
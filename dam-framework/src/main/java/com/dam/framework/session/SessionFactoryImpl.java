@@ -1,13 +1,22 @@
 package com.dam.framework.session;
 
+import java.io.IOException;
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Consumer;
 
+import com.dam.framework.cache.InvalidationBus;
+import com.dam.framework.cache.SecondLevelCache;
 import com.dam.framework.connection.ConnectionManager;
 import com.dam.framework.dialect.Dialect;
 import com.dam.framework.exception.DAMException;
 import com.dam.framework.mapping.EntityMetadata;
+import com.dam.framework.query.CompiledQuery;
+import com.dam.framework.query.Query;
+import com.dam.framework.query.QueryImpl;
 import com.dam.framework.sql.SQLGenerator;
 import com.dam.framework.sql.SQLGeneratorImpl;
 
@@ -20,8 +29,9 @@ class SessionFactoryImpl implements SessionFactory, InternalSessionFactory {
     // Connection pool
     private final ConnectionManager connectionManager;
 
-    // Track which connection belongs to which session (for proper cleanup)
-    private final Map<Session, Connection> sessionConnections = new HashMap<>();
+    // Track which connection belongs to which session (for proper cleanup);
+    // holds both Session and StatelessSession instances
+    private final Map<AutoCloseable, Connection> sessionConnections = new HashMap<>();
 
     // ThreadLocal for session-per-thread pattern
     private final ThreadLocal<Session> threadLocalSession = new ThreadLocal<>();
@@ -30,22 +40,106 @@ class SessionFactoryImpl implements SessionFactory, InternalSessionFactory {
     private final SQLGenerator sqlGenerator = new SQLGeneratorImpl();
     private final Dialect dialect;
     private final boolean showSQL;
+    private final int jdbcBatchSize;
+    private final int fetchSize;
+    private final int maxManagedEntities;
+    private final long maxManagedBytes;
+    private final boolean verifyDirtyTracking;
+
+    // Dirty-checking layouts, resolved once per entity class
+    private final Map<Class<?>, SnapshotPlan> snapshotPlans = new HashMap<>();
+
+    private final SecondLevelCache secondLevelCache;
+    // null when no invalidation transport is configured
+    private final InvalidationBus invalidationBus;
+    // null when cache snapshots are disabled
+    private final CacheSnapshotManager cacheSnapshots;
+    private final CachePreloader cachePreloader;
+    private final Map<String, CompiledQuery<?>> namedQueries = new HashMap<>();
 
     SessionFactoryImpl(Map<Class<?>, EntityMetadata> metadataRegistry,
-            ConnectionManager connectionManager, Dialect dialect, boolean showSQL) {
+            ConnectionManager connectionManager, Dialect dialect, SessionSettings settings) {
         this.metadataRegistry = metadataRegistry;
         this.connectionManager = connectionManager;
         this.dialect = dialect;
-        this.showSQL = showSQL;
+        this.showSQL = settings.isShowSQL();
+        this.jdbcBatchSize = settings.getJdbcBatchSize();
+        this.fetchSize = settings.getFetchSize();
+        this.maxManagedEntities = settings.getMaxManagedEntities();
+        this.maxManagedBytes = settings.getMaxManagedBytes();
+        this.verifyDirtyTracking = settings.isVerifyDirtyTracking();
+
+        this.secondLevelCache = new SecondLevelCache(metadataRegistry, settings.getQueryCacheMaxEntries(),
+                settings.getQueryCacheTtlSeconds(), settings.isCacheSingleFlight(),
+                settings.getCacheNegativeTtlMillis());
+
+        for (Map.Entry<Class<?>, EntityMetadata> entry : metadataRegistry.entrySet()) {
+            snapshotPlans.put(entry.getKey(),
+                    new SnapshotPlan(entry.getValue(), settings.getSnapshotHashThreshold()));
+        }
+
+        // Background components started so far, stopped again if a later step fails
+        InvalidationBus bus = null;
+        CacheSnapshotManager snapshots = null;
+        CachePreloader preloader = null;
+        try {
+            // Validated before any background component starts
+            for (Map.Entry<String, SessionSettings.NamedQuery<?>> entry : settings.getNamedQueries().entrySet()) {
+                namedQueries.put(entry.getKey(), compile(entry.getValue()));
+            }
+
+            // Listen before anything is cached, so no remote write is missed
+            if (settings.getInvalidationTransport() != null) {
+                try {
+                    bus = new InvalidationBus(secondLevelCache, metadataRegistry,
+                            settings.getInvalidationTransport(), settings.getInvalidationLingerMillis());
+                } catch (IOException e) {
+                    throw new DAMException("Could not start the cache invalidation transport", e);
+                }
+            }
+
+            if (settings.getCacheSnapshotFile() != null) {
+                snapshots = new CacheSnapshotManager(settings.getCacheSnapshotFile(),
+                        settings.getCacheSnapshotIntervalSeconds(), metadataRegistry, secondLevelCache,
+                        connectionManager, sqlGenerator);
+                snapshots.restore();
+            }
+
+            // After the snapshot restore: preloaded regions replace whatever it restored
+            preloader = new CachePreloader(metadataRegistry, secondLevelCache, connectionManager, sqlGenerator);
+            preloader.start();
+        } catch (RuntimeException | Error e) {
+            if (preloader != null) {
+                preloader.close();
+            }
+            if (snapshots != null) {
+                // nothing was served yet, so there is nothing worth saving
+                snapshots.cancel();
+            }
+            if (bus != null) {
+                bus.close();
+            }
+            connectionManager.shutdown();
+            throw e;
+        }
+        this.invalidationBus = bus;
+        this.cacheSnapshots = snapshots;
+        this.cachePreloader = preloader;
     }
 
     @Override
     public Session openSession() {
+        return openSession(false);
+    }
+
+    @Override
+    public Session openSession(boolean readOnly) {
         // Get connection from pool
         Connection conn = connectionManager.getConnection();
 
         // Create session with read-only metadata access
-        Session session = new SessionImpl(this, conn, sqlGenerator, dialect, showSQL);
+        Session session = new SessionImpl(this, conn, sqlGenerator, dialect, showSQL, readOnly,
+                maxManagedEntities, maxManagedBytes, verifyDirtyTracking);
 
         // Track session and its connection
         sessionConnections.put(session, conn);
@@ -53,6 +147,15 @@ class SessionFactoryImpl implements SessionFactory, InternalSessionFactory {
         return session;
     }
 
+    @Override
+    public StatelessSession openStatelessSession() {
+        Connection conn = connectionManager.getConnection();
+        StatelessSession session = new StatelessSessionImpl(this, conn, sqlGenerator, dialect, showSQL,
+                jdbcBatchSize);
+        sessionConnections.put(session, conn);
+        return session;
+    }
+
     @Override
     public Session getCurrentSession() {
         // Check if current thread already has a session
@@ -85,16 +188,24 @@ class SessionFactoryImpl implements SessionFactory, InternalSessionFactory {
 
     @Override
     public void close() {
-        for (Map.Entry<Session, Connection> entry : sessionConnections.entrySet()) {
+        // Closing a session calls back into sessionClosed(), which releases its
+        // connection and removes it from the map - iterate over a copy
+        for (AutoCloseable session : new ArrayList<>(sessionConnections.keySet())) {
             try {
-                entry.getKey().close();
-                connectionManager.releaseConnection(entry.getValue());
+                session.close();
             } catch (Exception e) {
                 throw new DAMException(e.getCause());
             }
         }
 
         sessionConnections.clear();
+        if (invalidationBus != null) {
+            invalidationBus.close();
+        }
+        cachePreloader.close();
+        if (cacheSnapshots != null) {
+            cacheSnapshots.close();
+        }
         connectionManager.shutdown();
         isOpen = false;
     }
@@ -105,7 +216,7 @@ class SessionFactoryImpl implements SessionFactory, InternalSessionFactory {
     }
 
     @Override
-    public void sessionClosed(Session session) {
+    public void sessionClosed(AutoCloseable session) {
         connectionManager.releaseConnection(sessionConnections.remove(session));
 
         // Clean up ThreadLocal if this was the current thread's session
@@ -118,4 +229,60 @@ class SessionFactoryImpl implements SessionFactory, InternalSessionFactory {
     public EntityMetadata getMetadata(Class<?> entityClass) {
         return metadataRegistry.get(entityClass);
     }
+
+    @Override
+    public SnapshotPlan getSnapshotPlan(Class<?> entityClass) {
+        return snapshotPlans.get(entityClass);
+    }
+
+    @Override
+    public InvalidationBus getInvalidationBus() {
+        return invalidationBus;
+    }
+
+    @Override
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    @Override
+    public SecondLevelCache getCache() {
+        return secondLevelCache;
+    }
+
+    @Override
+    public <T> CompiledQuery<T> compileQuery(Class<T> resultClass, Consumer<Query<T>> builder) {
+        EntityMetadata metadata = getMetadata(resultClass);
+        if (metadata == null) {
+            throw new DAMException("Not a registered entity: " + resultClass.getName());
+        }
+        // Built without a session: the query only renders SQL
+        QueryImpl<T> query = new QueryImpl<>(resultClass, null, dialect, metadata);
+        builder.accept(query);
+        CompiledQuery<T> compiled = query.compile();
+
+        Connection conn = connectionManager.getConnection();
+        try {
+            conn.prepareStatement(compiled.getSql()).close();
+        } catch (SQLException e) {
+            throw new DAMException("Invalid compiled query: " + compiled.getSql(), e);
+        } finally {
+            connectionManager.releaseConnection(conn);
+        }
+        return compiled;
+    }
+
+    private <T> CompiledQuery<T> compile(SessionSettings.NamedQuery<T> namedQuery) {
+        return compileQuery(namedQuery.resultClass(), namedQuery.builder());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> CompiledQuery<T> getNamedQuery(String name, Class<T> resultClass) {
+        CompiledQuery<?> compiled = namedQueries.get(name);
+        if (compiled == null || compiled.getResultClass() != resultClass) {
+            throw new DAMException("No named query '" + name + "' for " + resultClass.getSimpleName());
+        }
+        return (CompiledQuery<T>) compiled;
+    }
 }
@@ -6,52 +6,94 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.dam.framework.annotations.GenerationType;
+import com.dam.framework.cache.SecondLevelCache;
 import com.dam.framework.dialect.Dialect;
 import com.dam.framework.exception.DAMException;
 import com.dam.framework.mapping.ColumnMetadata;
 import com.dam.framework.mapping.EntityKey;
 import com.dam.framework.mapping.EntityMetadata;
-import com.dam.framework.mapping.IdGenerator;
-import com.dam.framework.mapping.IdGeneratorFactory;
+import com.dam.framework.query.PersistenceContext;
+import com.dam.framework.query.BulkWriteContext;
+import com.dam.framework.query.NativeQuery;
+import com.dam.framework.query.NativeQueryImpl;
 import com.dam.framework.query.Query;
 import com.dam.framework.query.QueryImpl;
 import com.dam.framework.sql.SQLGenerator;
+import com.dam.framework.tracking.DirtyTracker;
+import com.dam.framework.tracking.SelfDirtyTracking;
 import com.dam.framework.transaction.Transaction;
 import com.dam.framework.transaction.TransactionImpl;
-import com.dam.framework.util.ReflectionUtils;
-import com.dam.framework.util.TypeMapper;
 import com.dam.framework.util.IdTypeConverter;
+import com.dam.framework.util.ReflectionUtils;
 
-class SessionImpl implements Session {
+class SessionImpl implements Session, PersistenceContext, BulkWriteContext {
 
     private final InternalSessionFactory factory;
     private final Map<EntityKey, Object> attachedEntities; // L1 cache - stores actual entity instances
     private final Connection connection;
-    private final Map<EntityKey, Map<String, Object>> originalSnapshots;
+    private final Map<EntityKey, EntitySnapshot> originalSnapshots;
+    // self-tracking entities that reported a change since the last flush
+    private final Set<EntityKey> dirtyTrackedKeys = new LinkedHashSet<>();
+    // snapshots of self-tracking entities, only kept when trackers are verified
+    private final Map<EntityKey, EntitySnapshot> trackerSnapshots = new HashMap<>();
+    private final boolean verifyDirtyTracking;
     private final SQLGenerator sqlGenerator;
     private final Dialect dialect;
     private final boolean showSQL;
+    private final boolean readOnly;
+    // L1 cache limits, 0 meaning no limit
+    private final int maxManagedEntities;
+    private final long maxManagedBytes;
+    // estimated size per managed entity, only kept when a byte budget is set
+    private final Map<EntityKey, Long> managedSizes = new HashMap<>();
+    private long managedBytes;
+    private final DeferredLoader deferredLoader;
+    private final CacheInvalidations cacheInvalidations;
     private Transaction currentTransaction;
     private static final Logger logger = LoggerFactory.getLogger(SessionImpl.class);
 
     public SessionImpl(InternalSessionFactory factory,
-            Connection connection, SQLGenerator sqlGenerator, Dialect dialect, boolean showSQL) {
+            Connection connection, SQLGenerator sqlGenerator, Dialect dialect, boolean showSQL,
+            boolean readOnly, int maxManagedEntities, long maxManagedBytes, boolean verifyDirtyTracking) {
         this.factory = factory;
-        this.attachedEntities = new HashMap<>(); // Initialize L1 cache as empty
+        // Insertion order doubles as age order for eviction
+        this.attachedEntities = new LinkedHashMap<>();
         this.connection = connection;
         originalSnapshots = new HashMap<>();
         this.sqlGenerator = sqlGenerator;
         this.dialect = dialect;
         this.showSQL = showSQL;
+        this.readOnly = readOnly;
+        this.maxManagedEntities = maxManagedEntities;
+        this.maxManagedBytes = maxManagedBytes;
+        this.verifyDirtyTracking = verifyDirtyTracking;
+        this.deferredLoader = new DeferredLoader(this, dialect.getMaxInListSize());
+        this.cacheInvalidations = new CacheInvalidations(factory);
+
+        if (readOnly) {
+            // Lets drivers route to replicas and skip write bookkeeping;
+            // the pool resets the flag when the connection is released
+            try {
+                connection.setReadOnly(true);
+            } catch (SQLException e) {
+                throw new DAMException("Failed to mark connection read-only", e);
+            }
+        }
     }
 
     @Override
@@ -72,8 +114,8 @@ class SessionImpl implements Session {
         }
 
         // clear L1 cache (session-specific data)
-        attachedEntities.clear();
-        originalSnapshots.clear();
+        deferredLoader.close();
+        clear();
 
         // notify the internal factory to release connection and remove from tracking
         factory.sessionClosed(this);
@@ -81,6 +123,8 @@ class SessionImpl implements Session {
 
     @Override
     public <T> void persist(T entity) {
+        checkWritable("persist");
+
         // 1. Get metadata
         EntityMetadata metadata = factory.getMetadata(entity.getClass());
         if (metadata == null) {
@@ -99,34 +143,8 @@ class SessionImpl implements Session {
             }
         }
 
-        // 4. Handle ID generation if needed
-        if (id == null && idColumn.isAutoGenerated()) {
-            GenerationType strategy = idColumn.getGenerationStrategy();
-
-            // Validate: NONE strategy requires manually set ID
-            if (strategy == GenerationType.NONE) {
-                throw new DAMException(
-                        "Entity ID is null but GenerationType.NONE requires manual ID assignment. " +
-                                "Set the ID value before calling persist() for entity: " +
-                                entity.getClass().getSimpleName());
-            }
-
-            IdGenerator generator = IdGeneratorFactory.createGenerator(strategy);
-
-            // For pre-insert generators (UUID, SEQUENCE), generate ID now
-            if (!generator.isPostInsertGenerator()) {
-                id = generator.generate(connection, dialect, metadata);
-                ReflectionUtils.setFieldValue(entity, idColumn.field(), id);
-            }
-        }
-
-        // Also validate: no @GeneratedValue but ID is null
-        if (id == null && !idColumn.isAutoGenerated()) {
-            throw new DAMException(
-                    "Entity ID is null and no @GeneratedValue annotation found. " +
-                            "Either set the ID manually or add @GeneratedValue for entity: " +
-                            entity.getClass().getSimpleName());
-        }
+        // 4. Handle ID generation if needed (null means the database generates it)
+        id = EntityBinder.prepareId(entity, metadata, connection, dialect);
 
         // 5. Generate INSERT SQL
         String sql = sqlGenerator.generateInsert(metadata);
@@ -135,17 +153,7 @@ class SessionImpl implements Session {
         try (PreparedStatement stmt = connection.prepareStatement(sql,
                 Statement.RETURN_GENERATED_KEYS)) {
 
-            int paramIndex = 1;
-            for (ColumnMetadata col : metadata.getColumns()) {
-                // Skip auto-generated ID columns that use post-insert generation (IDENTITY)
-                if (col.equals(idColumn) && col.isAutoGenerated() &&
-                        col.getGenerationStrategy() == GenerationType.IDENTITY) {
-                    continue; // Database will generate this value
-                }
-
-                Object value = ReflectionUtils.getFieldValue(entity, col.field());
-                dialect.setParameter(stmt, paramIndex++, value, col.javaType());
-            }
+            EntityBinder.bindInsert(stmt, entity, metadata, dialect);
 
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected == 0) {
@@ -153,34 +161,14 @@ class SessionImpl implements Session {
             }
 
             // 7. Handle post-insert ID generation (IDENTITY strategy)
-            if (id == null && idColumn.isAutoGenerated() &&
-                    idColumn.getGenerationStrategy() == GenerationType.IDENTITY) {
-
-                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        // Get generated ID from database
-                        Object generatedId = generatedKeys.getObject(1);
-
-                        // Convert to correct type using centralized converter
-                        Class<?> idType = idColumn.javaType();
-                        id = IdTypeConverter.convert(generatedId, idType);
-
-                        // Set ID back to entity
-                        ReflectionUtils.setFieldValue(entity, idColumn.field(), id);
-                    } else {
-                        throw new DAMException(
-                                "INSERT succeeded but no generated key returned. " +
-                                        "Check @GeneratedValue configuration.");
-                    }
-                }
+            if (id == null && EntityBinder.usesIdentity(idColumn)) {
+                id = EntityBinder.readGeneratedId(stmt, entity, idColumn);
             }
 
-            // 8. Add to L1 cache (now ID is guaranteed to be non-null)
-            EntityKey key = new EntityKey(entity.getClass(), id);
-            attachedEntities.put(key, entity);
-
-            // 9. Create snapshot
-            originalSnapshots.put(key, createSnapshot(entity, metadata));
+            // 8. Add to L1 cache (now ID is guaranteed to be non-null) and track changes
+            cacheInvalidations.invalidate(entity.getClass(), id, currentTransaction);
+            manage(new EntityKey(entity.getClass(), id), entity);
+            indexNaturalId(entity, metadata, id);
 
         } catch (SQLException e) {
             throw new DAMException(
@@ -189,24 +177,6 @@ class SessionImpl implements Session {
         }
     }
 
-    private <T> T mapResultSetToEntity(ResultSet rs, EntityMetadata entityMetadata) {
-        @SuppressWarnings("unchecked")
-        T entity = ReflectionUtils.newInstance((Class<T>) entityMetadata.getEntityClass());
-
-        for (ColumnMetadata column : entityMetadata.getColumns()) {
-            Object value;
-            try {
-                // Use TypeMapper for type-safe conversion
-                value = TypeMapper.getResultSetValue(rs, column.columnName(), column.javaType());
-            } catch (SQLException e) {
-                throw new DAMException("Failed to map column: " + column.columnName(), e);
-            }
-            ReflectionUtils.setFieldValue(entity, column.field(), value);
-        }
-
-        return entity;
-    }
-
     @Override
     public <T> T find(Class<T> entityClass, Object id) {
         // 1. Check L1 cache
@@ -216,10 +186,40 @@ class SessionImpl implements Session {
             return entityClass.cast(cached);
         }
 
-        // 2. Query database
         EntityMetadata metadata = factory.getMetadata(entityClass);
 
-        // Use SQLGenerator for consistency
+        // 2. Check second-level cache
+        SecondLevelCache cache = factory.getCache();
+        T entity = cache.getInstance(entityClass, id, state -> EntityBinder.hydrate(state, metadata));
+        if (entity == null && cache.isKnownMissing(entityClass, id)) {
+            return null;
+        }
+
+        // 3. Query database, sharing the read with sessions missing the same row
+        if (entity == null && cache.isCacheable(entityClass)) {
+            boolean shared = !cacheInvalidations.hasPending(metadata.getTableName());
+            entity = cache.load(entityClass, id, shared,
+                    () -> selectById(metadata, id, rs -> EntityBinder.readState(rs, metadata)),
+                    state -> EntityBinder.hydrate(state, metadata));
+        } else if (entity == null) {
+            // Nothing to cache, so map the row directly without an intermediate state
+            entity = selectById(metadata, id, rs -> EntityBinder.mapRow(rs, metadata));
+        }
+
+        // 4. Add to L1 cache and track changes (read-only sessions keep nothing)
+        if (entity != null && !readOnly) {
+            manage(key, entity);
+        }
+        return entity;
+    }
+
+    /**
+     * Read one row by primary key, using SQLGenerator for consistency.
+     *
+     * @param mapper maps the current row
+     * @return the mapped row, or null if no row exists
+     */
+    private <R> R selectById(EntityMetadata metadata, Object id, Function<ResultSet, R> mapper) {
         String sql = sqlGenerator.generateSelectById(metadata);
 
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
@@ -227,33 +227,213 @@ class SessionImpl implements Session {
             dialect.setParameter(stmt, 1, id, metadata.getIdColumn().javaType());
 
             try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    T entity = mapResultSetToEntity(rs, metadata);
+                return rs.next() ? mapper.apply(rs) : null;
+            }
+        } catch (SQLException e) {
+            throw new DAMException("Failed to find entity: " + metadata.getEntityClass().getSimpleName(), e);
+        }
+    }
 
-                    // 3. Add to L1 cache FIRST
-                    attachedEntities.put(key, entity);
+    @Override
+    public <T> T findByNaturalId(Class<T> entityClass, Object naturalId) {
+        EntityMetadata metadata = factory.getMetadata(entityClass);
+        if (metadata == null) {
+            throw new DAMException("Entity class not registered: " + entityClass.getName());
+        }
+        ColumnMetadata naturalIdColumn = metadata.getNaturalIdColumn();
+        if (naturalIdColumn == null) {
+            throw new DAMException("Entity has no @NaturalId: " + entityClass.getSimpleName());
+        }
+        if (naturalId == null) {
+            throw new DAMException("Cannot find entity with null natural ID");
+        }
+        naturalId = IdTypeConverter.convert(naturalId, naturalIdColumn.javaType());
 
-                    // 4. Create snapshot
-                    originalSnapshots.put(key, createSnapshot(entity, metadata));
+        // 1. Resolve through the index; the mapping may be stale, so check the row
+        SecondLevelCache cache = factory.getCache();
+        Object id = cache.resolveNaturalId(entityClass, naturalId);
+        if (id != null) {
+            T entity = find(entityClass, id);
+            if (entity != null && naturalId.equals(ReflectionUtils.getFieldValue(entity, naturalIdColumn.field()))) {
+                return entity;
+            }
+            cache.evictNaturalId(entityClass, naturalId);
+        }
 
-                    return entity;
+        // 2. Query by the natural ID column
+        long loadStamp = cache.beginLoad(entityClass);
+        String sql = sqlGenerator.generateSelectByNaturalId(metadata);
+        if (showSQL) {
+            logger.debug("Session Finding by natural ID\nSQL: {}", sql);
+        }
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            dialect.setParameter(stmt, 1, naturalId, naturalIdColumn.javaType());
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
                 }
+                T entity = EntityBinder.mapRow(rs, metadata);
+                id = ReflectionUtils.getFieldValue(entity, metadata.getIdColumn().field());
+                cacheLoaded(entity, id, metadata, loadStamp);
+                cache.putNaturalId(entityClass, naturalId, id);
+                return readOnly ? entity : manageLoaded(entity, metadata);
             }
         } catch (SQLException e) {
             throw new DAMException("Failed to find entity: " + entityClass.getSimpleName(), e);
         }
+    }
+
+    @Override
+    public <T> List<T> findAll(Class<T> entityClass, Collection<?> ids) {
+        EntityMetadata metadata = factory.getMetadata(entityClass);
+        if (metadata == null) {
+            throw new DAMException("Entity class not registered: " + entityClass.getName());
+        }
+        Class<?> idType = metadata.getIdColumn().javaType();
+
+        // 1. Serve L1 and second-level cache hits, collect each missing ID once
+        SecondLevelCache cache = factory.getCache();
+        List<Object> requested = new ArrayList<>(ids.size());
+        Map<Object, T> found = new HashMap<>();
+        Set<Object> missing = new LinkedHashSet<>();
+        for (Object rawId : ids) {
+            if (rawId == null) {
+                throw new DAMException("Cannot find entity with null ID");
+            }
+            // Normalize so that requested IDs match the IDs read back from rows
+            Object id = IdTypeConverter.convert(rawId, idType);
+            requested.add(id);
+
+            if (found.containsKey(id) || missing.contains(id)) {
+                continue;
+            }
+            Object cached = attachedEntities.get(new EntityKey(entityClass, id));
+            T entity = cached == null
+                    ? cache.getInstance(entityClass, id, state -> EntityBinder.hydrate(state, metadata))
+                    : null;
+            if (cached != null) {
+                found.put(id, entityClass.cast(cached));
+            } else if (entity != null) {
+                found.put(id, readOnly ? entity : manageLoaded(entity, metadata));
+            } else if (!cache.isKnownMissing(entityClass, id)) {
+                missing.add(id);
+            }
+        }
+
+        // 2. Fetch the rest in IN-list chunks
+        if (!missing.isEmpty()) {
+            loadByIds(entityClass, metadata, new ArrayList<>(missing), found);
+        }
+
+        // 3. Request order, null for missing rows
+        List<T> result = new ArrayList<>(requested.size());
+        for (Object id : requested) {
+            result.add(found.get(id));
+        }
+        return result;
+    }
 
-        return null;
+    @Override
+    public <T> EntityRef<T> findDeferred(Class<T> entityClass, Object id) {
+        EntityMetadata metadata = factory.getMetadata(entityClass);
+        if (metadata == null) {
+            throw new DAMException("Entity class not registered: " + entityClass.getName());
+        }
+        if (id == null) {
+            throw new DAMException("Cannot find entity with null ID");
+        }
+        id = IdTypeConverter.convert(id, metadata.getIdColumn().javaType());
+
+        Object cached = attachedEntities.get(new EntityKey(entityClass, id));
+        if (cached != null) {
+            return deferredLoader.resolved(id, entityClass.cast(cached));
+        }
+        return deferredLoader.defer(entityClass, id);
+    }
+
+    @Override
+    public void dispatchDeferred() {
+        deferredLoader.dispatch();
+    }
+
+    private <T> void loadByIds(Class<T> entityClass, EntityMetadata metadata, List<Object> ids,
+            Map<Object, T> found) {
+        ColumnMetadata idColumn = metadata.getIdColumn();
+        int maxChunk = dialect.getMaxInListSize();
+        SecondLevelCache cache = factory.getCache();
+        long loadStamp = cache.beginLoad(entityClass);
+
+        for (int from = 0; from < ids.size(); from += maxChunk) {
+            List<Object> chunk = ids.subList(from, Math.min(from + maxChunk, ids.size()));
+
+            // Round up to a power of two by repeating the last ID, so that only a
+            // handful of distinct statements reach the driver's statement cache
+            int placeholders = Math.min(maxChunk, Math.max(1, Integer.highestOneBit(chunk.size() - 1) << 1));
+            String sql = sqlGenerator.generateSelectByIds(metadata, placeholders);
+            if (showSQL) {
+                logger.debug("Session Finding {} IDs\nSQL: {}", chunk.size(), sql);
+            }
+
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                for (int i = 0; i < placeholders; i++) {
+                    Object id = chunk.get(Math.min(i, chunk.size() - 1));
+                    dialect.setParameter(stmt, i + 1, id, idColumn.javaType());
+                }
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        T entity = EntityBinder.mapRow(rs, metadata);
+                        Object id = ReflectionUtils.getFieldValue(entity, idColumn.field());
+                        cacheLoaded(entity, id, metadata, loadStamp);
+                        found.put(id, readOnly ? entity : manageLoaded(entity, metadata));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new DAMException("Failed to find entities: " + entityClass.getSimpleName(), e);
+            }
+        }
+
+        for (Object id : ids) {
+            if (!found.containsKey(id)) {
+                cache.putMissing(entityClass, id, loadStamp);
+            }
+        }
+    }
+
+    /**
+     * Point the natural ID of a written entity at its row. If the transaction
+     * rolls back, lookups find a missing or different row and re-query.
+     */
+    private void indexNaturalId(Object entity, EntityMetadata metadata, Object id) {
+        ColumnMetadata naturalIdColumn = metadata.getNaturalIdColumn();
+        if (naturalIdColumn != null) {
+            factory.getCache().putNaturalId(entity.getClass(),
+                    ReflectionUtils.getFieldValue(entity, naturalIdColumn.field()), id);
+        }
+    }
+
+    private void cacheLoaded(Object entity, Object id, EntityMetadata metadata, long loadStamp) {
+        SecondLevelCache cache = factory.getCache();
+        if (cache.isCacheable(entity.getClass())) {
+            cache.putFromLoad(entity.getClass(), id, EntityBinder.dehydrate(entity, metadata), loadStamp, entity);
+        }
     }
 
     @Override
     public <T> T merge(T entity) {
+        checkWritable("merge");
+
         // 1. Get metadata and ID
         EntityMetadata metadata = factory.getMetadata(entity.getClass());
         if (metadata == null) {
             throw new DAMException("Entity class not registered: " + entity.getClass().getName());
         }
 
+        if (metadata.isImmutable()) {
+            throw new DAMException("Cannot merge immutable entity: " + entity.getClass().getSimpleName());
+        }
+
         ColumnMetadata idColumn = metadata.getIdColumn();
         Object id = ReflectionUtils.getFieldValue(entity, idColumn.field());
 
@@ -277,18 +457,8 @@ class SessionImpl implements Session {
             logger.debug("Session Merging\nSQL: {}", sql);
         }
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            int paramIndex = 1;
-
-            // Set all column values (except ID)
-            for (ColumnMetadata col : metadata.getColumns()) {
-                if (!col.equals(idColumn)) {
-                    Object value = ReflectionUtils.getFieldValue(entity, col.field());
-                    dialect.setParameter(stmt, paramIndex++, value, col.javaType());
-                }
-            }
-
-            // Set ID for WHERE clause
-            dialect.setParameter(stmt, paramIndex, id, idColumn.javaType());
+            // Set all column values (except ID), then the ID for the WHERE clause
+            EntityBinder.bindUpdate(stmt, entity, metadata, dialect);
 
             // Execute UPDATE
             int rowsAffected = stmt.executeUpdate();
@@ -296,10 +466,14 @@ class SessionImpl implements Session {
                 throw new DAMException("UPDATE failed, entity might have been deleted");
             }
 
-            // Update L1 cache
+            // Update L1 cache, drop the stale second-level copy
+            cacheInvalidations.invalidate(entity.getClass(), id, currentTransaction);
             EntityKey key = new EntityKey(entity.getClass(), id);
-            attachedEntities.put(key, entity);
-            originalSnapshots.put(key, createSnapshot(entity, metadata));
+            if (attachedEntities.get(key) != entity) {
+                unmanage(key);
+            }
+            manage(key, entity);
+            indexNaturalId(entity, metadata, id);
 
             return entity;
 
@@ -310,6 +484,8 @@ class SessionImpl implements Session {
 
     @Override
     public void remove(Object entity) {
+        checkWritable("remove");
+
         // 1. Get metadata and ID
         EntityMetadata metadata = factory.getMetadata(entity.getClass());
         if (metadata == null) {
@@ -340,10 +516,13 @@ class SessionImpl implements Session {
                 // (idempotent operation)
             }
 
-            // Remove from L1 cache
-            EntityKey key = new EntityKey(entity.getClass(), id);
-            attachedEntities.remove(key);
-            originalSnapshots.remove(key);
+            // Remove from L1 and second-level cache
+            cacheInvalidations.invalidate(entity.getClass(), id, currentTransaction);
+            unmanage(new EntityKey(entity.getClass(), id));
+            if (metadata.getNaturalIdColumn() != null) {
+                factory.getCache().evictNaturalId(entity.getClass(),
+                        ReflectionUtils.getFieldValue(entity, metadata.getNaturalIdColumn().field()));
+            }
 
         } catch (SQLException e) {
             throw new DAMException("Failed to remove entity: " + entity.getClass().getSimpleName(), e);
@@ -353,7 +532,171 @@ class SessionImpl implements Session {
     @Override
     public <T> Query<T> createQuery(Class<T> resultClass) {
         EntityMetadata metadata = factory.getMetadata(resultClass);
-        return new QueryImpl<>(resultClass, connection, dialect, metadata); // PASS metadata!
+        return new QueryImpl<>(resultClass, connection, dialect, metadata, this,
+                factory.getCache()).bulkWriteContext(this).fetchSize(factory.getFetchSize());
+    }
+
+    @Override
+    public <T> NativeQuery<T> createNativeQuery(String sql, Class<T> resultClass) {
+        return new NativeQueryImpl<>(resultClass, sql, connection, dialect, factory.getMetadata(resultClass), this)
+                .fetchSize(factory.getFetchSize());
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Get the number of entities in the L1 cache.
+     *
+     * @return the managed entity count
+     */
+    int getManagedCount() {
+        return attachedEntities.size();
+    }
+
+    @Override
+    public boolean hasPendingWrites(String table) {
+        return cacheInvalidations.hasPending(table);
+    }
+
+    @Override
+    public <T> T manageLoaded(T entity, EntityMetadata metadata) {
+        Object id = ReflectionUtils.getFieldValue(entity, metadata.getIdColumn().field());
+        EntityKey key = new EntityKey(entity.getClass(), id);
+
+        // Keep one instance per row: the already managed one wins
+        Object existing = attachedEntities.get(key);
+        if (existing != null) {
+            @SuppressWarnings("unchecked")
+            T managed = (T) existing;
+            return managed;
+        }
+
+        manage(key, entity);
+        return entity;
+    }
+
+    @Override
+    public void evict(Object entity) {
+        EntityMetadata metadata = factory.getMetadata(entity.getClass());
+        if (metadata == null) {
+            throw new DAMException("Entity class not registered: " + entity.getClass().getName());
+        }
+
+        Object id = ReflectionUtils.getFieldValue(entity, metadata.getIdColumn().field());
+        if (id == null) {
+            return; // never managed
+        }
+
+        EntityKey key = new EntityKey(entity.getClass(), id);
+        // Only the managed instance itself can be evicted, not a detached copy
+        if (attachedEntities.get(key) == entity) {
+            unmanage(key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (Object entity : attachedEntities.values()) {
+            if (entity instanceof SelfDirtyTracking tracked) {
+                tracked.getDirtyTracker().unbind();
+            }
+        }
+        attachedEntities.clear();
+        originalSnapshots.clear();
+        dirtyTrackedKeys.clear();
+        trackerSnapshots.clear();
+        managedSizes.clear();
+        managedBytes = 0;
+    }
+
+    @Override
+    public void beforeBulkWrite(EntityMetadata metadata) {
+        checkWritable("run a bulk statement");
+        // The statement must see pending changes, and a later flush must not undo it
+        flush();
+    }
+
+    @Override
+    public void afterBulkWrite(EntityMetadata metadata) {
+        // Any managed row of the table may be stale: detach them all, find() reloads
+        for (EntityKey key : new ArrayList<>(attachedEntities.keySet())) {
+            if (factory.getMetadata(key.entityClass()).getTableName().equalsIgnoreCase(metadata.getTableName())) {
+                unmanage(key);
+            }
+        }
+        cacheInvalidations.invalidateAll(metadata.getEntityClass(), currentTransaction);
+    }
+
+    private void checkWritable(String operation) {
+        if (readOnly) {
+            throw new DAMException("Cannot " + operation + " in a read-only session");
+        }
+        StreamingGuard.check(connection, currentTransaction, operation);
+    }
+
+    @Override
+    public <T> void forEachChunk(Query<T> query, int chunkSize, Consumer<List<T>> action) {
+        forEachChunk(query, chunkSize, null, false, action);
+    }
+
+    @Override
+    public <T> Object forEachChunk(Query<T> query, int chunkSize, Object resumeAfter, boolean commitEachChunk,
+            Consumer<List<T>> action) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1");
+        }
+        if (!(query instanceof QueryImpl<T> chunked)) {
+            throw new DAMException("Chunked processing needs a query created by this session");
+        }
+        if (commitEachChunk && currentTransaction != null && currentTransaction.isActive()) {
+            throw new DAMException("Cannot commit each chunk inside an active transaction");
+        }
+
+        // Entities the caller already had stay managed; only what the chunks load is detached
+        Set<EntityKey> callerKeys = new HashSet<>(attachedEntities.keySet());
+        Object lastId = resumeAfter;
+        while (true) {
+            Transaction chunkTransaction = commitEachChunk ? beginTransaction() : null;
+            List<T> chunk;
+            try {
+                chunk = chunked.getChunkAfter(lastId, chunkSize);
+                if (!chunk.isEmpty()) {
+                    action.accept(chunk);
+                    flush();
+                }
+                if (chunkTransaction != null) {
+                    chunkTransaction.commit();
+                }
+            } catch (RuntimeException e) {
+                if (chunkTransaction != null && chunkTransaction.isActive()) {
+                    chunkTransaction.rollback();
+                }
+                detachAllExcept(callerKeys);
+                throw e instanceof DAMException ? e
+                        : new DAMException("Chunk after ID " + lastId + " failed", e);
+            }
+            // Processed entities are done with, so the session does not grow with each chunk
+            detachAllExcept(callerKeys);
+            if (chunk.isEmpty()) {
+                return lastId;
+            }
+            T last = chunk.getLast();
+            lastId = ReflectionUtils.getFieldValue(last, factory.getMetadata(last.getClass()).getIdColumn().field());
+            if (chunk.size() < chunkSize) {
+                return lastId;
+            }
+        }
+    }
+
+    private void detachAllExcept(Set<EntityKey> kept) {
+        for (EntityKey key : new ArrayList<>(attachedEntities.keySet())) {
+            if (!kept.contains(key)) {
+                unmanage(key);
+            }
+        }
     }
 
     @Override
@@ -364,6 +707,7 @@ class SessionImpl implements Session {
                     "Transaction already active. " +
                             "Commit or rollback current transaction before starting a new one.");
         }
+        StreamingGuard.check(connection, currentTransaction, "begin a transaction");
 
         // Create new transaction
         currentTransaction = new TransactionImpl(connection);
@@ -373,95 +717,182 @@ class SessionImpl implements Session {
         return currentTransaction;
     }
 
-    private List<ColumnMetadata> getChangedColumns(Map.Entry<EntityKey, Object> currentAttachedObject) {
-        List<ColumnMetadata> changedColumns = new ArrayList<>();
-        Object entity = currentAttachedObject.getValue();
-        EntityMetadata metadata = factory.getMetadata(entity.getClass());
-
-        EntityKey key = currentAttachedObject.getKey();
-        Map<String, Object> originalSnapshot = originalSnapshots.get(key);
+    @Override
+    public void flush() {
+        if (verifyDirtyTracking) {
+            verifyTrackers();
+        }
 
-        if (originalSnapshot == null) {
-            // No snapshot - entity was never persisted/merged in this session
-            // Return all columns as changed (shouldn't happen in normal flow)
-            return new ArrayList<>(metadata.getColumns());
+        // Self-tracking entities reported their own changes - visit only those
+        for (EntityKey key : dirtyTrackedKeys) {
+            Object entity = attachedEntities.get(key);
+            if (entity == null) {
+                continue;
+            }
+            DirtyTracker tracker = ((SelfDirtyTracking) entity).getDirtyTracker();
+            List<ColumnMetadata> changedColumns = factory.getSnapshotPlan(entity.getClass())
+                    .columnsAt(tracker.getDirtyColumns());
+            if (!changedColumns.isEmpty()) {
+                executePartialUpdate(entity, changedColumns);
+            }
+            tracker.clear();
+            if (verifyDirtyTracking) {
+                trackerSnapshots.put(key, factory.getSnapshotPlan(entity.getClass()).capture(entity));
+            }
         }
+        dirtyTrackedKeys.clear();
 
-        for (ColumnMetadata col : metadata.getColumns()) {
-            Object currentValue = ReflectionUtils.getFieldValue(entity, col.field());
-            Object originalValue = originalSnapshot.get(col.columnName());
+        // Everything else is compared against its snapshot
+        for (Map.Entry<EntityKey, EntitySnapshot> entry : originalSnapshots.entrySet()) {
+            Object entity = attachedEntities.get(entry.getKey());
+            SnapshotPlan plan = factory.getSnapshotPlan(entity.getClass());
+
+            List<ColumnMetadata> changedColumns = plan.changedColumns(entity, entry.getValue());
+            if (!changedColumns.isEmpty()) {
+                executePartialUpdate(entity, changedColumns);
 
-            // Compare values
-            if (!Objects.equals(currentValue, originalValue)) {
-                changedColumns.add(col);
+                // Update snapshot after successful flush
+                entry.setValue(plan.capture(entity));
             }
         }
-
-        return changedColumns;
     }
 
-    @Override
-    public void flush() {
-        // Iterate through all attached entities and check for changes
-        for (Map.Entry<EntityKey, Object> entry : attachedEntities.entrySet()) {
-            EntityKey key = entry.getKey();
-            Object entity = entry.getValue();
+    /**
+     * Compare every self-tracking entity with its snapshot and fail on a changed
+     * column its tracker did not mark, which a trusting flush would lose.
+     */
+    private void verifyTrackers() {
+        for (Map.Entry<EntityKey, EntitySnapshot> entry : trackerSnapshots.entrySet()) {
+            Object entity = attachedEntities.get(entry.getKey());
+            SnapshotPlan plan = factory.getSnapshotPlan(entity.getClass());
+            List<ColumnMetadata> marked = plan.columnsAt(
+                    ((SelfDirtyTracking) entity).getDirtyTracker().getDirtyColumns());
+
+            for (ColumnMetadata column : plan.changedColumns(entity, entry.getValue())) {
+                if (!marked.contains(column)) {
+                    throw new DAMException("Field '" + column.field().getName() + "' of "
+                            + entity.getClass().getSimpleName() + " with ID " + entry.getKey().id()
+                            + " changed without DirtyTracker.markDirty");
+                }
+            }
+        }
+    }
 
-            // Get changed columns using existing helper
-            List<ColumnMetadata> changedColumns = getChangedColumns(entry);
+    private void executePartialUpdate(Object entity, List<ColumnMetadata> changedColumns) {
+        StreamingGuard.check(connection, currentTransaction, "flush changes");
+        EntityMetadata metadata = factory.getMetadata(entity.getClass());
+        ColumnMetadata idColumn = metadata.getIdColumn();
+        Object id = ReflectionUtils.getFieldValue(entity, idColumn.field());
 
-            if (!changedColumns.isEmpty()) {
-                // Entity has changes - perform UPDATE
-                EntityMetadata metadata = factory.getMetadata(entity.getClass());
-                ColumnMetadata idColumn = metadata.getIdColumn();
-                Object id = ReflectionUtils.getFieldValue(entity, idColumn.field());
+        String sql = sqlGenerator.generatePartialUpdate(metadata, changedColumns);
+        if (showSQL) {
+            logger.debug("Session Flushing\nSQL: {}", sql);
 
-                String sql = sqlGenerator.generatePartialUpdate(metadata, changedColumns);
-                if (showSQL) {
-                    logger.debug("Session Flushing\nSQL: {}", sql);
+        }
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            int paramIndex = 1;
 
+            // Set changed column values only, matching the partial SET clause
+            for (ColumnMetadata col : changedColumns) {
+                if (!col.equals(idColumn)) {
+                    Object value = ReflectionUtils.getFieldValue(entity, col.field());
+                    dialect.setParameter(stmt, paramIndex++, value, col.javaType());
                 }
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    int paramIndex = 1;
-
-                    // Set all column values (except ID)
-                    for (ColumnMetadata col : metadata.getColumns()) {
-                        if (!col.equals(idColumn)) {
-                            Object value = ReflectionUtils.getFieldValue(entity, col.field());
-                            dialect.setParameter(stmt, paramIndex++, value, col.javaType());
-                        }
-                    }
-
-                    // Set ID for WHERE clause
-                    dialect.setParameter(stmt, paramIndex, id, idColumn.javaType());
+            }
 
-                    // Execute UPDATE
-                    int rowsAffected = stmt.executeUpdate();
-                    if (rowsAffected == 0) {
-                        throw new DAMException(
-                                "UPDATE failed during flush, entity might have been deleted: " +
-                                        entity.getClass().getSimpleName() + " with ID " + id);
-                    }
+            // Set ID for WHERE clause
+            dialect.setParameter(stmt, paramIndex, id, idColumn.javaType());
 
-                    // Update snapshot after successful flush
-                    originalSnapshots.put(key, createSnapshot(entity, metadata));
+            // Execute UPDATE
+            int rowsAffected = stmt.executeUpdate();
+            if (rowsAffected == 0) {
+                throw new DAMException(
+                        "UPDATE failed during flush, entity might have been deleted: " +
+                                entity.getClass().getSimpleName() + " with ID " + id);
+            }
+            cacheInvalidations.invalidate(entity.getClass(), id, currentTransaction);
+        } catch (SQLException e) {
+            throw new DAMException("Failed to flush changes for: " +
+                    entity.getClass().getSimpleName(), e);
+        }
+    }
 
-                } catch (SQLException e) {
-                    throw new DAMException("Failed to flush changes for: " +
-                            entity.getClass().getSimpleName(), e);
-                }
+    /**
+     * Register an entity in the L1 cache and start change tracking for it:
+     * self-tracking entities get their tracker bound, all others a snapshot.
+     * Immutable entities are never tracked.
+     */
+    private void manage(EntityKey key, Object entity) {
+        attachedEntities.put(key, entity);
+
+        SnapshotPlan plan = factory.getSnapshotPlan(entity.getClass());
+        if (factory.getMetadata(entity.getClass()).isImmutable()) {
+            // Nothing to track; the instance may also be shared with other sessions
+        } else if (entity instanceof SelfDirtyTracking selfTracking) {
+            dirtyTrackedKeys.remove(key);
+            selfTracking.getDirtyTracker().bind(plan.getFieldIndexes(), () -> dirtyTrackedKeys.add(key));
+            if (verifyDirtyTracking) {
+                trackerSnapshots.put(key, plan.capture(entity));
             }
+        } else {
+            originalSnapshots.put(key, plan.capture(entity));
+        }
+
+        if (maxManagedBytes > 0) {
+            // The snapshot holds roughly a second copy of the values
+            boolean snapshotted = originalSnapshots.containsKey(key) || trackerSnapshots.containsKey(key);
+            long size = plan.estimateSize(entity) * (snapshotted ? 2 : 1);
+            Long previous = managedSizes.put(key, size);
+            managedBytes += size - (previous == null ? 0 : previous);
         }
+        enforceLimits(key);
     }
 
-    private Map<String, Object> createSnapshot(Object entity, EntityMetadata metadata) {
-        Map<String, Object> snapshot = new HashMap<>();
-        for (ColumnMetadata col : metadata.getColumns()) {
-            Object value = ReflectionUtils.getFieldValue(entity, col.field());
-            // Clone value to prevent reference issues
-            snapshot.put(col.columnName(), value);
+    private void unmanage(EntityKey key) {
+        Object entity = attachedEntities.remove(key);
+        originalSnapshots.remove(key);
+        dirtyTrackedKeys.remove(key);
+        trackerSnapshots.remove(key);
+        Long size = managedSizes.remove(key);
+        if (size != null) {
+            managedBytes -= size;
+        }
+        if (entity instanceof SelfDirtyTracking tracked) {
+            tracked.getDirtyTracker().unbind();
+        }
+    }
+
+    private boolean overLimit(int entityLimit, long byteLimit) {
+        return (maxManagedEntities > 0 && attachedEntities.size() > entityLimit)
+                || (maxManagedBytes > 0 && managedBytes > byteLimit);
+    }
+
+    /**
+     * Keep the L1 cache within its configured limits. Once a limit is passed,
+     * pending changes are flushed so that every managed entity is clean, then
+     * the oldest entities are evicted until a quarter of the limit is free
+     * again. The headroom keeps the flush from running on every new entity.
+     *
+     * @param newest the entity just managed, which is never evicted
+     */
+    private void enforceLimits(EntityKey newest) {
+        if (!overLimit(maxManagedEntities, maxManagedBytes)) {
+            return;
+        }
+        flush();
+
+        int entityTarget = maxManagedEntities - maxManagedEntities / 4;
+        long byteTarget = maxManagedBytes - maxManagedBytes / 4;
+        int evicted = 0;
+        Iterator<EntityKey> oldestFirst = new ArrayList<>(attachedEntities.keySet()).iterator();
+        while (overLimit(entityTarget, byteTarget) && oldestFirst.hasNext()) {
+            EntityKey key = oldestFirst.next();
+            if (!key.equals(newest)) {
+                unmanage(key);
+                evicted++;
+            }
         }
-        return snapshot;
+        logger.debug("L1 cache limit reached, flushed and evicted {} entities", evicted);
     }
 
-};
+}
@@ -0,0 +1,277 @@
+package com.dam.framework.session;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import com.dam.framework.cache.InvalidationTransport;
+import com.dam.framework.query.Query;
+
+/**
+ * Session-level tuning options collected by {@link Configuration} and handed to
+ * the {@link SessionFactoryImpl} it builds.
+ * <p>
+ * Kept separate from the factory constructor so new options do not keep
+ * widening its signature.
+ */
+final class SessionSettings {
+
+    private boolean showSQL = false;
+
+    // 0 disables hash-only snapshots
+    private int snapshotHashThreshold = 0;
+
+    private int jdbcBatchSize = 50;
+    // 0 leaves the fetch size to the driver
+    private int fetchSize = 0;
+
+    // 0 means no limit
+    private int maxManagedEntities = 0;
+    private long maxManagedBytes = 0;
+
+    // snapshots self-tracking entities too, to catch missed markDirty calls
+    private boolean verifyDirtyTracking = false;
+
+    private int queryCacheMaxEntries = 1000;
+    // 0 keeps cached query results until their tables change
+    private long queryCacheTtlSeconds = 0;
+
+    // null disables cache snapshots
+    private Path cacheSnapshotFile = null;
+    // 0 writes the snapshot on close only
+    private long cacheSnapshotIntervalSeconds = 0;
+
+    private boolean cacheSingleFlight = true;
+    // 0 never remembers missing rows
+    private long cacheNegativeTtlMillis = 0;
+
+    // null keeps invalidations local
+    private InvalidationTransport invalidationTransport = null;
+    // 0 sends each transaction's invalidations when it commits
+    private long invalidationLingerMillis = 0;
+
+    // compiled when the factory is built
+    private final Map<String, NamedQuery<?>> namedQueries = new LinkedHashMap<>();
+
+    /**
+     * A query registered by name, with the builder that sets its clauses.
+     */
+    record NamedQuery<T>(Class<T> resultClass, Consumer<Query<T>> builder) {
+    }
+
+    boolean isShowSQL() {
+        return showSQL;
+    }
+
+    SessionSettings setShowSQL(boolean showSQL) {
+        this.showSQL = showSQL;
+        return this;
+    }
+
+    /**
+     * Minimum length (bytes for {@code byte[]}, characters for text) from which a
+     * snapshot keeps only a hash of the value instead of a copy.
+     *
+     * @return the threshold, or 0 if hash-only snapshots are disabled
+     */
+    int getSnapshotHashThreshold() {
+        return snapshotHashThreshold;
+    }
+
+    SessionSettings setSnapshotHashThreshold(int snapshotHashThreshold) {
+        if (snapshotHashThreshold < 0) {
+            throw new IllegalArgumentException("Snapshot hash threshold must be non-negative");
+        }
+        this.snapshotHashThreshold = snapshotHashThreshold;
+        return this;
+    }
+
+    /**
+     * Number of statements a StatelessSession sends in one JDBC batch.
+     *
+     * @return the batch size, 1 meaning no batching
+     */
+    int getJdbcBatchSize() {
+        return jdbcBatchSize;
+    }
+
+    SessionSettings setJdbcBatchSize(int jdbcBatchSize) {
+        if (jdbcBatchSize < 1) {
+            throw new IllegalArgumentException("JDBC batch size must be at least 1");
+        }
+        this.jdbcBatchSize = jdbcBatchSize;
+        return this;
+    }
+
+    /**
+     * Number of rows queries fetch per round trip unless they set their own.
+     *
+     * @return the fetch size, or 0 for the driver default
+     */
+    int getFetchSize() {
+        return fetchSize;
+    }
+
+    SessionSettings setFetchSize(int fetchSize) {
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("Fetch size must be non-negative");
+        }
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    /**
+     * Number of entities a Session keeps managed before it flushes and evicts
+     * the oldest ones.
+     *
+     * @return the cap, or 0 for no limit
+     */
+    int getMaxManagedEntities() {
+        return maxManagedEntities;
+    }
+
+    SessionSettings setMaxManagedEntities(int maxManagedEntities) {
+        if (maxManagedEntities < 0) {
+            throw new IllegalArgumentException("Max managed entities must be non-negative");
+        }
+        this.maxManagedEntities = maxManagedEntities;
+        return this;
+    }
+
+    /**
+     * Estimated heap, in bytes, a Session may spend on managed entities and their
+     * snapshots before it flushes and evicts the oldest ones.
+     *
+     * @return the budget, or 0 for no limit
+     */
+    long getMaxManagedBytes() {
+        return maxManagedBytes;
+    }
+
+    SessionSettings setMaxManagedBytes(long maxManagedBytes) {
+        if (maxManagedBytes < 0) {
+            throw new IllegalArgumentException("Max managed bytes must be non-negative");
+        }
+        this.maxManagedBytes = maxManagedBytes;
+        return this;
+    }
+
+    /**
+     * Whether sessions check hand-written {@code SelfDirtyTracking} entities
+     * against a snapshot on flush and fail on changes their tracker missed.
+     *
+     * @return true in strict mode
+     */
+    boolean isVerifyDirtyTracking() {
+        return verifyDirtyTracking;
+    }
+
+    SessionSettings setVerifyDirtyTracking(boolean verifyDirtyTracking) {
+        this.verifyDirtyTracking = verifyDirtyTracking;
+        return this;
+    }
+
+    int getQueryCacheMaxEntries() {
+        return queryCacheMaxEntries;
+    }
+
+    SessionSettings setQueryCacheMaxEntries(int queryCacheMaxEntries) {
+        if (queryCacheMaxEntries < 1) {
+            throw new IllegalArgumentException("Query cache must hold at least one entry");
+        }
+        this.queryCacheMaxEntries = queryCacheMaxEntries;
+        return this;
+    }
+
+    long getQueryCacheTtlSeconds() {
+        return queryCacheTtlSeconds;
+    }
+
+    SessionSettings setQueryCacheTtlSeconds(long queryCacheTtlSeconds) {
+        if (queryCacheTtlSeconds < 0) {
+            throw new IllegalArgumentException("Query cache time to live must be non-negative");
+        }
+        this.queryCacheTtlSeconds = queryCacheTtlSeconds;
+        return this;
+    }
+
+    /**
+     * File the second-level cache is saved to and restored from.
+     *
+     * @return the path, or null if snapshots are disabled
+     */
+    Path getCacheSnapshotFile() {
+        return cacheSnapshotFile;
+    }
+
+    SessionSettings setCacheSnapshotFile(Path cacheSnapshotFile) {
+        this.cacheSnapshotFile = cacheSnapshotFile;
+        return this;
+    }
+
+    long getCacheSnapshotIntervalSeconds() {
+        return cacheSnapshotIntervalSeconds;
+    }
+
+    SessionSettings setCacheSnapshotIntervalSeconds(long cacheSnapshotIntervalSeconds) {
+        if (cacheSnapshotIntervalSeconds < 0) {
+            throw new IllegalArgumentException("Cache snapshot interval must be non-negative");
+        }
+        this.cacheSnapshotIntervalSeconds = cacheSnapshotIntervalSeconds;
+        return this;
+    }
+
+    boolean isCacheSingleFlight() {
+        return cacheSingleFlight;
+    }
+
+    SessionSettings setCacheSingleFlight(boolean cacheSingleFlight) {
+        this.cacheSingleFlight = cacheSingleFlight;
+        return this;
+    }
+
+    long getCacheNegativeTtlMillis() {
+        return cacheNegativeTtlMillis;
+    }
+
+    SessionSettings setCacheNegativeTtlMillis(long cacheNegativeTtlMillis) {
+        if (cacheNegativeTtlMillis < 0) {
+            throw new IllegalArgumentException("Negative cache time to live must be non-negative");
+        }
+        this.cacheNegativeTtlMillis = cacheNegativeTtlMillis;
+        return this;
+    }
+
+    InvalidationTransport getInvalidationTransport() {
+        return invalidationTransport;
+    }
+
+    SessionSettings setInvalidationTransport(InvalidationTransport invalidationTransport) {
+        this.invalidationTransport = invalidationTransport;
+        return this;
+    }
+
+    long getInvalidationLingerMillis() {
+        return invalidationLingerMillis;
+    }
+
+    SessionSettings setInvalidationLingerMillis(long invalidationLingerMillis) {
+        if (invalidationLingerMillis < 0) {
+            throw new IllegalArgumentException("Invalidation linger time must be non-negative");
+        }
+        this.invalidationLingerMillis = invalidationLingerMillis;
+        return this;
+    }
+
+    Map<String, NamedQuery<?>> getNamedQueries() {
+        return namedQueries;
+    }
+
+    <T> SessionSettings addNamedQuery(String name, Class<T> resultClass, Consumer<Query<T>> builder) {
+        if (namedQueries.putIfAbsent(name, new NamedQuery<>(resultClass, builder)) != null) {
+            throw new IllegalArgumentException("Duplicate named query: " + name);
+        }
+        return this;
+    }
+}
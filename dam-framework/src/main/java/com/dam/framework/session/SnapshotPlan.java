@@ -0,0 +1,226 @@
+package com.dam.framework.session;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.dam.framework.exception.DAMException;
+import com.dam.framework.mapping.ColumnMetadata;
+import com.dam.framework.mapping.EntityMetadata;
+
+/**
+ * Precomputed layout for capturing and diffing snapshots of one entity class.
+ * <p>
+ * Built once per entity class by the {@link SessionFactoryImpl}. It decides,
+ * for every column, which slot of an {@link EntitySnapshot} holds the value,
+ * how values are compared and whether large values are kept as a hash only.
+ * Plans are immutable and shared between sessions.
+ */
+final class SnapshotPlan {
+
+    private final ColumnMetadata[] columns;
+    private final ColumnComparator[] comparators;
+    // index into EntitySnapshot.primitives, or -1 when the column is a reference
+    private final int[] primitiveSlots;
+    // index into EntitySnapshot.values, or -1 when the column is a primitive
+    private final int[] valueSlots;
+    private final boolean[] hashable;
+    private final int primitiveCount;
+    private final int valueCount;
+    private final int hashThreshold;
+    // field name -> column position, for self-tracking entities
+    private final Map<String, Integer> fieldIndexes;
+
+    SnapshotPlan(EntityMetadata metadata, int hashThreshold) {
+        List<ColumnMetadata> cols = metadata.getColumns();
+        this.columns = cols.toArray(new ColumnMetadata[0]);
+        this.comparators = new ColumnComparator[columns.length];
+        this.primitiveSlots = new int[columns.length];
+        this.valueSlots = new int[columns.length];
+        this.hashable = new boolean[columns.length];
+        this.hashThreshold = hashThreshold;
+
+        int primitives = 0;
+        int values = 0;
+        for (int i = 0; i < columns.length; i++) {
+            Class<?> type = columns[i].field().getType();
+            comparators[i] = ColumnComparator.forType(type);
+            if (type.isPrimitive()) {
+                primitiveSlots[i] = primitives++;
+                valueSlots[i] = -1;
+            } else {
+                primitiveSlots[i] = -1;
+                valueSlots[i] = values++;
+                hashable[i] = hashThreshold > 0
+                        && (type == String.class || type == byte[].class || type == char[].class);
+            }
+        }
+        this.primitiveCount = primitives;
+        this.valueCount = values;
+
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < columns.length; i++) {
+            indexes.put(columns[i].field().getName(), i);
+        }
+        this.fieldIndexes = Map.copyOf(indexes);
+    }
+
+    /**
+     * Field name to column position, shared with the dirty trackers of
+     * self-tracking entities.
+     *
+     * @return an immutable map
+     */
+    Map<String, Integer> getFieldIndexes() {
+        return fieldIndexes;
+    }
+
+    /**
+     * Resolve column positions reported by a dirty tracker.
+     *
+     * @param positions the set bits are column positions
+     * @return the matching columns, in metadata order
+     */
+    List<ColumnMetadata> columnsAt(BitSet positions) {
+        List<ColumnMetadata> result = new ArrayList<>(positions.cardinality());
+        for (int i = positions.nextSetBit(0); i >= 0 && i < columns.length; i = positions.nextSetBit(i + 1)) {
+            result.add(columns[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Capture the current column values of an entity.
+     *
+     * @param entity the managed entity
+     * @return a new snapshot
+     */
+    EntitySnapshot capture(Object entity) {
+        long[] prims = primitiveCount == 0 ? null : new long[primitiveCount];
+        Object[] vals = new Object[valueCount];
+
+        for (int i = 0; i < columns.length; i++) {
+            Field field = columns[i].field();
+            if (primitiveSlots[i] >= 0) {
+                prims[primitiveSlots[i]] = readPrimitive(entity, field);
+            } else {
+                Object value = readValue(entity, field);
+                if (hashable[i] && value != null && lengthOf(value) >= hashThreshold) {
+                    vals[valueSlots[i]] = EntitySnapshot.HashedValue.of(value);
+                } else {
+                    vals[valueSlots[i]] = comparators[i].copy(value);
+                }
+            }
+        }
+        return new EntitySnapshot(prims, vals);
+    }
+
+    /**
+     * Compare an entity against its snapshot.
+     *
+     * @param entity   the managed entity
+     * @param snapshot the snapshot taken at load or last flush
+     * @return the columns whose value differs, in metadata order
+     */
+    List<ColumnMetadata> changedColumns(Object entity, EntitySnapshot snapshot) {
+        List<ColumnMetadata> changed = new ArrayList<>();
+        for (int i = 0; i < columns.length; i++) {
+            if (isChanged(i, entity, snapshot)) {
+                changed.add(columns[i]);
+            }
+        }
+        return changed;
+    }
+
+    private boolean isChanged(int column, Object entity, EntitySnapshot snapshot) {
+        Field field = columns[column].field();
+        if (primitiveSlots[column] >= 0) {
+            return snapshot.primitives[primitiveSlots[column]] != readPrimitive(entity, field);
+        }
+
+        Object stored = snapshot.values[valueSlots[column]];
+        Object current = readValue(entity, field);
+        if (stored instanceof EntitySnapshot.HashedValue hashed) {
+            return !hashed.matches(current);
+        }
+        return !comparators[column].same(stored, current);
+    }
+
+    /**
+     * Roughly estimate the heap held by an entity's column values.
+     * <p>
+     * Used for the session memory budget only; it counts object headers and
+     * payloads of common value types, not exact JVM layouts.
+     *
+     * @param entity the entity
+     * @return estimated bytes
+     */
+    long estimateSize(Object entity) {
+        long size = 16 + 8L * primitiveCount;
+        for (int i = 0; i < columns.length; i++) {
+            if (valueSlots[i] >= 0) {
+                size += 8 + estimateValue(readValue(entity, columns[i].field()));
+            }
+        }
+        return size;
+    }
+
+    private static long estimateValue(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String s) {
+            return 40 + s.length();
+        }
+        if (value instanceof byte[] bytes) {
+            return 16 + bytes.length;
+        }
+        if (value instanceof char[] chars) {
+            return 16 + 2L * chars.length;
+        }
+        return 24;
+    }
+
+    private static int lengthOf(Object value) {
+        if (value instanceof byte[] bytes) {
+            return bytes.length;
+        }
+        if (value instanceof char[] chars) {
+            return chars.length;
+        }
+        return ((String) value).length();
+    }
+
+    private static Object readValue(Object entity, Field field) {
+        try {
+            return field.get(entity);
+        } catch (IllegalAccessException e) {
+            throw new DAMException("Cannot get value of field " + field.getName(), e);
+        }
+    }
+
+    /**
+     * Read a primitive field without boxing, widened to its raw long bits.
+     */
+    private static long readPrimitive(Object entity, Field field) {
+        try {
+            Class<?> type = field.getType();
+            if (type == boolean.class) {
+                return field.getBoolean(entity) ? 1L : 0L;
+            }
+            if (type == double.class) {
+                return Double.doubleToLongBits(field.getDouble(entity));
+            }
+            if (type == float.class) {
+                return Float.floatToIntBits(field.getFloat(entity));
+            }
+            // byte, short, char, int and long all widen to long
+            return field.getLong(entity);
+        } catch (IllegalAccessException e) {
+            throw new DAMException("Cannot get value of field " + field.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.dam.framework.session;
+
+import com.dam.framework.query.NativeQuery;
+import com.dam.framework.query.Query;
+import com.dam.framework.transaction.Transaction;
+
+/**
+ * A command-oriented API for bulk and streaming workloads.
+ * <p>
+ * Unlike {@link Session}, a StatelessSession keeps no L1 cache, takes no
+ * snapshots and does no dirty checking: every call maps directly to a SQL
+ * statement and every loaded entity is detached. Memory use therefore stays
+ * flat no matter how many rows pass through.
+ * <p>
+ * Writes are JDBC-batched by default (see
+ * {@link Configuration#setJdbcBatchSize(int)}). Consecutive operations that
+ * share a statement are sent together; the pending batch is executed before
+ * any read, before a different statement, on {@link #flush()}, on commit and
+ * on close. Inserts into IDENTITY tables run immediately because the generated
+ * key must be read back.
+ *
+ * <pre>
+ * {@code
+ * try (StatelessSession session = sessionFactory.openStatelessSession()) {
+ *     Transaction tx = session.beginTransaction();
+ *     for (Row row : source) {
+ *         session.insert(toEntity(row));
+ *     }
+ *     tx.commit();
+ * }
+ * }
+ * </pre>
+ *
+ * <p>
+ * StatelessSessions are not thread-safe.
+ * </p>
+ *
+ * @see SessionFactory#openStatelessSession()
+ */
+public interface StatelessSession extends AutoCloseable {
+
+    /**
+     * Insert a new row for the entity, generating its ID if configured.
+     *
+     * @param entity the entity to insert
+     */
+    <T> void insert(T entity);
+
+    /**
+     * Update every column of the row identified by the entity's ID.
+     *
+     * @param entity the entity to write
+     * @throws com.dam.framework.exception.DAMException if the entity is
+     *                                                  {@link com.dam.framework.annotations.Immutable}
+     */
+    <T> void update(T entity);
+
+    /**
+     * Delete the row identified by the entity's ID.
+     *
+     * @param entity the entity to delete
+     */
+    void delete(Object entity);
+
+    /**
+     * Load a detached entity by ID.
+     *
+     * @param entityClass the entity class
+     * @param id          the primary key
+     * @return the entity, or null if no row exists
+     */
+    <T> T get(Class<T> entityClass, Object id);
+
+    /**
+     * Create a query whose results are always detached.
+     *
+     * @param resultClass the entity class
+     * @return a new Query
+     */
+    <T> Query<T> createQuery(Class<T> resultClass);
+
+    /**
+     * Create a query from SQL whose results are always detached.
+     *
+     * @param sql         the SQL, with ? placeholders
+     * @param resultClass an entity, record, DTO or basic type such as Long
+     * @return a new NativeQuery
+     */
+    <T> NativeQuery<T> createNativeQuery(String sql, Class<T> resultClass);
+
+    /**
+     * Begin a transaction. Pending batched writes are executed before commit.
+     *
+     * @return the active transaction
+     */
+    Transaction beginTransaction();
+
+    /**
+     * Execute pending batched writes now.
+     */
+    void flush();
+}
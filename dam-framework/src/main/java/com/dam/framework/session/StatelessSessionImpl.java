@@ -0,0 +1,340 @@
+package com.dam.framework.session;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.dam.framework.dialect.Dialect;
+import com.dam.framework.exception.DAMException;
+import com.dam.framework.mapping.ColumnMetadata;
+import com.dam.framework.mapping.EntityKey;
+import com.dam.framework.mapping.EntityMetadata;
+import com.dam.framework.query.BulkWriteContext;
+import com.dam.framework.query.NativeQuery;
+import com.dam.framework.query.NativeQueryImpl;
+import com.dam.framework.query.Query;
+import com.dam.framework.query.QueryImpl;
+import com.dam.framework.sql.SQLGenerator;
+import com.dam.framework.transaction.Synchronization;
+import com.dam.framework.transaction.Transaction;
+import com.dam.framework.transaction.TransactionImpl;
+import com.dam.framework.util.ReflectionUtils;
+
+class StatelessSessionImpl implements StatelessSession, BulkWriteContext {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatelessSessionImpl.class);
+
+    private final InternalSessionFactory factory;
+    private final Connection connection;
+    private final SQLGenerator sqlGenerator;
+    private final Dialect dialect;
+    private final boolean showSQL;
+    private final int batchSize;
+    private Transaction currentTransaction;
+
+    // The single open batch; a different statement executes it first so that
+    // writes reach the database in the order they were issued
+    private String batchSql;
+    private PreparedStatement batchStatement;
+    private int batchCount;
+    private boolean batchRequiresRow;
+    // rows written by the open batch, invalidated in the caches once it runs
+    private final List<EntityKey> batchWrites = new ArrayList<>();
+    private final CacheInvalidations cacheInvalidations;
+
+    StatelessSessionImpl(InternalSessionFactory factory, Connection connection, SQLGenerator sqlGenerator,
+            Dialect dialect, boolean showSQL, int batchSize) {
+        this.factory = factory;
+        this.connection = connection;
+        this.sqlGenerator = sqlGenerator;
+        this.dialect = dialect;
+        this.showSQL = showSQL;
+        this.batchSize = batchSize;
+        this.cacheInvalidations = new CacheInvalidations(factory);
+    }
+
+    @Override
+    public <T> void insert(T entity) {
+        EntityMetadata metadata = getMetadata(entity);
+        ColumnMetadata idColumn = metadata.getIdColumn();
+        Object id = EntityBinder.prepareId(entity, metadata, connection, dialect);
+        String sql = sqlGenerator.generateInsert(metadata);
+
+        try {
+            if (id == null && EntityBinder.usesIdentity(idColumn)) {
+                // The generated key is needed right away, so this insert cannot wait in a batch
+                executeBatch();
+                StreamingGuard.check(connection, currentTransaction, "insert");
+                logSql(sql);
+                try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    EntityBinder.bindInsert(stmt, entity, metadata, dialect);
+                    if (stmt.executeUpdate() == 0) {
+                        throw new DAMException("INSERT failed, no rows affected");
+                    }
+                    id = EntityBinder.readGeneratedId(stmt, entity, idColumn);
+                }
+                cacheInvalidations.invalidate(entity.getClass(), id, currentTransaction);
+                return;
+            }
+
+            EntityBinder.bindInsert(batchFor(sql, true), entity, metadata, dialect);
+            batchWrites.add(new EntityKey(entity.getClass(), id));
+            addToBatch();
+        } catch (SQLException e) {
+            throw new DAMException("Failed to insert entity: " + entity.getClass().getSimpleName(), e);
+        }
+    }
+
+    @Override
+    public <T> void update(T entity) {
+        EntityMetadata metadata = getMetadata(entity);
+        if (metadata.isImmutable()) {
+            throw new DAMException("Cannot update immutable entity: " + entity.getClass().getSimpleName());
+        }
+        requireId(entity, metadata, "update");
+
+        try {
+            EntityBinder.bindUpdate(batchFor(sqlGenerator.generateUpdate(metadata), true), entity, metadata,
+                    dialect);
+            batchWrites.add(new EntityKey(entity.getClass(), ReflectionUtils.getFieldValue(entity,
+                    metadata.getIdColumn().field())));
+            addToBatch();
+        } catch (SQLException e) {
+            throw new DAMException("Failed to update entity: " + entity.getClass().getSimpleName(), e);
+        }
+    }
+
+    @Override
+    public void delete(Object entity) {
+        EntityMetadata metadata = getMetadata(entity);
+        Object id = requireId(entity, metadata, "delete");
+
+        try {
+            // Deleting a missing row is not an error, same as Session.remove()
+            PreparedStatement stmt = batchFor(sqlGenerator.generateDelete(metadata), false);
+            dialect.setParameter(stmt, 1, id, metadata.getIdColumn().javaType());
+            batchWrites.add(new EntityKey(entity.getClass(), id));
+            addToBatch();
+        } catch (SQLException e) {
+            throw new DAMException("Failed to delete entity: " + entity.getClass().getSimpleName(), e);
+        }
+    }
+
+    @Override
+    public <T> T get(Class<T> entityClass, Object id) {
+        EntityMetadata metadata = factory.getMetadata(entityClass);
+        if (metadata == null) {
+            throw new DAMException("Entity class not registered: " + entityClass.getName());
+        }
+        flush();
+
+        String sql = sqlGenerator.generateSelectById(metadata);
+        logSql(sql);
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            dialect.setParameter(stmt, 1, id, metadata.getIdColumn().javaType());
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? EntityBinder.mapRow(rs, metadata) : null;
+            }
+        } catch (SQLException e) {
+            throw new DAMException("Failed to get entity: " + entityClass.getSimpleName(), e);
+        }
+    }
+
+    @Override
+    public <T> Query<T> createQuery(Class<T> resultClass) {
+        // Pending writes must be visible when the query runs, including those queued after this call
+        return new QueryImpl<>(resultClass, connection, dialect, factory.getMetadata(resultClass), null,
+                factory.getCache()).bulkWriteContext(this).beforeExecute(this::flush)
+                .fetchSize(factory.getFetchSize());
+    }
+
+    @Override
+    public <T> NativeQuery<T> createNativeQuery(String sql, Class<T> resultClass) {
+        return new NativeQueryImpl<>(resultClass, sql, connection, dialect, factory.getMetadata(resultClass), null)
+                .beforeExecute(this::flush).fetchSize(factory.getFetchSize());
+    }
+
+    @Override
+    public Transaction beginTransaction() {
+        if (currentTransaction != null && currentTransaction.isActive()) {
+            throw new IllegalStateException(
+                    "Transaction already active. " +
+                            "Commit or rollback current transaction before starting a new one.");
+        }
+        StreamingGuard.check(connection, currentTransaction, "begin a transaction");
+        flush();
+
+        currentTransaction = new BatchingTransaction(new TransactionImpl(connection));
+        currentTransaction.begin();
+        return currentTransaction;
+    }
+
+    @Override
+    public void beforeBulkWrite(EntityMetadata metadata) {
+        // Batched writes run before the statement, as they would have without batching
+        flush();
+    }
+
+    @Override
+    public void afterBulkWrite(EntityMetadata metadata) {
+        cacheInvalidations.invalidateAll(metadata.getEntityClass(), currentTransaction);
+    }
+
+    @Override
+    public void flush() {
+        try {
+            executeBatch();
+        } catch (SQLException e) {
+            throw new DAMException("Failed to execute batched statements", e);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        try {
+            if (currentTransaction != null && currentTransaction.isActive()) {
+                logger.warn(
+                        "StatelessSession closing with active transaction. " +
+                                "Auto-rolling back uncommitted changes. " +
+                                "Always explicitly commit or rollback transactions!");
+                currentTransaction.rollback();
+            } else {
+                flush();
+            }
+        } finally {
+            discardBatch();
+            factory.sessionClosed(this);
+        }
+    }
+
+    private PreparedStatement batchFor(String sql, boolean requiresRow) throws SQLException {
+        if (batchStatement != null && !sql.equals(batchSql)) {
+            executeBatch();
+        }
+        if (batchStatement == null) {
+            logSql(sql);
+            batchStatement = connection.prepareStatement(sql);
+            batchSql = sql;
+            batchRequiresRow = requiresRow;
+        }
+        return batchStatement;
+    }
+
+    private void addToBatch() throws SQLException {
+        batchStatement.addBatch();
+        if (++batchCount >= batchSize) {
+            executeBatch();
+        }
+    }
+
+    private void executeBatch() throws SQLException {
+        if (batchStatement == null) {
+            return;
+        }
+        StreamingGuard.check(connection, currentTransaction, "execute batched writes");
+        try {
+            int[] counts = batchStatement.executeBatch();
+            for (EntityKey key : batchWrites) {
+                cacheInvalidations.invalidate(key.entityClass(), key.id(), currentTransaction);
+            }
+            if (batchRequiresRow) {
+                for (int count : counts) {
+                    // SUCCESS_NO_INFO (-2) is fine, only an explicit 0 means a missing row
+                    if (count == 0) {
+                        throw new DAMException("Batched statement affected no rows, " +
+                                "entity might have been deleted: " + batchSql);
+                    }
+                }
+            }
+        } finally {
+            discardBatch();
+        }
+    }
+
+    private void discardBatch() {
+        if (batchStatement != null) {
+            try {
+                batchStatement.close();
+            } catch (SQLException e) {
+                logger.warn("Failed to close batch statement", e);
+            }
+        }
+        batchStatement = null;
+        batchSql = null;
+        batchCount = 0;
+        batchWrites.clear();
+    }
+
+    private EntityMetadata getMetadata(Object entity) {
+        EntityMetadata metadata = factory.getMetadata(entity.getClass());
+        if (metadata == null) {
+            throw new DAMException("Entity class not registered: " + entity.getClass().getName());
+        }
+        return metadata;
+    }
+
+    private Object requireId(Object entity, EntityMetadata metadata, String operation) {
+        Object id = ReflectionUtils.getFieldValue(entity, metadata.getIdColumn().field());
+        if (id == null) {
+            throw new DAMException("Cannot " + operation + " entity with null ID");
+        }
+        return id;
+    }
+
+    private void logSql(String sql) {
+        if (showSQL) {
+            logger.debug("StatelessSession\nSQL: {}", sql);
+        }
+    }
+
+    /**
+     * Executes pending batched writes before commit and drops them on rollback.
+     */
+    private class BatchingTransaction implements Transaction {
+
+        private final Transaction delegate;
+
+        BatchingTransaction(Transaction delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void begin() {
+            delegate.begin();
+        }
+
+        @Override
+        public void commit() {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                delegate.rollback();
+                throw e;
+            }
+            delegate.commit();
+        }
+
+        @Override
+        public void rollback() {
+            discardBatch();
+            delegate.rollback();
+        }
+
+        @Override
+        public boolean isActive() {
+            return delegate.isActive();
+        }
+
+        @Override
+        public void registerSynchronization(Synchronization synchronization) {
+            delegate.registerSynchronization(synchronization);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.dam.framework.session;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import com.dam.framework.exception.DAMException;
+import com.dam.framework.transaction.Transaction;
+
+/**
+ * Detects the read transaction some dialects open for a streamed query
+ * outside a session transaction (see
+ * {@link com.dam.framework.dialect.Dialect#prepareStreaming}).
+ * <p>
+ * That transaction is rolled back when the stream closes, so writes or a new
+ * transaction started while it is open would be silently lost.
+ */
+final class StreamingGuard {
+
+    private StreamingGuard() {
+    }
+
+    /**
+     * Fail if a streamed query currently holds the connection in its own read
+     * transaction.
+     *
+     * @param connection  the session's connection
+     * @param transaction the session's current transaction, may be null
+     * @param operation   what was attempted, for the error message
+     * @throws DAMException if a streaming transaction is open
+     */
+    static void check(Connection connection, Transaction transaction, String operation) {
+        if (transaction != null && transaction.isActive()) {
+            return;
+        }
+        boolean autoCommit;
+        try {
+            autoCommit = connection.getAutoCommit();
+        } catch (SQLException e) {
+            throw new DAMException("Could not read the connection's transaction state", e);
+        }
+        if (!autoCommit) {
+            throw new DAMException("Cannot " + operation + " while a streamed query holds the connection "
+                    + "in a read transaction; close the stream first");
+        }
+    }
+}
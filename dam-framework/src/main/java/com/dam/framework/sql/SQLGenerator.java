@@ -45,6 +45,42 @@ public interface SQLGenerator {
      */
     String generateSelectById(EntityMetadata metadata);
 
+    /**
+     * Generate a SELECT statement matching several primary keys.
+     * 
+     * @param metadata the entity metadata
+     * @param idCount  number of ID placeholders in the IN list
+     * @return the SELECT SQL statement with an {@code IN (?, ...)} clause
+     */
+    String generateSelectByIds(EntityMetadata metadata, int idCount);
+
+    /**
+     * Generate a SELECT statement by business key.
+     * 
+     * @param metadata the entity metadata, which must have a natural ID column
+     * @return the SELECT SQL statement with a WHERE clause on the natural ID
+     */
+    String generateSelectByNaturalId(EntityMetadata metadata);
+
+    /**
+     * Generate a SELECT of the highest value of one column.
+     * 
+     * @param metadata   the entity metadata
+     * @param columnName the column, e.g. a modification timestamp
+     * @return the {@code SELECT MAX(column)} SQL statement
+     */
+    String generateSelectMax(EntityMetadata metadata, String columnName);
+
+    /**
+     * Generate a SELECT of the primary keys of rows whose column is at least
+     * a given value.
+     * 
+     * @param metadata   the entity metadata
+     * @param columnName the column, e.g. a modification timestamp
+     * @return the SELECT SQL statement with a {@code column >= ?} clause
+     */
+    String generateSelectIdsSince(EntityMetadata metadata, String columnName);
+
     /**
      * Generate an UPDATE statement for the entity.
      * 
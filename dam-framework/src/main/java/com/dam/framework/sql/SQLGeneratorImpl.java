@@ -69,6 +69,48 @@ public final class SQLGeneratorImpl implements SQLGenerator {
         return applyDiscriminatorFilter(metadata, sql, true);
     }
 
+    @Override
+    public String generateSelectByIds(EntityMetadata metadata, int idCount) {
+        if (idCount < 1) {
+            throw new DAMException("At least one ID is required");
+        }
+        // SELECT * FROM schema.table WHERE id_column IN (?, ?, ...)
+        String sql = String.format("SELECT * FROM %s WHERE %s IN (%s)",
+                getFullTableName(metadata),
+                metadata.getIdColumn().columnName(),
+                String.join(", ", Collections.nCopies(idCount, "?")));
+        return applyDiscriminatorFilter(metadata, sql, true);
+    }
+
+    @Override
+    public String generateSelectByNaturalId(EntityMetadata metadata) {
+        if (metadata.getNaturalIdColumn() == null) {
+            throw new DAMException("Entity " + metadata.getEntityClass().getSimpleName() + " has no @NaturalId");
+        }
+        // SELECT * FROM schema.table WHERE natural_id_column = ?
+        String sql = String.format("SELECT * FROM %s WHERE %s = ?",
+                getFullTableName(metadata),
+                metadata.getNaturalIdColumn().columnName());
+        return applyDiscriminatorFilter(metadata, sql, true);
+    }
+
+    @Override
+    public String generateSelectMax(EntityMetadata metadata, String columnName) {
+        // SELECT MAX(column) FROM schema.table
+        String sql = String.format("SELECT MAX(%s) FROM %s", columnName, getFullTableName(metadata));
+        return applyDiscriminatorFilter(metadata, sql, false);
+    }
+
+    @Override
+    public String generateSelectIdsSince(EntityMetadata metadata, String columnName) {
+        // SELECT id_column FROM schema.table WHERE column >= ?
+        String sql = String.format("SELECT %s FROM %s WHERE %s >= ?",
+                metadata.getIdColumn().columnName(),
+                getFullTableName(metadata),
+                columnName);
+        return applyDiscriminatorFilter(metadata, sql, true);
+    }
+
     @Override
     public String generateUpdate(EntityMetadata metadata) {
         // UPDATE schema.table SET col1 = ?, col2 = ? WHERE id_column = ? [AND
@@ -0,0 +1,92 @@
+package com.dam.framework.tracking;
+
+import java.util.BitSet;
+import java.util.Map;
+
+/**
+ * Records which mapped fields of one entity instance were written.
+ * <p>
+ * Bits are indexed by column position in the entity metadata. The tracker is
+ * inert until a Session binds it; writes to a new or detached entity are
+ * ignored because there is nothing to synchronize them with.
+ * <p>
+ * <b>Thread Safety:</b> NOT thread-safe, like the Session that owns it.
+ *
+ * @see SelfDirtyTracking
+ */
+public final class DirtyTracker {
+
+    private final BitSet dirtyColumns = new BitSet();
+    private Map<String, Integer> columnIndexes;
+    private Runnable onFirstChange;
+
+    /**
+     * Record a write to the given field.
+     *
+     * @param fieldName the Java field name (not the column name)
+     */
+    public void markDirty(String fieldName) {
+        if (columnIndexes == null) {
+            return;
+        }
+        Integer index = columnIndexes.get(fieldName);
+        if (index == null) {
+            return; // not a mapped field
+        }
+        boolean wasClean = dirtyColumns.isEmpty();
+        dirtyColumns.set(index);
+        if (wasClean && onFirstChange != null) {
+            onFirstChange.run();
+        }
+    }
+
+    /**
+     * Check whether any mapped field was written since the last synchronization.
+     *
+     * @return true if there are pending changes
+     */
+    public boolean isDirty() {
+        return !dirtyColumns.isEmpty();
+    }
+
+    /**
+     * Get the positions of the changed columns.
+     *
+     * @return a copy of the dirty column bitset
+     */
+    public BitSet getDirtyColumns() {
+        return (BitSet) dirtyColumns.clone();
+    }
+
+    /**
+     * Forget recorded changes, typically after they have been flushed.
+     */
+    public void clear() {
+        dirtyColumns.clear();
+    }
+
+    /**
+     * Start tracking on behalf of a Session.
+     * <p>
+     * Framework-internal: called when the entity becomes managed.
+     *
+     * @param columnIndexes field name to column position
+     * @param onFirstChange invoked when the tracker goes from clean to dirty
+     */
+    public void bind(Map<String, Integer> columnIndexes, Runnable onFirstChange) {
+        this.columnIndexes = columnIndexes;
+        this.onFirstChange = onFirstChange;
+        dirtyColumns.clear();
+    }
+
+    /**
+     * Stop tracking, typically when the entity is detached.
+     * <p>
+     * Framework-internal: releases the reference to the owning Session.
+     */
+    public void unbind() {
+        this.columnIndexes = null;
+        this.onFirstChange = null;
+        dirtyColumns.clear();
+    }
+}
@@ -0,0 +1,60 @@
+package com.dam.framework.tracking;
+
+/**
+ * Implemented by entities that record their own field-level changes.
+ * <p>
+ * A Session does not keep a snapshot of such entities. Instead it binds the
+ * entity's {@link DirtyTracker} when the entity becomes managed, and
+ * {@code flush()} only visits entities whose tracker reports changes, writing
+ * exactly the columns that were marked.
+ * <p>
+ * This is the contract a build-time or load-time enhancer targets; it can also
+ * be implemented by hand by calling {@link DirtyTracker#markDirty(String)} from
+ * every setter:
+ *
+ * <pre>
+ * {@code
+ * @Entity
+ * public class Product implements SelfDirtyTracking {
+ *     private final transient DirtyTracker dirtyTracker = new DirtyTracker();
+ *
+ *     @Column(name = "price")
+ *     private Double price;
+ *
+ *     public void setPrice(Double price) {
+ *         this.price = price;
+ *         dirtyTracker.markDirty("price");
+ *     }
+ *
+ *     @Override
+ *     public DirtyTracker getDirtyTracker() {
+ *         return dirtyTracker;
+ *     }
+ * }
+ * }
+ * </pre>
+ *
+ * No enhancer ships yet, so every implementation is hand-written. Field writes
+ * that bypass the setters (including reflection) are not seen, so every mapped
+ * field must be changed through a tracking method; a missed
+ * {@code markDirty} call silently loses that write.
+ * <p>
+ * To catch such mistakes, enable
+ * {@link com.dam.framework.session.Configuration#setVerifyDirtyTracking(boolean)
+ * strict verification} ({@code dam.tracking.verify=true}) in tests and
+ * development. The session then also snapshots self-tracking entities, and
+ * {@code flush()} throws a {@code DAMException} naming the field when a column
+ * changed without being marked. Strict mode costs the snapshot the tracker
+ * exists to save, so it is off by default.
+ *
+ * @see DirtyTracker
+ */
+public interface SelfDirtyTracking {
+
+    /**
+     * Get the tracker owned by this entity instance.
+     *
+     * @return the tracker, never null
+     */
+    DirtyTracker getDirtyTracker();
+}
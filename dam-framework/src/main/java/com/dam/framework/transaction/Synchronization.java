@@ -0,0 +1,24 @@
+package com.dam.framework.transaction;
+
+/**
+ * Callback notified when a {@link Transaction} completes.
+ * <p>
+ * Used by the framework to defer work that must only happen once the outcome
+ * of a transaction is known, such as invalidating second-level cache entries
+ * after the changed rows are committed.
+ *
+ * @see Transaction#registerSynchronization(Synchronization)
+ */
+@FunctionalInterface
+public interface Synchronization {
+
+    /**
+     * Called after the transaction committed or rolled back.
+     * <p>
+     * Exceptions thrown here are logged and do not affect the transaction
+     * outcome.
+     *
+     * @param committed true if the transaction committed
+     */
+    void afterCompletion(boolean committed);
+}
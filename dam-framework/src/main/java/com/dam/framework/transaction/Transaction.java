@@ -44,4 +44,12 @@ public interface Transaction {
      * @return true if active, false otherwise
      */
     boolean isActive();
+
+    /**
+     * Register a callback to run when this transaction commits or rolls back.
+     * 
+     * @param synchronization the callback
+     * @throws IllegalStateException if the transaction is not active
+     */
+    void registerSynchronization(Synchronization synchronization);
 }
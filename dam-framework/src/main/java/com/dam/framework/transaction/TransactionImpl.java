@@ -2,6 +2,8 @@ package com.dam.framework.transaction;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,6 +36,7 @@ public class TransactionImpl implements Transaction {
     private final Connection connection;
     private boolean active;
     private boolean rollbackOnly;
+    private final List<Synchronization> synchronizations = new ArrayList<>();
 
     /**
      * Create a new Transaction for the given connection.
@@ -85,8 +88,10 @@ public class TransactionImpl implements Transaction {
                 logger.error("Failed to rollback after commit failure", rollbackEx);
             }
             active = false;
+            afterCompletion(false);
             throw new DAMException("Failed to commit transaction", e);
         }
+        afterCompletion(true);
     }
 
     @Override
@@ -106,6 +111,8 @@ public class TransactionImpl implements Transaction {
             // Still mark as inactive even if rollback fails
             active = false;
             throw new DAMException("Failed to rollback transaction", e);
+        } finally {
+            afterCompletion(false);
         }
     }
 
@@ -114,6 +121,28 @@ public class TransactionImpl implements Transaction {
         return active;
     }
 
+    @Override
+    public void registerSynchronization(Synchronization synchronization) {
+        validateActive("register synchronization");
+        synchronizations.add(synchronization);
+    }
+
+    /**
+     * Notify and forget registered synchronizations. A failing callback must
+     * not hide the transaction outcome or skip the others.
+     */
+    private void afterCompletion(boolean committed) {
+        List<Synchronization> callbacks = new ArrayList<>(synchronizations);
+        synchronizations.clear();
+        for (Synchronization synchronization : callbacks) {
+            try {
+                synchronization.afterCompletion(committed);
+            } catch (RuntimeException e) {
+                logger.error("Transaction synchronization failed", e);
+            }
+        }
+    }
+
     /**
      * Mark this transaction as rollback-only.
      * <p>
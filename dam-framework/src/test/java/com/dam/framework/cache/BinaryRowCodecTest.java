@@ -0,0 +1,71 @@
+package com.dam.framework.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.UUID;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for BinaryRowCodec.
+ */
+class BinaryRowCodecTest {
+
+    enum Color {
+        RED, GREEN
+    }
+
+    @Test
+    @DisplayName("Every supported type should survive a round trip")
+    void testRoundTrip() {
+        BinaryRowCodec codec = new BinaryRowCodec(long.class, Integer.class, short.class, boolean.class,
+                byte.class, double.class, Float.class, char.class, String.class, BigDecimal.class,
+                BigInteger.class, UUID.class, LocalDate.class, LocalTime.class, LocalDateTime.class,
+                Instant.class, java.sql.Timestamp.class, java.sql.Date.class, Color.class);
+        java.sql.Timestamp timestamp = new java.sql.Timestamp(1_700_000_000_123L);
+        timestamp.setNanos(123_456_789);
+        Object[] state = { -5L, Integer.MAX_VALUE, (short) -300, true, (byte) 7, 3.25, 1.5f, 'x', "héllo",
+                new BigDecimal("-12345.678"), BigInteger.TEN.pow(30), UUID.randomUUID(),
+                LocalDate.of(1969, 7, 20), LocalTime.of(23, 59, 1, 5), LocalDateTime.of(2024, 2, 29, 12, 0, 0, 42),
+                Instant.ofEpochSecond(-10, 500), timestamp, new java.sql.Date(86_400_000L), Color.GREEN };
+
+        Object[] decoded = codec.decode(ByteBuffer.wrap(codec.encode(state)));
+        assertArrayEquals(state, decoded);
+        assertEquals(java.sql.Date.class, decoded[17].getClass());
+    }
+
+    @Test
+    @DisplayName("Null columns should only take a bit and decode as null")
+    void testNulls() {
+        BinaryRowCodec codec = new BinaryRowCodec(Long.class, String.class, byte[].class, char[].class);
+        assertEquals(1, codec.encode(new Object[4]).length);
+
+        Object[] decoded = codec.decode(ByteBuffer.wrap(codec.encode(
+                new Object[] { 1L, null, new byte[] { 1, 2 }, "ab".toCharArray() })));
+        assertEquals(1L, decoded[0]);
+        assertNull(decoded[1]);
+        assertArrayEquals(new byte[] { 1, 2 }, (byte[]) decoded[2]);
+        assertArrayEquals("ab".toCharArray(), (char[]) decoded[3]);
+    }
+
+    @Test
+    @DisplayName("Small numbers should be encoded as single-byte varints")
+    void testVarints() {
+        BinaryRowCodec codec = new BinaryRowCodec(long.class, int.class);
+        assertEquals(3, codec.encode(new Object[] { -1L, 63 }).length);
+    }
+
+    @Test
+    @DisplayName("Unsupported column types should be rejected up front")
+    void testUnsupportedType() {
+        assertThrows(IllegalArgumentException.class, () -> new BinaryRowCodec(Object.class));
+    }
+}
@@ -0,0 +1,118 @@
+package com.dam.framework.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the cache regions.
+ */
+class CacheRegionTest {
+
+    private static Object[] state(Object value) {
+        return new Object[] { value };
+    }
+
+    @Test
+    @DisplayName("LRU region should drop the least recently used entry")
+    void testLruEviction() {
+        CacheRegion region = new LruCacheRegion("lru", 2, 0);
+        region.put(1L, state("a"));
+        region.put(2L, state("b"));
+        region.get(1L);
+        region.put(3L, state("c"));
+
+        assertNotNull(region.get(1L));
+        assertNull(region.get(2L));
+        assertNotNull(region.get(3L));
+        assertEquals(2, region.size());
+        assertEquals(1, region.getStatistics().getEvictionCount());
+    }
+
+    @Test
+    @DisplayName("Expired entries should be reported as misses")
+    void testTimeToLive() throws Exception {
+        CacheRegion region = new LruCacheRegion("ttl", 10, TimeUnit.MILLISECONDS.toNanos(20));
+        region.put(1L, state("a"));
+        assertNotNull(region.get(1L));
+
+        Thread.sleep(40);
+        assertNull(region.get(1L));
+        assertEquals(0, region.size());
+
+        CacheStatistics stats = region.getStatistics();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(1, stats.getExpirationCount());
+        assertEquals(0.5, stats.getHitRatio());
+    }
+
+    @Test
+    @DisplayName("TinyLFU region should keep frequently used entries under a scan")
+    void testTinyLfuResistsScan() {
+        CacheRegion region = new TinyLfuCacheRegion("lfu", 100, 0);
+        for (long id = 0; id < 50; id++) {
+            region.put(id, state(id));
+        }
+        for (int round = 0; round < 5; round++) {
+            for (long id = 0; id < 50; id++) {
+                region.get(id);
+            }
+        }
+
+        // One-off reads of many other rows
+        for (long id = 1000; id < 2000; id++) {
+            region.get(id);
+            region.put(id, state(id));
+        }
+
+        int resident = 0;
+        for (long id = 0; id < 50; id++) {
+            if (region.get(id) != null) {
+                resident++;
+            }
+        }
+        assertTrue(resident >= 45, "hot entries were evicted: " + resident + " left");
+        assertTrue(region.size() <= 100);
+    }
+
+    @Test
+    @DisplayName("Explicit eviction should remove entries from both areas")
+    void testTinyLfuEvict() {
+        CacheRegion region = new TinyLfuCacheRegion("lfu", 10, 0);
+        region.put(1L, state("a"));
+        region.put(2L, state("b"));
+        region.evict(1L);
+        assertNull(region.get(1L));
+        region.evictAll();
+        assertEquals(0, region.size());
+    }
+
+    @Test
+    @DisplayName("Off-heap region should decode hits and drop the oldest segment when full")
+    void testOffHeapSegmentRotation() {
+        BinaryRowCodec codec = new BinaryRowCodec(Long.class, String.class);
+        // 4 segments of 16 bytes; each row takes 8 bytes (bitmap, id, length, "row-n"), so 2 per segment
+        CacheRegion region = new OffHeapCacheRegion("off", codec, 64, 4, 0);
+        for (long id = 0; id < 8; id++) {
+            region.put(id, new Object[] { id, "row-" + id });
+        }
+        assertEquals(8, region.size());
+        assertArrayEquals(new Object[] { 3L, "row-3" }, region.get(3L));
+
+        region.put(8L, new Object[] { 8L, "row-8" });
+        assertNull(region.get(0L));
+        assertNull(region.get(1L));
+        assertNotNull(region.get(2L));
+        assertEquals(7, region.size());
+        assertEquals(2, region.getStatistics().getEvictionCount());
+
+        region.evict(2L);
+        assertNull(region.get(2L));
+        region.evictAll();
+        assertEquals(0, region.size());
+    }
+}
@@ -0,0 +1,169 @@
+package com.dam.framework.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.dam.framework.annotations.Cacheable;
+import com.dam.framework.annotations.Column;
+import com.dam.framework.annotations.Entity;
+import com.dam.framework.annotations.Id;
+import com.dam.framework.annotations.Table;
+import com.dam.framework.mapping.EntityMetadata;
+
+/**
+ * Unit tests for {@link InvalidationBus}, over an in-memory transport pair.
+ */
+class InvalidationBusTest {
+
+    @Entity
+    @Table(name = "products")
+    @Cacheable(maxEntries = 1000)
+    static class Product {
+        @Id
+        @Column(name = "id")
+        private Long id;
+
+        @Column(name = "name")
+        private String name;
+    }
+
+    /**
+     * Delivers every published message to its peer, with a configurable
+     * message size limit.
+     */
+    static final class PipeTransport implements InvalidationTransport {
+        private final int maxMessageSize;
+        private final List<byte[]> sent = new ArrayList<>();
+        private PipeTransport peer;
+        private Consumer<byte[]> receiver;
+
+        PipeTransport(int maxMessageSize) {
+            this.maxMessageSize = maxMessageSize;
+        }
+
+        @Override
+        public void start(Consumer<byte[]> receiver) {
+            this.receiver = receiver;
+        }
+
+        @Override
+        public void publish(byte[] message) {
+            sent.add(message);
+            peer.receiver.accept(message);
+        }
+
+        @Override
+        public int getMaxMessageSize() {
+            return maxMessageSize;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private final Map<Class<?>, EntityMetadata> registry = Map.of(Product.class, new EntityMetadata(Product.class));
+    private final SecondLevelCache senderCache = new SecondLevelCache(registry);
+    private final SecondLevelCache receiverCache = new SecondLevelCache(registry);
+    private InvalidationBus sender;
+    private InvalidationBus receiver;
+    private PipeTransport senderTransport;
+
+    private void connect(int maxMessageSize, long lingerMillis) throws Exception {
+        senderTransport = new PipeTransport(maxMessageSize);
+        PipeTransport receiverTransport = new PipeTransport(maxMessageSize);
+        senderTransport.peer = receiverTransport;
+        receiverTransport.peer = senderTransport;
+        sender = new InvalidationBus(senderCache, registry, senderTransport, lingerMillis);
+        receiver = new InvalidationBus(receiverCache, registry, receiverTransport, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sender.close();
+        receiver.close();
+    }
+
+    private void cacheRows(int count) {
+        for (long id = 1; id <= count; id++) {
+            receiverCache.putFromLoad(Product.class, id, new Object[] { id, "p" + id },
+                    receiverCache.beginLoad(Product.class));
+        }
+    }
+
+    @Test
+    @DisplayName("Row invalidations should be coalesced, split to the transport's size and evicted remotely")
+    void testRowInvalidations() throws Exception {
+        connect(2048, 0);
+        cacheRows(300);
+        for (long id = 1; id <= 300; id++) {
+            sender.publish(Product.class, id, "products");
+            // written twice in the same batch, sent once
+            sender.publish(Product.class, id, "PRODUCTS");
+        }
+        sender.endBatch();
+
+        assertTrue(senderTransport.sent.size() > 1);
+        for (byte[] message : senderTransport.sent) {
+            assertTrue(message.length <= 2048);
+        }
+        assertEquals(0, receiverCache.getRegion(Product.class).size());
+        InvalidationStatistics stats = receiver.getStatistics();
+        assertEquals(301, stats.getInvalidationsReceived());
+        assertEquals(senderTransport.sent.size(), stats.getMessagesReceived());
+        assertEquals(0, stats.getMalformedMessages());
+    }
+
+    @Test
+    @DisplayName("Large batches of one region should collapse into a region-wide eviction")
+    void testRegionInvalidation() throws Exception {
+        connect(64 * 1024, 0);
+        cacheRows(10);
+        for (long id = 100; id < 100 + InvalidationBus.MAX_IDS_PER_REGION + 1; id++) {
+            sender.publish(Product.class, id, "products");
+        }
+        sender.flush();
+
+        assertEquals(1, senderTransport.sent.size());
+        assertEquals(2, receiver.getStatistics().getInvalidationsReceived());
+        assertEquals(0, receiverCache.getRegion(Product.class).size());
+    }
+
+    @Test
+    @DisplayName("A background sender should batch the invalidations of several transactions")
+    void testLinger() throws Exception {
+        connect(64 * 1024, 200);
+        cacheRows(3);
+        for (long id = 1; id <= 3; id++) {
+            sender.publish(Product.class, id, "products");
+            sender.endBatch();
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (receiver.getStatistics().getMessagesReceived() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, receiver.getStatistics().getMessagesReceived());
+        assertEquals(4, receiver.getStatistics().getInvalidationsReceived());
+        assertEquals(0, receiverCache.getRegion(Product.class).size());
+    }
+
+    @Test
+    @DisplayName("Malformed messages should be counted and ignored")
+    void testMalformedMessage() throws Exception {
+        connect(64 * 1024, 0);
+        cacheRows(1);
+        senderTransport.peer.receiver.accept(new byte[] { 1, 2, 3 });
+
+        assertEquals(1, receiver.getStatistics().getMalformedMessages());
+        assertEquals(1, receiverCache.getRegion(Product.class).size());
+    }
+}
@@ -0,0 +1,119 @@
+package com.dam.framework.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link SingleFlight}.
+ */
+class SingleFlightTest {
+
+    private static final int WAITERS = 4;
+
+    private final SingleFlight<String, String> flights = new SingleFlight<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    /**
+     * Start a leader blocked in its load, then waiters for the same key, and
+     * release the leader once every waiter is parked on its result.
+     */
+    private List<String> runFlight(Supplier<String> leaderLoad, Predicate<String> shareable) throws Exception {
+        List<String> results = new ArrayList<>();
+        AtomicReference<Throwable> leaderFailure = new AtomicReference<>();
+        Thread leader = new Thread(() -> {
+            try {
+                flights.execute("key", () -> {
+                    loads.incrementAndGet();
+                    awaitRelease();
+                    return leaderLoad.get();
+                }, shareable);
+            } catch (RuntimeException e) {
+                leaderFailure.set(e);
+            }
+        });
+        leader.start();
+        while (loads.get() == 0) {
+            Thread.onSpinWait();
+        }
+
+        List<Thread> waiters = new ArrayList<>();
+        for (int i = 0; i < WAITERS; i++) {
+            Thread waiter = new Thread(() -> {
+                String value = flights.execute("key", () -> {
+                    loads.incrementAndGet();
+                    return "own";
+                }, shareable);
+                synchronized (results) {
+                    results.add(value);
+                }
+            });
+            waiters.add(waiter);
+            waiter.start();
+        }
+        for (Thread waiter : waiters) {
+            while (waiter.getState() != Thread.State.WAITING) {
+                Thread.onSpinWait();
+            }
+        }
+
+        release.countDown();
+        leader.join();
+        for (Thread waiter : waiters) {
+            waiter.join();
+        }
+        return results;
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent loads of one key should share the first caller's result")
+    void testCoalescing() throws Exception {
+        List<String> results = runFlight(() -> "shared", value -> true);
+
+        assertEquals(List.of("shared", "shared", "shared", "shared"), results);
+        assertEquals(1, loads.get());
+        assertEquals(WAITERS, flights.getCoalescedCount());
+
+        // The flight is over, the next call loads again
+        assertEquals("again", flights.execute("key", () -> "again", value -> true));
+    }
+
+    @Test
+    @DisplayName("Waiters should load on their own if the shared load fails")
+    void testLeaderFailure() throws Exception {
+        List<String> results = runFlight(() -> {
+            throw new IllegalStateException("connection lost");
+        }, value -> true);
+
+        assertEquals(List.of("own", "own", "own", "own"), results);
+        assertEquals(1 + WAITERS, loads.get());
+        assertEquals(0, flights.getCoalescedCount());
+    }
+
+    @Test
+    @DisplayName("Waiters should load on their own if they reject the shared result")
+    void testRejectedResult() throws Exception {
+        List<String> results = runFlight(() -> "stale", value -> !value.equals("stale"));
+
+        assertEquals(List.of("own", "own", "own", "own"), results);
+        assertEquals(1 + WAITERS, loads.get());
+    }
+}
@@ -335,4 +335,18 @@ class MySQLDialectTest {
     assertTrue(toString.contains("MySQL"));
     assertTrue(toString.contains("com.mysql.cj.jdbc.Driver"));
   }
+
+  @Test
+  @Order(23)
+  @DisplayName("Should cap IN-list size for multi-row lookups")
+  void testMaxInListSize() {
+    assertEquals(1000, dialect.getMaxInListSize());
+  }
+
+  @Test
+  @Order(24)
+  @DisplayName("Should compare row values for keyset pagination")
+  void testRowValueComparison() {
+    assertTrue(dialect.supportsRowValueComparison());
+  }
 }
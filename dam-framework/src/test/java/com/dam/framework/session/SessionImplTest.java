@@ -0,0 +1,1382 @@
+package com.dam.framework.session;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.dam.framework.annotations.CacheStorage;
+import com.dam.framework.annotations.Cacheable;
+import com.dam.framework.annotations.Column;
+import com.dam.framework.annotations.Entity;
+import com.dam.framework.annotations.Id;
+import com.dam.framework.annotations.Immutable;
+import com.dam.framework.annotations.NaturalId;
+import com.dam.framework.annotations.Table;
+import com.dam.framework.config.DialectDriver;
+import com.dam.framework.exception.DAMException;
+import com.dam.framework.cache.CacheStatistics;
+import com.dam.framework.cache.InvalidationStatistics;
+import com.dam.framework.cache.InvalidationTransport;
+import com.dam.framework.cache.LoopbackTransport;
+import com.dam.framework.query.CompiledQuery;
+import com.dam.framework.query.Order;
+import com.dam.framework.query.Page;
+import com.dam.framework.tracking.DirtyTracker;
+import com.dam.framework.tracking.SelfDirtyTracking;
+import com.dam.framework.transaction.Transaction;
+
+/**
+ * Integration tests for SessionImpl using an H2 database in MySQL mode.
+ */
+class SessionImplTest {
+
+    private static final String URL = "jdbc:h2:mem:session_test;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    private Connection admin;
+    private SessionFactory factory;
+
+    @Entity
+    @Table(name = "items")
+    static class Item {
+        @Id
+        @Column(name = "id")
+        private Long id;
+
+        @Column(name = "name")
+        private String name;
+
+        @Column(name = "price")
+        private BigDecimal price;
+
+        @Column(name = "quantity")
+        private int quantity;
+
+        @Column(name = "payload")
+        private byte[] payload;
+
+        Item() {
+        }
+
+        Item(Long id, String name, BigDecimal price, int quantity) {
+            this.id = id;
+            this.name = name;
+            this.price = price;
+            this.quantity = quantity;
+        }
+    }
+
+    @Entity
+    @Table(name = "items")
+    static class TrackedItem implements SelfDirtyTracking {
+        private final transient DirtyTracker dirtyTracker = new DirtyTracker();
+
+        @Id
+        @Column(name = "id")
+        private Long id;
+
+        @Column(name = "name")
+        private String name;
+
+        @Column(name = "quantity")
+        private int quantity;
+
+        void setName(String name) {
+            this.name = name;
+            dirtyTracker.markDirty("name");
+        }
+
+        @Override
+        public DirtyTracker getDirtyTracker() {
+            return dirtyTracker;
+        }
+    }
+
+    @Entity
+    @Table(name = "items")
+    @Cacheable(maxEntries = 100)
+    static class CachedItem {
+        @Id
+        @Column(name = "id")
+        private Long id;
+
+        @Column(name = "name")
+        private String name;
+    }
+
+    @Entity
+    @Table(name = "items")
+    @Cacheable(maxEntries = 100, modifiedColumn = "quantity")
+    static class VersionedItem {
+        @Id
+        @Column(name = "id")
+        private Long id;
+
+        @Column(name = "name")
+        private String name;
+
+        // doubles as a row version
+        @Column(name = "quantity")
+        private int quantity;
+    }
+
+    @Entity
+    @Table(name = "items")
+    @Cacheable(maxEntries = 100, preload = true)
+    static class PreloadedItem {
+        @Id
+        @Column(name = "id")
+        private Long id;
+
+        @Column(name = "name", caseSensitive = true)
+        private String name;
+
+        @Column(name = "quantity")
+        private int quantity;
+    }
+
+    @Entity
+    @Immutable
+    @Cacheable
+    @Table(name = "items")
+    static class ImmutableItem {
+        @Id
+        @Column(name = "id")
+        private Long id;
+
+        @Column(name = "name")
+        private String name;
+    }
+
+    @Entity
+    @Immutable
+    @Cacheable(storage = CacheStorage.OFF_HEAP)
+    @Table(name = "items")
+    static class OffHeapImmutableItem {
+        @Id
+        @Column(name = "id")
+        private Long id;
+
+        @Column(name = "name")
+        private String name;
+    }
+
+    @Entity
+    @Cacheable
+    @Table(name = "items")
+    static class NamedItem {
+        @Id
+        @Column(name = "id")
+        private Long id;
+
+        @NaturalId
+        @Column(name = "name")
+        private String name;
+    }
+
+    static class H2DialectDriver implements DialectDriver {
+        @Override
+        public String getDriverClass() {
+            return "org.h2.Driver";
+        }
+
+        @Override
+        public String getDialectName() {
+            return "mysql";
+        }
+    }
+
+    /**
+     * H2 behind the PostgreSQL dialect, for its streaming transaction.
+     */
+    static class H2PostgreSQLDialectDriver extends H2DialectDriver {
+        @Override
+        public String getDialectName() {
+            return "postgresql";
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        admin = DriverManager.getConnection(URL);
+        try (Statement stmt = admin.createStatement()) {
+            stmt.execute("CREATE TABLE items (id BIGINT PRIMARY KEY, name VARCHAR(255), "
+                    + "price DECIMAL(10,2), quantity INT, payload VARBINARY(1024))");
+        }
+        factory = newConfiguration().buildSessionFactory();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        factory.close();
+        try (Statement stmt = admin.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS items");
+        }
+        admin.close();
+    }
+
+    private Configuration newConfiguration() {
+        return new Configuration()
+                .setDialectDriver(new H2DialectDriver())
+                .setUrl(URL)
+                .addAnnotatedClass(Item.class)
+                .addAnnotatedClass(TrackedItem.class)
+                .addAnnotatedClass(CachedItem.class);
+    }
+
+    private void insertItem(long id, String name, String price, int quantity) throws Exception {
+        try (Statement stmt = admin.createStatement()) {
+            stmt.executeUpdate("INSERT INTO items (id, name, price, quantity) VALUES ("
+                    + id + ", '" + name + "', " + price + ", " + quantity + ")");
+        }
+    }
+
+    private String selectName(long id) throws Exception {
+        try (Statement stmt = admin.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT name FROM items WHERE id = " + id)) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+
+    @Test
+    @DisplayName("Flush should write only the changed column")
+    void testFlushWritesChangedColumn() throws Exception {
+        insertItem(1, "pen", "1.50", 10);
+
+        try (Session session = factory.openSession()) {
+            Item item = session.find(Item.class, 1L);
+            item.name = "pencil";
+            session.flush();
+        }
+
+        assertEquals("pencil", selectName(1));
+    }
+
+    @Test
+    @DisplayName("Flush should detect changes in primitive fields")
+    void testFlushDetectsPrimitiveChange() throws Exception {
+        insertItem(1, "pen", "1.50", 10);
+
+        try (Session session = factory.openSession()) {
+            Item item = session.find(Item.class, 1L);
+            item.quantity = 11;
+            session.flush();
+        }
+
+        try (Session session = factory.openSession()) {
+            assertEquals(11, session.find(Item.class, 1L).quantity);
+        }
+    }
+
+    @Test
+    @DisplayName("BigDecimal with a different scale should not be treated as a change")
+    void testBigDecimalScaleInsensitive() {
+        Item item = new Item(1L, "pen", new BigDecimal("1.50"), 10);
+        SnapshotPlan plan = ((SessionFactoryImpl) factory).getSnapshotPlan(Item.class);
+
+        EntitySnapshot snapshot = plan.capture(item);
+        item.price = new BigDecimal("1.5");
+
+        assertTrue(plan.changedColumns(item, snapshot).isEmpty());
+    }
+
+    @Test
+    @DisplayName("In-place byte[] mutation should be detected")
+    void testByteArrayMutationDetected() throws Exception {
+        Item item = new Item(1L, "pen", BigDecimal.ONE, 1);
+        item.payload = new byte[] { 1, 2, 3 };
+        SnapshotPlan plan = ((SessionFactoryImpl) factory).getSnapshotPlan(Item.class);
+
+        EntitySnapshot snapshot = plan.capture(item);
+        assertTrue(plan.changedColumns(item, snapshot).isEmpty());
+
+        item.payload[1] = 9;
+        assertEquals(1, plan.changedColumns(item, snapshot).size());
+        assertEquals("payload", plan.changedColumns(item, snapshot).get(0).columnName());
+    }
+
+    @Test
+    @DisplayName("Hash-only snapshots should still detect changes to large values")
+    void testHashOnlySnapshot() {
+        factory.close();
+        factory = newConfiguration().setSnapshotHashThreshold(4).buildSessionFactory();
+        SnapshotPlan plan = ((SessionFactoryImpl) factory).getSnapshotPlan(Item.class);
+
+        Item item = new Item(1L, "a long name", BigDecimal.ONE, 1);
+        EntitySnapshot snapshot = plan.capture(item);
+        assertInstanceOf(EntitySnapshot.HashedValue.class, snapshot.values[1]);
+        assertTrue(plan.changedColumns(item, snapshot).isEmpty());
+
+        item.name = "another long name";
+        assertEquals("name", plan.changedColumns(item, snapshot).get(0).columnName());
+    }
+
+    @Test
+    @DisplayName("Self-tracking entities should flush only the fields marked dirty")
+    void testSelfDirtyTrackingFlush() throws Exception {
+        insertItem(1, "pen", "1.50", 10);
+
+        try (Session session = factory.openSession()) {
+            TrackedItem item = session.find(TrackedItem.class, 1L);
+            assertFalse(item.getDirtyTracker().isDirty());
+
+            item.setName("pencil");
+            item.quantity = 99; // bypasses the tracker, so it is not flushed
+            assertTrue(item.getDirtyTracker().isDirty());
+
+            session.flush();
+            assertFalse(item.getDirtyTracker().isDirty());
+        }
+
+        assertEquals("pencil", selectName(1));
+        try (Session session = factory.openSession()) {
+            assertEquals(10, session.find(Item.class, 1L).quantity);
+        }
+    }
+
+    @Test
+    @DisplayName("Trackers should be inert once the session is closed")
+    void testTrackerUnboundOnClose() throws Exception {
+        insertItem(1, "pen", "1.50", 10);
+
+        TrackedItem item;
+        try (Session session = factory.openSession()) {
+            item = session.find(TrackedItem.class, 1L);
+        }
+
+        item.setName("pencil");
+        assertFalse(item.getDirtyTracker().isDirty());
+    }
+
+    @Test
+    @DisplayName("Strict mode should fail a flush on changes the tracker missed")
+    void testVerifyDirtyTracking() throws Exception {
+        insertItem(1, "pen", "1.50", 10);
+
+        SessionFactory strictFactory = newConfiguration().setVerifyDirtyTracking(true).buildSessionFactory();
+        try (Session session = strictFactory.openSession()) {
+            TrackedItem item = session.find(TrackedItem.class, 1L);
+            item.setName("pencil");
+            session.flush();
+            assertEquals("pencil", selectName(1));
+
+            // Marked changes pass again after the snapshot is retaken
+            item.setName("marker");
+            session.flush();
+            assertEquals("marker", selectName(1));
+
+            item.quantity = 99; // bypasses the tracker
+            DAMException e = assertThrows(DAMException.class, session::flush);
+            assertTrue(e.getMessage().contains("quantity"));
+        } finally {
+            strictFactory.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Read-only sessions should not manage loaded entities")
+    void testReadOnlySession() throws Exception {
+        insertItem(1, "pen", "1.50", 10);
+
+        try (Session session = factory.openSession(true)) {
+            assertTrue(session.isReadOnly());
+
+            Item item = session.find(Item.class, 1L);
+            assertNotSame(item, session.find(Item.class, 1L));
+
+            item.name = "pencil";
+            session.flush();
+            assertThrows(DAMException.class, () -> session.merge(item));
+        }
+
+        assertEquals("pen", selectName(1));
+    }
+
+    @Test
+    @DisplayName("Query results should be managed unless the read-only hint is set")
+    void testQueryResultsManagedUnlessReadOnly() throws Exception {
+        insertItem(1, "pen", "1.50", 10);
+        insertItem(2, "cup", "3.00", 5);
+
+        try (Session session = factory.openSession()) {
+            Item pen = session.find(Item.class, 1L);
+            List<Item> managed = session.createQuery(Item.class).orderBy("id", Order.ASC).getResultList();
+            assertSame(pen, managed.get(0));
+
+            Item detached = session.createQuery(Item.class).where("id = ?", 2L).readOnly(true)
+                    .getSingleResult();
+            detached.name = "mug";
+            managed.get(1).quantity = 6;
+            session.flush();
+        }
+
+        assertEquals("cup", selectName(2));
+        try (Session session = factory.openSession()) {
+            assertEquals(6, session.find(Item.class, 2L).quantity);
+        }
+    }
+
+    @Test
+    @DisplayName("evict() and clear() should detach entities and drop their pending changes")
+    void testEvictAndClear() throws Exception {
+        insertItem(1, "pen", "1.50", 10);
+        insertItem(2, "cup", "3.00", 5);
+
+        try (Session session = factory.openSession()) {
+            Item pen = session.find(Item.class, 1L);
+            pen.name = "pencil";
+            session.evict(pen);
+            session.flush();
+            assertNotSame(pen, session.find(Item.class, 1L));
+
+            Item cup = session.find(Item.class, 2L);
+            cup.name = "mug";
+            session.clear();
+            session.flush();
+            assertNotSame(cup, session.find(Item.class, 2L));
+        }
+
+        assertEquals("pen", selectName(1));
+        assertEquals("cup", selectName(2));
+    }
+
+    @Test
+    @DisplayName("Entity cap should flush pending changes and evict the oldest entities")
+    void testEntityCapFlushesAndEvicts() throws Exception {
+        for (long id = 1; id <= 5; id++) {
+            insertItem(id, "item" + id, "1.00", 1);
+        }
+
+        try (SessionFactory capped = newConfiguration().setMaxManagedEntities(4).buildSessionFactory();
+                Session session = capped.openSession()) {
+            Item first = session.find(Item.class, 1L);
+            first.name = "changed";
+            for (long id = 2; id <= 5; id++) {
+                session.find(Item.class, id);
+            }
+
+            // Oldest entity was flushed before being evicted
+            assertEquals("changed", selectName(1));
+            assertNotSame(first, session.find(Item.class, 1L));
+            Item newest = session.find(Item.class, 5L);
+            assertSame(newest, session.find(Item.class, 5L));
+        }
+    }
+
+    @Test
+    @DisplayName("Byte budget should evict entities holding large values")
+    void testByteBudgetEvicts() throws Exception {
+        insertItem(1, "pen", "1.50", 10);
+        insertItem(2, "cup", "3.00", 5);
+        try (Statement stmt = admin.createStatement()) {
+            stmt.executeUpdate("UPDATE items SET payload = X'" + "00".repeat(1000) + "'");
+        }
+
+        try (SessionFactory capped = newConfiguration().setMaxManagedBytes(3000).buildSessionFactory();
+                Session session = capped.openSession()) {
+            Item pen = session.find(Item.class, 1L);
+            session.find(Item.class, 2L);
+            assertNotSame(pen, session.find(Item.class, 1L));
+        }
+    }
+
+    @Test
+    @DisplayName("findAll() should combine L1 hits and one IN query, in request order")
+    void testFindAll() throws Exception {
+        insertItem(1, "pen", "1.50", 10);
+        insertItem(2, "cup", "3.00", 5);
+        insertItem(3, "mat", "7.00", 2);
+
+        try (Session session = factory.openSession()) {
+            Item cup = session.find(Item.class, 2L);
+
+            List<Item> items = session.findAll(Item.class, List.of(3, 2L, 99L, 1L, 3L));
+            assertEquals(5, items.size());
+            assertEquals("mat", items.get(0).name);
+            assertSame(cup, items.get(1));
+            assertNull(items.get(2));
+            assertEquals("pen", items.get(3).name);
+            assertSame(items.get(0), items.get(4));
+
+            // Loaded entities are managed
+            assertSame(items.get(3), session.find(Item.class, 1L));
+            items.get(3).quantity = 11;
+            session.flush();
+        }
+
+        try (Session session = factory.openSession()) {
+            assertEquals(11, session.find(Item.class, 1L).quantity);
+        }
+    }
+
+    @Test
+    @DisplayName("Deferred finds should be coalesced into one lookup on first get()")
+    void testFindDeferred() throws Exception {
+        insertItem(1, "pen", "1.50", 10);
+        insertItem(2, "cup", "3.00", 5);
+
+        try (Session session = factory.openSession()) {
+            EntityRef<Item> pen = session.findDeferred(Item.class, 1L);
+            EntityRef<Item> cup = session.findDeferred(Item.class, 2);
+            EntityRef<Item> missing = session.findDeferred(Item.class, 99L);
+            assertSame(pen, session.findDeferred(Item.class, 1L));
+            assertFalse(cup.isLoaded());
+
+            // Rows changed before dispatch are seen, proving nothing ran yet
+            try (Statement stmt = admin.createStatement()) {
+                stmt.executeUpdate("UPDATE items SET name = 'mug' WHERE id = 2");
+            }
+
+            assertEquals("pen", pen.get().name);
+            assertTrue(cup.isLoaded());
+            assertEquals("mug", cup.get().name);
+            assertNull(missing.get());
+            assertSame(cup.get(), session.find(Item.class, 2L));
+
+            EntityRef<Item> cached = session.findDeferred(Item.class, 1L);
+            assertTrue(cached.isLoaded());
+            assertSame(pen.get(), cached.get());
+        }
+    }
+
+    @Test
+    @DisplayName("Deferred handles left pending at close should fail on get()")
+    void testFindDeferredAfterClose() throws Exception {
+        EntityRef<Item> ref;
+        try (Session session = factory.openSession()) {
+            ref = session.findDeferred(Item.class, 1L);
+        }
+        assertThrows(DAMException.class, ref::get);
+    }
+
+    @Test
+    @DisplayName("Cacheable entities should be served from the second-level cache until written")
+    void testSecondLevelCache() throws Exception {
+        insertItem(1, "pen", "1.50", 10);
+
+        try (Session session = factory.openSession()) {
+            assertEquals("pen", session.find(CachedItem.class, 1L).name);
+        }
+
+        // A change behind the framework's back stays invisible while cached
+        try (Statement stmt = admin.createStatement()) {
+            stmt.executeUpdate("UPDATE items SET name = 'quill' WHERE id = 1");
+        }
+        try (Session session = factory.openSession()) {
+            CachedItem item = session.find(CachedItem.class, 1);
+            assertEquals("pen", item.name);
+
+            Transaction tx = session.beginTransaction();
+            item.name = "marker";
+            session.flush();
+            tx.commit();
+        }
+
+        try (Session session = factory.openSession()) {
+            assertEquals("marker", session.find(CachedItem.class, 1L).name);
+        }
+        try (Session session = factory.openSession()) {
+            assertEquals("marker", session.findAll(CachedItem.class, List.of(1L)).get(0).name);
+        }
+
+        CacheStatistics stats = factory.getCache().getStatistics().get(CachedItem.class.getName());
+        assertEquals(2, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+    }
+
+    @Test
+    @DisplayName("A restored cache snapshot should drop only the rows modified since it was written")
+    void testCacheSnapshotWarmRestart(@TempDir Path dir) throws Exception {
+        insertItem(1, "pen", "1.50", 1);
+        insertItem(2, "cup", "3.00", 5);
+        Configuration config = newConfiguration()
+                .addAnnotatedClass(VersionedItem.class)
+                .setCacheSnapshotFile(dir.resolve("cache.bin").toString());
+
+        SessionFactory first = config.buildSessionFactory();
+        try (Session session = first.openSession()) {
+            session.findAll(VersionedItem.class, List.of(1L, 2L));
+        }
+        first.close();
+        assertTrue(Files.exists(dir.resolve("cache.bin")));
+
+        try (Statement stmt = admin.createStatement()) {
+            // not a modification as far as the version column is concerned
+            stmt.executeUpdate("UPDATE items SET name = 'quill' WHERE id = 1");
+            stmt.executeUpdate("UPDATE items SET name = 'mug', quantity = 6 WHERE id = 2");
+        }
+
+        SessionFactory second = newConfiguration()
+                .addAnnotatedClass(VersionedItem.class)
+                .setCacheSnapshotFile(dir.resolve("cache.bin").toString())
+                .buildSessionFactory();
+        try (Session session = second.openSession()) {
+            assertEquals("pen", session.find(VersionedItem.class, 1L).name);
+            assertEquals("mug", session.find(VersionedItem.class, 2L).name);
+        } finally {
+            second.close();
+        }
+        CacheStatistics stats = second.getCache().getStatistics().get(VersionedItem.class.getName());
+        assertEquals(1, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+    }
+
+    @Test
+    @DisplayName("Preloaded regions should answer find() and equality queries from memory until written")
+    void testPreloadedRegion() throws Exception {
+        insertItem(1, "pen", "1.50", 10);
+        insertItem(2, "cup", "3.00", 10);
+        insertItem(3, "pen", "2.00", 5);
+
+        SessionFactory preloading = newConfiguration().addAnnotatedClass(PreloadedItem.class).buildSessionFactory();
+        try (Statement stmt = admin.createStatement()) {
+            // invisible while the region answers from memory
+            stmt.executeUpdate("UPDATE items SET quantity = 99 WHERE id = 3");
+        }
+        try (Session session = preloading.openSession()) {
+            assertEquals("cup", session.find(PreloadedItem.class, 2L).name);
+            List<PreloadedItem> pens = session.createQuery(PreloadedItem.class)
+                    .where("name = ?", "pen").and("quantity = ?", 5).getResultList();
+            assertEquals(1, pens.size());
+            assertEquals(3L, pens.get(0).id);
+
+            // A write evicts a row, so the region no longer knows every row
+            PreloadedItem cup = session.find(PreloadedItem.class, 2L);
+            cup.name = "mug";
+            session.flush();
+            assertEquals(0, session.createQuery(PreloadedItem.class).where("quantity = ?", 5).getResultList().size());
+        } finally {
+            preloading.close();
+        }
+        CacheStatistics stats = preloading.getCache().getStatistics().get(PreloadedItem.class.getName());
+        assertEquals(0, stats.getMissCount());
+    }
+
+    @Entity
+    @Table(name = "items")
+    @Cacheable(maxEntries = 100, preload = true)
+    static class PreloadedLabel {
+        @Id
+        @Column(name = "id")
+        private Long id;
+
+        @Column(name = "name")
+        private String name;
+    }
+
+    @Test
+    @DisplayName("Preloaded regions should leave filters Java compares differently from SQL to the database")
+    void testPreloadedRegionCollation() throws Exception {
+        try (Statement stmt = admin.createStatement()) {
+            stmt.execute("ALTER TABLE items ALTER COLUMN name VARCHAR_IGNORECASE(255)");
+        }
+        insertItem(1, "Pen", "1.50", 10);
+        insertItem(2, "cup", "3.00", 10);
+        insertItem(3, "mug ", "2.00", 5);
+
+        SessionFactory preloading = newConfiguration().addAnnotatedClass(PreloadedLabel.class)
+                .addAnnotatedClass(PreloadedItem.class).buildSessionFactory();
+        try (Session session = preloading.openSession()) {
+            // Case-insensitive in the database, so the region must not decide
+            List<PreloadedLabel> pens = session.createQuery(PreloadedLabel.class).where("name = ?", "PEN")
+                    .getResultList();
+            assertEquals(List.of(1L), pens.stream().map(label -> label.id).toList());
+            assertEquals(1, session.createQuery(PreloadedLabel.class).where("id = ?", 2).getResultList().size());
+            // A double parameter may round differently in the database
+            assertEquals(2, session.createQuery(PreloadedItem.class).where("quantity = ?", 10.0).getResultList()
+                    .size());
+            // Declared case-sensitive: exact match from memory, trailing spaces included
+            assertEquals(1, session.createQuery(PreloadedItem.class).where("name = ?", "cup").getResultList()
+                    .size());
+            assertTrue(session.createQuery(PreloadedItem.class).where("name = ?", "cup  ").getResultList()
+                    .isEmpty());
+            assertTrue(session.createQuery(PreloadedItem.class).where("name = ?", "mug").getResultList().isEmpty());
+            assertEquals(3L, session.createQuery(PreloadedItem.class).where("name = ?", "mug ").getSingleResult().id);
+        } finally {
+            preloading.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Immutable entities should be shared across sessions and never updated")
+    void testImmutableEntity() throws Exception {
+        insertItem(1, "pen", "1.50", 10);
+        SessionFactory immutables = newConfiguration().addAnnotatedClass(ImmutableItem.class).buildSessionFactory();
+        try (Session first = immutables.openSession();
+                Session second = immutables.openSession();
+                Session reader = immutables.openSession(true)) {
+            first.find(ImmutableItem.class, 1L);
+            ImmutableItem shared = second.find(ImmutableItem.class, 1L);
+            assertSame(shared, first.findAll(ImmutableItem.class, List.of(1L)).get(0));
+            assertSame(shared, reader.find(ImmutableItem.class, 1L));
+
+            assertThrows(DAMException.class, () -> second.merge(shared));
+            // Not snapshotted, so flush has nothing to compare against
+            shared.name = "pencil";
+            second.flush();
+        } finally {
+            immutables.close();
+        }
+        assertEquals("pen", selectName(1));
+    }
+
+    @Test
+    @DisplayName("Immutable entities in off-heap regions should be shared until evicted")
+    void testOffHeapImmutableEntity() throws Exception {
+        insertItem(1, "pen", "1.50", 10);
+        SessionFactory immutables = newConfiguration().addAnnotatedClass(OffHeapImmutableItem.class)
+                .buildSessionFactory();
+        try {
+            OffHeapImmutableItem shared;
+            try (Session first = immutables.openSession(); Session second = immutables.openSession()) {
+                first.find(OffHeapImmutableItem.class, 1L);
+                shared = second.find(OffHeapImmutableItem.class, 1L);
+                assertSame(shared, first.findAll(OffHeapImmutableItem.class, List.of(1L)).get(0));
+            }
+            try (Session session = immutables.openSession()) {
+                assertSame(shared, session.find(OffHeapImmutableItem.class, 1L));
+            }
+
+            immutables.getCache().evict(OffHeapImmutableItem.class, 1L);
+            try (Session session = immutables.openSession()) {
+                assertNotSame(shared, session.find(OffHeapImmutableItem.class, 1L));
+            }
+        } finally {
+            immutables.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Natural ID lookups should resolve through the cached index and re-query stale mappings")
+    void testFindByNaturalId() throws Exception {
+        insertItem(1, "pen", "1.50", 10);
+        SessionFactory named = newConfiguration().addAnnotatedClass(NamedItem.class).buildSessionFactory();
+        try {
+            try (Session session = named.openSession()) {
+                assertEquals(1L, session.findByNaturalId(NamedItem.class, "pen").id);
+                assertNull(session.findByNaturalId(NamedItem.class, "cup"));
+                assertThrows(DAMException.class, () -> session.findByNaturalId(Item.class, "pen"));
+            }
+            try (Session session = named.openSession()) {
+                NamedItem pen = session.findByNaturalId(NamedItem.class, "pen");
+                assertEquals(1L, pen.id);
+                pen.name = "pencil";
+                session.merge(pen);
+            }
+            try (Session session = named.openSession()) {
+                assertEquals(1L, session.findByNaturalId(NamedItem.class, "pencil").id);
+            }
+            CacheStatistics stats = named.getCache().getStatistics().get(NamedItem.class.getName() + "#naturalId");
+            assertEquals(2, stats.getHitCount());
+
+            // "pen" still maps to row 1, which the database now calls something else
+            try (Statement stmt = admin.createStatement()) {
+                stmt.executeUpdate("UPDATE items SET name = 'marker' WHERE id = 1");
+            }
+            named.getCache().evict(NamedItem.class, 1L);
+            insertItem(2, "pen", "2.00", 3);
+            try (Session session = named.openSession()) {
+                assertEquals(2L, session.findByNaturalId(NamedItem.class, "pen").id);
+                assertNull(session.findByNaturalId(NamedItem.class, "pencil"));
+            }
+        } finally {
+            named.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Missing rows should be remembered until the framework writes them")
+    void testNegativeCaching() throws Exception {
+        SessionFactory negative = newConfiguration().setCacheNegativeTtlMillis(60_000).buildSessionFactory();
+        try {
+            try (Session session = negative.openSession()) {
+                assertNull(session.find(CachedItem.class, 7L));
+            }
+            // Inserted behind the framework's back: still reported missing
+            insertItem(7, "pen", "1.50", 10);
+            try (Session session = negative.openSession()) {
+                assertNull(session.find(CachedItem.class, 7L));
+                assertNull(session.findAll(CachedItem.class, List.of(7L)).get(0));
+            }
+            CacheStatistics stats = negative.getCache().getStatistics().get(CachedItem.class.getName() + "#missing");
+            assertEquals(2, stats.getHitCount());
+
+            try (Session session = negative.openSession()) {
+                CachedItem cup = new CachedItem();
+                cup.id = 8L;
+                cup.name = "cup";
+                session.persist(cup);
+                session.remove(cup);
+                CachedItem mat = new CachedItem();
+                mat.id = 8L;
+                mat.name = "mat";
+                session.persist(mat);
+            }
+            negative.getCache().evict(CachedItem.class, 7L);
+            try (Session session = negative.openSession()) {
+                assertEquals("pen", session.find(CachedItem.class, 7L).name);
+                assertEquals("mat", session.find(CachedItem.class, 8L).name);
+            }
+        } finally {
+            negative.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Committed writes should evict cached rows and queries on the other nodes")
+    void testInvalidationBus() throws Exception {
+        insertItem(1, "pen", "1.50", 10);
+        SessionFactory nodeA = newConfiguration().setInvalidationTransport(new LoopbackTransport("items"))
+                .buildSessionFactory();
+        SessionFactory nodeB = newConfiguration().setInvalidationTransport(new LoopbackTransport("items"))
+                .buildSessionFactory();
+        try {
+            try (Session session = nodeA.openSession()) {
+                assertEquals("pen", session.find(CachedItem.class, 1L).name);
+                assertEquals(1, session.createQuery(Item.class).where("name = ?", "pen").cacheable(true)
+                        .getResultList().size());
+            }
+
+            try (Session session = nodeB.openSession()) {
+                Transaction tx = session.beginTransaction();
+                CachedItem pen = session.find(CachedItem.class, 1L);
+                pen.name = "pencil";
+                session.flush();
+                // Nothing is published before the commit
+                assertEquals(0, nodeA.getInvalidationBus().getStatistics().getMessagesReceived());
+                tx.commit();
+            }
+
+            try (Session session = nodeA.openSession()) {
+                assertEquals("pencil", session.find(CachedItem.class, 1L).name);
+                assertEquals(0, session.createQuery(Item.class).where("name = ?", "pen").cacheable(true)
+                        .getResultList().size());
+            }
+            InvalidationStatistics received = nodeA.getInvalidationBus().getStatistics();
+            assertEquals(1, received.getMessagesReceived());
+            // the row and its table
+            assertEquals(2, received.getInvalidationsReceived());
+            assertEquals(1, nodeB.getInvalidationBus().getStatistics().getMessagesSent());
+        } finally {
+            nodeA.close();
+            nodeB.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Cacheable queries should be served from the query cache until their table is written")
+    void testQueryCache() throws Exception {
+        insertItem(1, "pen", "1.50", 10);
+        insertItem(2, "cup", "3.00", 5);
+
+        try (Session session = factory.openSession()) {
+            assertEquals(2, session.createQuery(Item.class).where("quantity > ?", 1).cacheable(true)
+                    .getResultList().size());
+            assertEquals("pen", session.createQuery(Item.class).select("id", "name").where("id = ?", 1L)
+                    .cacheable(true).getSingleResult().name);
+        }
+
+        // Rows added behind the framework's back stay invisible while cached
+        insertItem(3, "mat", "7.00", 2);
+        try (Session session = factory.openSession()) {
+            List<Item> items = session.createQuery(Item.class).where("quantity > ?", 1).cacheable(true)
+                    .getResultList();
+            assertEquals(2, items.size());
+            // Cached IDs resolve to managed entities
+            assertSame(items.get(0), session.find(Item.class, items.get(0).id));
+
+            Item projected = session.createQuery(Item.class).select("id", "name").where("id = ?", 1L)
+                    .cacheable(true).getSingleResult();
+            assertEquals("pen", projected.name);
+            assertNull(projected.price);
+
+            session.persist(new Item(4L, "box", new BigDecimal("2.00"), 3));
+            assertEquals(4, session.createQuery(Item.class).where("quantity > ?", 1).cacheable(true)
+                    .getResultList().size());
+        }
+
+        CacheStatistics stats = factory.getCache().getQueryCache().getStatistics();
+        assertEquals(2, stats.getHitCount());
+        assertEquals(3, stats.getMissCount());
+    }
+
+    @Test
+    @DisplayName("A dialect's streaming transaction should reject writes until the stream is closed")
+    void testStreamingTransactionGuard() throws Exception {
+        for (long id = 1; id <= 3; id++) {
+            insertItem(id, "item" + id, "1.00", (int) id);
+        }
+
+        SessionFactory postgres = new Configuration().setDialectDriver(new H2PostgreSQLDialectDriver())
+                .setUrl(URL).addAnnotatedClass(Item.class).buildSessionFactory();
+        try (Session session = postgres.openSession()) {
+            Item managed = session.find(Item.class, 1L);
+            try (Stream<Item> items = session.createQuery(Item.class).stream()) {
+                assertTrue(items.iterator().hasNext());
+
+                // These would run in the stream's read transaction and be lost when it ends
+                DAMException rejected = assertThrows(DAMException.class, session::beginTransaction);
+                assertTrue(rejected.getMessage().contains("streamed query"));
+                assertThrows(DAMException.class,
+                        () -> session.persist(new Item(4L, "box", new BigDecimal("2.00"), 3)));
+                managed.name = "changed";
+                assertThrows(DAMException.class, session::flush);
+            }
+
+            // Once the stream is closed, the pending change goes through as usual
+            Transaction tx = session.beginTransaction();
+            session.flush();
+            tx.commit();
+        } finally {
+            postgres.close();
+        }
+        assertEquals("changed", selectName(1));
+        try (Statement stmt = admin.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM items")) {
+            rs.next();
+            assertEquals(3, rs.getInt(1));
+        }
+    }
+
+    @Test
+    @DisplayName("Streamed queries should hydrate detached rows lazily and release the statement on close")
+    void testStreamQuery() throws Exception {
+        for (long id = 1; id <= 50; id++) {
+            insertItem(id, "item" + id, "1.00", (int) id);
+        }
+
+        try (Session session = factory.openSession()) {
+            SessionImpl sessionImpl = (SessionImpl) session;
+            Item first = session.find(Item.class, 1L);
+            AtomicInteger hydrated = new AtomicInteger();
+            try (Stream<Item> items = session.createQuery(Item.class).where("quantity > ?", 0)
+                    .orderBy("id", Order.ASC).fetchSize(7).stream()) {
+                List<Item> head = items.peek(item -> hydrated.incrementAndGet()).limit(3).toList();
+                assertNotSame(first, head.get(0));
+                assertEquals("item3", head.get(2).name);
+            }
+            assertEquals(3, hydrated.get());
+
+            try (Stream<Item> items = session.createQuery(Item.class).stream()) {
+                assertEquals(1275, items.peek(item -> {
+                    item.name = "changed";
+                    // Only the entity found before streaming is managed
+                    assertEquals(1, sessionImpl.getManagedCount());
+                }).mapToInt(item -> item.quantity).sum());
+            }
+            session.flush();
+            assertEquals("item2", selectName(2));
+            // The connection is free again once the streams are closed
+            assertEquals(50, session.createQuery(Item.class).getResultList().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Chunked processing should flush, detach its own entities and optionally commit after each chunk")
+    void testForEachChunk() throws Exception {
+        for (long id = 1; id <= 25; id++) {
+            insertItem(id, "item" + id, "1.00", (int) id);
+        }
+
+        try (Session session = factory.openSession()) {
+            SessionImpl sessionImpl = (SessionImpl) session;
+            Item kept = session.find(Item.class, 2L);
+            Item reused = session.find(Item.class, 3L);
+            List<Integer> sizes = new ArrayList<>();
+            session.forEachChunk(session.createQuery(Item.class).where("quantity > ?", 2).or("id = ?", 1L), 10,
+                    chunk -> {
+                        sizes.add(chunk.size());
+                        if (sizes.size() == 1) {
+                            assertSame(reused, chunk.get(1));
+                        }
+                        chunk.forEach(item -> item.name = "seen");
+                    });
+            assertEquals(List.of(10, 10, 4), sizes);
+
+            // Entities managed before the call survive it, the chunks' own are gone
+            assertEquals(2, sessionImpl.getManagedCount());
+            assertSame(kept, session.find(Item.class, 2L));
+            kept.name = "kept";
+            session.flush();
+        }
+        assertEquals("seen", selectName(1));
+        assertEquals("kept", selectName(2));
+        assertEquals("seen", selectName(3));
+        assertEquals("seen", selectName(25));
+
+        // A job failing in its third chunk keeps the first two committed and resumes after them
+        long[] marker = { 0 };
+        try (Session session = factory.openSession()) {
+            DAMException failure = assertThrows(DAMException.class,
+                    () -> session.forEachChunk(session.createQuery(Item.class), 10, null, true, chunk -> {
+                        chunk.forEach(item -> item.quantity = 0);
+                        if (chunk.getLast().id > 20) {
+                            throw new IllegalStateException("boom");
+                        }
+                        marker[0] = chunk.getLast().id;
+                    }));
+            assertInstanceOf(IllegalStateException.class, failure.getCause());
+        }
+        assertEquals(20, marker[0]);
+        try (Session session = factory.openSession()) {
+            assertEquals(20, session.createQuery(Item.class).where("quantity = ?", 0).getResultList().size());
+            Object last = session.forEachChunk(session.createQuery(Item.class), 10, marker[0], true,
+                    chunk -> chunk.forEach(item -> item.quantity = 0));
+            assertEquals(25L, last);
+            assertEquals(25, session.createQuery(Item.class).where("quantity = ?", 0).getResultList().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Keyset pages should walk the whole ordering through continuation tokens")
+    void testKeysetPagination() throws Exception {
+        for (long id = 1; id <= 23; id++) {
+            // Repeated prices and quantities, so the ID has to break ties
+            insertItem(id, "item" + (id % 5), (id % 4) + ".00", (int) (id % 3));
+        }
+
+        try (Session session = factory.openSession(true)) {
+            for (String[] order : new String[][] { { "price", "DESC" }, { "quantity", "ASC" } }) {
+                List<Long> expected = session.createQuery(Item.class).orderBy(order[0], Order.valueOf(order[1]))
+                        .orderBy("id", Order.valueOf(order[1])).getResultList().stream()
+                        .map(item -> item.id).toList();
+                List<Long> walked = new ArrayList<>();
+                String token = null;
+                do {
+                    Page<Item> page = session.createQuery(Item.class).orderBy(order[0], Order.valueOf(order[1]))
+                            .continueAfter(token).getPage(5);
+                    assertTrue(page.getContent().size() <= 5);
+                    page.getContent().forEach(item -> walked.add(item.id));
+                    token = page.getContinuationToken();
+                } while (token != null);
+                assertEquals(expected, walked);
+            }
+
+            // Mixed directions use the expanded predicate, with a filter containing OR
+            List<Item> mixed = session.createQuery(Item.class).where("quantity = ?", 1).or("quantity = ?", 2)
+                    .orderBy("name", Order.ASC).orderBy("price", Order.DESC).orderBy("id", Order.DESC)
+                    .getResultList();
+            List<Item> rest = session.createQuery(Item.class).where("quantity = ?", 1).or("quantity = ?", 2)
+                    .orderBy("name", Order.ASC).orderBy("price", Order.DESC)
+                    .after(mixed.get(3).name, mixed.get(3).price, mixed.get(3).id).getResultList();
+            assertEquals(mixed.subList(4, mixed.size()).stream().map(item -> item.id).toList(),
+                    rest.stream().map(item -> item.id).toList());
+
+            String token = session.createQuery(Item.class).orderBy("price", Order.DESC).getPage(5)
+                    .getContinuationToken();
+            assertThrows(DAMException.class,
+                    () -> session.createQuery(Item.class).orderBy("price", Order.ASC).continueAfter(token).getPage(5));
+            assertThrows(DAMException.class,
+                    () -> session.createQuery(Item.class).continueAfter("not a token").getPage(5));
+        }
+    }
+
+    record ItemRow(Long id, String name, BigDecimal price, int quantity) {
+    }
+
+    static class ItemLabel {
+        final String label;
+        final long stock;
+
+        ItemLabel(String label, long stock) {
+            this.label = label;
+            this.stock = stock;
+        }
+    }
+
+    @Test
+    @DisplayName("Projections should map selected columns into records and DTOs without managing entities")
+    void testProjection() throws Exception {
+        insertItem(1, "pen", "1.50", 10);
+        insertItem(2, "cup", "3.00", 5);
+        try (Statement stmt = admin.createStatement()) {
+            stmt.executeUpdate("INSERT INTO items (id, name) VALUES (3, 'mat')");
+        }
+
+        try (Session session = factory.openSession()) {
+            List<ItemRow> rows = session.createQuery(Item.class).select("quantity", "name", "id", "price")
+                    .orderBy("id", Order.ASC).project(ItemRow.class);
+            assertEquals(new ItemRow(1L, "pen", new BigDecimal("1.50"), 10), rows.get(0));
+            // NULL into a primitive component becomes its zero value
+            assertEquals(new ItemRow(3L, "mat", null, 0), rows.get(2));
+
+            List<ItemLabel> labels = session.createQuery(Item.class).select("name", "quantity")
+                    .where("quantity > ?", 6).project(ItemLabel.class);
+            assertEquals(1, labels.size());
+            assertEquals("pen", labels.get(0).label);
+            assertEquals(10L, labels.get(0).stock);
+
+            assertThrows(DAMException.class,
+                    () -> session.createQuery(Item.class).select("id", "name").project(ItemRow.class));
+
+            // Nothing was loaded into the session: find() still reads the row
+            insertItem(4, "box", "2.00", 1);
+            session.createQuery(Item.class).select("id", "name", "price", "quantity").where("id = ?", 4L)
+                    .project(ItemRow.class);
+            try (Statement stmt = admin.createStatement()) {
+                stmt.executeUpdate("UPDATE items SET name = 'crate' WHERE id = 4");
+            }
+            assertEquals("crate", session.find(Item.class, 4L).name);
+        }
+    }
+
+    @Test
+    @DisplayName("count(), exists(), getScalar() and getFirstResult() should read only what they return")
+    void testAggregateTerminals() throws Exception {
+        insertItem(1, "pen", "1.50", 10);
+        insertItem(2, "cup", "3.00", 5);
+        insertItem(3, "pen", "2.50", 7);
+
+        try (Session session = factory.openSession()) {
+            assertEquals(3, session.createQuery(Item.class).count());
+            assertEquals(2, session.createQuery(Item.class).where("name = ?", "pen").count());
+            assertEquals(2, session.createQuery(Item.class).groupBy("name").count());
+            assertEquals(1, session.createQuery(Item.class).orderBy("id", Order.ASC).limit(2).offset(2).count());
+
+            assertTrue(session.createQuery(Item.class).where("quantity > ?", 6).exists());
+            assertFalse(session.createQuery(Item.class).where("quantity > ?", 60).exists());
+
+            assertEquals(new BigDecimal("3.00"),
+                    session.createQuery(Item.class).select("MAX(price)").getScalar(BigDecimal.class));
+            assertEquals(17L, session.createQuery(Item.class).select("SUM(quantity)").groupBy("name")
+                    .having("name = ?", "pen").getScalar(Long.class));
+            assertNull(session.createQuery(Item.class).select("name").where("id = ?", 9L).getScalar(String.class));
+            assertThrows(DAMException.class,
+                    () -> session.createQuery(Item.class).select("name").getScalar(String.class));
+
+            assertEquals("cup", session.createQuery(Item.class).orderBy("price", Order.DESC).getFirstResult().name);
+            assertNull(session.createQuery(Item.class).where("quantity > ?", 60).getFirstResult());
+            DAMException multiple = assertThrows(DAMException.class,
+                    () -> session.createQuery(Item.class).where("name = ?", "pen").getSingleResult());
+            assertEquals("Multiple results found", multiple.getMessage());
+        }
+    }
+
+    @Test
+    @DisplayName("Pages should report their total from the page query or a bounded count")
+    void testPageTotals() throws Exception {
+        for (long id = 1; id <= 12; id++) {
+            insertItem(id, "item" + id, "1.00", (int) (id % 2));
+        }
+
+        try (Session session = factory.openSession(true)) {
+            Page<Item> first = session.createQuery(Item.class).where("quantity = ?", 1).withTotal().getPage(4);
+            assertEquals(4, first.getContent().size());
+            assertEquals(6, first.getTotal());
+            assertTrue(first.isTotalExact());
+
+            Page<Item> second = session.createQuery(Item.class).where("quantity = ?", 1)
+                    .continueAfter(first.getContinuationToken()).withTotal().getPage(4);
+            assertEquals(2, second.getContent().size());
+            assertEquals(6, second.getTotal());
+            assertFalse(second.hasNext());
+
+            Page<Item> offsetPage = session.createQuery(Item.class).orderBy("id", Order.DESC).offset(10)
+                    .withTotal().getPage(4);
+            assertEquals(List.of(2L, 1L), offsetPage.getContent().stream().map(item -> item.id).toList());
+            assertEquals(12, offsetPage.getTotal());
+            assertEquals(12, session.createQuery(Item.class).offset(20).withTotal().getPage(4).getTotal());
+
+            Page<Item> capped = session.createQuery(Item.class).withTotal(5).getPage(3);
+            assertEquals(5, capped.getTotal());
+            assertFalse(capped.isTotalExact());
+            Page<Item> small = session.createQuery(Item.class).where("id < ?", 3L).withTotal(5).getPage(3);
+            assertEquals(2, small.getTotal());
+            assertTrue(small.isTotalExact());
+
+            assertEquals(-1, session.createQuery(Item.class).getPage(3).getTotal());
+        }
+    }
+
+    @Test
+    @DisplayName("Compiled queries should bind parameters per execution and fail fast on invalid SQL")
+    void testCompiledQuery() throws Exception {
+        for (long id = 1; id <= 6; id++) {
+            insertItem(id, "item" + id, "1.00", (int) id);
+        }
+
+        CompiledQuery<Item> atLeast = factory.compileQuery(Item.class,
+                q -> q.where("quantity >= ?", CompiledQuery.PARAM).and("name <> ?", "item5").orderBy("id", Order.ASC));
+        try (Session session = factory.openSession()) {
+            List<Item> fromFour = atLeast.bind(4).execute(session);
+            assertEquals(List.of(4L, 6L), fromFour.stream().map(item -> item.id).toList());
+            // Results are managed like those of any other query in the session
+            assertSame(fromFour.get(0), session.find(Item.class, 4L));
+            assertEquals(List.of(2L, 3L, 4L, 6L), atLeast.bind(2).execute(session).stream().map(item -> item.id)
+                    .toList());
+        }
+        assertThrows(DAMException.class, () -> atLeast.bind());
+        assertThrows(DAMException.class, () -> atLeast.bind(1, 2));
+        assertThrows(DAMException.class,
+                () -> factory.compileQuery(Item.class, q -> q.where("no_such_column = ?", CompiledQuery.PARAM)));
+
+        SessionFactory named = newConfiguration()
+                .addNamedQuery("itemsNamed", Item.class, q -> q.where("name = ?", CompiledQuery.PARAM))
+                .buildSessionFactory();
+        try (Session session = named.openSession()) {
+            CompiledQuery<Item> byName = named.getNamedQuery("itemsNamed", Item.class);
+            assertEquals(3L, byName.bind("item3").execute(session).get(0).id);
+            assertThrows(DAMException.class, () -> named.getNamedQuery("itemsNamed", CachedItem.class));
+            assertThrows(DAMException.class, () -> named.getNamedQuery("missing", Item.class));
+        } finally {
+            named.close();
+        }
+    }
+
+    @Test
+    @DisplayName("A factory that fails to build should leave no background component running")
+    void testFailedBuildStopsBackgroundComponents() {
+        // started, closed
+        boolean[] transportState = new boolean[2];
+        InvalidationTransport transport = new InvalidationTransport() {
+            @Override
+            public void start(Consumer<byte[]> receiver) {
+                transportState[0] = true;
+            }
+
+            @Override
+            public void publish(byte[] message) {
+            }
+
+            @Override
+            public int getMaxMessageSize() {
+                return 1024;
+            }
+
+            @Override
+            public void close() {
+                transportState[1] = true;
+            }
+        };
+
+        Configuration broken = newConfiguration().setInvalidationTransport(transport)
+                .addNamedQuery("broken", Item.class, q -> q.where("no_such_column = ?", CompiledQuery.PARAM));
+        assertThrows(DAMException.class, broken::buildSessionFactory);
+        assertEquals(transportState[0], transportState[1]);
+    }
+
+    @Test
+    @DisplayName("Native queries should map entities, records and scalars, and stream them detached")
+    void testNativeQuery() throws Exception {
+        for (long id = 1; id <= 7; id++) {
+            insertItem(id, "item" + id, "1.00", (int) id);
+        }
+        String ranked = "WITH ranked AS (SELECT i.*, ROW_NUMBER() OVER (ORDER BY quantity DESC) AS rn FROM items i) "
+                + "SELECT * FROM ranked WHERE rn <= ? ORDER BY rn";
+
+        try (Session session = factory.openSession()) {
+            List<Item> top = session.createNativeQuery(ranked, Item.class).setParameter(1, 3).getResultList();
+            assertEquals(List.of(7L, 6L, 5L), top.stream().map(item -> item.id).toList());
+            // Complete entities join the session like query results
+            assertSame(top.get(0), session.find(Item.class, 7L));
+
+            Item partial = session.createNativeQuery("SELECT id, name FROM items WHERE id = ?", Item.class)
+                    .setParameter(1, 2L).getSingleResult();
+            assertEquals("item2", partial.name);
+            assertNotSame(partial, session.find(Item.class, 2L));
+
+            List<ItemRow> rows = session.createNativeQuery("SELECT * FROM items WHERE quantity > ? ORDER BY id",
+                    ItemRow.class).setParameter(1, 5).getResultList();
+            assertEquals(List.of(new ItemRow(6L, "item6", new BigDecimal("1.00"), 6),
+                    new ItemRow(7L, "item7", new BigDecimal("1.00"), 7)), rows);
+            assertEquals(7L, session.createNativeQuery("SELECT COUNT(*) FROM items", Long.class).getSingleResult());
+
+            try (Stream<String> names = session
+                    .createNativeQuery("SELECT name FROM items WHERE name <> ? ORDER BY id", String.class)
+                    .setParameter(1, "item1").stream()) {
+                assertEquals(6, names.count());
+            }
+
+            // Streamed entities are detached, even those the session already manages
+            List<Item> streamed;
+            try (Stream<Item> items = session.createNativeQuery("SELECT * FROM items ORDER BY id", Item.class)
+                    .stream()) {
+                streamed = items.toList();
+            }
+            assertEquals(7, streamed.size());
+            assertNotSame(top.get(0), streamed.get(6));
+            streamed.forEach(item -> assertNotSame(item, session.find(Item.class, item.id)));
+
+            List<Integer> batchSizes = new ArrayList<>();
+            session.createNativeQuery("SELECT * FROM items", Item.class).forEachBatch(3, batch -> {
+                batchSizes.add(batch.size());
+                batch.forEach(item -> assertNotSame(item, session.find(Item.class, item.id)));
+            });
+            assertEquals(List.of(3, 3, 1), batchSizes);
+
+            assertThrows(DAMException.class, () -> session
+                    .createNativeQuery("SELECT * FROM items WHERE id = ? OR id = ?", Item.class)
+                    .setParameter(2, 1L).getResultList());
+        }
+    }
+
+    @Test
+    @DisplayName("Bulk writes should flush first, then detach managed entities and invalidate cached rows")
+    void testBulkUpdateAndDelete() throws Exception {
+        for (long id = 1; id <= 6; id++) {
+            insertItem(id, "item" + id, "1.00", (int) id);
+        }
+
+        try (Session session = factory.openSession()) {
+            assertEquals("item1", session.find(CachedItem.class, 1L).name);
+        }
+        assertNotNull(factory.getCache().get(CachedItem.class, 1L));
+
+        try (Session session = factory.openSession()) {
+            Item first = session.find(Item.class, 1L);
+            first.price = new BigDecimal("9.00");
+
+            Transaction tx = session.beginTransaction();
+            int updated = session.createQuery(Item.class).where("quantity < ?", 3).or("quantity = ?", 6)
+                    .executeUpdate(Map.of("name", "stale"));
+            tx.commit();
+            assertEquals(3, updated);
+            assertNull(factory.getCache().get(CachedItem.class, 1L));
+
+            // The pending change was flushed first and the stale instance detached
+            first.name = "lost";
+            session.flush();
+            assertEquals("stale", selectName(1));
+            Item reloaded = session.find(Item.class, 1L);
+            assertNotSame(first, reloaded);
+            assertEquals("stale", reloaded.name);
+            assertEquals(0, new BigDecimal("9.00").compareTo(reloaded.price));
+
+            assertEquals(2, session.createQuery(Item.class).where("quantity BETWEEN ? AND ?", 4, 5).executeDelete());
+            assertEquals(4, session.createQuery(Item.class).count());
+
+            assertThrows(DAMException.class,
+                    () -> session.createQuery(Item.class).orderBy("id", Order.ASC).executeDelete());
+            assertThrows(DAMException.class,
+                    () -> session.createQuery(Item.class).executeUpdate(Map.of("name = name, price", 0)));
+            assertThrows(DAMException.class, () -> session.createQuery(Item.class).executeUpdate(Map.of("id", 9L)));
+        }
+        assertEquals("stale", selectName(2));
+        assertEquals("item3", selectName(3));
+
+        // The second-level cache no longer serves the row loaded before the update
+        try (Session session = factory.openSession()) {
+            assertEquals("stale", session.find(CachedItem.class, 1L).name);
+        }
+        try (Session session = factory.openSession(true)) {
+            assertThrows(DAMException.class, () -> session.createQuery(Item.class).executeDelete());
+        }
+    }
+}
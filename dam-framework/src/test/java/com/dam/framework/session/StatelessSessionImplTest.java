@@ -0,0 +1,173 @@
+package com.dam.framework.session;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.dam.framework.annotations.Column;
+import com.dam.framework.annotations.Entity;
+import com.dam.framework.annotations.GeneratedValue;
+import com.dam.framework.annotations.GenerationType;
+import com.dam.framework.annotations.Id;
+import com.dam.framework.annotations.Table;
+import com.dam.framework.query.NativeQuery;
+import com.dam.framework.query.Query;
+import com.dam.framework.transaction.Transaction;
+
+/**
+ * Integration tests for StatelessSessionImpl using an H2 database in MySQL mode.
+ */
+class StatelessSessionImplTest {
+
+    private static final String URL = "jdbc:h2:mem:stateless_test;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    private Connection admin;
+    private SessionFactory factory;
+
+    @Entity
+    @Table(name = "events")
+    static class Event {
+        @Id
+        @Column(name = "id")
+        private Long id;
+
+        @Column(name = "kind")
+        private String kind;
+
+        Event() {
+        }
+
+        Event(Long id, String kind) {
+            this.id = id;
+            this.kind = kind;
+        }
+    }
+
+    @Entity
+    @Table(name = "logs")
+    static class LogLine {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        @Column(name = "id")
+        private Long id;
+
+        @Column(name = "text")
+        private String text;
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        admin = DriverManager.getConnection(URL);
+        try (Statement stmt = admin.createStatement()) {
+            stmt.execute("CREATE TABLE events (id BIGINT PRIMARY KEY, kind VARCHAR(50))");
+            stmt.execute("CREATE TABLE logs (id BIGINT AUTO_INCREMENT PRIMARY KEY, text VARCHAR(50))");
+        }
+        factory = new Configuration()
+                .setDialectDriver(new SessionImplTest.H2DialectDriver())
+                .setUrl(URL)
+                .setJdbcBatchSize(3)
+                .addAnnotatedClass(Event.class)
+                .addAnnotatedClass(LogLine.class)
+                .buildSessionFactory();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        factory.close();
+        try (Statement stmt = admin.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS events");
+            stmt.execute("DROP TABLE IF EXISTS logs");
+        }
+        admin.close();
+    }
+
+    private int countEvents() throws Exception {
+        try (Statement stmt = admin.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM events")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Inserts should be batched and sent when the batch is full")
+    void testInsertsAreBatched() throws Exception {
+        try (StatelessSession session = factory.openStatelessSession()) {
+            session.insert(new Event(1L, "a"));
+            session.insert(new Event(2L, "b"));
+            assertEquals(0, countEvents());
+
+            session.insert(new Event(3L, "c"));
+            assertEquals(3, countEvents());
+
+            session.insert(new Event(4L, "d"));
+        }
+        assertEquals(4, countEvents());
+    }
+
+    @Test
+    @DisplayName("Reads should see pending writes and return detached entities")
+    void testGetFlushesPendingWrites() throws Exception {
+        try (StatelessSession session = factory.openStatelessSession()) {
+            session.insert(new Event(1L, "a"));
+            session.update(new Event(1L, "b"));
+
+            Event loaded = session.get(Event.class, 1L);
+            assertEquals("b", loaded.kind);
+            assertNotSame(loaded, session.get(Event.class, 1L));
+
+            session.delete(loaded);
+            assertNull(session.get(Event.class, 1L));
+        }
+    }
+
+    @Test
+    @DisplayName("Rollback should discard pending batched writes")
+    void testRollbackDiscardsBatch() throws Exception {
+        try (StatelessSession session = factory.openStatelessSession()) {
+            Transaction tx = session.beginTransaction();
+            session.insert(new Event(1L, "a"));
+            tx.rollback();
+
+            tx = session.beginTransaction();
+            session.insert(new Event(2L, "b"));
+            tx.commit();
+        }
+        assertEquals(1, countEvents());
+    }
+
+    @Test
+    @DisplayName("IDENTITY inserts should run immediately and set the generated ID")
+    void testIdentityInsert() throws Exception {
+        try (StatelessSession session = factory.openStatelessSession()) {
+            LogLine line = new LogLine();
+            line.text = "hello";
+            session.insert(line);
+            assertNotNull(line.id);
+        }
+    }
+
+    @Test
+    @DisplayName("Queries should see writes queued after they were created")
+    void testQueriesFlushWhenExecuted() throws Exception {
+        try (StatelessSession session = factory.openStatelessSession()) {
+            Query<Event> query = session.createQuery(Event.class).where("kind = ?", "a");
+            NativeQuery<Long> total = session.createNativeQuery("SELECT COUNT(*) FROM events", Long.class);
+            session.insert(new Event(1L, "a"));
+            assertEquals(1, query.getResultList().size());
+
+            session.insert(new Event(2L, "a"));
+            assertEquals(2, query.count());
+            session.insert(new Event(3L, "b"));
+            assertEquals(3L, total.getSingleResult());
+        }
+    }
+}
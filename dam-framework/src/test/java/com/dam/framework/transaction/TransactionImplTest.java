@@ -5,6 +5,8 @@ import static org.junit.jupiter.api.Assertions.*;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -178,4 +180,23 @@ class TransactionImplTest {
             assertEquals(0, rs.getInt(1));
         }
     }
+
+    @Test
+    void testSynchronizationsNotifiedOnCompletion() {
+        List<Boolean> outcomes = new ArrayList<>();
+
+        transaction.begin();
+        transaction.registerSynchronization(committed -> {
+            throw new IllegalStateException("must not break commit");
+        });
+        transaction.registerSynchronization(outcomes::add);
+        transaction.commit();
+
+        transaction.begin();
+        transaction.registerSynchronization(outcomes::add);
+        transaction.rollback();
+
+        assertEquals(List.of(true, false), outcomes);
+        assertThrows(IllegalStateException.class, () -> transaction.registerSynchronization(outcomes::add));
+    }
 }